@@ -0,0 +1,74 @@
+package com.tiffin.cache;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link BloomFilter#add} and {@link BloomFilter#mightContain} for present and absent keys,
+ * on a filter sized like the cache's and half full; run at several thread counts, add
+ * also measures the atomic OR under contention
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BloomFilterBenchmark {
+
+    private static final int EXPECTED_ELEMENTS = 1_000_000;
+    private static final int KEYS = 1 << 16;
+
+    BloomFilter filter;
+    String[] present;
+    String[] absent;
+
+    @Setup
+    public void fill() {
+        filter = new BloomFilter(EXPECTED_ELEMENTS, 0.01);
+        for (int i = 0; i < EXPECTED_ELEMENTS / 2; i++) {
+            filter.add("dish:" + i);
+        }
+        present = new String[KEYS];
+        absent = new String[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            present[i] = "dish:" + i * (EXPECTED_ELEMENTS / 2 / KEYS);
+            absent[i] = "users:email:probe" + i + "@example.com";
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+
+        int next() {
+            next = (next + 1) & (KEYS - 1);
+            return next;
+        }
+    }
+
+    @Benchmark
+    public void add(Cursor cursor) {
+        filter.add(present[cursor.next()]);
+    }
+
+    @Benchmark
+    public boolean mightContainPresent(Cursor cursor) {
+        return filter.mightContain(present[cursor.next()]);
+    }
+
+    @Benchmark
+    public boolean mightContainAbsent(Cursor cursor) {
+        return filter.mightContain(absent[cursor.next()]);
+    }
+}
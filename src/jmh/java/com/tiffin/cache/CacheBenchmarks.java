@@ -0,0 +1,49 @@
+package com.tiffin.cache;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatFactory;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs the cache benchmarks at 1, 8 and 32 threads with the GC profiler, whose
+ * gc.alloc.rate.norm is the bytes allocated per operation, and writes every result to one
+ * JSON file (the jmh.result system property, target/jmh-result.json by default)
+ *
+ *   mvn -P benchmarks test-compile exec:exec [-Djmh.include=regex]
+ *
+ * Other arguments are JMH's own; with -t only that thread count is run.
+ */
+public final class CacheBenchmarks {
+
+    private static final int[] THREADS = {1, 8, 32};
+
+    private CacheBenchmarks() {
+    }
+
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        int[] threadCounts = commandLine.getThreads().hasValue() ? new int[] {commandLine.getThreads().get()} : THREADS;
+        List<RunResult> results = new ArrayList<>();
+        for (int threads : threadCounts) {
+            Options options = new OptionsBuilder()
+                .parent(commandLine)
+                .threads(threads)
+                .addProfiler(GCProfiler.class)
+                .build();
+            results.addAll(new Runner(options).run());
+        }
+        String file = System.getProperty("jmh.result", "target/jmh-result.json");
+        ResultFormatFactory.getInstance(ResultFormatType.JSON, file).writeOut(results);
+        System.out.println("Results written to " + file);
+    }
+}
@@ -0,0 +1,55 @@
+package com.tiffin.cache;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The per-read bookkeeping of {@link CacheEntry}: the access stamp on one entry read by every
+ * thread (a hot key) and on one entry per thread, the expiry check, and reading the count
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheEntryBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Shared {
+        final CacheEntry entry = new CacheEntry("dal makhani", System.currentTimeMillis() + 3_600_000);
+    }
+
+    @State(Scope.Thread)
+    public static class Own {
+        final CacheEntry entry = new CacheEntry("dal makhani", System.currentTimeMillis() + 3_600_000);
+    }
+
+    @Benchmark
+    public void recordAccessShared(Shared shared) {
+        shared.entry.recordAccess();
+    }
+
+    @Benchmark
+    public void recordAccessOwn(Own own) {
+        own.entry.recordAccess();
+    }
+
+    @Benchmark
+    public boolean isExpired(Own own) {
+        return own.entry.isExpired();
+    }
+
+    @Benchmark
+    public long getAccessCount(Own own) {
+        return own.entry.getAccessCount();
+    }
+}
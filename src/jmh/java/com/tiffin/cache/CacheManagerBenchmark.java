@@ -0,0 +1,99 @@
+package com.tiffin.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.unit.DataSize;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link AdvancedCacheManager#get} and {@link AdvancedCacheManager#put} over
+ * Zipfian keys, run at 1, 8 and 32 threads by {@link CacheBenchmarks}
+ *
+ * KEYS dish-sized values are stored before measuring, into levels small enough that the
+ * popular head stays in L1 and the tail spreads over L2 and L3, so gets see the hit, miss
+ * and promotion mix of a skewed workload rather than an all-L1 best case. Each thread
+ * draws its own key sequence; skew is the Zipf exponent.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CacheManagerBenchmark {
+
+    static final int KEYS = 100_000;
+    private static final long TTL = 3_600_000;
+    private static final int WRITE_EVERY = 10; // mixed: one put per ten operations
+
+    @Param({"0.8", "1.2"})
+    double skew;
+
+    AdvancedCacheManager cache;
+    String[] keys;
+    byte[] value;
+
+    @Setup
+    public void fill() {
+        MultiLevelCacheProperties properties = new MultiLevelCacheProperties();
+        properties.setL1MaxWeight(DataSize.ofMegabytes(4));
+        properties.setL2MaxWeight(DataSize.ofMegabytes(8));
+        properties.setL3MaxWeight(DataSize.ofMegabytes(64));
+        cache = new AdvancedCacheManager(new SimpleMeterRegistry(), properties, CacheWeigher.retainedSize());
+        keys = new String[KEYS];
+        value = new byte[200];
+        for (int i = 0; i < KEYS; i++) {
+            keys[i] = "dish:" + i;
+            cache.put(keys[i], value, TTL);
+        }
+    }
+
+    @TearDown
+    public void clear() {
+        cache.clearAll();
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadKeys {
+        ZipfianKeys keys;
+        int operations;
+
+        @Setup
+        public void draw(CacheManagerBenchmark benchmark) {
+            keys = new ZipfianKeys(KEYS, benchmark.skew, Thread.currentThread().threadId());
+        }
+    }
+
+    @Benchmark
+    public Optional<byte[]> get(ThreadKeys thread) {
+        return cache.get(keys[thread.keys.next()], byte[].class);
+    }
+
+    @Benchmark
+    public void put(ThreadKeys thread) {
+        cache.put(keys[thread.keys.next()], value, TTL);
+    }
+
+    @Benchmark
+    public Object mixed(ThreadKeys thread) {
+        String key = keys[thread.keys.next()];
+        if (++thread.operations % WRITE_EVERY == 0) {
+            cache.put(key, value, TTL);
+            return key;
+        }
+        return cache.get(key, byte[].class);
+    }
+}
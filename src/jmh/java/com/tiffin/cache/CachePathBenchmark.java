@@ -0,0 +1,147 @@
+package com.tiffin.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.unit.DataSize;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of each path of a single lookup in {@link AdvancedCacheManager}
+ *
+ * - l1Hit: a key that stays in L1
+ * - l2Hit: values too large for L1, so the promotion check runs and refuses every time
+ * - l2PromotionToL1: a put into L2 followed by the read promoting it, under KEY_PREFIX
+ *   placement (which promotes on every hit) and an L1 small enough to evict on each one;
+ *   subtract putL2 for the promotion itself
+ * - l3Read: the off-heap read an L3 hit is made of, on {@link MappedCacheStore} directly,
+ *   since through the manager the first hits promote the key out of L3
+ * - bloomRejectedMiss: an absent key, turned away by the Bloom filter
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CachePathBenchmark {
+
+    private static final long TTL = 3_600_000;
+    private static final int KEYS = 10_000;
+
+    @State(Scope.Benchmark)
+    public static class Levels {
+        AdvancedCacheManager cache;
+
+        @Setup
+        public void fill() {
+            MultiLevelCacheProperties properties = new MultiLevelCacheProperties();
+            properties.setL1MaxWeight(DataSize.ofKilobytes(32));
+            cache = new AdvancedCacheManager(new SimpleMeterRegistry(), properties, CacheWeigher.retainedSize());
+            cache.put("session:hot", "token", TTL, CacheLevel.L1);
+            cache.put("dishes:all", new byte[48 * 1024], TTL, CacheLevel.L2);
+        }
+
+        @TearDown
+        public void clear() {
+            cache.clearAll();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Promotions {
+        AdvancedCacheManager cache;
+        String[] keys;
+
+        @Setup
+        public void create() {
+            MultiLevelCacheProperties properties = new MultiLevelCacheProperties();
+            properties.setPlacement(MultiLevelCacheProperties.Placement.KEY_PREFIX);
+            properties.setL1MaxWeight(DataSize.ofKilobytes(64));
+            cache = new AdvancedCacheManager(new SimpleMeterRegistry(), properties, CacheWeigher.retainedSize());
+            keys = new String[KEYS];
+            for (int i = 0; i < KEYS; i++) {
+                keys[i] = "dish:" + i;
+            }
+        }
+
+        @TearDown
+        public void clear() {
+            cache.clearAll();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+
+        int next() {
+            next = next + 1 == KEYS ? 0 : next + 1;
+            return next;
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class OffHeap {
+        MappedCacheStore store;
+        String[] keys;
+
+        @Setup
+        public void fill() {
+            store = MappedCacheStore.createTemporary(64 * 1024 * 1024, KEYS);
+            keys = new String[KEYS];
+            long expiresAt = System.currentTimeMillis() + TTL;
+            for (int i = 0; i < KEYS; i++) {
+                keys[i] = "orders:" + i;
+                store.put(keys[i], new byte[200], expiresAt);
+            }
+        }
+
+        @TearDown
+        public void clear() {
+            store.clear();
+        }
+    }
+
+    @Benchmark
+    public Optional<String> l1Hit(Levels levels) {
+        return levels.cache.get("session:hot", String.class);
+    }
+
+    @Benchmark
+    public Optional<byte[]> l2Hit(Levels levels) {
+        return levels.cache.get("dishes:all", byte[].class);
+    }
+
+    @Benchmark
+    public void putL2(Promotions promotions, Cursor cursor) {
+        promotions.cache.put(promotions.keys[cursor.next()], "dal makhani", TTL, CacheLevel.L2);
+    }
+
+    @Benchmark
+    public Optional<String> l2PromotionToL1(Promotions promotions, Cursor cursor) {
+        String key = promotions.keys[cursor.next()];
+        promotions.cache.put(key, "dal makhani", TTL, CacheLevel.L2);
+        return promotions.cache.get(key, String.class);
+    }
+
+    @Benchmark
+    public Object l3Read(OffHeap offHeap, Cursor cursor) {
+        return offHeap.store.get(offHeap.keys[cursor.next()]);
+    }
+
+    @Benchmark
+    public Optional<String> bloomRejectedMiss(Levels levels) {
+        return levels.cache.get("users:email:nobody@example.com", String.class);
+    }
+}
@@ -0,0 +1,37 @@
+package com.tiffin.cache;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Key indexes 0..n-1 drawn with probability proportional to 1 / (index + 1)^exponent
+ *
+ * The draws are made up front, so the measured loop only reads the next one from an array.
+ */
+final class ZipfianKeys {
+
+    private static final int SEQUENCE_LENGTH = 1 << 16;
+
+    private final int[] sequence = new int[SEQUENCE_LENGTH];
+    private int next;
+
+    ZipfianKeys(int n, double exponent, long seed) {
+        double[] cumulative = new double[n];
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += 1 / Math.pow(i + 1, exponent);
+            cumulative[i] = sum;
+        }
+        Random random = new Random(seed);
+        for (int i = 0; i < SEQUENCE_LENGTH; i++) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+            sequence[i] = Math.min(n - 1, index >= 0 ? index : -index - 1);
+        }
+    }
+
+    int next() {
+        int index = sequence[next];
+        next = (next + 1) & (SEQUENCE_LENGTH - 1);
+        return index;
+    }
+}
@@ -0,0 +1,138 @@
+package com.tiffin.security.ratelimit;
+
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The per-request work of the two stages {@link RateLimitingFilter} replaced, as the baseline of
+ * {@link RateLimitBenchmark} and {@link RateLimitLoad}: the Bucket4j filter (a bucket per IP),
+ * then the interceptor (blocked IP check, login, IP and user windows of the old
+ * InMemoryRateLimitingService), each parsing the client identity and formatting its own
+ * rejection; {@code limit} stands for all their limits
+ */
+final class LegacyRateLimiting implements Filter {
+
+    private final int limit;
+    private final ConcurrentHashMap<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, AtomicReference<Window>> windows = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LocalDateTime> blockedIps = new ConcurrentHashMap<>();
+
+    LegacyRateLimiting(int limit) {
+        this.limit = limit;
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        if (handle((HttpServletRequest) request, (HttpServletResponse) response)) {
+            chain.doFilter(request, response);
+        }
+    }
+
+    /**
+     * Whether the request passes both stages; if not, the rejection is written
+     */
+    boolean handle(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        // RateLimitingFilter
+        String clientKey = ipAddress(request);
+        Bucket bucket = buckets.computeIfAbsent(clientKey, key -> Bucket.builder()
+                .addLimit(Bandwidth.builder()
+                        .capacity(Math.max(1, limit))
+                        .refillIntervally(Math.max(1, limit), Duration.ofMinutes(1))
+                        .build())
+                .build());
+        if (!bucket.tryConsume(1)) {
+            write(response, """
+                {
+                    "success": false,
+                    "errorCode": "RATE_LIMIT_EXCEEDED",
+                    "message": "Too many requests. Please try again later.",
+                    "timestamp": "%s",
+                    "retryAfter": 60
+                }
+                """.formatted(java.time.Instant.now().toString()));
+            return false;
+        }
+        response.setHeader("X-Rate-Limit-Remaining", String.valueOf(bucket.getAvailableTokens()));
+        response.setHeader("X-Rate-Limit-Reset", String.valueOf(System.currentTimeMillis() / 1000 + 60));
+
+        // RateLimitInterceptor
+        String ipAddress = ipAddress(request);
+        String userId = request.getHeader("Authorization") == null && request.getSession(false) != null
+                ? (String) request.getSession(false).getAttribute("userId") : null;
+        String requestUri = request.getRequestURI();
+        LocalDateTime unblockTime = blockedIps.get(ipAddress);
+        if (unblockTime != null && !LocalDateTime.now().isAfter(unblockTime)) {
+            rejectInInterceptor(response);
+            return false;
+        }
+        boolean login = requestUri.contains("/auth/login") || requestUri.contains("/api/auth/login")
+                || requestUri.contains("/login");
+        if (login && !isAllowed("login:" + ipAddress)) {
+            blockedIps.put(ipAddress, LocalDateTime.now().plusMinutes(30));
+            rejectInInterceptor(response);
+            return false;
+        }
+        if (!isAllowed("ip:" + ipAddress) || (userId != null && !isAllowed("api:" + userId))) {
+            rejectInInterceptor(response);
+            return false;
+        }
+        return true;
+    }
+
+    private boolean isAllowed(String key) {
+        AtomicReference<Window> entry = windows.computeIfAbsent(key,
+                k -> new AtomicReference<>(new Window(LocalDateTime.now(), 0)));
+        while (true) {
+            Window current = entry.get();
+            Window base = LocalDateTime.now().isAfter(current.start().plusMinutes(1))
+                    ? new Window(LocalDateTime.now(), 0) : current;
+            if (base.count() >= limit) {
+                return false;
+            }
+            if (entry.compareAndSet(current, new Window(base.start(), base.count() + 1))) {
+                return true;
+            }
+        }
+    }
+
+    private static String ipAddress(HttpServletRequest request) {
+        String xForwardedFor = request.getHeader("X-Forwarded-For");
+        if (xForwardedFor != null && !xForwardedFor.isEmpty()) {
+            return xForwardedFor.split(",")[0].trim();
+        }
+        String xRealIp = request.getHeader("X-Real-IP");
+        if (xRealIp != null && !xRealIp.isEmpty()) {
+            return xRealIp;
+        }
+        return request.getRemoteAddr();
+    }
+
+    private static void rejectInInterceptor(HttpServletResponse response) throws IOException {
+        write(response, String.format("{\"error\": \"%s\", \"message\": \"%s\", \"timestamp\": %d}",
+                "Too Many Requests", "Rate limit exceeded", System.currentTimeMillis()));
+    }
+
+    private static void write(HttpServletResponse response, String json) throws IOException {
+        response.setStatus(429);
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        response.getWriter().write(json);
+        response.getWriter().flush();
+    }
+
+    private record Window(LocalDateTime start, int count) { }
+}
@@ -0,0 +1,155 @@
+package com.tiffin.security.ratelimit;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rate limiting cost per request: {@link RateLimitingFilter} against the two stages it replaced
+ *
+ * - unified: the filter, admitting
+ * - unifiedRejected: the filter, rejecting
+ * - legacy / legacyRejected: the same through {@link LegacyRateLimiting}, the two stages it replaced
+ * Requests come from {@code clients} IP addresses behind a proxy (X-Forwarded-For) and hit a
+ * general endpoint; limits are out of reach when admitting and zero when rejecting. Each
+ * operation also sets a header on a reused mock request and creates a mock response, the same
+ * for all four, so compare differences rather than ratios.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RateLimitBenchmark {
+
+    private static final FilterChain PASS = (request, response) -> { };
+
+    @State(Scope.Benchmark)
+    public static class Limiters {
+        @Param({"1024", "65536"})
+        int clients;
+
+        RateLimitingFilter admitting;
+        RateLimitingFilter rejecting;
+        LegacyRateLimiting legacyAdmitting;
+        LegacyRateLimiting legacyRejecting;
+        String[] forwardedFor;
+
+        @Setup
+        public void create() {
+            admitting = filter(Integer.MAX_VALUE);
+            rejecting = filter(0);
+            legacyAdmitting = new LegacyRateLimiting(Integer.MAX_VALUE);
+            legacyRejecting = new LegacyRateLimiting(0);
+            forwardedFor = new String[clients];
+            for (int i = 0; i < clients; i++) {
+                forwardedFor[i] = "10." + (i >> 16 & 255) + "." + (i >> 8 & 255) + "." + (i & 255) + ", 172.16.0.1";
+            }
+        }
+
+        private static RateLimitingFilter filter(int limit) {
+            RateLimitProperties properties = new RateLimitProperties();
+            properties.setIpRequests(limit);
+            properties.setWindow(Duration.ofHours(1));
+            return new RateLimitingFilter(new InMemoryRateLimitingService(properties), properties);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Exchange {
+        MockHttpServletRequest request;
+        MockHttpServletResponse response;
+        int next;
+
+        @Setup(Level.Iteration)
+        public void create() {
+            request = new MockHttpServletRequest("GET", "/api/dishes/42");
+        }
+
+        MockHttpServletRequest next(Limiters limiters) {
+            next = (next + 1) % limiters.clients;
+            request.removeHeader("X-Forwarded-For");
+            request.addHeader("X-Forwarded-For", limiters.forwardedFor[next]);
+            response = new BulkWriteResponse();
+            return request;
+        }
+    }
+
+    /**
+     * A mock response whose output stream copies arrays whole, as a servlet container's does;
+     * MockHttpServletResponse writes and flushes them a byte at a time, which would dwarf the
+     * rest of a rejection
+     */
+    static final class BulkWriteResponse extends MockHttpServletResponse {
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream(256);
+        private final ServletOutputStream outputStream = new ServletOutputStream() {
+            @Override
+            public void write(int b) {
+                body.write(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                body.write(b, off, len);
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+            }
+        };
+
+        @Override
+        public ServletOutputStream getOutputStream() {
+            return outputStream;
+        }
+    }
+
+    @Benchmark
+    public int unified(Limiters limiters, Exchange exchange) throws ServletException, IOException {
+        limiters.admitting.doFilter(exchange.next(limiters), exchange.response, PASS);
+        return exchange.response.getStatus();
+    }
+
+    @Benchmark
+    public int unifiedRejected(Limiters limiters, Exchange exchange) throws ServletException, IOException {
+        limiters.rejecting.doFilter(exchange.next(limiters), exchange.response, PASS);
+        return exchange.response.getStatus();
+    }
+
+    @Benchmark
+    public int legacy(Limiters limiters, Exchange exchange) throws IOException {
+        limiters.legacyAdmitting.handle(exchange.next(limiters), exchange.response);
+        return exchange.response.getStatus();
+    }
+
+    @Benchmark
+    public int legacyRejected(Limiters limiters, Exchange exchange) throws IOException {
+        limiters.legacyRejecting.handle(exchange.next(limiters), exchange.response);
+        return exchange.response.getStatus();
+    }
+}
@@ -0,0 +1,190 @@
+package com.tiffin.security.ratelimit;
+
+import jakarta.servlet.Filter;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.catalina.Context;
+import org.apache.catalina.LifecycleException;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.tomcat.util.descriptor.web.FilterDef;
+import org.apache.tomcat.util.descriptor.web.FilterMap;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * End-to-end load test of rate limiting: an embedded Tomcat serving a trivial endpoint behind
+ * {@link RateLimitingFilter}, then behind {@link LegacyRateLimiting}, driven over HTTP by
+ * {@code threads} keep-alive clients cycling through {@code clients} IP addresses
+ *
+ *   mvn -P benchmarks test-compile
+ *   java -cp ... com.tiffin.security.ratelimit.RateLimitLoad [seconds threads clients]
+ *
+ * Throughput: limits out of reach, so every request is served; reports requests per second
+ * and latency percentiles of each stage. Enforcement: the unified stage with a reachable
+ * per-IP limit and a one-second window; checks no IP got more than the limit per window.
+ * Not a unit test (no *Test suffix), so the build does not run it.
+ */
+public final class RateLimitLoad {
+
+    private static final int ENFORCED_LIMIT = 50;
+
+    private RateLimitLoad() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        int clients = args.length > 2 ? Integer.parseInt(args[2]) : 10_000;
+        System.out.printf("%d s per run, %d threads, %d client IPs%n", seconds, threads, clients);
+
+        // Alternating, so JIT warm-up and machine noise are shared out
+        for (int run = 0; run < 2; run++) {
+            report("legacy", load(new LegacyRateLimiting(Integer.MAX_VALUE), seconds, threads, clients, null));
+            report("unified", load(unified(Integer.MAX_VALUE, Duration.ofHours(1)), seconds, threads, clients, null));
+        }
+
+        AtomicIntegerArray admitted = new AtomicIntegerArray(threads * 4);
+        long started = System.currentTimeMillis();
+        Result enforced = load(unified(ENFORCED_LIMIT, Duration.ofSeconds(1)), seconds, threads, admitted.length(), admitted);
+        long windows = System.currentTimeMillis() / 1000 - started / 1000 + 1;
+        report("unified, " + ENFORCED_LIMIT + "/s per IP", enforced);
+        int violations = 0;
+        for (int client = 0; client < admitted.length(); client++) {
+            if (admitted.get(client) > windows * ENFORCED_LIMIT) {
+                System.out.printf("VIOLATION: %s admitted %d in %d windows%n", ip(client), admitted.get(client), windows);
+                violations++;
+            }
+        }
+        System.out.println(violations == 0 ? "limits held" : violations + " IPs over their limit");
+        System.exit(violations == 0 ? 0 : 1);
+    }
+
+    private static RateLimitingFilter unified(int limit, Duration window) {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setIpRequests(limit);
+        properties.setWindow(window);
+        return new RateLimitingFilter(new InMemoryRateLimitingService(properties), properties);
+    }
+
+    /**
+     * Requests from every thread for the given time, counting those served per client if asked
+     */
+    private static Result load(Filter filter, int seconds, int threads, int clients, AtomicIntegerArray served)
+            throws Exception {
+        Tomcat tomcat = start(filter);
+        try {
+            URI uri = URI.create("http://localhost:" + tomcat.getConnector().getLocalPort() + "/api/dishes/42");
+            long deadline = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+            CyclicBarrier start = new CyclicBarrier(threads);
+            List<long[]> latencies = new ArrayList<>();
+            int[] counts = new int[threads];
+            int[] rejected = new int[threads];
+            List<Thread> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                long[] samples = new long[1 << 20];
+                latencies.add(samples);
+                workers.add(Thread.ofPlatform().start(() -> {
+                    HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+                    try {
+                        start.await();
+                        for (int i = thread; System.nanoTime() < deadline; i += threads) {
+                            int ip = i % clients;
+                            HttpRequest request = HttpRequest.newBuilder(uri).header("X-Forwarded-For", ip(ip)).build();
+                            long sent = System.nanoTime();
+                            int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                            samples[counts[thread] & (samples.length - 1)] = System.nanoTime() - sent;
+                            counts[thread]++;
+                            if (status == 429) {
+                                rejected[thread]++;
+                            } else if (served != null) {
+                                served.incrementAndGet(ip);
+                            }
+                        }
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                }));
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            return Result.of(seconds, counts, rejected, latencies);
+        } finally {
+            tomcat.stop();
+            tomcat.destroy();
+        }
+    }
+
+    private static Tomcat start(Filter filter) throws IOException, LifecycleException {
+        Tomcat tomcat = new Tomcat();
+        tomcat.setBaseDir(Files.createTempDirectory("rate-limit-load").toString());
+        tomcat.setPort(0);
+        tomcat.getConnector();
+        Context context = tomcat.addContext("", null);
+        Tomcat.addServlet(context, "dish", new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+                response.setContentType("application/json");
+                response.getWriter().write("{\"id\":42}");
+            }
+        });
+        context.addServletMappingDecoded("/*", "dish");
+        FilterDef definition = new FilterDef();
+        definition.setFilterName("rateLimit");
+        definition.setFilter(filter);
+        context.addFilterDef(definition);
+        FilterMap mapping = new FilterMap();
+        mapping.setFilterName("rateLimit");
+        mapping.addURLPattern("/*");
+        context.addFilterMap(mapping);
+        tomcat.start();
+        return tomcat;
+    }
+
+    private static String ip(int client) {
+        return "10." + (client >> 16 & 255) + "." + (client >> 8 & 255) + "." + (client & 255);
+    }
+
+    private static void report(String name, Result result) {
+        System.out.printf("%-28s %9.0f req/s  p50 %6.0f us  p99 %7.0f us  p99.9 %7.0f us  %d rejected%n",
+            name, result.throughput(), result.p50() / 1e3, result.p99() / 1e3, result.p999() / 1e3, result.rejected());
+    }
+
+    private record Result(double throughput, double p50, double p99, double p999, long rejected) {
+
+        static Result of(int seconds, int[] counts, int[] rejected, List<long[]> latencies) {
+            long total = Arrays.stream(counts).asLongStream().sum();
+            int kept = 0;
+            for (int t = 0; t < counts.length; t++) {
+                kept += Math.min(counts[t], latencies.get(t).length);
+            }
+            long[] sorted = new long[kept];
+            int n = 0;
+            for (int t = 0; t < counts.length; t++) {
+                int samples = Math.min(counts[t], latencies.get(t).length);
+                System.arraycopy(latencies.get(t), 0, sorted, n, samples);
+                n += samples;
+            }
+            Arrays.sort(sorted);
+            return new Result((double) total / seconds, percentile(sorted, 0.5), percentile(sorted, 0.99),
+                percentile(sorted, 0.999), Arrays.stream(rejected).asLongStream().sum());
+        }
+
+        private static double percentile(long[] sorted, double p) {
+            return sorted.length == 0 ? 0 : sorted[Math.min(sorted.length - 1, (int) (p * sorted.length))];
+        }
+    }
+}
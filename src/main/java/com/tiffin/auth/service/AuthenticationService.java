@@ -13,8 +13,6 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.security.SecureRandom;
 import java.time.LocalDateTime;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Authentication Service
@@ -28,8 +26,7 @@ public class AuthenticationService {
     private final UserRepository userRepository;
     
     // In-memory OTP storage (in production, use Redis or database)
-    private final Map<String, String> otpStore = new ConcurrentHashMap<>();
-    private final Map<String, LocalDateTime> otpExpiryStore = new ConcurrentHashMap<>();
+    private final OtpStore otpStore = new OtpStore();
     
     private static final int OTP_LENGTH = 6;
     private static final int OTP_EXPIRY_MINUTES = 5;
@@ -46,8 +43,7 @@ public class AuthenticationService {
             
             // Store OTP with expiry time
             String otpKey = "otp:" + phoneNumber;
-            otpStore.put(otpKey, otp);
-            otpExpiryStore.put(otpKey, LocalDateTime.now().plusMinutes(OTP_EXPIRY_MINUTES));
+            otpStore.put(otpKey, otp, LocalDateTime.now().plusMinutes(OTP_EXPIRY_MINUTES));
             
             // In production, send actual SMS here
             log.info("Generated OTP for {}: {} (expires in {} minutes)", phoneNumber, otp, OTP_EXPIRY_MINUTES);
@@ -73,8 +69,9 @@ public class AuthenticationService {
             log.info("🔐 Verifying OTP for phone: {} with OTP: {}", phoneNumber, otp);
             
             String otpKey = "otp:" + phoneNumber;
-            String storedOtp = otpStore.get(otpKey);
-            LocalDateTime expiry = otpExpiryStore.get(otpKey);
+            OtpStore.Pending pending = otpStore.get(otpKey);
+            String storedOtp = pending != null ? pending.code() : null;
+            LocalDateTime expiry = pending != null ? pending.expiresAt() : null;
             
             // Development mode: Accept "123456" as universal OTP for testing
             boolean isDevelopmentOtp = "123456".equals(otp);
@@ -85,7 +82,7 @@ public class AuthenticationService {
                 log.info("🚀 DEVELOPMENT OTP BYPASS: 123456 used - allowing authentication");
             } else {
                 // Check if OTP exists and is not expired
-                if (storedOtp == null || expiry == null || LocalDateTime.now().isAfter(expiry)) {
+                if (pending == null || pending.isExpired(LocalDateTime.now())) {
                     log.warn("❌ OTP expired or invalid - Phone: {}, StoredOtp: {}, Expiry: {}", phoneNumber, storedOtp, expiry);
                     return AuthResponse.error("OTP expired or invalid");
                 }
@@ -96,15 +93,15 @@ public class AuthenticationService {
                     return AuthResponse.error("Invalid OTP");
                 }
                 
+                // Clear OTP from store; only one concurrent verification gets it
+                if (!otpStore.consume(otpKey, pending)) {
+                    log.warn("❌ OTP already used - Phone: {}", phoneNumber);
+                    return AuthResponse.error("OTP expired or invalid");
+                }
+                
                 log.info("✅ OTP verified successfully - Phone: {}", phoneNumber);
             }
             
-            // Clear OTP from store (unless it's development OTP)
-            if (!isDevelopmentOtp) {
-                otpStore.remove(otpKey);
-                otpExpiryStore.remove(otpKey);
-            }
-            
             // Find or create user
             User user = findOrCreateUser(phoneNumber);
             
@@ -0,0 +1,42 @@
+package com.tiffin.auth.service;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Pending OTPs by key, each consumed at most once
+ * The code and its expiry are stored as one value, and consuming removes exactly the
+ * value that was checked, so concurrent verifications of one code cannot both succeed
+ * and a code sent meanwhile is not cleared by the check of the previous one.
+ */
+class OtpStore {
+
+    private final Map<String, Pending> pending = new ConcurrentHashMap<>();
+
+    void put(String key, String code, LocalDateTime expiresAt) {
+        pending.put(key, new Pending(code, expiresAt));
+    }
+
+    Pending get(String key) {
+        return pending.get(key);
+    }
+
+    /**
+     * Remove the pending OTP if it is still the one given; false if another verification took it
+     */
+    boolean consume(String key, Pending otp) {
+        return pending.remove(key, otp);
+    }
+
+    int size() {
+        return pending.size();
+    }
+
+    record Pending(String code, LocalDateTime expiresAt) {
+
+        boolean isExpired(LocalDateTime now) {
+            return now.isAfter(expiresAt);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.tiffin.cache;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * Cached in place of a value a lookup did not find (negative caching)
+ *
+ * Typed with what was looked up, so a cached "no such user" is never mistaken for another
+ * value under the same key, or for Spring's untyped NullValue.
+ * See {@link AdvancedCacheManager#lookupCachingAbsence}.
+ */
+@Getter
+@EqualsAndHashCode
+@RequiredArgsConstructor(staticName = "of")
+public final class Absent implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Class<?> type;
+
+    public boolean isFor(Class<?> lookedUp) {
+        return type == lookedUp;
+    }
+}
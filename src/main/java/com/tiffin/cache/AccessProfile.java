@@ -0,0 +1,100 @@
+package com.tiffin.cache;
+
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads of each key namespace by time of day, learned over the past days
+ *
+ * The day is cut into SLOTS of 15 minutes. {@link #update} is called about once a minute
+ * with the local time: it drains the reads {@link CacheMetrics} counted since the last call
+ * into the current slot, and when the slot is over, folds its total into the namespace's
+ * expected reads for that slot, weighting the latest day by SMOOTHING. Slots cut short by a
+ * restart or a stalled scheduler are dropped rather than folded as quiet ones.
+ *
+ * A slot is a peak of a namespace when its expected reads reach a multiple of the
+ * namespace's mean over the slots observed so far, see {@link CachePrewarmer}.
+ */
+public class AccessProfile {
+
+    public static final Duration SLOT = Duration.ofMinutes(15);
+    public static final int SLOTS = (int) (Duration.ofDays(1).toMinutes() / SLOT.toMinutes());
+
+    private static final double SMOOTHING = 0.3;
+    private static final int MIN_OBSERVED_SLOTS = SLOTS / 2; // before any peak is predicted
+    private static final double MIN_PEAK_READS = 30;         // per slot, so a quiet namespace has no peaks
+
+    private final CacheMetrics metrics;
+    private final Map<String, Histogram> histograms = new HashMap<>(); // guarded by this
+    private int currentSlot = -1;
+    private boolean partial = true; // the current slot started before reads were counted
+
+    public AccessProfile(CacheMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public static int slotOf(LocalTime time) {
+        return (int) (time.toSecondOfDay() / SLOT.toSeconds());
+    }
+
+    public synchronized void update(LocalTime now) {
+        metrics.drainReads((namespace, reads) ->
+            histograms.computeIfAbsent(namespace, name -> new Histogram()).pending += reads);
+        int slot = slotOf(now);
+        if (slot == currentSlot) {
+            return;
+        }
+        boolean complete = !partial && slot == (currentSlot + 1) % SLOTS;
+        for (Histogram histogram : histograms.values()) {
+            if (complete) {
+                histogram.fold(currentSlot);
+            }
+            histogram.pending = 0;
+        }
+        partial = currentSlot < 0;
+        currentSlot = slot;
+    }
+
+    /**
+     * Whether enough of the namespace's day has been observed to predict its peaks
+     */
+    public synchronized boolean hasHistory(String namespace) {
+        Histogram histogram = histograms.get(namespace);
+        return histogram != null && histogram.observedSlots >= MIN_OBSERVED_SLOTS;
+    }
+
+    /**
+     * Whether the slot's expected reads reach {@code factor} times the namespace's mean
+     */
+    public synchronized boolean isPeak(String namespace, int slot, double factor) {
+        Histogram histogram = histograms.get(namespace);
+        if (histogram == null || histogram.observedSlots == 0) {
+            return false;
+        }
+        int index = Math.floorMod(slot, SLOTS);
+        double expected = histogram.expectedReads[index];
+        return histogram.observed[index] && expected >= MIN_PEAK_READS
+            && expected >= factor * histogram.totalExpectedReads / histogram.observedSlots;
+    }
+
+    private static final class Histogram {
+        private final double[] expectedReads = new double[SLOTS];
+        private final boolean[] observed = new boolean[SLOTS];
+        private double totalExpectedReads;
+        private int observedSlots;
+        private long pending;
+
+        private void fold(int slot) {
+            double previous = expectedReads[slot];
+            double expected = observed[slot] ? previous + SMOOTHING * (pending - previous) : pending;
+            if (!observed[slot]) {
+                observed[slot] = true;
+                observedSlots++;
+            }
+            expectedReads[slot] = expected;
+            totalExpectedReads += expected - previous;
+        }
+    }
+}
@@ -1,14 +1,24 @@
 package com.tiffin.cache;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.scheduling.annotation.Scheduled;
 import lombok.extern.slf4j.Slf4j;
 
+import java.time.LocalTime;
+import java.time.ZoneId;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * Advanced Multi-Level Cache Manager
@@ -17,78 +27,224 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
  */
 @Component
 @Slf4j
-public class AdvancedCacheManager {
+public class AdvancedCacheManager implements AutoCloseable {
     
-    // L1 Cache: Hot data (most frequently accessed)
-    private final ConcurrentHashMap<String, CacheEntry> l1Cache = new ConcurrentHashMap<>();
-    private final LinkedHashMap<String, Long> l1AccessOrder = new LinkedHashMap<>(16, 0.75f, true);
+    // L1 Cache: Hot data (most frequently accessed), W-TinyLFU with lock-free reads
+    private final WindowTinyLfuCache l1Cache;
     
     // L2 Cache: Warm data (moderately accessed)
     private final ConcurrentHashMap<String, CacheEntry> l2Cache = new ConcurrentHashMap<>();
-    private final PriorityQueue<CacheEntry> l2EvictionQueue = new PriorityQueue<>(
-        Comparator.comparing(CacheEntry::getLastAccessTime)
-    );
+    private final LinkedHashSet<String> l2InsertionOrder = new LinkedHashSet<>(); // guarded by l2Lock
+    private volatile long l2WeightedSize; // written under l2Lock
+    private final long l2MaxWeight;
     
-    // L3 Cache: Cold data (least frequently accessed)
-    private final ConcurrentHashMap<String, CacheEntry> l3Cache = new ConcurrentHashMap<>();
+    // L3 Cache: Cold data (least frequently accessed), serialized into a memory-mapped file
+    private final MappedCacheStore l3Store;
     
-    // Bloom Filter for fast negative lookups
-    private final BloomFilter bloomFilter = new BloomFilter(1000000, 0.01);
+    // Byte size of each entry, against the per-level budgets (app.cache.l1-max-weight, ...)
+    private final CacheWeigher weigher;
     
-    // Read-Write locks for thread safety
-    private final ReadWriteLock l1Lock = new ReentrantReadWriteLock();
+    // Reservations and caps of key namespaces inside L1 and L2 (app.cache.namespaces), and pinned keys
+    private final NamespaceQuotas quotas;
+    private final PinnedKeys pins;
+    
+    // Which level a value starts in, and when it is promoted or demoted (app.cache.placement)
+    private final CachePlacement placement;
+    
+    // Bloom Filter for fast negative lookups, rotated so expired keys age out
+    private final RotatingBloomFilter bloomFilter = new RotatingBloomFilter(
+        BLOOM_EXPECTED_ELEMENTS, BLOOM_FALSE_POSITIVE_RATE, BLOOM_GENERATIONS, BLOOM_ROTATION_INTERVAL);
+    
+    // Per-entry expiration for the on-heap levels, advanced by cache traffic
+    private final TimerWheel expirationWheel = new TimerWheel(CacheTicker.now());
+    
+    // Get-or-load: one in-flight load per key, and backoff for keys whose loader failed
+    private final ConcurrentHashMap<String, CompletableFuture<Object>> inFlightLoads = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, FailedLoad> failedLoads = new ConcurrentHashMap<>();
+    private final ExecutorService loaderExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    
+    // Read-Write lock for thread safety (L1 and L3 synchronize internally)
     private final ReadWriteLock l2Lock = new ReentrantReadWriteLock();
-    private final ReadWriteLock l3Lock = new ReentrantReadWriteLock();
     
     // Cache statistics
     private final AtomicLong hitCount = new AtomicLong(0);
     private final AtomicLong missCount = new AtomicLong(0);
     private final AtomicLong evictionCount = new AtomicLong(0);
+    private final AtomicLong bloomRejectCount = new AtomicLong(0);
+    private final AtomicLong bloomFalsePositiveCount = new AtomicLong(0);
+    private final AtomicLong loadCount = new AtomicLong(0);
+    private final AtomicLong loadFailureCount = new AtomicLong(0);
+    private final AtomicLong coalescedLoadCount = new AtomicLong(0);
+    private final AtomicLong refreshCount = new AtomicLong(0);
+    private final AtomicLong absentHitCount = new AtomicLong(0);
+    
+    // Bumped by every write or invalidation of a key in the stripe, so a lookup that raced
+    // with one does not cache its now outdated "absent" result
+    private final AtomicLongArray writeStamps = new AtomicLongArray(WRITE_STAMP_STRIPES);
+    // Bumped when each of those is done; see quietStamp for moves between levels
+    private final AtomicLongArray writesDone = new AtomicLongArray(WRITE_STAMP_STRIPES);
+    
+    // Versioned writes: one lock per write stamp stripe, and versions unique across keys and
+    // restarts (microseconds at startup, then counted) so a removed and rewritten key never
+    // gets back a version a reader may still hold
+    private final ReentrantLock[] versionLocks = new ReentrantLock[WRITE_STAMP_STRIPES];
+    private final AtomicLong versionSequence = new AtomicLong(System.currentTimeMillis() * 1000);
+    
+    // Generation of each namespace invalidated as a whole, folded into its keys (see namespacedKey).
+    // Generations start at the startup time, so keys restored from an earlier run's snapshot are
+    // never reachable under them.
+    private final ConcurrentHashMap<String, AtomicLong> namespaceGenerations = new ConcurrentHashMap<>();
+    private final long initialGeneration = System.currentTimeMillis();
+    
+    // Tells the other nodes about local writes and invalidations, see CacheInvalidationBus
+    private volatile InvalidationPublisher invalidationPublisher = InvalidationPublisher.NONE;
+    
+    // Per-namespace meters and the most read keys
+    private final CacheMetrics metrics;
+    private final HotKeyTracker hotKeys = new HotKeyTracker(HOT_KEY_CAPACITY, HOT_KEY_SAMPLE_RATE);
+    
+    // Reads per namespace by time of day, for prewarming ahead of meal peaks (see CachePrewarmer)
+    private final AccessProfile accessProfile;
+    private final ZoneId profileZone;
     
     // Configuration
-    private static final int L1_MAX_SIZE = 1000;    // Hot data
-    private static final int L2_MAX_SIZE = 5000;    // Warm data
-    private static final int L3_MAX_SIZE = 10000;   // Cold data
+    private static final int SKETCH_EXPECTED_KEYS = 16384; // Sizes the frequency sketch, which counts reads of every level
+    private static final int L3_MAX_SIZE = 1000000;   // Cold data, off-heap
     private static final long DEFAULT_TTL = 3600000; // 1 hour
     private static final long L1_TTL = 300000;      // 5 minutes
     private static final long L2_TTL = 1800000;     // 30 minutes
     private static final long L3_TTL = 3600000;     // 1 hour
+    private static final int BLOOM_EXPECTED_ELEMENTS = 1000000;
+    private static final double BLOOM_FALSE_POSITIVE_RATE = 0.01;
+    private static final int BLOOM_GENERATIONS = 5;
+    private static final long BLOOM_ROTATION_INTERVAL = 900000; // 15 minutes
+    private static final int L2_EVICTION_SAMPLE = 8;
+    private static final int MAX_RESERVED_SKIPS = 64;   // per L2 eviction, before reservations give way
+    private static final long LOAD_TIMEOUT = 5000;           // 5 seconds
+    private static final long LOAD_FAILURE_BACKOFF = 1000;   // doubled per consecutive failure
+    private static final long MAX_LOAD_FAILURE_BACKOFF = 60000;
+    private static final int HOT_KEY_CAPACITY = 128;
+    private static final int HOT_KEY_SAMPLE_RATE = 8;      // record one read in 8
+    private static final int WRITE_STAMP_STRIPES = 256;
+    
+    public AdvancedCacheManager() {
+        this(Metrics.globalRegistry, new MultiLevelCacheProperties(), CacheWeigher.retainedSize());
+    }
+    
+    @Autowired
+    public AdvancedCacheManager(MeterRegistry meterRegistry, MultiLevelCacheProperties properties,
+                                ObjectProvider<CacheWeigher> weigher) {
+        this(meterRegistry, properties, weigher.getIfAvailable(CacheWeigher::retainedSize));
+    }
+    
+    public AdvancedCacheManager(MeterRegistry meterRegistry, MultiLevelCacheProperties properties, CacheWeigher weigher) {
+        this.weigher = weigher;
+        this.quotas = new NamespaceQuotas(properties.getNamespaces(), properties.getL1MaxWeight().toBytes(),
+            properties.getL2MaxWeight().toBytes(), meterRegistry);
+        this.pins = quotas.pins();
+        this.l1Cache = new WindowTinyLfuCache(properties.getL1MaxWeight().toBytes(), SKETCH_EXPECTED_KEYS,
+            new WindowTinyLfuCache.EvictionListener() {
+                @Override
+                public long beforeEviction(String key) {
+                    return quietStamp(key);
+                }
+                
+                @Override
+                public void onEviction(String key, CacheEntry entry, long stamp) {
+                    onL1Eviction(key, entry, stamp);
+                }
+            }, quotas);
+        this.placement = properties.getPlacement() == MultiLevelCacheProperties.Placement.KEY_PREFIX
+            ? new KeyPrefixPlacement()
+            : new FrequencyPlacement(l1Cache);
+        this.l2MaxWeight = properties.getL2MaxWeight().toBytes();
+        // A mapping is limited to 2GB
+        int l3Bytes = (int) Math.min(Integer.MAX_VALUE, properties.getL3MaxWeight().toBytes());
+        this.l3Store = MappedCacheStore.createTemporary(l3Bytes, L3_MAX_SIZE);
+        
+        this.metrics = new CacheMetrics(meterRegistry);
+        this.accessProfile = new AccessProfile(metrics);
+        this.profileZone = properties.getPrewarm().getZone();
+        metrics.gauge("tiffin.cache.size", "L1", l1Cache, WindowTinyLfuCache::size);
+        metrics.gauge("tiffin.cache.size", "L2", l2Cache, Map::size);
+        metrics.gauge("tiffin.cache.size", "L3", l3Store, MappedCacheStore::size);
+        metrics.gauge("tiffin.cache.weighted.size", "L1", l1Cache, WindowTinyLfuCache::weightedSize);
+        metrics.gauge("tiffin.cache.weighted.size", "L2", this, manager -> manager.l2WeightedSize);
+        metrics.gauge("tiffin.cache.weighted.size", "L3", l3Store, MappedCacheStore::getUsedBytes);
+        metrics.gauge("tiffin.cache.bloom.saturation", "all", bloomFilter, RotatingBloomFilter::getSaturation);
+        l3Store.setEvictionListener(key -> metrics.namespace(key).eviction(CacheLevel.L3));
+        Arrays.setAll(versionLocks, stripe -> new ReentrantLock());
+    }
     
     /**
      * Get value from multi-level cache with promotion strategy
      */
     public <T> Optional<T> get(String key, Class<T> type) {
+        long start = System.nanoTime();
+        try {
+            return lookup(key, type, metrics.namespace(key));
+        } finally {
+            metrics.recordGet(System.nanoTime() - start);
+        }
+    }
+    
+    private <T> Optional<T> lookup(String key, Class<T> type, CacheMetrics.Namespace namespace) {
+        expireEntries(expirationWheel.tryAdvance(CacheTicker.now()));
+        hotKeys.record(key);
+        
         // Check Bloom Filter first for fast negative lookup
         if (!bloomFilter.mightContain(key)) {
+            bloomRejectCount.incrementAndGet();
             missCount.incrementAndGet();
+            namespace.miss();
+            placement.recordRead(key, null);
             return Optional.empty();
         }
         
         // Try L1 Cache (Hot data)
-        Optional<T> result = getFromL1(key, type);
-        if (result.isPresent()) {
+        long stamp = quietStamp(key); // Taken before reading a copy that may be promoted
+        CacheEntry entry = getFromL1(key);
+        if (entry != null) {
             hitCount.incrementAndGet();
-            updateAccessFrequency(key);
-            return result;
+            namespace.hit(CacheLevel.L1);
+            placement.recordRead(key, CacheLevel.L1);
+            pins.recordHit(key);
+            return Optional.of(cast(entry.getValue(), type));
         }
         
         // Try L2 Cache (Warm data)
-        result = getFromL2(key, type);
-        if (result.isPresent()) {
+        entry = getFromL2(key);
+        if (entry != null) {
             hitCount.incrementAndGet();
-            promoteToL1(key, result.get());
-            return result;
+            namespace.hit(CacheLevel.L2);
+            placement.recordRead(key, CacheLevel.L2);
+            pins.recordHit(key);
+            T value = cast(entry.getValue(), type);
+            if (placement.shouldPromote(key, CacheLevel.L1) && promoteToL1(key, entry, stamp)) {
+                namespace.promotion(CacheLevel.L1);
+            }
+            return Optional.of(value);
         }
         
         // Try L3 Cache (Cold data)
-        result = getFromL3(key, type);
-        if (result.isPresent()) {
+        MappedCacheStore.Stored stored = getFromL3(key);
+        if (stored != null) {
             hitCount.incrementAndGet();
-            promoteToL2(key, result.get());
-            return result;
+            namespace.hit(CacheLevel.L3);
+            placement.recordRead(key, CacheLevel.L3);
+            pins.recordHit(key);
+            T value = cast(stored.value(), type);
+            if (placement.shouldPromote(key, CacheLevel.L2) && promoteToL2(key, stored, stamp)) {
+                namespace.promotion(CacheLevel.L2);
+            }
+            return Optional.of(value);
         }
         
+        // The filter let an absent key through
+        bloomFalsePositiveCount.incrementAndGet();
         missCount.incrementAndGet();
+        namespace.miss();
+        placement.recordRead(key, null);
         return Optional.empty();
     }
     
@@ -96,22 +252,79 @@ public class AdvancedCacheManager {
      * Put value with intelligent cache placement
      */
     public <T> void put(String key, T value, long ttl) {
-        bloomFilter.add(key);
+        put(key, value, ttl, null);
+    }
+    
+    /**
+     * Put value into an explicit cache level
+     * A null level lets the {@link CachePlacement} choose. This is a write: other nodes
+     * drop their copy of the key, see {@link #putFromLoad} for filling the cache after a miss.
+     */
+    public <T> void put(String key, T value, long ttl, CacheLevel level) {
+        int stripe = writeStripe(key);
+        writeStamps.incrementAndGet(stripe);
+        try {
+            putFromLoad(key, value, ttl, level);
+        } finally {
+            writesDone.incrementAndGet(stripe);
+        }
+        invalidationPublisher.keyInvalidated(key);
+    }
+    
+    /**
+     * Cache a value just read from the backing store, without invalidating it on other nodes
+     * Their copies are as fresh as this one, so telling them would only cause reloads.
+     */
+    public <T> void putFromLoad(String key, T value, long ttl, CacheLevel level) {
+        store(key, value, ttl, level, 0);
+    }
+    
+    /**
+     * Store a value, optionally due for a background refresh after {@code refreshAhead} of its TTL
+     * A key already held by a hotter level stays there, and copies in colder levels are
+     * dropped, so a read never finds an older value shadowing the new one.
+     */
+    private <T> void store(String key, T value, long ttl, CacheLevel level, double refreshAhead) {
+        long start = System.nanoTime();
+        long now = CacheTicker.now();
+        expireEntries(expirationWheel.tryAdvance(now));
         
-        // Determine initial cache level based on key pattern and frequency
-        CacheLevel level = determineCacheLevel(key);
+        // Determine initial cache level based on measured frequency, see CachePlacement
+        placement.recordWrite(key);
+        if (level == null) {
+            level = placement.initialLevel(key);
+        }
+        level = residentLevel(key, level);
+        // Drop copies in colder levels first: putting into a full level may demote this very
+        // key, when L1 does not admit it, and that copy must survive
+        if (level == CacheLevel.L1) {
+            removeFromL2(key);
+        }
+        if (level != CacheLevel.L3) {
+            removeFromL3(key);
+        }
         
+        CacheEntry entry = null;
         switch (level) {
             case L1:
-                putInL1(key, value, ttl);
+                entry = putInL1(key, value, ttl);
                 break;
             case L2:
-                putInL2(key, value, ttl);
+                entry = putInL2(key, value, ttl);
                 break;
             case L3:
-                putInL3(key, value, ttl);
+                if (!putInL3(key, value, ttl)) {
+                    // Not serializable or too large for the off-heap log
+                    entry = putInL2(key, value, ttl);
+                    level = CacheLevel.L2;
+                }
                 break;
         }
+        if (entry != null && refreshAhead > 0) {
+            entry.setRefreshAt(now + (long) (ttl * refreshAhead));
+        }
+        metrics.namespace(key).put(level);
+        metrics.recordPut(System.nanoTime() - start);
     }
     
     public <T> void put(String key, T value) {
@@ -119,333 +332,1523 @@ public class AdvancedCacheManager {
     }
     
     /**
-     * L1 Cache Operations (LRU with access frequency)
+     * Current value of a key with its version, {@link Versioned#NO_VERSION} if plainly written
+     * A key written by putIfVersion or compute holds a {@link Versioned} value; each write
+     * gets a new version, and a conditional write only succeeds against the version it
+     * expects, from whatever level the key is in. Versioned writes of a key are serialized
+     * on this node; plain puts and invalidations still win, and change the version the next
+     * conditional write sees. Across nodes the invalidation bus makes concurrent writers
+     * drop each other's copy, so the next conditional write fails rather than overwriting.
+     */
+    public <T> Optional<Versioned<T>> getVersioned(String key, Class<T> type) {
+        return get(key, Object.class).map(value -> versioned(value, type));
+    }
+    
+    /**
+     * Write the value if the key is at {@code expectedVersion} ({@link Versioned#NO_VERSION}
+     * when absent or plainly written); empty if another write got there first
      */
-    private <T> Optional<T> getFromL1(String key, Class<T> type) {
-        l1Lock.readLock().lock();
+    public <T> Optional<Versioned<T>> putIfVersion(String key, T value, long expectedVersion, long ttl,
+                                                   CacheLevel level) {
+        ReentrantLock lock = versionLocks[writeStripe(key)];
+        lock.lock();
         try {
-            CacheEntry entry = l1Cache.get(key);
-            if (entry != null && !entry.isExpired()) {
-                entry.updateAccessTime();
-                entry.incrementAccessCount();
-                
-                // Update access order for LRU
-                l1Lock.readLock().unlock();
-                l1Lock.writeLock().lock();
-                try {
-                    l1AccessOrder.put(key, System.currentTimeMillis());
-                } finally {
-                    l1Lock.readLock().lock();
-                    l1Lock.writeLock().unlock();
-                }
-                
-                return Optional.of(type.cast(entry.getValue()));
+            long current = get(key, Object.class)
+                .map(existing -> versioned(existing, Object.class).getVersion())
+                .orElse(Versioned.NO_VERSION);
+            if (current != expectedVersion) {
+                return Optional.empty();
             }
-            return Optional.empty();
+            return Optional.of(putVersioned(key, value, ttl, level));
         } finally {
-            l1Lock.readLock().unlock();
+            lock.unlock();
         }
     }
     
-    private <T> void putInL1(String key, T value, long ttl) {
-        l1Lock.writeLock().lock();
+    /**
+     * Atomically replace the value with {@code remapping} of the current one (null if absent)
+     * A null result removes the key. The function runs under the key's stripe lock, so it
+     * should only compute, not call out.
+     */
+    public <T> Optional<Versioned<T>> compute(String key, Class<T> type, Function<? super T, ? extends T> remapping,
+                                              long ttl, CacheLevel level) {
+        ReentrantLock lock = versionLocks[writeStripe(key)];
+        lock.lock();
         try {
-            // Check if L1 is full and needs eviction
-            if (l1Cache.size() >= L1_MAX_SIZE && !l1Cache.containsKey(key)) {
-                evictFromL1();
+            T current = get(key, Object.class).map(existing -> versioned(existing, type).getValue()).orElse(null);
+            T updated = remapping.apply(current);
+            if (updated == null) {
+                invalidate(key);
+                return Optional.empty();
             }
-            
-            CacheEntry entry = new CacheEntry(value, System.currentTimeMillis() + ttl);
-            l1Cache.put(key, entry);
-            l1AccessOrder.put(key, System.currentTimeMillis());
-            
-            log.debug("Added to L1 cache: {}", key);
+            return Optional.of(putVersioned(key, updated, ttl, level));
         } finally {
-            l1Lock.writeLock().unlock();
+            lock.unlock();
         }
     }
     
-    private void evictFromL1() {
-        if (l1AccessOrder.isEmpty()) return;
-        
-        // Find LRU entry
-        String lruKey = l1AccessOrder.entrySet().iterator().next().getKey();
-        CacheEntry evicted = l1Cache.remove(lruKey);
-        l1AccessOrder.remove(lruKey);
-        
-        // Demote to L2 if still valuable
-        if (evicted != null && evicted.getAccessCount() > 1) {
-            demoteToL2(lruKey, evicted.getValue());
+    private <T> Versioned<T> putVersioned(String key, T value, long ttl, CacheLevel level) {
+        Versioned<T> versioned = new Versioned<>(value, versionSequence.incrementAndGet());
+        put(key, versioned, ttl, level);
+        return versioned;
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static <T> Versioned<T> versioned(Object value, Class<T> type) {
+        if (value instanceof Versioned<?> versioned) {
+            type.cast(versioned.getValue());
+            return (Versioned<T>) versioned;
         }
-        
-        evictionCount.incrementAndGet();
-        log.debug("Evicted from L1 cache: {}", lruKey);
+        return new Versioned<>(type.cast(value), Versioned.NO_VERSION);
     }
     
     /**
-     * L2 Cache Operations (Time-based with LFU eviction)
+     * A cached value as the type asked for; versioned values are unwrapped unless asked for as such
      */
-    private <T> Optional<T> getFromL2(String key, Class<T> type) {
-        l2Lock.readLock().lock();
-        try {
-            CacheEntry entry = l2Cache.get(key);
-            if (entry != null && !entry.isExpired()) {
-                entry.updateAccessTime();
-                entry.incrementAccessCount();
-                return Optional.of(type.cast(entry.getValue()));
-            }
-            return Optional.empty();
-        } finally {
-            l2Lock.readLock().unlock();
+    private static <T> T cast(Object value, Class<T> type) {
+        if (value instanceof Versioned<?> versioned && !type.isInstance(value)) {
+            return type.cast(versioned.getValue());
         }
+        return type.cast(value);
     }
     
-    private <T> void putInL2(String key, T value, long ttl) {
-        l2Lock.writeLock().lock();
+    /**
+     * Get a value, loading it on a miss
+     * Concurrent misses for the same key share a single loader call, see {@link #getAsync}.
+     */
+    public <T> T get(String key, Class<T> type, Callable<? extends T> loader) {
+        return get(key, type, loader, DEFAULT_TTL, null, 0);
+    }
+    
+    /**
+     * Blocking get-or-load with the TTL, level and refresh-ahead of {@link #getAsync(String, Class, Callable, long, CacheLevel, double)}
+     */
+    public <T> T get(String key, Class<T> type, Callable<? extends T> loader,
+                     long ttl, CacheLevel level, double refreshAhead) {
         try {
-            if (l2Cache.size() >= L2_MAX_SIZE && !l2Cache.containsKey(key)) {
-                evictFromL2();
-            }
-            
-            CacheEntry entry = new CacheEntry(value, System.currentTimeMillis() + ttl);
-            l2Cache.put(key, entry);
-            l2EvictionQueue.offer(entry);
-            
-            log.debug("Added to L2 cache: {}", key);
-        } finally {
-            l2Lock.writeLock().unlock();
+            return getAsync(key, type, loader, ttl, level, refreshAhead).join();
+        } catch (CompletionException e) {
+            throw toLoadException(key, e.getCause());
         }
     }
     
-    private void evictFromL2() {
-        CacheEntry oldest = l2EvictionQueue.poll();
-        if (oldest != null) {
-            // Find and remove the oldest entry
-            l2Cache.entrySet().removeIf(entry -> entry.getValue() == oldest);
-            
-            // Demote to L3 if still valuable
-            if (oldest.getAccessCount() > 0) {
-                demoteToL3(findKeyByValue(l2Cache, oldest), oldest.getValue());
-            }
-            
-            evictionCount.incrementAndGet();
-        }
+    /**
+     * Get a value, loading it asynchronously on a miss (single-flight)
+     * Only one loader runs per key; every caller that misses while it runs waits on the
+     * same future. Loaders run on virtual threads and are abandoned after LOAD_TIMEOUT.
+     * A failed key backs off exponentially, failing fast with the last error instead of
+     * sending more traffic to the backing store. A null result is returned but not cached.
+     * The future fails with {@link CacheLoadException}.
+     */
+    public <T> CompletableFuture<T> getAsync(String key, Class<T> type, Callable<? extends T> loader) {
+        return getAsync(key, type, loader, DEFAULT_TTL, null);
     }
     
     /**
-     * L3 Cache Operations (FIFO with periodic cleanup)
+     * Get-or-load storing the loaded value with the given TTL and level (null lets the placement policy choose)
      */
-    private <T> Optional<T> getFromL3(String key, Class<T> type) {
-        l3Lock.readLock().lock();
-        try {
-            CacheEntry entry = l3Cache.get(key);
-            if (entry != null && !entry.isExpired()) {
-                entry.updateAccessTime();
-                entry.incrementAccessCount();
-                return Optional.of(type.cast(entry.getValue()));
-            }
-            return Optional.empty();
-        } finally {
-            l3Lock.readLock().unlock();
-        }
+    public <T> CompletableFuture<T> getAsync(String key, Class<T> type, Callable<? extends T> loader,
+                                             long ttl, CacheLevel level) {
+        return getAsync(key, type, loader, ttl, level, 0);
     }
     
-    private <T> void putInL3(String key, T value, long ttl) {
-        l3Lock.writeLock().lock();
-        try {
-            if (l3Cache.size() >= L3_MAX_SIZE && !l3Cache.containsKey(key)) {
-                evictFromL3();
+    /**
+     * Get-or-load with refresh-ahead (stale-while-revalidate)
+     * Once a loaded value is older than {@code refreshAhead} of its TTL (0 < refreshAhead < 1,
+     * 0 disables it), the next read still returns it but also starts a background reload
+     * through the single-flight loader. Readers keep getting the old value until the new one
+     * is stored, so a key read at least once per TTL never expires on the request path.
+     * A failed refresh backs off like any load; the old value is served until it expires.
+     * The refresh time is kept when an entry moves between L1 and L2, but not into L3.
+     */
+    public <T> CompletableFuture<T> getAsync(String key, Class<T> type, Callable<? extends T> loader,
+                                             long ttl, CacheLevel level, double refreshAhead) {
+        Optional<T> cached = get(key, type);
+        if (cached.isPresent()) {
+            if (refreshAhead > 0) {
+                refreshIfDue(key, loader, ttl, level, refreshAhead);
+            }
+            return CompletableFuture.completedFuture(cached.get());
+        }
+        
+        FailedLoad failure = failedLoads.get(key);
+        if (failure != null && failure.retryAt > CacheTicker.now()) {
+            return CompletableFuture.failedFuture(
+                new CacheLoadException(key, "Loading " + key + " is backing off after a failure", failure.cause));
+        }
+        
+        CompletableFuture<Object> load = new CompletableFuture<>();
+        CompletableFuture<Object> inFlight = inFlightLoads.putIfAbsent(key, load);
+        if (inFlight != null) {
+            coalescedLoadCount.incrementAndGet();
+            metrics.namespace(key).coalescedLoad();
+            load = inFlight;
+        } else {
+            // A load that finished since the miss above has cached its value
+            Object loaded = peek(key);
+            if (loaded != null) {
+                inFlightLoads.remove(key, load);
+                load.complete(loaded);
+            } else {
+                startLoad(key, loader, load, ttl, level, refreshAhead);
             }
-            
-            CacheEntry entry = new CacheEntry(value, System.currentTimeMillis() + ttl);
-            l3Cache.put(key, entry);
-            
-            log.debug("Added to L3 cache: {}", key);
-        } finally {
-            l3Lock.writeLock().unlock();
         }
+        return load.handle((value, error) -> {
+            if (error != null) {
+                throw toLoadException(key, error);
+            }
+            return cast(value, type);
+        });
     }
     
-    private void evictFromL3() {
-        // Simple FIFO eviction for L3
-        if (!l3Cache.isEmpty()) {
-            String firstKey = l3Cache.keys().nextElement();
-            l3Cache.remove(firstKey);
-            evictionCount.incrementAndGet();
-            log.debug("Evicted from L3 cache: {}", firstKey);
+    /**
+     * Start a background reload if the cached entry is past its refresh time
+     * Concurrent readers start at most one, and none while the key is backing off.
+     */
+    private void refreshIfDue(String key, Callable<?> loader, long ttl, CacheLevel level, double refreshAhead) {
+        CacheEntry entry = l1Cache.peek(key);
+        if (entry == null) {
+            entry = l2Cache.get(key);
+        }
+        long now = CacheTicker.now();
+        if (entry == null || entry.getRefreshAt() == 0 || now < entry.getRefreshAt() || inFlightLoads.containsKey(key)) {
+            return;
+        }
+        FailedLoad failure = failedLoads.get(key);
+        if (failure != null && failure.retryAt > now) {
+            return;
+        }
+        CompletableFuture<Object> load = new CompletableFuture<>();
+        if (inFlightLoads.putIfAbsent(key, load) == null) {
+            refreshCount.incrementAndGet();
+            metrics.namespace(key).refresh();
+            startLoad(key, loader, load, ttl, level, refreshAhead);
         }
     }
     
+    private void startLoad(String key, Callable<?> loader, CompletableFuture<Object> load,
+                           long ttl, CacheLevel level, double refreshAhead) {
+        loadCount.incrementAndGet();
+        Future<?> task = loaderExecutor.submit(() -> {
+            try {
+                Object value = loader.call();
+                // Cache before completing so a caller woken by the future finds the value,
+                // unless the key was invalidated meanwhile and the value may predate the change
+                if (!load.isDone() && inFlightLoads.get(key) == load) {
+                    if (value != null) {
+                        store(key, value, ttl, level, refreshAhead);
+                    } else {
+                        removeLocally(key); // Gone from the backing store: drop a copy being refreshed
+                    }
+                }
+                load.complete(value);
+            } catch (Throwable e) {
+                load.completeExceptionally(e);
+            }
+        });
+        
+        load.orTimeout(LOAD_TIMEOUT, TimeUnit.MILLISECONDS).whenComplete((value, error) -> {
+            inFlightLoads.remove(key, load);
+            metrics.namespace(key).load(error == null);
+            if (error == null) {
+                failedLoads.remove(key);
+                return;
+            }
+            task.cancel(true);
+            loadFailureCount.incrementAndGet();
+            FailedLoad failure = failedLoads.merge(key, new FailedLoad(error, 1),
+                (previous, first) -> new FailedLoad(error, previous.failures + 1));
+            log.warn("Loading cache key {} failed ({} in a row), backing off until {}",
+                key, failure.failures, failure.retryAt, error);
+        });
+    }
+    
     /**
-     * Cache promotion and demotion strategies
+     * Run a lookup that may find nothing, caching only the "nothing" (negative caching)
+     * An empty result is cached as {@link Absent} of {@code absentType} for {@code absentTtl},
+     * and later calls return empty without running the lookup until the key is invalidated
+     * or the marker expires. Found values are returned but not cached: callers such as JPA
+     * repositories hand out managed entities that must not be shared between threads.
+     * If the key is written or invalidated while the lookup runs, the miss is not cached.
      */
-    private <T> void promoteToL1(String key, T value) {
-        putInL1(key, value, L1_TTL);
-        removeFromL2(key);
+    public <T> Optional<T> lookupCachingAbsence(String key, Class<?> absentType, Supplier<Optional<T>> lookup,
+                                                long absentTtl) {
+        Optional<Object> cached = get(key, Object.class);
+        if (cached.isPresent() && cached.get() instanceof Absent absent && absent.isFor(absentType)) {
+            absentHitCount.incrementAndGet();
+            return Optional.empty();
+        }
+        
+        int stripe = writeStripe(key);
+        long stamp = writeStamps.get(stripe);
+        Optional<T> result = lookup.get();
+        if (result.isEmpty() && writeStamps.get(stripe) == stamp) {
+            putFromLoad(key, Absent.of(absentType), absentTtl, CacheLevel.L1);
+            if (writeStamps.get(stripe) != stamp) {
+                removeLocally(key); // The key was written between the check and the put
+            }
+        }
+        return result;
     }
     
-    private <T> void promoteToL2(String key, T value) {
-        putInL2(key, value, L2_TTL);
-        removeFromL3(key);
+    private static int writeStripe(String key) {
+        return (key.hashCode() & Integer.MAX_VALUE) % WRITE_STAMP_STRIPES;
     }
     
-    private <T> void demoteToL2(String key, T value) {
-        putInL2(key, value, L2_TTL);
+    /**
+     * The key's write stamp, or -1 while a write or invalidation of its stripe is in progress
+     * A copy of the key read after this is still current as long as {@link #isQuiet} holds.
+     */
+    private long quietStamp(String key) {
+        int stripe = writeStripe(key);
+        long stamp = writeStamps.get(stripe);
+        return writesDone.get(stripe) == stamp ? stamp : -1;
     }
     
-    private <T> void demoteToL3(String key, T value) {
-        putInL3(key, value, L3_TTL);
+    /**
+     * Whether no write or invalidation of the key's stripe has started since the stamp was taken
+     */
+    private boolean isQuiet(String key, long stamp) {
+        return stamp >= 0 && writeStamps.get(writeStripe(key)) == stamp;
     }
     
     /**
-     * Cache level determination based on key patterns
+     * Current value of a key without counting a read or moving it, null if not cached
      */
-    private CacheLevel determineCacheLevel(String key) {
-        // User session data - hot cache
-        if (key.startsWith("session:") || key.startsWith("user:") || key.startsWith("auth:")) {
-            return CacheLevel.L1;
+    private Object peek(String key) {
+        CacheEntry entry = l1Cache.peek(key);
+        if (entry == null) {
+            entry = l2Cache.get(key);
         }
-        
-        // Menu and dish data - warm cache
-        if (key.startsWith("dish:") || key.startsWith("menu:") || key.startsWith("category:")) {
-            return CacheLevel.L2;
+        if (entry != null && !entry.isExpired()) {
+            return entry.getValue();
         }
-        
-        // Everything else - cold cache
-        return CacheLevel.L3;
+        return l3Store.get(key);
     }
     
-    /**
-     * Utility methods
-     */
-    private void updateAccessFrequency(String key) {
-        // Update access patterns for machine learning-based optimization
-        // This could be enhanced with ML algorithms for predictive caching
+    private static CacheLoadException toLoadException(String key, Throwable error) {
+        if (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        if (error instanceof CacheLoadException) {
+            return (CacheLoadException) error;
+        }
+        if (error instanceof TimeoutException) {
+            return new CacheLoadException(key, "Loading " + key + " timed out after " + LOAD_TIMEOUT + "ms", error);
+        }
+        return new CacheLoadException(key, "Loading " + key + " failed", error);
     }
     
-    private void removeFromL2(String key) {
-        l2Lock.writeLock().lock();
-        try {
-            l2Cache.remove(key);
-        } finally {
-            l2Lock.writeLock().unlock();
-        }
+    /**
+     * Remove a key from every level, here and on the other nodes
+     */
+    public void invalidate(String key) {
+        invalidateLocally(key);
+        invalidationPublisher.keyInvalidated(key);
     }
     
-    private void removeFromL3(String key) {
-        l3Lock.writeLock().lock();
+    /**
+     * Remove a key from every level of this node only; used for invalidations from other nodes
+     * A load of the key that is in flight is detached, so its possibly stale result is not cached.
+     */
+    public void invalidateLocally(String key) {
+        int stripe = writeStripe(key);
+        writeStamps.incrementAndGet(stripe);
         try {
-            l3Cache.remove(key);
+            inFlightLoads.remove(key);
+            removeLocally(key);
         } finally {
-            l3Lock.writeLock().unlock();
+            writesDone.incrementAndGet(stripe);
         }
     }
     
-    private String findKeyByValue(ConcurrentHashMap<String, CacheEntry> cache, CacheEntry value) {
-        return cache.entrySet().stream()
-            .filter(entry -> entry.getValue() == value)
-            .map(Map.Entry::getKey)
-            .findFirst()
-            .orElse(null);
+    private void removeLocally(String key) {
+        removeFromL1(key);
+        removeFromL2(key);
+        removeFromL3(key);
     }
     
     /**
-     * Scheduled cleanup of expired entries
+     * Remove every key starting with the prefix from every level, here and on the other nodes
+     * Scans all levels, so meant for clearing a namespace rather than per-request use.
      */
-    @Scheduled(fixedRate = 60000) // Every minute
-    public void cleanupExpiredEntries() {
-        log.debug("Starting cache cleanup...");
-        
-        cleanupL1();
-        cleanupL2();
-        cleanupL3();
-        
-        log.debug("Cache cleanup completed");
+    public void invalidatePrefix(String prefix) {
+        invalidatePrefixLocally(prefix);
+        invalidationPublisher.prefixInvalidated(prefix);
     }
     
-    private void cleanupL1() {
-        l1Lock.writeLock().lock();
+    /**
+     * Prefix invalidation of this node only, see {@link #invalidateLocally}
+     */
+    public void invalidatePrefixLocally(String prefix) {
+        for (int stripe = 0; stripe < WRITE_STAMP_STRIPES; stripe++) {
+            writeStamps.incrementAndGet(stripe);
+        }
         try {
-            l1Cache.entrySet().removeIf(entry -> entry.getValue().isExpired());
-            l1AccessOrder.entrySet().removeIf(entry -> 
-                !l1Cache.containsKey(entry.getKey())
-            );
+            removePrefixLocally(prefix);
         } finally {
-            l1Lock.writeLock().unlock();
+            for (int stripe = 0; stripe < WRITE_STAMP_STRIPES; stripe++) {
+                writesDone.incrementAndGet(stripe);
+            }
         }
     }
     
-    private void cleanupL2() {
+    private void removePrefixLocally(String prefix) {
+        inFlightLoads.keySet().removeIf(key -> key.startsWith(prefix));
+        for (String key : l1Cache.keySet()) {
+            if (key.startsWith(prefix)) {
+                CacheEntry removed = l1Cache.remove(key);
+                if (removed != null) {
+                    expirationWheel.deschedule(removed.getExpirationTimer());
+                }
+            }
+        }
+        
         l2Lock.writeLock().lock();
         try {
-            l2Cache.entrySet().removeIf(entry -> entry.getValue().isExpired());
-            l2EvictionQueue.removeIf(CacheEntry::isExpired);
+            Iterator<String> keys = l2InsertionOrder.iterator();
+            while (keys.hasNext()) {
+                String key = keys.next();
+                if (key.startsWith(prefix)) {
+                    keys.remove();
+                    CacheEntry removed = l2Cache.remove(key);
+                    l2WeightedSize -= removed.getWeight();
+                    quotas.usage(key).removed(CacheLevel.L2, key, removed.getWeight());
+                    expirationWheel.deschedule(removed.getExpirationTimer());
+                }
+            }
         } finally {
             l2Lock.writeLock().unlock();
         }
+        
+        l3Store.removeIf(key -> key.startsWith(prefix));
+        log.debug("Invalidated cache keys with prefix: {}", prefix);
     }
     
-    private void cleanupL3() {
-        l3Lock.writeLock().lock();
-        try {
-            l3Cache.entrySet().removeIf(entry -> entry.getValue().isExpired());
-        } finally {
-            l3Lock.writeLock().unlock();
+    /**
+     * Namespace generations
+     * A namespace that is invalidated as a whole on every change of its entities ("dishes:" on
+     * any dish write) is not swept. Its keys carry the namespace's generation, and invalidating
+     * it moves to the next one: the old entries can no longer be reached and age out through
+     * their TTL, eviction and the L3 log, and loads in flight store theirs under the old keys.
+     * Only registered namespaces are versioned, so keys outside them keep their plain form.
+     */
+    
+    /**
+     * Version the keys of a namespace, see {@link #namespacedKey}
+     */
+    public void registerNamespace(String namespace) {
+        namespaceGenerations.putIfAbsent(namespace, new AtomicLong(initialGeneration));
+    }
+    
+    /**
+     * Storage key of {@code key} in the namespace: "dishes:" and "available" give
+     * "dishes:#5:available" for a registered namespace in generation 5, "dishes:available" otherwise
+     */
+    public String namespacedKey(String namespace, String key) {
+        AtomicLong generation = namespaceGenerations.get(namespace);
+        return generation != null ? namespace + "#" + generation.get() + ":" + key : namespace + key;
+    }
+    
+    /**
+     * Invalidate every key of the namespace, here and on the other nodes: a registered namespace
+     * moves to its next generation in O(1), any other is swept as a prefix
+     */
+    public void invalidateNamespace(String namespace) {
+        if (!namespaceGenerations.containsKey(namespace)) {
+            invalidatePrefix(namespace);
+            return;
         }
+        invalidateNamespaceLocally(namespace);
+        invalidationPublisher.namespaceInvalidated(namespace);
     }
     
     /**
-     * Cache statistics and monitoring
+     * Namespace invalidation of this node only, see {@link #invalidateLocally}
      */
-    public CacheStats getStats() {
-        return CacheStats.builder()
-            .l1Size(l1Cache.size())
-            .l2Size(l2Cache.size())
-            .l3Size(l3Cache.size())
-            .hitCount(hitCount.get())
-            .missCount(missCount.get())
-            .evictionCount(evictionCount.get())
-            .hitRatio(calculateHitRatio())
-            .build();
+    public void invalidateNamespaceLocally(String namespace) {
+        AtomicLong generation = namespaceGenerations.get(namespace);
+        if (generation == null) {
+            invalidatePrefixLocally(namespace);
+            return;
+        }
+        generation.incrementAndGet();
+        log.debug("Invalidated cache namespace: {}", namespace);
     }
     
-    private double calculateHitRatio() {
-        long hits = hitCount.get();
-        long total = hits + missCount.get();
-        return total > 0 ? (double) hits / total : 0.0;
+    /**
+     * Bulk operations
+     * Each level is visited once per batch: L1 reads are lock-free, and L2 and L3 take their
+     * lock once for all the keys, as do the promotions, puts and removals that follow.
+     */
+    
+    /**
+     * Look up several keys at once; the misses come back as a set for one bulk query
+     * {@code keyOf} maps an id to its cache key ("dish:" + id), so the misses are ids that
+     * can go straight into findAllById and the loaded values into {@link #putAllFromLoad}.
+     */
+    public <K, T> BulkLookup<K, T> getAll(Collection<K> ids, Function<? super K, String> keyOf, Class<T> type) {
+        expireEntries(expirationWheel.tryAdvance(CacheTicker.now()));
+        Map<K, T> found = new LinkedHashMap<>();
+        Set<K> missing = new LinkedHashSet<>();
+        Map<String, K> pending = new LinkedHashMap<>();
+        Map<String, Long> stamps = new HashMap<>(); // Of the keys that may be promoted, see promoteToL1
+        
+        for (K id : ids) {
+            String key = keyOf.apply(id);
+            hotKeys.record(key);
+            if (!bloomFilter.mightContain(key)) {
+                bloomRejectCount.incrementAndGet();
+                countMiss(key);
+                missing.add(id);
+                continue;
+            }
+            stamps.put(key, quietStamp(key));
+            CacheEntry entry = getFromL1(key);
+            if (entry != null) {
+                countHit(key, CacheLevel.L1);
+                found.put(id, cast(entry.getValue(), type));
+            } else {
+                pending.put(key, id);
+            }
+        }
+        
+        Map<String, CacheEntry> toL1 = new LinkedHashMap<>();
+        if (!pending.isEmpty()) {
+            l2Lock.readLock().lock();
+            try {
+                Iterator<Map.Entry<String, K>> remaining = pending.entrySet().iterator();
+                while (remaining.hasNext()) {
+                    Map.Entry<String, K> next = remaining.next();
+                    String key = next.getKey();
+                    CacheEntry entry = getFromL2Locked(key);
+                    if (entry != null) {
+                        countHit(key, CacheLevel.L2);
+                        found.put(next.getValue(), cast(entry.getValue(), type));
+                        if (placement.shouldPromote(key, CacheLevel.L1)) {
+                            toL1.put(key, entry);
+                        }
+                        remaining.remove();
+                    }
+                }
+            } finally {
+                l2Lock.readLock().unlock();
+            }
+        }
+        
+        Map<String, MappedCacheStore.Stored> toL2 = new LinkedHashMap<>();
+        if (!pending.isEmpty()) {
+            l3Store.getAllStored(pending.keySet()).forEach((key, stored) -> {
+                countHit(key, CacheLevel.L3);
+                found.put(pending.remove(key), cast(stored.value(), type));
+                if (placement.shouldPromote(key, CacheLevel.L2)) {
+                    toL2.put(key, stored);
+                }
+            });
+        }
+        
+        // The filter let these absent keys through
+        pending.forEach((key, id) -> {
+            bloomFalsePositiveCount.incrementAndGet();
+            countMiss(key);
+            missing.add(id);
+        });
+        
+        promoteAllToL1(toL1, stamps);
+        promoteAllToL2(toL2, stamps);
+        return new BulkLookup<>(found, missing);
+    }
+    
+    public <T> BulkLookup<String, T> getAll(Collection<String> keys, Class<T> type) {
+        return getAll(keys, Function.identity(), type);
     }
     
     /**
-     * Clear all caches
+     * Get-or-load for several keys, loading all the misses with one call of {@code bulkLoader}
+     * Ids the loader leaves out are missing from the result and not cached. As in
+     * {@link #lookupCachingAbsence}, a loaded value is not cached if its key was written or
+     * invalidated while the loader ran. Loader exceptions propagate unwrapped.
      */
-    public void clearAll() {
-        l1Lock.writeLock().lock();
-        l2Lock.writeLock().lock();
-        l3Lock.writeLock().lock();
+    public <K, T> Map<K, T> getAll(Collection<K> ids, Function<? super K, String> keyOf, Class<T> type,
+                                   Function<? super Set<K>, ? extends Map<K, ? extends T>> bulkLoader,
+                                   long ttl, CacheLevel level) {
+        BulkLookup<K, T> cached = getAll(ids, keyOf, type);
+        if (cached.isComplete()) {
+            return cached.getFound();
+        }
+        
+        Map<K, String> keys = new LinkedHashMap<>();
+        Map<String, Long> stamps = new HashMap<>();
+        for (K id : cached.getMissing()) {
+            String key = keyOf.apply(id);
+            keys.put(id, key);
+            stamps.put(key, writeStamps.get(writeStripe(key)));
+        }
+        
+        Map<K, ? extends T> loaded;
         try {
-            l1Cache.clear();
-            l1AccessOrder.clear();
-            l2Cache.clear();
-            l2EvictionQueue.clear();
-            l3Cache.clear();
-            bloomFilter.clear();
-            
-            hitCount.set(0);
-            missCount.set(0);
-            evictionCount.set(0);
-            
-            log.info("All caches cleared");
+            loaded = bulkLoader.apply(cached.getMissing());
+            loadCount.incrementAndGet();
+        } catch (RuntimeException e) {
+            loadFailureCount.incrementAndGet();
+            throw e;
+        }
+        
+        Map<K, T> result = new LinkedHashMap<>(cached.getFound());
+        Map<String, Object> toCache = new LinkedHashMap<>();
+        keys.forEach((id, key) -> {
+            T value = loaded.get(id);
+            if (value != null) {
+                result.put(id, value);
+                if (writeStamps.get(writeStripe(key)) == stamps.get(key)) {
+                    toCache.put(key, value);
+                }
+            }
+        });
+        putAllFromLoad(toCache, ttl, level);
+        
+        // A write that raced with the store itself
+        List<String> raced = new ArrayList<>();
+        toCache.keySet().forEach(key -> {
+            if (writeStamps.get(writeStripe(key)) != stamps.get(key)) {
+                raced.add(key);
+            }
+        });
+        if (!raced.isEmpty()) {
+            removeAllLocally(raced);
+        }
+        return result;
+    }
+    
+    /**
+     * Put several values, each level locked once; like {@link #put} this is a write that
+     * other nodes are told about
+     */
+    public void putAll(Map<String, ?> values, long ttl, CacheLevel level) {
+        for (String key : values.keySet()) {
+            writeStamps.incrementAndGet(writeStripe(key));
+        }
+        try {
+            putAllFromLoad(values, ttl, level);
         } finally {
-            l3Lock.writeLock().unlock();
-            l2Lock.writeLock().unlock();
-            l1Lock.writeLock().unlock();
+            for (String key : values.keySet()) {
+                writesDone.incrementAndGet(writeStripe(key));
+            }
         }
+        values.keySet().forEach(invalidationPublisher::keyInvalidated);
     }
     
     /**
-     * Cache levels enum
+     * Cache the results of a bulk load, see {@link #putFromLoad}
      */
-    private enum CacheLevel {
-        L1, L2, L3
+    public void putAllFromLoad(Map<String, ?> values, long ttl, CacheLevel level) {
+        if (values.isEmpty()) {
+            return;
+        }
+        expireEntries(expirationWheel.tryAdvance(CacheTicker.now()));
+        Map<CacheLevel, Map<String, Object>> byLevel = new EnumMap<>(CacheLevel.class);
+        for (CacheLevel target : CacheLevel.values()) {
+            byLevel.put(target, new LinkedHashMap<>());
+        }
+        values.forEach((key, value) -> {
+            placement.recordWrite(key);
+            CacheLevel target = residentLevel(key, level != null ? level : placement.initialLevel(key));
+            byLevel.get(target).put(key, value);
+        });
+        Map<String, Object> l1 = byLevel.get(CacheLevel.L1);
+        Map<String, Object> l2 = byLevel.get(CacheLevel.L2);
+        Map<String, Object> l3 = byLevel.get(CacheLevel.L3);
+        
+        // Drop copies in colder levels first, see store()
+        removeAllFromL2(l1.keySet());
+        List<String> warmer = new ArrayList<>(l1.keySet());
+        warmer.addAll(l2.keySet());
+        if (!warmer.isEmpty()) {
+            l3Store.removeAll(warmer);
+        }
+        
+        long expiresAt = CacheTicker.now() + ttl;
+        Map<String, CacheEntry> l1Entries = new LinkedHashMap<>();
+        List<String> oversized = new ArrayList<>();
+        l1.forEach((key, value) -> {
+            int weight = weigher.weigh(key, value);
+            if (l1Cache.canHold(weight)) {
+                bloomFilter.add(key, expiresAt);
+                l1Entries.put(key, newScheduledEntry(key, value, expiresAt, CacheLevel.L1, weight));
+            } else {
+                oversized.add(key); // The L1 policy would reject it outright
+                l2.put(key, value);
+            }
+        });
+        removeAllFromL1(oversized); // Would shadow the new value
+        putAllInL1(l1Entries);
+        
+        if (!l3.isEmpty()) {
+            l3.keySet().forEach(key -> bloomFilter.add(key, expiresAt));
+            for (String key : l3Store.putAll(l3, expiresAt)) {
+                // Not serializable or too large for the off-heap log
+                l2.put(key, l3.remove(key));
+            }
+        }
+        
+        List<String> l2Stored = new ArrayList<>(l2.size());
+        if (!l2.isEmpty()) {
+            l2Lock.writeLock().lock();
+            try {
+                l2.forEach((key, value) -> {
+                    int weight = weigher.weigh(key, value);
+                    if (weight <= l2MaxWeight) {
+                        putInL2Locked(key, value, ttl, weight);
+                        l2Stored.add(key);
+                    }
+                });
+            } finally {
+                l2Lock.writeLock().unlock();
+            }
+        }
+        
+        l1Entries.keySet().forEach(key -> metrics.namespace(key).put(CacheLevel.L1));
+        l2Stored.forEach(key -> metrics.namespace(key).put(CacheLevel.L2));
+        l3.keySet().forEach(key -> metrics.namespace(key).put(CacheLevel.L3));
+    }
+    
+    /**
+     * Remove several keys from every level, here and on the other nodes
+     */
+    public void invalidateAll(Collection<String> keys) {
+        invalidateAllLocally(keys);
+        keys.forEach(invalidationPublisher::keyInvalidated);
+    }
+    
+    /**
+     * Bulk {@link #invalidateLocally}, each level locked once
+     */
+    public void invalidateAllLocally(Collection<String> keys) {
+        for (String key : keys) {
+            writeStamps.incrementAndGet(writeStripe(key));
+            inFlightLoads.remove(key);
+        }
+        try {
+            removeAllLocally(keys);
+        } finally {
+            for (String key : keys) {
+                writesDone.incrementAndGet(writeStripe(key));
+            }
+        }
+    }
+    
+    private void removeAllLocally(Collection<String> keys) {
+        removeAllFromL1(keys);
+        removeAllFromL2(keys);
+        l3Store.removeAll(keys);
+    }
+    
+    private void countHit(String key, CacheLevel level) {
+        hitCount.incrementAndGet();
+        metrics.namespace(key).hit(level);
+        placement.recordRead(key, level);
+        pins.recordHit(key);
+    }
+    
+    private void countMiss(String key) {
+        missCount.incrementAndGet();
+        metrics.namespace(key).miss();
+        placement.recordRead(key, null);
+    }
+    
+    /**
+     * L1 Cache Operations (W-TinyLFU, see {@link WindowTinyLfuCache})
+     */
+    private CacheEntry getFromL1(String key) {
+        CacheEntry entry = l1Cache.get(key);
+        if (entry != null) {
+            entry.recordAccess();
+        }
+        return entry;
+    }
+    
+    private <T> CacheEntry putInL1(String key, T value, long ttl) {
+        return putInL1(key, value, ttl, weigher.weigh(key, value));
+    }
+    
+    private <T> CacheEntry putInL1(String key, T value, long ttl, int weight) {
+        if (!l1Cache.canHold(weight)) {
+            removeFromL1(key); // Would shadow the new value
+            // The L1 policy would reject it outright
+            return putInL2(key, value, ttl, weight);
+        }
+        long expiresAt = CacheTicker.now() + ttl;
+        bloomFilter.add(key, expiresAt);
+        CacheEntry entry = newScheduledEntry(key, value, expiresAt, CacheLevel.L1, weight);
+        CacheEntry previous = l1Cache.put(key, entry);
+        if (previous != null) {
+            expirationWheel.deschedule(previous.getExpirationTimer());
+        }
+        log.debug("Added to L1 cache: {}", key);
+        return entry;
+    }
+    
+    /**
+     * Called by the L1 policy, outside its lock, for every entry it rejects or evicts
+     * {@code stamp} was taken as the entry left L1, see {@link #quietStamp}.
+     */
+    private void onL1Eviction(String key, CacheEntry evicted, long stamp) {
+        expirationWheel.deschedule(evicted.getExpirationTimer());
+        
+        CacheMetrics.Namespace namespace = metrics.namespace(key);
+        // Demote to L2 if still valuable
+        if (!evicted.isExpired() && placement.shouldDemote(key, evicted, CacheLevel.L2)
+                && demoteToL2(key, evicted, stamp)) {
+            namespace.demotion(CacheLevel.L2);
+        }
+        
+        evictionCount.incrementAndGet();
+        namespace.eviction(CacheLevel.L1);
+        log.debug("Evicted from L1 cache: {}", key);
+    }
+    
+    /**
+     * L2 Cache Operations (Time-based with LFU eviction)
+     */
+    private CacheEntry getFromL2(String key) {
+        l2Lock.readLock().lock();
+        try {
+            return getFromL2Locked(key);
+        } finally {
+            l2Lock.readLock().unlock();
+        }
+    }
+    
+    private CacheEntry getFromL2Locked(String key) {
+        CacheEntry entry = l2Cache.get(key);
+        if (entry != null && !entry.isExpired()) {
+            entry.recordAccess();
+            return entry;
+        }
+        return null;
+    }
+    
+    private <T> CacheEntry putInL2(String key, T value, long ttl) {
+        return putInL2(key, value, ttl, weigher.weigh(key, value));
+    }
+    
+    /**
+     * Returns the new entry, or null if it is too large for L2
+     */
+    private <T> CacheEntry putInL2(String key, T value, long ttl, int weight) {
+        if (weight > l2MaxWeight) {
+            log.debug("Not caching {} in L2: {} bytes is over the level's budget", key, weight);
+            return null;
+        }
+        l2Lock.writeLock().lock();
+        try {
+            return putInL2Locked(key, value, ttl, weight);
+        } finally {
+            l2Lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Insert into L2, evicting as needed; the caller holds the L2 write lock and checked the weight
+     */
+    private CacheEntry putInL2Locked(String key, Object value, long ttl, int weight) {
+        NamespaceQuotas.Usage usage = quotas.usage(key);
+        CacheEntry current = l2Cache.get(key);
+        long growth = weight - (current != null ? current.getWeight() : 0);
+        while (l2WeightedSize + growth > l2MaxWeight && evictFromL2(key, usage)) {
+            // Keep evicting until the new entry fits
+        }
+        
+        long expiresAt = CacheTicker.now() + ttl;
+        bloomFilter.add(key, expiresAt);
+        CacheEntry entry = newScheduledEntry(key, value, expiresAt, CacheLevel.L2, weight);
+        CacheEntry previous = l2Cache.put(key, entry);
+        l2WeightedSize += weight;
+        if (previous != null) {
+            l2WeightedSize -= previous.getWeight();
+            usage.resized(CacheLevel.L2, weight - previous.getWeight());
+            expirationWheel.deschedule(previous.getExpirationTimer());
+        } else {
+            l2InsertionOrder.add(key);
+            usage.added(CacheLevel.L2, key, weight);
+        }
+        
+        // Over its cap, the namespace makes room from its own oldest entries
+        while (usage.isOverCap(CacheLevel.L2)) {
+            String oldest = usage.oldest(CacheLevel.L2);
+            if (oldest == null) {
+                break;
+            }
+            evictL2Victim(oldest, l2Cache.get(oldest), usage);
+        }
+        
+        log.debug("Added to L2 cache: {}", key);
+        return entry;
+    }
+    
+    /**
+     * Insert into L2 unless it has a live entry for the key; the caller holds the L2 write lock
+     * and checked the weight. Returns the new entry, or null if there was one.
+     */
+    private CacheEntry putInL2IfAbsentLocked(String key, Object value, long ttl, int weight) {
+        CacheEntry current = l2Cache.get(key);
+        if (current != null && !current.isExpired()) {
+            return null;
+        }
+        return putInL2Locked(key, value, ttl, weight);
+    }
+    
+    /**
+     * Evict the least popular of the oldest few insertions, other than {@code keep}
+     * Popularity is the placement's frequency estimate, ties going to the least recently read.
+     * Sampling keeps eviction O(1) while still favouring entries that are being read.
+     * Pinned entries and those of namespaces within their reservation are skipped and requeued
+     * behind the others, unless nothing else is found. Returns false if there was nothing to evict.
+     */
+    private boolean evictFromL2(String keep, NamespaceQuotas.Usage writer) {
+        String victimKey = null;
+        CacheEntry victim = null;
+        int victimFrequency = Integer.MAX_VALUE;
+        List<String> reserved = new ArrayList<>(0);
+        Iterator<String> oldest = l2InsertionOrder.iterator();
+        for (int i = 0; i < L2_EVICTION_SAMPLE && reserved.size() < MAX_RESERVED_SKIPS && oldest.hasNext(); ) {
+            String key = oldest.next();
+            if (key.equals(keep)) {
+                continue;
+            }
+            if (quotas.isKept(CacheLevel.L2, key, writer)) {
+                reserved.add(key);
+                continue;
+            }
+            i++;
+            CacheEntry entry = l2Cache.get(key);
+            int frequency = placement.frequency(key);
+            if (frequency < victimFrequency
+                    || (frequency == victimFrequency && entry.getLastAccessTime() < victim.getLastAccessTime())) {
+                victimKey = key;
+                victim = entry;
+                victimFrequency = frequency;
+            }
+        }
+        if (victim == null) {
+            if (reserved.isEmpty()) {
+                return false;
+            }
+            // Everything left is reserved
+            victimKey = reserved.remove(0);
+            victim = l2Cache.get(victimKey);
+        }
+        // So the next evictions do not scan them again
+        reserved.forEach(key -> {
+            l2InsertionOrder.remove(key);
+            l2InsertionOrder.add(key);
+        });
+        evictL2Victim(victimKey, victim, writer);
+        return true;
+    }
+    
+    /**
+     * Evict one L2 entry, demoting it to L3 if it is still being read; the caller holds the L2 write lock
+     */
+    private void evictL2Victim(String victimKey, CacheEntry victim, NamespaceQuotas.Usage cause) {
+        long stamp = quietStamp(victimKey);
+        l2Cache.remove(victimKey);
+        unlinkFromL2(victimKey, victim);
+        cause.evictionCaused(CacheLevel.L2);
+        expirationWheel.deschedule(victim.getExpirationTimer());
+        
+        CacheMetrics.Namespace namespace = metrics.namespace(victimKey);
+        // Demote to L3 if still valuable
+        if (!victim.isExpired() && placement.shouldDemote(victimKey, victim, CacheLevel.L3)
+                && demoteToL3(victimKey, victim, stamp)) {
+            namespace.demotion(CacheLevel.L3);
+        }
+        
+        evictionCount.incrementAndGet();
+        namespace.eviction(CacheLevel.L2);
+    }
+    
+    /**
+     * L3 Cache Operations (off-heap FIFO log, see {@link MappedCacheStore})
+     * Expired records are skipped on read and reclaimed as the log wraps, so L3 needs no timers.
+     */
+    private MappedCacheStore.Stored getFromL3(String key) {
+        return l3Store.getStored(key);
+    }
+    
+    private <T> boolean putInL3(String key, T value, long ttl) {
+        long expiresAt = CacheTicker.now() + ttl;
+        bloomFilter.add(key, expiresAt);
+        if (!l3Store.put(key, value, expiresAt)) {
+            return false;
+        }
+        log.debug("Added to L3 cache: {}", key);
+        return true;
+    }
+    
+    /**
+     * Cache promotion and demotion strategies
+     * A move copies an entry read from one level into another, racing with writes and
+     * invalidations of the key, which must not end up shadowed by the older copy. Each move
+     * takes a {@link #quietStamp} before reading its source, does nothing if a write was in
+     * progress, and drops the copy it made if one started before the copy was in place.
+     * Readers may see that copy meanwhile, but no older value outlives the write.
+     */
+    
+    /**
+     * Returns false if the entry stays in L2: too large for L1, already there, not admitted,
+     * or raced with a write
+     */
+    private boolean promoteToL1(String key, CacheEntry entry, long stamp) {
+        long ttl = movedTtl(entry, L1_TTL);
+        if (stamp < 0 || ttl <= 0 || !l1Cache.canHold(entry.getWeight())) {
+            return false;
+        }
+        long expiresAt = CacheTicker.now() + ttl;
+        bloomFilter.add(key, expiresAt);
+        CacheEntry promoted = newScheduledEntry(key, entry.getValue(), expiresAt, CacheLevel.L1, entry.getWeight());
+        promoted.setRefreshAt(entry.getRefreshAt());
+        if (l1Cache.putIfAbsent(key, promoted) != null) {
+            // Promoted by another reader, or written meanwhile
+            expirationWheel.deschedule(promoted.getExpirationTimer());
+            return false;
+        }
+        if (!isQuiet(key, stamp)) {
+            removeFromL1(key, promoted);
+            return false;
+        }
+        if (l1Cache.peek(key) != promoted) {
+            return false; // Not admitted, or evicted at once: the L2 copy stays
+        }
+        removeFromL2(key, entry);
+        return true;
+    }
+    
+    /**
+     * Returns false if the value stays in L3: too large for L2, already there, or raced with a write
+     */
+    private boolean promoteToL2(String key, MappedCacheStore.Stored stored, long stamp) {
+        int weight = weigher.weigh(key, stored.value());
+        long ttl = movedTtl(stored.expiresAt(), L2_TTL);
+        if (stamp < 0 || ttl <= 0 || weight > l2MaxWeight) {
+            return false;
+        }
+        CacheEntry promoted;
+        l2Lock.writeLock().lock();
+        try {
+            promoted = putInL2IfAbsentLocked(key, stored.value(), ttl, weight);
+        } finally {
+            l2Lock.writeLock().unlock();
+        }
+        if (promoted == null) {
+            return false;
+        }
+        if (!isQuiet(key, stamp)) {
+            removeFromL2(key, promoted);
+            return false;
+        }
+        removeFromL3(key);
+        return true;
+    }
+    
+    /**
+     * Batched {@link #promoteToL1}: entries too large for L1 stay in L2
+     */
+    private void promoteAllToL1(Map<String, CacheEntry> fromL2, Map<String, Long> stamps) {
+        Map<String, CacheEntry> promoted = new LinkedHashMap<>();
+        fromL2.forEach((key, entry) -> {
+            long ttl = movedTtl(entry, L1_TTL);
+            if (stamps.get(key) >= 0 && ttl > 0 && l1Cache.canHold(entry.getWeight())) {
+                long expiresAt = CacheTicker.now() + ttl;
+                bloomFilter.add(key, expiresAt);
+                CacheEntry copy = newScheduledEntry(key, entry.getValue(), expiresAt, CacheLevel.L1, entry.getWeight());
+                copy.setRefreshAt(entry.getRefreshAt());
+                promoted.put(key, copy);
+            }
+        });
+        if (promoted.isEmpty()) {
+            return;
+        }
+        for (String key : l1Cache.putAllIfAbsent(promoted)) {
+            expirationWheel.deschedule(promoted.remove(key).getExpirationTimer());
+        }
+        promoted.entrySet().removeIf(e -> {
+            if (!isQuiet(e.getKey(), stamps.get(e.getKey()))) {
+                removeFromL1(e.getKey(), e.getValue());
+                return true;
+            }
+            return l1Cache.peek(e.getKey()) != e.getValue();
+        });
+        l2Lock.writeLock().lock();
+        try {
+            for (String key : promoted.keySet()) {
+                removeFromL2Locked(key, fromL2.get(key));
+            }
+        } finally {
+            l2Lock.writeLock().unlock();
+        }
+        promoted.keySet().forEach(key -> metrics.namespace(key).promotion(CacheLevel.L1));
+    }
+    
+    /**
+     * Batched {@link #promoteToL2}
+     */
+    private void promoteAllToL2(Map<String, MappedCacheStore.Stored> fromL3, Map<String, Long> stamps) {
+        if (fromL3.isEmpty()) {
+            return;
+        }
+        Map<String, CacheEntry> promoted = new LinkedHashMap<>();
+        l2Lock.writeLock().lock();
+        try {
+            fromL3.forEach((key, stored) -> {
+                int weight = weigher.weigh(key, stored.value());
+                long ttl = movedTtl(stored.expiresAt(), L2_TTL);
+                CacheEntry entry = stamps.get(key) >= 0 && ttl > 0 && weight <= l2MaxWeight
+                    ? putInL2IfAbsentLocked(key, stored.value(), ttl, weight)
+                    : null;
+                if (entry != null) {
+                    promoted.put(key, entry);
+                }
+            });
+            promoted.entrySet().removeIf(e -> {
+                if (isQuiet(e.getKey(), stamps.get(e.getKey()))) {
+                    return false;
+                }
+                removeFromL2Locked(e.getKey(), e.getValue());
+                return true;
+            });
+        } finally {
+            l2Lock.writeLock().unlock();
+        }
+        l3Store.removeAll(promoted.keySet());
+        promoted.keySet().forEach(key -> metrics.namespace(key).promotion(CacheLevel.L2));
+    }
+    
+    /**
+     * Returns false if the entry was dropped: too large for L2, raced with a write, or L2
+     * already has the key, which can only be a copy as new as this one or a later write
+     */
+    private boolean demoteToL2(String key, CacheEntry entry, long stamp) {
+        long ttl = movedTtl(entry, L2_TTL);
+        if (stamp < 0 || ttl <= 0 || entry.getWeight() > l2MaxWeight) {
+            return false;
+        }
+        CacheEntry demoted;
+        l2Lock.writeLock().lock();
+        try {
+            demoted = putInL2IfAbsentLocked(key, entry.getValue(), ttl, entry.getWeight());
+        } finally {
+            l2Lock.writeLock().unlock();
+        }
+        if (demoted == null) {
+            return false;
+        }
+        if (!isQuiet(key, stamp)) {
+            removeFromL2(key, demoted);
+            return false;
+        }
+        demoted.setRefreshAt(entry.getRefreshAt());
+        return true;
+    }
+    
+    /**
+     * TTL of a copy moved to another level: it never outlives the original, so a short-lived
+     * entry (an Absent marker, a per-cache TTL) keeps its window, and is capped by the target
+     * level's TTL; a refreshable entry keeps its loaded TTL, so it is refreshed before it expires.
+     * Zero or less if the original has expired, in which case nothing moves.
+     */
+    private static long movedTtl(CacheEntry entry, long levelTtl) {
+        return movedTtl(entry.getExpirationTime(), entry.getRefreshAt() != 0 ? Long.MAX_VALUE : levelTtl);
+    }
+    
+    private static long movedTtl(long expiresAt, long levelTtl) {
+        return Math.min(expiresAt - CacheTicker.now(), levelTtl);
+    }
+    
+    private boolean demoteToL3(String key, CacheEntry entry, long stamp) {
+        long ttl = movedTtl(entry, L3_TTL);
+        if (stamp < 0 || ttl <= 0 || !putInL3(key, entry.getValue(), ttl)) {
+            return false;
+        }
+        if (!isQuiet(key, stamp)) {
+            removeFromL3(key);
+            return false;
+        }
+        return true;
+    }
+    
+    /**
+     * Utility methods
+     */
+    private void removeFromL1(String key) {
+        CacheEntry removed = l1Cache.remove(key);
+        if (removed != null) {
+            expirationWheel.deschedule(removed.getExpirationTimer());
+        }
+    }
+    
+    /**
+     * Remove the key from L1 only if it still maps to the given entry
+     */
+    private void removeFromL1(String key, CacheEntry entry) {
+        if (l1Cache.remove(key, entry)) {
+            expirationWheel.deschedule(entry.getExpirationTimer());
+        }
+    }
+    
+    private void removeAllFromL1(Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        for (CacheEntry removed : l1Cache.removeAll(keys)) {
+            expirationWheel.deschedule(removed.getExpirationTimer());
+        }
+    }
+    
+    private void putAllInL1(Map<String, CacheEntry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        for (CacheEntry previous : l1Cache.putAll(entries).values()) {
+            expirationWheel.deschedule(previous.getExpirationTimer());
+        }
+    }
+    
+    /**
+     * A key already held by a hotter level stays there
+     */
+    private CacheLevel residentLevel(String key, CacheLevel level) {
+        if (level != CacheLevel.L1 && l1Cache.containsKey(key)) {
+            return CacheLevel.L1;
+        }
+        if (level == CacheLevel.L3 && l2Cache.containsKey(key)) {
+            return CacheLevel.L2;
+        }
+        return level;
+    }
+    
+    private void removeFromL2(String key) {
+        l2Lock.writeLock().lock();
+        try {
+            removeFromL2Locked(key);
+        } finally {
+            l2Lock.writeLock().unlock();
+        }
+    }
+    
+    private void removeAllFromL2(Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        l2Lock.writeLock().lock();
+        try {
+            for (String key : keys) {
+                removeFromL2Locked(key);
+            }
+        } finally {
+            l2Lock.writeLock().unlock();
+        }
+    }
+    
+    private void removeFromL2Locked(String key) {
+        CacheEntry removed = l2Cache.remove(key);
+        if (removed != null) {
+            unlinkFromL2(key, removed);
+            expirationWheel.deschedule(removed.getExpirationTimer());
+        }
+    }
+    
+    /**
+     * Remove the key from L2 only if it still maps to the given entry
+     */
+    private void removeFromL2(String key, CacheEntry entry) {
+        l2Lock.writeLock().lock();
+        try {
+            removeFromL2Locked(key, entry);
+        } finally {
+            l2Lock.writeLock().unlock();
+        }
+    }
+    
+    private void removeFromL2Locked(String key, CacheEntry entry) {
+        if (l2Cache.remove(key, entry)) {
+            unlinkFromL2(key, entry);
+            expirationWheel.deschedule(entry.getExpirationTimer());
+        }
+    }
+    
+    /**
+     * Drop the bookkeeping of an entry just removed from L2; the caller holds the L2 write lock
+     */
+    private void unlinkFromL2(String key, CacheEntry entry) {
+        l2InsertionOrder.remove(key);
+        l2WeightedSize -= entry.getWeight();
+        quotas.usage(key).removed(CacheLevel.L2, key, entry.getWeight());
+    }
+    
+    private void removeFromL3(String key) {
+        l3Store.remove(key);
+    }
+    
+    private CacheEntry newScheduledEntry(String key, Object value, long expiresAt, CacheLevel level, int weight) {
+        CacheEntry entry = new CacheEntry(value, expiresAt);
+        entry.setWeight(weight);
+        entry.setExpirationTimer(expirationWheel.schedule(key, entry, level));
+        return entry;
+    }
+    
+    /**
+     * Advance the expiration wheel to now and drop every entry that is due
+     * Reads and writes advance the wheel opportunistically; this is only a backstop
+     * for idle periods, so expired entries never wait for a full sweep.
+     */
+    @Scheduled(fixedRate = 1000)
+    public void cleanupExpiredEntries() {
+        long now = CacheTicker.now();
+        expireEntries(expirationWheel.advance(now));
+        // Forget failures once they are too old to extend the next backoff
+        failedLoads.values().removeIf(failure -> failure.retryAt + MAX_LOAD_FAILURE_BACKOFF < now);
+    }
+    
+    /**
+     * Remove fired entries, unless the key has been rewritten since they were scheduled
+     */
+    private void expireEntries(List<TimerWheel.Timer> expired) {
+        for (TimerWheel.Timer timer : expired) {
+            String key = timer.getKey();
+            CacheEntry entry = timer.getEntry();
+            switch ((CacheLevel) timer.getOwner()) {
+                case L1:
+                    l1Cache.remove(key, entry);
+                    break;
+                case L2:
+                    l2Lock.writeLock().lock();
+                    try {
+                        if (l2Cache.remove(key, entry)) {
+                            unlinkFromL2(key, entry);
+                        }
+                    } finally {
+                        l2Lock.writeLock().unlock();
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        if (!expired.isEmpty()) {
+            log.debug("Expired {} cache entries", expired.size());
+        }
+    }
+    
+    /**
+     * Fold the reads counted since the last call into the time-of-day profile
+     */
+    @Scheduled(fixedRate = 60000)
+    public void updateAccessProfile() {
+        accessProfile.update(LocalTime.now(profileZone));
+    }
+    
+    public AccessProfile getAccessProfile() {
+        return accessProfile;
+    }
+    
+    /**
+     * Keep the keys' entries in L1 or L2 until the given time (epoch millis), moving those
+     * found only in L3 up to L2; keys not cached at all are left out of the batch
+     */
+    public PinnedKeys.Batch pin(Collection<String> keys, long until) {
+        List<String> resident = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            if (l1Cache.containsKey(key) || l2Cache.containsKey(key)) {
+                resident.add(key);
+                continue;
+            }
+            long stamp = quietStamp(key);
+            MappedCacheStore.Stored stored = l3Store.getStored(key);
+            if (stored != null && promoteToL2(key, stored, stamp)) {
+                metrics.namespace(key).promotion(CacheLevel.L2);
+                resident.add(key);
+            }
+        }
+        return pins.pin(resident, until);
+    }
+    
+    public void unpin(PinnedKeys.Batch batch) {
+        pins.release(batch);
+    }
+    
+    public void setInvalidationPublisher(InvalidationPublisher invalidationPublisher) {
+        this.invalidationPublisher = invalidationPublisher != null ? invalidationPublisher : InvalidationPublisher.NONE;
+    }
+    
+    /**
+     * The most read keys, hottest first (sampled, see {@link HotKeyTracker})
+     */
+    public List<HotKeyTracker.HotKey> getHotKeys(int limit) {
+        return hotKeys.top(limit);
+    }
+    
+    /**
+     * The level currently holding a live entry for the key, without counting as a read
+     */
+    public Optional<CacheLevel> levelOf(String key) {
+        if (l1Cache.containsKey(key)) {
+            return Optional.of(CacheLevel.L1);
+        }
+        CacheEntry entry = l2Cache.get(key);
+        if (entry != null && !entry.isExpired()) {
+            return Optional.of(CacheLevel.L2);
+        }
+        return l3Store.contains(key) ? Optional.of(CacheLevel.L3) : Optional.empty();
+    }
+    
+    /**
+     * Copy of the live L1 and L2 entries for {@link CacheSnapshot}, most read first
+     * Weakly consistent: entries written while it runs may or may not be included.
+     */
+    public List<CacheSnapshot.Entry> snapshotEntries() {
+        List<CacheSnapshot.Entry> entries = new ArrayList<>(l1Cache.size() + l2Cache.size());
+        l1Cache.forEach((key, entry) -> addSnapshotEntry(entries, key, entry, CacheLevel.L1));
+        l2Cache.forEach((key, entry) -> addSnapshotEntry(entries, key, entry, CacheLevel.L2));
+        // Hottest first, so a cut-short file still holds the entries that matter most
+        entries.sort(Comparator.comparingLong(CacheSnapshot.Entry::getAccessCount).reversed());
+        return entries;
+    }
+    
+    private static void addSnapshotEntry(List<CacheSnapshot.Entry> entries, String key, CacheEntry entry, CacheLevel level) {
+        if (!entry.isExpired()) {
+            entries.add(new CacheSnapshot.Entry(key, level, entry.getExpirationTime(), entry.getAccessCount(), entry.getValue()));
+        }
+    }
+    
+    /**
+     * Put back a snapshotted entry in its level with its remaining TTL and access count
+     * Returns false if it has expired, does not fit, or the key was cached again meanwhile.
+     */
+    public boolean restore(CacheSnapshot.Entry snapshot) {
+        String key = snapshot.getKey();
+        long ttl = snapshot.getExpiresAt() - CacheTicker.now();
+        if (ttl <= 0 || levelOf(key).isPresent()) {
+            return false;
+        }
+        CacheEntry entry = snapshot.getLevel() == CacheLevel.L1
+            ? putInL1(key, snapshot.getValue(), ttl)
+            : putInL2(key, snapshot.getValue(), ttl);
+        if (entry == null) {
+            return false;
+        }
+        entry.setAccessCount(snapshot.getAccessCount());
+        return true;
+    }
+    
+    /**
+     * Cache statistics and monitoring
+     */
+    public CacheStats getStats() {
+        return CacheStats.builder()
+            .l1Size(l1Cache.size())
+            .l2Size(l2Cache.size())
+            .l3Size(l3Store.size())
+            .l1WeightedSize(l1Cache.weightedSize())
+            .l2WeightedSize(l2WeightedSize)
+            .l3WeightedSize(l3Store.getUsedBytes())
+            .hitCount(hitCount.get())
+            .missCount(missCount.get())
+            .evictionCount(evictionCount.get() + l3Store.getEvictionCount())
+            .hitRatio(calculateHitRatio())
+            .bloomSaturation(bloomFilter.getSaturation())
+            .bloomFalsePositiveRate(calculateBloomFalsePositiveRate())
+            .loadCount(loadCount.get())
+            .loadFailureCount(loadFailureCount.get())
+            .coalescedLoadCount(coalescedLoadCount.get())
+            .refreshCount(refreshCount.get())
+            .absentHitCount(absentHitCount.get())
+            .build();
+    }
+    
+    private double calculateHitRatio() {
+        long hits = hitCount.get();
+        long total = hits + missCount.get();
+        return total > 0 ? (double) hits / total : 0.0;
+    }
+    
+    /**
+     * Share of absent keys the filter failed to reject
+     * Lookups of expired entries still in their generation count as false positives too
+     */
+    private double calculateBloomFalsePositiveRate() {
+        long falsePositives = bloomFalsePositiveCount.get();
+        long absent = falsePositives + bloomRejectCount.get();
+        return absent > 0 ? (double) falsePositives / absent : 0.0;
+    }
+    
+    /**
+     * Clear all caches, with the pins and counters, on this node only
+     * Like a prefix invalidation this is a write of every stripe: loads in flight are
+     * detached and moves or absence markers that raced with it are not stored.
+     */
+    public void clearAll() {
+        for (int stripe = 0; stripe < WRITE_STAMP_STRIPES; stripe++) {
+            writeStamps.incrementAndGet(stripe);
+        }
+        l2Lock.writeLock().lock();
+        try {
+            inFlightLoads.clear();
+            l1Cache.clear();
+            l2Cache.clear();
+            l2InsertionOrder.clear();
+            l2WeightedSize = 0;
+            quotas.clear(CacheLevel.L2);
+            l3Store.clear();
+            expirationWheel.clear();
+            bloomFilter.clear();
+            
+            hitCount.set(0);
+            missCount.set(0);
+            evictionCount.set(0);
+            bloomRejectCount.set(0);
+            bloomFalsePositiveCount.set(0);
+            loadCount.set(0);
+            loadFailureCount.set(0);
+            coalescedLoadCount.set(0);
+            refreshCount.set(0);
+            absentHitCount.set(0);
+            failedLoads.clear();
+            hotKeys.clear();
+            pins.clear();
+            
+            log.info("All caches cleared");
+        } finally {
+            l2Lock.writeLock().unlock();
+            for (int stripe = 0; stripe < WRITE_STAMP_STRIPES; stripe++) {
+                writesDone.incrementAndGet(stripe);
+            }
+        }
+    }
+    
+    /**
+     * Stop the loader threads and delete the L3 file, at context shutdown or at the end of a test
+     * Loads already running complete; callers waiting on them still get their values.
+     */
+    @Override
+    public void close() {
+        loaderExecutor.shutdown();
+        l3Store.close();
+    }
+    
+    /**
+     * Last failure of a key's loader and when it may be retried
+     */
+    private static final class FailedLoad {
+        private final Throwable cause;
+        private final int failures;
+        private final long retryAt;
+        
+        FailedLoad(Throwable cause, int failures) {
+            this.cause = cause;
+            this.failures = failures;
+            long backoff = LOAD_FAILURE_BACKOFF << Math.min(failures - 1, 16);
+            this.retryAt = CacheTicker.now() + Math.min(backoff, MAX_LOAD_FAILURE_BACKOFF);
+        }
     }
 }
\ No newline at end of file
@@ -1,172 +1,197 @@
 package com.tiffin.cache;
 
-import java.util.BitSet;
-import java.util.function.Function;
-import java.util.List;
-import java.util.Arrays;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Bloom Filter implementation for fast negative lookups
  * Used to quickly determine if a key is definitely not in cache
  * Reduces unnecessary cache lookups significantly
+ *
+ * Thread-safe and allocation-free on the probe path: bits live in a long[] that is
+ * updated with atomic OR through a VarHandle, and a single 128-bit MurmurHash3 is
+ * computed directly over the String's chars. The k bit positions are derived from
+ * the two 64-bit halves with Kirsch-Mitzenmacher double hashing, so any optimal k works.
  */
 public class BloomFilter {
-    
-    private final BitSet bitSet;
-    private final int size;
+
+    private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+    private static final long HASH_SEED = 0;
+
+    private final long[] words;
+    private final long bitSize;
     private final int hashFunctions;
-    private final List<Function<String, Integer>> hashers;
-    
+    private final AtomicLong setBits = new AtomicLong();
+
     public BloomFilter(int expectedElements, double falsePositiveRate) {
         // Calculate optimal size and hash functions
-        this.size = calculateOptimalSize(expectedElements, falsePositiveRate);
-        this.hashFunctions = calculateOptimalHashFunctions(expectedElements, size);
-        this.bitSet = new BitSet(size);
-        
-        // Initialize hash functions
-        this.hashers = Arrays.asList(
-            key -> Math.abs(key.hashCode() % size),
-            key -> Math.abs(key.hashCode() * 31 % size),
-            key -> Math.abs(murmurHash3(key) % size),
-            key -> Math.abs(djb2Hash(key) % size),
-            key -> Math.abs(sdbmHash(key) % size)
-        );
-    }
-    
+        long optimalBits = calculateOptimalSize(expectedElements, falsePositiveRate);
+        this.words = new long[(int) ((optimalBits + 63) >>> 6)];
+        this.bitSize = (long) words.length << 6;
+        this.hashFunctions = calculateOptimalHashFunctions(expectedElements, bitSize);
+    }
+
     /**
      * Add key to bloom filter
      */
     public void add(String key) {
-        for (int i = 0; i < hashFunctions && i < hashers.size(); i++) {
-            int hash = hashers.get(i).apply(key);
-            bitSet.set(hash);
-        }
+        probe(key, true);
     }
-    
+
     /**
      * Check if key might be in the set
      * Returns false if definitely not present
      * Returns true if might be present (with some false positive rate)
      */
     public boolean mightContain(String key) {
-        for (int i = 0; i < hashFunctions && i < hashers.size(); i++) {
-            int hash = hashers.get(i).apply(key);
-            if (!bitSet.get(hash)) {
-                return false; // Definitely not present
-            }
-        }
-        return true; // Might be present
+        return probe(key, false);
     }
-    
+
     /**
      * Clear the bloom filter
+     * Not atomic with respect to concurrent adds; a racing add may be lost
      */
     public void clear() {
-        bitSet.clear();
+        for (int i = 0; i < words.length; i++) {
+            WORDS.setRelease(words, i, 0L);
+        }
+        setBits.set(0);
     }
-    
+
     /**
      * Get the current false positive rate
      */
     public double getCurrentFalsePositiveRate() {
-        int setBits = bitSet.cardinality();
-        double ratio = (double) setBits / size;
-        return Math.pow(ratio, hashFunctions);
+        return Math.pow(getSaturation(), hashFunctions);
     }
-    
+
+    /**
+     * Fraction of bits currently set
+     */
+    public double getSaturation() {
+        return (double) setBits.get() / bitSize;
+    }
+
+    public long getBitSize() {
+        return bitSize;
+    }
+
+    public int getHashFunctions() {
+        return hashFunctions;
+    }
+
+    private void setBit(long bitIndex) {
+        int wordIndex = (int) (bitIndex >>> 6);
+        long mask = 1L << bitIndex;
+        // Skip the atomic write when the bit is already set (the common case once warm)
+        if (((long) WORDS.getOpaque(words, wordIndex) & mask) == 0) {
+            long previous = (long) WORDS.getAndBitwiseOr(words, wordIndex, mask);
+            if ((previous & mask) == 0) {
+                setBits.incrementAndGet();
+            }
+        }
+    }
+
+    private boolean getBit(long bitIndex) {
+        return ((long) WORDS.getAcquire(words, (int) (bitIndex >>> 6)) & (1L << bitIndex)) != 0;
+    }
+
     /**
      * Calculate optimal bit array size
      */
-    private int calculateOptimalSize(int expectedElements, double falsePositiveRate) {
-        return (int) Math.ceil(-expectedElements * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+    private static long calculateOptimalSize(int expectedElements, double falsePositiveRate) {
+        return Math.max(64, (long) Math.ceil(-expectedElements * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2))));
     }
-    
+
     /**
      * Calculate optimal number of hash functions
      */
-    private int calculateOptimalHashFunctions(int expectedElements, int size) {
+    private static int calculateOptimalHashFunctions(int expectedElements, long size) {
         return Math.max(1, (int) Math.round((double) size / expectedElements * Math.log(2)));
     }
-    
+
     /**
-     * MurmurHash3 implementation for better hash distribution
+     * Hash the key once and visit its k bit positions, setting them or testing them
+     * MurmurHash3 x64 128-bit runs over the UTF-16 code units: four chars form one
+     * 64-bit lane and eight chars one 128-bit block, so no byte[] is ever built.
      */
-    private int murmurHash3(String key) {
-        byte[] data = key.getBytes();
-        int length = data.length;
-        int seed = 0;
-        
-        final int c1 = 0xcc9e2d51;
-        final int c2 = 0x1b873593;
-        final int r1 = 15;
-        final int r2 = 13;
-        final int m = 5;
-        final int n = 0xe6546b64;
-        
-        int hash = seed;
-        
-        final int nblocks = length / 4;
-        
-        // Process 4-byte blocks
-        for (int i = 0; i < nblocks; i++) {
-            int k = (data[i * 4] & 0xff) |
-                   ((data[i * 4 + 1] & 0xff) << 8) |
-                   ((data[i * 4 + 2] & 0xff) << 16) |
-                   ((data[i * 4 + 3] & 0xff) << 24);
-            
-            k *= c1;
-            k = Integer.rotateLeft(k, r1);
-            k *= c2;
-            
-            hash ^= k;
-            hash = Integer.rotateLeft(hash, r2);
-            hash = hash * m + n;
+    private boolean probe(String key, boolean set) {
+        long h1 = HASH_SEED;
+        long h2 = HASH_SEED;
+        int length = key.length();
+        int blockEnd = length & ~7;
+
+        for (int i = 0; i < blockEnd; i += 8) {
+            h1 ^= mixK1(lane(key, i, 4));
+            h1 = Long.rotateLeft(h1, 27) + h2;
+            h1 = h1 * 5 + 0x52dce729;
+
+            h2 ^= mixK2(lane(key, i + 4, 4));
+            h2 = Long.rotateLeft(h2, 31) + h1;
+            h2 = h2 * 5 + 0x38495ab5;
         }
-        
-        // Process remaining bytes
-        int k1 = 0;
-        int remaining = length & 3;
-        
-        if (remaining >= 3) k1 ^= (data[nblocks * 4 + 2] & 0xff) << 16;
-        if (remaining >= 2) k1 ^= (data[nblocks * 4 + 1] & 0xff) << 8;
-        if (remaining >= 1) {
-            k1 ^= (data[nblocks * 4] & 0xff);
-            k1 *= c1;
-            k1 = Integer.rotateLeft(k1, r1);
-            k1 *= c2;
-            hash ^= k1;
+
+        int remaining = length - blockEnd;
+        if (remaining > 4) {
+            h2 ^= mixK2(lane(key, blockEnd + 4, remaining - 4));
         }
-        
-        // Finalization
-        hash ^= length;
-        hash ^= (hash >>> 16);
-        hash *= 0x85ebca6b;
-        hash ^= (hash >>> 13);
-        hash *= 0xc2b2ae35;
-        hash ^= (hash >>> 16);
-        
-        return hash;
-    }
-    
-    /**
-     * DJB2 hash function
-     */
-    private int djb2Hash(String key) {
-        int hash = 5381;
-        for (char c : key.toCharArray()) {
-            hash = ((hash << 5) + hash) + c;
+        if (remaining > 0) {
+            h1 ^= mixK1(lane(key, blockEnd, Math.min(remaining, 4)));
+        }
+
+        long byteLength = (long) length << 1;
+        h1 ^= byteLength;
+        h2 ^= byteLength;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix64(h1);
+        h2 = fmix64(h2);
+        h1 += h2;
+        h2 += h1;
+
+        // Kirsch-Mitzenmacher: g_i(x) = h1(x) + i * h2(x)
+        long combined = h1;
+        for (int i = 0; i < hashFunctions; i++) {
+            long bitIndex = (combined & Long.MAX_VALUE) % bitSize;
+            if (set) {
+                setBit(bitIndex);
+            } else if (!getBit(bitIndex)) {
+                return false; // Definitely not present
+            }
+            combined += h2;
         }
-        return hash;
+        return true;
     }
-    
-    /**
-     * SDBM hash function
-     */
-    private int sdbmHash(String key) {
-        int hash = 0;
-        for (char c : key.toCharArray()) {
-            hash = c + (hash << 6) + (hash << 16) - hash;
+
+    private static long lane(String key, int offset, int chars) {
+        long lane = 0;
+        for (int i = 0; i < chars; i++) {
+            lane |= (long) key.charAt(offset + i) << (i << 4);
         }
-        return hash;
+        return lane;
+    }
+
+    private static long mixK1(long k1) {
+        k1 *= C1;
+        k1 = Long.rotateLeft(k1, 31);
+        return k1 * C2;
+    }
+
+    private static long mixK2(long k2) {
+        k2 *= C2;
+        k2 = Long.rotateLeft(k2, 33);
+        return k2 * C1;
+    }
+
+    private static long fmix64(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
     }
-}
\ No newline at end of file
+}
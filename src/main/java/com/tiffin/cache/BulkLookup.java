@@ -0,0 +1,22 @@
+package com.tiffin.cache;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Result of {@link AdvancedCacheManager#getAll}: the values found in any level, and the ids found in none
+ */
+@Getter
+@RequiredArgsConstructor
+public class BulkLookup<K, V> {
+
+    private final Map<K, V> found;
+    private final Set<K> missing;
+
+    public boolean isComplete() {
+        return missing.isEmpty();
+    }
+}
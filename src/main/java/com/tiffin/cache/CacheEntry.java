@@ -1,106 +1,91 @@
 package com.tiffin.cache;
 
-import lombok.AllArgsConstructor;
-import lombok.Data;
-import lombok.NoArgsConstructor;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
 
-import java.util.concurrent.atomic.AtomicLong;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 
 /**
- * Cache Entry with advanced metadata tracking
- * Similar to cache entries used in high-performance systems like Gmail/Instagram
+ * Cache entry: the value plus the little metadata the levels need, in primitive fields
+ *
+ * With a million entries the per-entry overhead matters, so the last access time and the
+ * access count share one long (ticker-relative milliseconds above a saturating 24-bit
+ * count) updated through a VarHandle rather than an AtomicLong and separate fields. All
+ * times come from {@link CacheTicker}, so an access does not read the system clock.
+ *
+ * Layout with compressed oops: 12 header + 4 value + 4 timer + 4 weight + 8 expiration
+ * + 8 refreshAt + 8 access = 48 bytes.
  */
-@Data
-@AllArgsConstructor
-@NoArgsConstructor
+@Getter
 public class CacheEntry {
-    
-    private Object value;
-    private long expirationTime;
-    private long creationTime;
-    private long lastAccessTime;
-    private AtomicLong accessCount;
-    private double frequency; // For LFU calculations
-    private int priority; // For priority-based eviction
-    
+
+    private static final int COUNT_BITS = 24;
+    private static final long MAX_COUNT = (1L << COUNT_BITS) - 1;
+    private static final VarHandle ACCESS;
+
+    static {
+        try {
+            ACCESS = MethodHandles.lookup().findVarHandle(CacheEntry.class, "access", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final Object value;
+    private final long expirationTime;
+    @Setter
+    private TimerWheel.Timer expirationTimer; // Pending expiration in the cache's timer wheel
+    @Setter
+    private int weight; // Estimated size in bytes, see CacheWeigher
+    @Setter
+    private volatile long refreshAt; // When a read should start reloading it in the background, 0 for never
+    @Getter(AccessLevel.NONE)
+    private long access; // lastAccess << COUNT_BITS | count, through ACCESS
+
     public CacheEntry(Object value, long expirationTime) {
         this.value = value;
         this.expirationTime = expirationTime;
-        this.creationTime = System.currentTimeMillis();
-        this.lastAccessTime = this.creationTime;
-        this.accessCount = new AtomicLong(0);
-        this.frequency = 0.0;
-        this.priority = 1;
+        this.access = pack(CacheTicker.now(), 0);
     }
-    
-    /**
-     * Check if entry has expired
-     */
+
     public boolean isExpired() {
-        return System.currentTimeMillis() > expirationTime;
+        return CacheTicker.now() > expirationTime;
     }
-    
+
     /**
-     * Update last access time
+     * Stamp a read: update the last access time and count it
      */
-    public void updateAccessTime() {
-        this.lastAccessTime = System.currentTimeMillis();
-        updateFrequency();
+    public void recordAccess() {
+        long now = CacheTicker.now();
+        long current;
+        long next;
+        do {
+            current = (long) ACCESS.getOpaque(this);
+            next = pack(now, Math.min(MAX_COUNT, (current & MAX_COUNT) + 1));
+        } while (!ACCESS.weakCompareAndSet(this, current, next));
     }
-    
-    /**
-     * Increment access count atomically
-     */
-    public long incrementAccessCount() {
-        return accessCount.incrementAndGet();
+
+    public long getLastAccessTime() {
+        return CacheTicker.EPOCH + ((long) ACCESS.getOpaque(this) >>> COUNT_BITS);
     }
-    
-    /**
-     * Get current access count
-     */
+
     public long getAccessCount() {
-        return accessCount.get();
-    }
-    
-    /**
-     * Update frequency for LFU calculations
-     * Uses exponential decay to give more weight to recent accesses
-     */
-    private void updateFrequency() {
-        long timeDiff = System.currentTimeMillis() - lastAccessTime;
-        double decay = Math.exp(-timeDiff / 300000.0); // 5-minute decay
-        this.frequency = (frequency * decay) + 1.0;
-    }
-    
-    /**
-     * Calculate entry score for eviction decisions
-     * Combines frequency, recency, and priority
-     */
-    public double getEvictionScore() {
-        long age = System.currentTimeMillis() - lastAccessTime;
-        double recency = 1.0 / (1.0 + age / 60000.0); // Recency in minutes
-        
-        return (frequency * 0.4) + (recency * 0.4) + (priority * 0.2);
+        return (long) ACCESS.getOpaque(this) & MAX_COUNT;
     }
-    
-    /**
-     * Check if entry is hot (frequently accessed recently)
-     */
-    public boolean isHot() {
-        return frequency > 10.0 && (System.currentTimeMillis() - lastAccessTime) < 300000; // 5 minutes
-    }
-    
+
     /**
-     * Check if entry is warm (moderately accessed)
+     * Carry over the count of a restored or moved entry
      */
-    public boolean isWarm() {
-        return frequency > 2.0 && (System.currentTimeMillis() - lastAccessTime) < 1800000; // 30 minutes
+    public void setAccessCount(long count) {
+        long current;
+        do {
+            current = (long) ACCESS.getOpaque(this);
+        } while (!ACCESS.weakCompareAndSet(this, current, (current & ~MAX_COUNT) | Math.min(MAX_COUNT, count)));
     }
-    
-    /**
-     * Check if entry is cold (rarely accessed)
-     */
-    public boolean isCold() {
-        return !isHot() && !isWarm();
+
+    private static long pack(long time, long count) {
+        return (Math.max(0, time - CacheTicker.EPOCH) << COUNT_BITS) | count;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,69 @@
+package com.tiffin.cache;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Actuator endpoint listing the most read cache keys and the level each lives in now
+ * GET /actuator/cachehotkeys for the top 20, /actuator/cachehotkeys/{limit} for more
+ *
+ * Keys carry emails and phone numbers, so each is shown as its namespace and a hash
+ * ("userDetails:#3f2a9c0d1b7e4a65"), and the endpoint is neither exposed by default nor
+ * readable without the ADMIN role (see SecurityConfig).
+ */
+@Component
+@Endpoint(id = "cachehotkeys")
+@RequiredArgsConstructor
+public class CacheHotKeysEndpoint {
+
+    private static final int DEFAULT_LIMIT = 20;
+    private static final int MAX_LIMIT = 128;
+    private static final int HASH_BYTES = 8;
+
+    private final AdvancedCacheManager cacheManager;
+
+    @ReadOperation
+    public List<Map<String, Object>> hotKeys() {
+        return top(DEFAULT_LIMIT);
+    }
+
+    @ReadOperation
+    public List<Map<String, Object>> top(@Selector int limit) {
+        List<Map<String, Object>> response = new ArrayList<>();
+        for (HotKeyTracker.HotKey hotKey : cacheManager.getHotKeys(Math.min(Math.max(limit, 1), MAX_LIMIT))) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("key", redact(hotKey.getKey()));
+            entry.put("estimatedReads", hotKey.getCount());
+            entry.put("maxOverestimate", hotKey.getError());
+            entry.put("level", cacheManager.levelOf(hotKey.getKey()).map(Enum::name).orElse("none"));
+            response.add(entry);
+        }
+        return response;
+    }
+
+    /**
+     * The key's namespace (up to its first ':') and a truncated SHA-256 of the whole key
+     */
+    static String redact(String key) {
+        int separator = key.indexOf(':');
+        String namespace = separator > 0 ? key.substring(0, separator + 1) : "";
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            return namespace + "#" + HexFormat.of().formatHex(digest, 0, HASH_BYTES);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,415 @@
+package com.tiffin.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Keeps the {@link AdvancedCacheManager}s of several nodes coherent by broadcasting invalidations
+ *
+ * Local writes and invalidations are collected for one batch window (10ms by default),
+ * de-duplicated (a key covered by a pending prefix is dropped) and sent as one message
+ * per transport-sized batch. Receivers drop a message's keys with one
+ * {@link AdvancedCacheManager#invalidateAllLocally}, which never re-publishes.
+ *
+ * Every message carries its origin node and a per-origin sequence number (its version).
+ * Receivers keep a 64-message sliding window per origin, like IPsec replay protection:
+ * a duplicate is ignored, a late message inside the window is still applied (dropping
+ * a key twice is harmless, skipping it is not), and sequence numbers that leave the
+ * window unseen are counted as lost. Windows of origins silent for ten minutes (restarted
+ * or departed nodes) are dropped.
+ *
+ * A lost message is only noticed once a later one from the same origin arrives, and its
+ * keys stay stale on this node until they expire. Refresh-ahead entries are reloaded
+ * instead of expiring, which bounds them by their refresh point. Alert on the lost
+ * counter rather than relying on either.
+ *
+ * Messages end in an HMAC-SHA256 over everything before it, keyed with the secret shared
+ * by all nodes. Receivers drop messages whose MAC does not verify before parsing them, so
+ * datagrams from outside the cluster cannot drop entries or fill the replay windows.
+ *
+ * Message: magic(4) origin(8) sequence(8) sentAt(8) count(4) { type(1) length(2) utf8 }* mac(32)
+ */
+@Slf4j
+public class CacheInvalidationBus implements InvalidationPublisher, AutoCloseable {
+
+    private static final int MAGIC = 0x54434956; // "TCIV"
+    private static final int HEADER_SIZE = 32;
+    private static final int MAC_SIZE = 32;
+    private static final int MIN_SECRET_LENGTH = 32;
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+    private static final byte KEY = 'K';
+    private static final byte PREFIX = 'P';
+    private static final byte NAMESPACE = 'N';
+    private static final int MAX_PENDING = 1024; // flush early rather than buffer without bound
+    private static final int WINDOW = 64;
+    private static final long ORIGIN_IDLE_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    private final AdvancedCacheManager cacheManager;
+    private final InvalidationTransport transport;
+    private final long nodeId = ThreadLocalRandom.current().nextLong();
+    private final AtomicLong sequence = new AtomicLong();
+    private final ScheduledExecutorService flusher;
+    private final ConcurrentHashMap<Long, ReplayWindow> origins = new ConcurrentHashMap<>();
+    private final ThreadLocal<Mac> mac; // Mac instances are not thread-safe
+
+    // Outgoing invalidations of the current batch, guarded by this
+    private LinkedHashSet<String> pendingKeys = new LinkedHashSet<>();
+    private LinkedHashSet<String> pendingPrefixes = new LinkedHashSet<>();
+    private LinkedHashSet<String> pendingNamespaces = new LinkedHashSet<>();
+
+    private final Counter messagesSent;
+    private final Counter messagesReceived;
+    private final Counter invalidationsSent;
+    private final Counter invalidationsReceived;
+    private final Counter duplicates;
+    private final Counter lost;
+    private final Counter rejected;
+    private final Timer coherenceLag;
+
+    public CacheInvalidationBus(AdvancedCacheManager cacheManager, InvalidationTransport transport,
+                                MeterRegistry meterRegistry, Duration batchWindow, byte[] secret) {
+        if (secret == null || secret.length < MIN_SECRET_LENGTH) {
+            throw new IllegalArgumentException(
+                "The cache invalidation secret must be at least " + MIN_SECRET_LENGTH + " bytes");
+        }
+        SecretKeySpec key = new SecretKeySpec(secret.clone(), MAC_ALGORITHM);
+        this.mac = ThreadLocal.withInitial(() -> newMac(key));
+        mac.get(); // Fail at startup if the algorithm is unavailable
+        this.cacheManager = cacheManager;
+        this.transport = transport;
+        this.messagesSent = direction(Counter.builder("tiffin.cache.invalidation.messages"), "sent", meterRegistry);
+        this.messagesReceived = direction(Counter.builder("tiffin.cache.invalidation.messages"), "received", meterRegistry);
+        this.invalidationsSent = direction(Counter.builder("tiffin.cache.invalidation.entries"), "sent", meterRegistry);
+        this.invalidationsReceived = direction(Counter.builder("tiffin.cache.invalidation.entries"), "received", meterRegistry);
+        this.duplicates = Counter.builder("tiffin.cache.invalidation.duplicates").register(meterRegistry);
+        this.lost = Counter.builder("tiffin.cache.invalidation.lost").register(meterRegistry);
+        this.rejected = Counter.builder("tiffin.cache.invalidation.rejected").register(meterRegistry);
+        // Time from the write on the origin node to the invalidation here, clocks permitting
+        this.coherenceLag = Timer.builder("tiffin.cache.invalidation.lag")
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+        Gauge.builder("tiffin.cache.invalidation.pending", this, CacheInvalidationBus::pendingCount)
+            .register(meterRegistry);
+        Gauge.builder("tiffin.cache.invalidation.origins", origins, ConcurrentHashMap::size)
+            .register(meterRegistry);
+
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cache-invalidation-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long windowMillis = Math.max(1, batchWindow.toMillis());
+        flusher.scheduleWithFixedDelay(this::flushQuietly, windowMillis, windowMillis, TimeUnit.MILLISECONDS);
+        flusher.scheduleWithFixedDelay(this::pruneOrigins, 1, 1, TimeUnit.MINUTES);
+
+        transport.start(this::receive);
+        cacheManager.setInvalidationPublisher(this);
+    }
+
+    @Override
+    public void keyInvalidated(String key) {
+        boolean full;
+        synchronized (this) {
+            pendingKeys.add(key);
+            full = pendingKeys.size() + pendingPrefixes.size() + pendingNamespaces.size() >= MAX_PENDING;
+        }
+        if (full) {
+            flusher.execute(this::flushQuietly);
+        }
+    }
+
+    @Override
+    public void prefixInvalidated(String prefix) {
+        synchronized (this) {
+            pendingPrefixes.add(prefix);
+        }
+    }
+
+    @Override
+    public void namespaceInvalidated(String namespace) {
+        synchronized (this) {
+            pendingNamespaces.add(namespace);
+        }
+    }
+
+    /**
+     * Send everything pending now
+     */
+    public void flush() {
+        LinkedHashSet<String> keys;
+        LinkedHashSet<String> prefixes;
+        LinkedHashSet<String> namespaces;
+        synchronized (this) {
+            if (pendingKeys.isEmpty() && pendingPrefixes.isEmpty() && pendingNamespaces.isEmpty()) {
+                return;
+            }
+            keys = pendingKeys;
+            prefixes = pendingPrefixes;
+            namespaces = pendingNamespaces;
+            pendingKeys = new LinkedHashSet<>();
+            pendingPrefixes = new LinkedHashSet<>();
+            pendingNamespaces = new LinkedHashSet<>();
+        }
+
+        List<byte[]> entries = new ArrayList<>(keys.size() + prefixes.size() + namespaces.size());
+        int maxEntry = transport.maxMessageSize() - HEADER_SIZE - MAC_SIZE - 3;
+        for (String namespace : namespaces) {
+            entries.add(encodeEntry(NAMESPACE, namespace, maxEntry));
+        }
+        for (String prefix : prefixes) {
+            entries.add(encodeEntry(PREFIX, prefix, maxEntry));
+        }
+        for (String key : keys) {
+            if (prefixes.stream().noneMatch(key::startsWith)) {
+                entries.add(encodeEntry(KEY, key, maxEntry));
+            }
+        }
+        sendInBatches(entries);
+    }
+
+    /**
+     * Apply a message from another node
+     */
+    void receive(byte[] message) {
+        if (message.length < HEADER_SIZE + MAC_SIZE || !verify(message)) {
+            rejected.increment();
+            return;
+        }
+        int length = message.length - MAC_SIZE;
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(message, 0, length))) {
+            if (in.readInt() != MAGIC) {
+                return;
+            }
+            long origin = in.readLong();
+            long messageSequence = in.readLong();
+            long sentAt = in.readLong();
+            int count = in.readInt();
+            if (origin == nodeId) {
+                return; // Our own multicast coming back
+            }
+
+            long missed = origins.computeIfAbsent(origin, id -> new ReplayWindow())
+                .accept(messageSequence, CacheTicker.now());
+            if (missed < 0) {
+                duplicates.increment();
+                return;
+            }
+            if (missed > 0) {
+                lost.increment(missed);
+                log.warn("Lost {} cache invalidation message(s) from node {}", missed, Long.toHexString(origin));
+            }
+
+            List<String> keys = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                byte type = in.readByte();
+                byte[] utf8 = new byte[in.readUnsignedShort()];
+                in.readFully(utf8);
+                String value = new String(utf8, StandardCharsets.UTF_8);
+                if (type == NAMESPACE) {
+                    cacheManager.invalidateNamespaceLocally(value);
+                } else if (type == PREFIX) {
+                    cacheManager.invalidatePrefixLocally(value);
+                } else {
+                    keys.add(value);
+                }
+            }
+            cacheManager.invalidateAllLocally(keys);
+            messagesReceived.increment();
+            invalidationsReceived.increment(count);
+            coherenceLag.record(Math.max(0, System.currentTimeMillis() - sentAt), TimeUnit.MILLISECONDS);
+        } catch (IOException e) {
+            log.warn("Ignoring a malformed cache invalidation message ({} bytes)", message.length, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        cacheManager.setInvalidationPublisher(null);
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushQuietly();
+        transport.close();
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.warn("Publishing cache invalidations failed", e);
+        }
+    }
+
+    /**
+     * Forget the replay windows of origins that went quiet, so restarted peers (which pick
+     * a new node id) do not accumulate
+     */
+    private void pruneOrigins() {
+        long idleSince = CacheTicker.now() - ORIGIN_IDLE_MILLIS;
+        origins.values().removeIf(window -> window.lastSeen() < idleSince);
+    }
+
+    private boolean verify(byte[] message) {
+        Mac hmac = mac.get();
+        hmac.update(message, 0, message.length - MAC_SIZE);
+        byte[] expected = hmac.doFinal();
+        byte[] actual = new byte[MAC_SIZE];
+        System.arraycopy(message, message.length - MAC_SIZE, actual, 0, MAC_SIZE);
+        return MessageDigest.isEqual(expected, actual); // constant time
+    }
+
+    private void sendInBatches(List<byte[]> entries) {
+        int limit = transport.maxMessageSize() - MAC_SIZE;
+        int from = 0;
+        while (from < entries.size()) {
+            int size = HEADER_SIZE;
+            int to = from;
+            while (to < entries.size() && size + entries.get(to).length <= limit) {
+                size += entries.get(to).length;
+                to++;
+            }
+            send(entries.subList(from, to), size);
+            from = to;
+        }
+    }
+
+    private void send(List<byte[]> entries, int size) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(size);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeLong(nodeId);
+            out.writeLong(sequence.incrementAndGet());
+            out.writeLong(System.currentTimeMillis());
+            out.writeInt(entries.size());
+            for (byte[] entry : entries) {
+                out.write(entry);
+            }
+            out.flush();
+            out.write(mac.get().doFinal(bytes.toByteArray()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        transport.send(bytes.toByteArray());
+        messagesSent.increment();
+        invalidationsSent.increment(entries.size());
+    }
+
+    /**
+     * type(1) length(2) utf8; a key too long for one message is sent as a prefix of itself,
+     * which over-invalidates a little but never leaves it stale
+     */
+    private static byte[] encodeEntry(byte type, String value, int maxEntry) {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        int maxLength = Math.min(maxEntry, 65535);
+        if (utf8.length > maxLength) {
+            int cut = maxLength / 3; // at most 3 bytes per char; a pair of surrogates takes 4 for 2
+            if (Character.isHighSurrogate(value.charAt(cut - 1))) {
+                cut--; // keep the pair whole, a lone surrogate would be encoded as '?'
+            }
+            value = value.substring(0, cut);
+            utf8 = value.getBytes(StandardCharsets.UTF_8);
+            type = PREFIX;
+        }
+        byte[] entry = new byte[3 + utf8.length];
+        entry[0] = type;
+        entry[1] = (byte) (utf8.length >>> 8);
+        entry[2] = (byte) utf8.length;
+        System.arraycopy(utf8, 0, entry, 3, utf8.length);
+        return entry;
+    }
+
+    private static Mac newMac(SecretKeySpec key) {
+        try {
+            Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not initialise " + MAC_ALGORITHM, e);
+        }
+    }
+
+    private synchronized double pendingCount() {
+        return pendingKeys.size() + pendingPrefixes.size() + pendingNamespaces.size();
+    }
+
+    private static Counter direction(Counter.Builder builder, String direction, MeterRegistry registry) {
+        return builder.tag("direction", direction).register(registry);
+    }
+
+    /**
+     * Sliding window over the sequence numbers received from one origin
+     */
+    private static final class ReplayWindow {
+        private long highest;
+        private long seen; // bit i set: sequence highest - i was received
+        private volatile long lastSeen;
+
+        long lastSeen() {
+            return lastSeen;
+        }
+
+        /**
+         * Returns -1 for a duplicate, otherwise how many earlier sequences left the window unseen
+         */
+        synchronized long accept(long sequence, long now) {
+            lastSeen = now;
+            if (highest == 0) {
+                highest = sequence;
+                seen = -1L; // Nothing before the first message we hear counts as lost
+                return 0;
+            }
+            if (sequence > highest) {
+                long shift = sequence - highest;
+                long missed;
+                if (shift >= WINDOW) {
+                    missed = (WINDOW - Long.bitCount(seen)) + (shift - WINDOW);
+                    seen = 1;
+                } else {
+                    missed = shift - Long.bitCount(seen >>> (WINDOW - shift));
+                    seen = (seen << shift) | 1;
+                }
+                highest = sequence;
+                return missed;
+            }
+            long offset = highest - sequence;
+            if (offset >= WINDOW) {
+                return 0; // Too late to tell; applying an old invalidation again is harmless
+            }
+            long bit = 1L << offset;
+            if ((seen & bit) != 0) {
+                return -1;
+            }
+            seen |= bit;
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.tiffin.cache;
+
+/**
+ * Levels of the multi-level cache, from hottest to coldest
+ */
+public enum CacheLevel {
+    L1, // W-TinyLFU, on-heap
+    L2, // Sampled LRU, on-heap
+    L3  // Memory-mapped, off-heap
+}
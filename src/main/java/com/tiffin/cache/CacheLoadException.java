@@ -0,0 +1,18 @@
+package com.tiffin.cache;
+
+import lombok.Getter;
+
+/**
+ * Thrown by the get-or-load API when the loader failed, timed out, or the key is
+ * still backing off after a recent failure
+ */
+@Getter
+public class CacheLoadException extends RuntimeException {
+
+    private final String key;
+
+    public CacheLoadException(String key, String message, Throwable cause) {
+        super(message, cause);
+        this.key = key;
+    }
+}
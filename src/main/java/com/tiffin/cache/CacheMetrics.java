@@ -0,0 +1,206 @@
+package com.tiffin.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ObjLongConsumer;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Micrometer meters for {@link AdvancedCacheManager}, broken out by key namespace and level
+ *
+ * The namespace is the key up to its first ':' ("session", "user", "dish", ...), or
+ * "default" for keys without one. Meters are created once per namespace and found again
+ * with a prefix scan over a small array, so the hot path neither allocates nor looks up
+ * the registry. Past MAX_NAMESPACES, new namespaces are folded into "other" to keep the
+ * number of time series bounded.
+ *
+ * - tiffin.cache.gets{namespace, level, result}  hits per serving level, misses with level=none
+ * - tiffin.cache.puts{namespace, level}
+ * - tiffin.cache.evictions{namespace, level}
+ * - tiffin.cache.promotions / demotions{namespace, from, to}
+ * - tiffin.cache.loads{namespace, result}, tiffin.cache.loads.coalesced{namespace}
+ * - tiffin.cache.refreshes{namespace}  background reloads started by refresh-ahead
+ * - tiffin.cache.latency{operation}  get/put latency histogram
+ * Reads are also counted for the time-of-day {@link AccessProfile}, which drains them.
+ */
+public class CacheMetrics {
+
+    private static final int MAX_NAMESPACES = 64;
+    private static final String DEFAULT_NAMESPACE = "default";
+    private static final String OTHER_NAMESPACE = "other";
+
+    private final MeterRegistry registry;
+    private final Timer getLatency;
+    private final Timer putLatency;
+    private final ConcurrentHashMap<String, Namespace> namespacesByName = new ConcurrentHashMap<>();
+    private volatile Namespace[] namespaces = new Namespace[0];
+
+    public CacheMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.getLatency = latencyTimer("get");
+        this.putLatency = latencyTimer("put");
+    }
+
+    /**
+     * Meters for the namespace the key belongs to
+     */
+    public Namespace namespace(String key) {
+        for (Namespace namespace : namespaces) {
+            if (namespace.matches(key)) {
+                return namespace;
+            }
+        }
+        return register(key);
+    }
+
+    public void recordGet(long nanos) {
+        getLatency.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordPut(long nanos) {
+        putLatency.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Pass each namespace's reads since the last call to the consumer
+     */
+    public void drainReads(ObjLongConsumer<String> consumer) {
+        for (Namespace namespace : namespacesByName.values()) {
+            long reads = namespace.reads.sumThenReset();
+            if (reads > 0) {
+                consumer.accept(namespace.name, reads);
+            }
+        }
+    }
+
+    public <T> void gauge(String name, String level, T target, ToDoubleFunction<T> value) {
+        Gauge.builder(name, target, value).tag("level", level).register(registry);
+    }
+
+    private Namespace register(String key) {
+        int separator = key.indexOf(':');
+        String name = separator > 0 ? key.substring(0, separator) : DEFAULT_NAMESPACE;
+        Namespace namespace = namespacesByName.get(name);
+        if (namespace != null) {
+            return namespace;
+        }
+        synchronized (this) {
+            namespace = namespacesByName.get(name);
+            if (namespace != null) {
+                return namespace;
+            }
+            if (namespacesByName.size() >= MAX_NAMESPACES) {
+                return namespacesByName.computeIfAbsent(OTHER_NAMESPACE, Namespace::new);
+            }
+            namespace = new Namespace(name);
+            namespacesByName.put(name, namespace);
+            Namespace[] grown = Arrays.copyOf(namespaces, namespaces.length + 1);
+            grown[grown.length - 1] = namespace;
+            namespaces = grown;
+            return namespace;
+        }
+    }
+
+    private Timer latencyTimer(String operation) {
+        return Timer.builder("tiffin.cache.latency")
+            .tag("operation", operation)
+            .publishPercentileHistogram()
+            .minimumExpectedValue(Duration.ofNanos(100))
+            .maximumExpectedValue(Duration.ofMillis(100))
+            .register(registry);
+    }
+
+    /**
+     * Meters of one key namespace
+     */
+    public final class Namespace {
+        private final String name;
+        private final String prefix;
+        private final Counter[] hits = new Counter[CacheLevel.values().length];
+        private final Counter[] puts = new Counter[CacheLevel.values().length];
+        private final Counter[] evictions = new Counter[CacheLevel.values().length];
+        private final Counter misses;
+        private final Counter promotionsToL1;
+        private final Counter promotionsToL2;
+        private final Counter demotionsToL2;
+        private final Counter demotionsToL3;
+        private final Counter loadSuccesses;
+        private final Counter loadFailures;
+        private final Counter coalescedLoads;
+        private final Counter refreshes;
+        private final LongAdder reads = new LongAdder();
+
+        private Namespace(String name) {
+            this.name = name;
+            this.prefix = DEFAULT_NAMESPACE.equals(name) || OTHER_NAMESPACE.equals(name) ? null : name + ":";
+            for (CacheLevel level : CacheLevel.values()) {
+                hits[level.ordinal()] = counter("tiffin.cache.gets", name, "level", level.name(), "result", "hit");
+                puts[level.ordinal()] = counter("tiffin.cache.puts", name, "level", level.name());
+                evictions[level.ordinal()] = counter("tiffin.cache.evictions", name, "level", level.name());
+            }
+            this.misses = counter("tiffin.cache.gets", name, "level", "none", "result", "miss");
+            this.promotionsToL1 = counter("tiffin.cache.promotions", name, "from", "L2", "to", "L1");
+            this.promotionsToL2 = counter("tiffin.cache.promotions", name, "from", "L3", "to", "L2");
+            this.demotionsToL2 = counter("tiffin.cache.demotions", name, "from", "L1", "to", "L2");
+            this.demotionsToL3 = counter("tiffin.cache.demotions", name, "from", "L2", "to", "L3");
+            this.loadSuccesses = counter("tiffin.cache.loads", name, "result", "success");
+            this.loadFailures = counter("tiffin.cache.loads", name, "result", "failure");
+            this.coalescedLoads = counter("tiffin.cache.loads.coalesced", name);
+            this.refreshes = counter("tiffin.cache.refreshes", name);
+        }
+
+        private boolean matches(String key) {
+            return prefix != null ? key.startsWith(prefix) : key.indexOf(':') < 0;
+        }
+
+        public void hit(CacheLevel level) {
+            hits[level.ordinal()].increment();
+            reads.increment();
+        }
+
+        public void miss() {
+            misses.increment();
+            reads.increment();
+        }
+
+        public void put(CacheLevel level) {
+            puts[level.ordinal()].increment();
+        }
+
+        public void eviction(CacheLevel level) {
+            evictions[level.ordinal()].increment();
+        }
+
+        public void promotion(CacheLevel to) {
+            (to == CacheLevel.L1 ? promotionsToL1 : promotionsToL2).increment();
+        }
+
+        public void demotion(CacheLevel to) {
+            (to == CacheLevel.L2 ? demotionsToL2 : demotionsToL3).increment();
+        }
+
+        public void load(boolean success) {
+            (success ? loadSuccesses : loadFailures).increment();
+        }
+
+        public void coalescedLoad() {
+            coalescedLoads.increment();
+        }
+
+        public void refresh() {
+            refreshes.increment();
+        }
+
+        private Counter counter(String name, String namespace, String... tags) {
+            return Counter.builder(name).tag("namespace", namespace).tags(tags).register(registry);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.tiffin.cache;
+
+/**
+ * Decides which level a value starts in and when it moves between levels
+ *
+ * {@link AdvancedCacheManager} reports every read and write, and asks the policy when
+ * storing a value without an explicit level, on a hit in L2 or L3 (promote or not), and
+ * for every entry evicted from L1 or L2 (demote or drop). Selected with app.cache.placement.
+ */
+public interface CachePlacement {
+
+    /**
+     * A read of the key, served by {@code level} or a miss when null
+     */
+    void recordRead(String key, CacheLevel level);
+
+    void recordWrite(String key);
+
+    /**
+     * Level for a value stored without one
+     */
+    CacheLevel initialLevel(String key);
+
+    /**
+     * Whether a hit in a colder level should move the entry up to {@code to}
+     */
+    boolean shouldPromote(String key, CacheLevel to);
+
+    /**
+     * Whether an entry evicted from a hotter level is worth keeping in {@code to}
+     */
+    boolean shouldDemote(String key, CacheEntry entry, CacheLevel to);
+
+    /**
+     * Recent popularity used to pick L2 eviction victims (least popular, then least recently read)
+     */
+    int frequency(String key);
+}
@@ -0,0 +1,22 @@
+package com.tiffin.cache;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Collection;
+import java.util.function.Function;
+
+/**
+ * What to load and pin ahead of the read peaks of one key namespace, see {@link CachePrewarmer}
+ *
+ * The loader is given the meal of the peak (a name under app.cache.prewarm.meals, or null
+ * when the peak falls outside every meal window). It reads through the cached finders, so
+ * the values are stored as on any miss, and returns the storage keys to pin.
+ */
+@Getter
+@RequiredArgsConstructor(staticName = "of")
+public final class CachePrewarm {
+
+    private final String namespace;
+    private final Function<String, Collection<String>> loader;
+}
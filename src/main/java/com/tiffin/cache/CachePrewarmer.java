@@ -0,0 +1,229 @@
+package com.tiffin.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalTime;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Loads and pins the keys a namespace is predicted to read at its next peak, a few minutes before it
+ *
+ * Every minute, for each {@link CachePrewarm} bean, this looks for a peak of the namespace
+ * starting within app.cache.prewarm.lead, or already under way:
+ * - from the namespace's time-of-day {@link AccessProfile}, once half a day of it is known:
+ *   a run of slots whose expected reads reach peak-factor times the namespace's mean
+ * - until then, from the meal windows under app.cache.prewarm.meals
+ * The loader runs once per peak and its keys stay pinned (see {@link PinnedKeys}) until the
+ * peak ends. Then the run is logged and reported as:
+ * - tiffin.cache.prewarm.entries{namespace, result}  entries pinned, result=hit if read while pinned, else unused
+ * - tiffin.cache.prewarm.reads{namespace}            reads served by the pinned entries
+ * - tiffin.cache.prewarm.failures{namespace}         loaders that threw, not retried before the next peak
+ */
+@Component
+@Slf4j
+public class CachePrewarmer {
+
+    private static final int MAX_PEAK_SLOTS = AccessProfile.SLOTS / 4; // 6 hours
+
+    private final AdvancedCacheManager cacheManager;
+    private final MultiLevelCacheProperties.Prewarm properties;
+    private final ObjectProvider<CachePrewarm> prewarms;
+    private final MeterRegistry meterRegistry;
+    private final List<Meal> meals = new ArrayList<>();
+    private final Map<String, Run> runs = new HashMap<>(); // by namespace, guarded by this
+
+    public CachePrewarmer(AdvancedCacheManager cacheManager, MultiLevelCacheProperties properties,
+                          ObjectProvider<CachePrewarm> prewarms, MeterRegistry meterRegistry) {
+        this.cacheManager = cacheManager;
+        this.properties = properties.getPrewarm();
+        this.prewarms = prewarms;
+        this.meterRegistry = meterRegistry;
+        this.properties.getMeals().forEach((name, window) -> meals.add(Meal.parse(name, window)));
+    }
+
+    @Scheduled(fixedRate = 60000)
+    public void prewarmUpcomingPeaks() {
+        prewarmUpcomingPeaks(ZonedDateTime.now(properties.getZone()));
+    }
+
+    /**
+     * Release the runs whose peak has ended and start those of the peaks coming up, as of {@code now}
+     */
+    synchronized void prewarmUpcomingPeaks(ZonedDateTime now) {
+        releaseEnded(now);
+        if (!properties.isEnabled()) {
+            return;
+        }
+        prewarms.orderedStream().forEach(prewarm -> {
+            Peak peak = upcomingPeak(prewarm.getNamespace(), now);
+            Run run = runs.get(prewarm.getNamespace());
+            if (peak != null && (run == null || !run.peak().start().equals(peak.start()))) {
+                start(prewarm, peak);
+            }
+        });
+    }
+
+    /**
+     * The namespace's peak under way or starting within the lead, if any
+     */
+    Peak upcomingPeak(String namespace, ZonedDateTime now) {
+        ZonedDateTime horizon = now.plus(properties.getLead());
+        if (cacheManager.getAccessProfile().hasHistory(namespace)) {
+            return predictedPeak(namespace, now, horizon);
+        }
+        Peak next = null;
+        for (Meal meal : meals) {
+            Peak peak = meal.next(now);
+            if (!peak.start().isAfter(horizon) && (next == null || peak.start().isBefore(next.start()))) {
+                next = peak;
+            }
+        }
+        return next;
+    }
+
+    /**
+     * The run of peak slots under way or starting before the horizon, if any
+     */
+    private Peak predictedPeak(String namespace, ZonedDateTime now, ZonedDateTime horizon) {
+        AccessProfile profile = cacheManager.getAccessProfile();
+        double factor = properties.getPeakFactor();
+        int slot = AccessProfile.slotOf(now.toLocalTime());
+        ZonedDateTime slotStart = now.with(LocalTime.MIN).plus(AccessProfile.SLOT.multipliedBy(slot));
+        int first;
+        if (profile.isPeak(namespace, slot, factor)) {
+            first = 0;
+            while (first > -MAX_PEAK_SLOTS && profile.isPeak(namespace, slot + first - 1, factor)) {
+                first--;
+            }
+        } else {
+            first = 1;
+            while (!profile.isPeak(namespace, slot + first, factor)) {
+                if (slotStart.plus(AccessProfile.SLOT.multipliedBy(first)).isAfter(horizon)) {
+                    return null;
+                }
+                first++;
+            }
+            if (slotStart.plus(AccessProfile.SLOT.multipliedBy(first)).isAfter(horizon)) {
+                return null;
+            }
+        }
+        int last = first;
+        while (last - first < MAX_PEAK_SLOTS && profile.isPeak(namespace, slot + last + 1, factor)) {
+            last++;
+        }
+        ZonedDateTime start = slotStart.plus(AccessProfile.SLOT.multipliedBy(first));
+        ZonedDateTime end = slotStart.plus(AccessProfile.SLOT.multipliedBy(last + 1));
+        return new Peak(start, end, mealDuring(start, end));
+    }
+
+    private String mealDuring(ZonedDateTime start, ZonedDateTime end) {
+        for (Meal meal : meals) {
+            if (meal.next(start).start().isBefore(end)) {
+                return meal.name();
+            }
+        }
+        return null;
+    }
+
+    private void start(CachePrewarm prewarm, Peak peak) {
+        String namespace = prewarm.getNamespace();
+        Run previous = runs.remove(namespace);
+        if (previous != null) {
+            finish(namespace, previous);
+        }
+        Collection<String> keys;
+        try {
+            keys = prewarm.getLoader().apply(peak.meal());
+        } catch (RuntimeException e) {
+            log.warn("Prewarming {} for the {} peak at {} failed", namespace, peak.meal(), peak.start().toLocalTime(), e);
+            counter("tiffin.cache.prewarm.failures", namespace).increment();
+            keys = List.of();
+        }
+        PinnedKeys.Batch batch = cacheManager.pin(keys, peak.end().toInstant().toEpochMilli());
+        runs.put(namespace, new Run(peak, batch));
+        log.info("Prewarmed {} {} entries for the {} peak {}-{}", batch.size(), namespace,
+            peak.meal() != null ? peak.meal() : "predicted", peak.start().toLocalTime(), peak.end().toLocalTime());
+    }
+
+    private void releaseEnded(ZonedDateTime now) {
+        for (Iterator<Map.Entry<String, Run>> it = runs.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<String, Run> entry = it.next();
+            if (!entry.getValue().peak().end().isAfter(now)) {
+                it.remove();
+                finish(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private void finish(String namespace, Run run) {
+        PinnedKeys.Batch batch = run.batch();
+        cacheManager.unpin(batch);
+        if (batch.size() == 0) {
+            return;
+        }
+        counter("tiffin.cache.prewarm.entries", namespace, "result", "hit").increment(batch.hitKeys());
+        counter("tiffin.cache.prewarm.entries", namespace, "result", "unused").increment(batch.size() - batch.hitKeys());
+        counter("tiffin.cache.prewarm.reads", namespace).increment(batch.reads());
+        log.info("Prewarm of {} for the peak {}-{}: {} of {} entries read, {} reads", namespace,
+            run.peak().start().toLocalTime(), run.peak().end().toLocalTime(), batch.hitKeys(), batch.size(), batch.reads());
+    }
+
+    private Counter counter(String name, String namespace, String... tags) {
+        return Counter.builder(name).tag("namespace", namespace).tags(tags).register(meterRegistry);
+    }
+
+    record Peak(ZonedDateTime start, ZonedDateTime end, String meal) { }
+
+    private record Run(Peak peak, PinnedKeys.Batch batch) { }
+
+    /**
+     * A daily meal window, which may run past midnight
+     */
+    record Meal(String name, LocalTime start, LocalTime end) {
+
+        static Meal parse(String name, String window) {
+            String[] bounds = window.split("-");
+            try {
+                if (bounds.length == 2) {
+                    return new Meal(name, LocalTime.parse(bounds[0].trim()), LocalTime.parse(bounds[1].trim()));
+                }
+            } catch (DateTimeParseException e) {
+                // Reported below
+            }
+            throw new IllegalArgumentException("app.cache.prewarm.meals." + name + " must be HH:mm-HH:mm, not " + window);
+        }
+
+        /**
+         * The window under way at the given time, or else the next one
+         */
+        Peak next(ZonedDateTime time) {
+            ZonedDateTime start = time.with(this.start);
+            ZonedDateTime end = time.with(this.end);
+            if (!end.isAfter(start)) {
+                // Past midnight: yesterday's window if it is still under way
+                if (end.isAfter(time)) {
+                    start = start.minusDays(1);
+                } else {
+                    end = end.plusDays(1);
+                }
+            }
+            if (!end.isAfter(time)) {
+                start = start.plusDays(1);
+                end = end.plusDays(1);
+            }
+            return new Peak(start, end, name);
+        }
+    }
+}
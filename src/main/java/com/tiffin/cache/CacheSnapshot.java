@@ -0,0 +1,203 @@
+package com.tiffin.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Binary snapshot file of the on-heap cache levels, read back on startup for a warm cache
+ *
+ * gzip( magic(4) version(2) createdAt(8) record* end(1) )
+ * record: level(1) expiresAt(8) accessCount(8) key(modified UTF-8) valueLength(4) value
+ *
+ * Values are Java-serialized. Reading skips records whose TTL has elapsed before anything
+ * is deserialized, and returns raw bytes so callers can deserialize in parallel. Only
+ * application classes, the JDK's value and collection types, Hibernate's collection
+ * wrappers and Spring's null marker may be deserialized, within depth, size and array
+ * limits. The file is created readable by its owner only, in a directory only the owner
+ * can enter (on POSIX file systems), and a file others may write is not read back.
+ */
+public final class CacheSnapshot {
+
+    private static final int MAGIC = 0x54434853; // "TCHS"
+    private static final short VERSION = 1;
+    private static final byte END = -1;
+    private static final int MAX_KEY_LENGTH = 16384; // writeUTF limit is 64KB of encoded bytes
+    private static final int MAX_VALUE_LENGTH = 16 * 1024 * 1024;
+    private static final ObjectInputFilter VALUE_FILTER = ObjectInputFilter.Config.createFilter(
+        "maxdepth=32;maxrefs=100000;maxarray=100000;maxbytes=" + MAX_VALUE_LENGTH + ";"
+        + "com.tiffin.**;java.lang.*;java.util.*;java.time.*;java.math.*;"
+        + "org.hibernate.collection.spi.*;org.springframework.cache.support.NullValue;!*");
+    private static final Set<PosixFilePermission> OWNER_DIRECTORY = PosixFilePermissions.fromString("rwx------");
+    private static final Set<PosixFilePermission> OWNER_FILE = PosixFilePermissions.fromString("rw-------");
+
+    private CacheSnapshot() {
+    }
+
+    /**
+     * A cached value and the metadata needed to put it back in the same level
+     */
+    @Getter
+    @AllArgsConstructor
+    public static final class Entry {
+        private final String key;
+        private final CacheLevel level;
+        private final long expiresAt;
+        private final long accessCount;
+        private final Object value;
+    }
+
+    /**
+     * A record read from a snapshot whose value has not been deserialized yet
+     */
+    @Getter
+    @AllArgsConstructor
+    public static final class Record {
+        private final String key;
+        private final CacheLevel level;
+        private final long expiresAt;
+        private final long accessCount;
+        private final byte[] value;
+
+        public Entry deserialize() throws IOException, ClassNotFoundException {
+            try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(value))) {
+                in.setObjectInputFilter(VALUE_FILTER);
+                return new Entry(key, level, expiresAt, accessCount, in.readObject());
+            }
+        }
+    }
+
+    /**
+     * Write the entries to {@code file}, replacing it atomically
+     * Values that are not serializable are skipped; returns the number written.
+     */
+    public static int write(Path file, Iterable<Entry> entries) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        boolean posix = Files.getFileStore(existingAncestor(parent)).supportsFileAttributeView(PosixFileAttributeView.class);
+        if (posix && !Files.isDirectory(parent)) {
+            Files.createDirectories(parent, PosixFilePermissions.asFileAttribute(OWNER_DIRECTORY));
+        } else {
+            Files.createDirectories(parent);
+        }
+        Path temp = posix
+            ? Files.createTempFile(parent, file.getFileName().toString(), ".tmp", PosixFilePermissions.asFileAttribute(OWNER_FILE))
+            : Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        int written = 0;
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(temp)), 65536))) {
+                out.writeInt(MAGIC);
+                out.writeShort(VERSION);
+                out.writeLong(System.currentTimeMillis());
+                for (Entry entry : entries) {
+                    byte[] value = serialize(entry.getValue());
+                    if (value == null || entry.getKey().length() > MAX_KEY_LENGTH) {
+                        continue;
+                    }
+                    out.writeByte(entry.getLevel().ordinal());
+                    out.writeLong(entry.getExpiresAt());
+                    out.writeLong(entry.getAccessCount());
+                    out.writeUTF(entry.getKey());
+                    out.writeInt(value.length);
+                    out.write(value);
+                    written++;
+                }
+                out.writeByte(END);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return written;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Read the records that are still live at {@code now}
+     * A truncated file yields the records before the damage.
+     */
+    public static List<Record> read(Path file, long now) throws IOException {
+        if (Files.getFileStore(file).supportsFileAttributeView(PosixFileAttributeView.class)) {
+            Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(file);
+            if (permissions.contains(PosixFilePermission.GROUP_WRITE) || permissions.contains(PosixFilePermission.OTHERS_WRITE)) {
+                throw new IOException("Cache snapshot is writable by others, not reading it: " + file);
+            }
+        }
+        List<Record> records = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new GZIPInputStream(Files.newInputStream(file)), 65536))) {
+            if (in.readInt() != MAGIC || in.readShort() != VERSION) {
+                throw new IOException("Not a cache snapshot (or an unsupported version): " + file);
+            }
+            in.readLong(); // createdAt
+            CacheLevel[] levels = CacheLevel.values();
+            while (true) {
+                byte level = in.readByte();
+                if (level == END) {
+                    break;
+                }
+                long expiresAt = in.readLong();
+                long accessCount = in.readLong();
+                String key = in.readUTF();
+                int length = in.readInt();
+                if (length < 0 || length > MAX_VALUE_LENGTH) {
+                    throw new IOException("Cache snapshot record of " + length + " bytes: " + file);
+                }
+                if (expiresAt <= now) {
+                    in.skipNBytes(length);
+                    continue;
+                }
+                byte[] value = new byte[length];
+                in.readFully(value);
+                records.add(new Record(key, levels[level], expiresAt, accessCount, value));
+            }
+        } catch (EOFException e) {
+            // Keep what was read; the process died while writing, or the file was cut short
+        }
+        return records;
+    }
+
+    private static Path existingAncestor(Path directory) {
+        Path existing = directory;
+        while (existing != null && !Files.exists(existing)) {
+            existing = existing.getParent();
+        }
+        return existing != null ? existing : directory.getRoot();
+    }
+
+    private static byte[] serialize(Object value) throws IOException {
+        if (!(value instanceof Serializable)) {
+            return null;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(value);
+        } catch (NotSerializableException e) {
+            return null; // Something inside the object graph is not serializable
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,125 @@
+package com.tiffin.cache;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Warm restart for {@link AdvancedCacheManager}
+ *
+ * The hot (L1 and L2) entries are written to a local snapshot file every
+ * app.cache.snapshot.interval and on shutdown. On startup the file is read back before
+ * the application reports ready: runners complete before the readiness state turns
+ * ACCEPTING_TRAFFIC, so the first requests after a rollout find a warm cache instead
+ * of sending every miss to Postgres. Expired records are skipped unread, and the rest
+ * are deserialized and re-inserted in parallel.
+ *
+ * Hibernate region entries are left out: their update timestamps are not snapshotted, so
+ * restored entity and query entries could not be validated, and they go stale across
+ * entity changes. So are credentials (userDetails, with the password hash), which must
+ * not sit in a file outside the database.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CacheSnapshotService implements ApplicationRunner {
+
+    private static final List<String> EXCLUDED_NAMESPACES = List.of(MultiLevelRegionFactory.KEY_PREFIX, "userDetails:");
+
+    private final AdvancedCacheManager cacheManager;
+    private final MultiLevelCacheProperties properties;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (properties.getSnapshot().isEnabled()) {
+            restore();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.cache.snapshot.interval:PT5M}",
+               initialDelayString = "${app.cache.snapshot.interval:PT5M}")
+    public void scheduledSnapshot() {
+        if (properties.getSnapshot().isEnabled()) {
+            snapshot();
+        }
+    }
+
+    @PreDestroy
+    public void snapshotOnShutdown() {
+        if (properties.getSnapshot().isEnabled()) {
+            snapshot();
+        }
+    }
+
+    /**
+     * Write the current hot entries; returns how many were written, or -1 on failure
+     */
+    public synchronized int snapshot() {
+        Path file = Path.of(properties.getSnapshot().getPath());
+        long start = System.currentTimeMillis();
+        try {
+            List<CacheSnapshot.Entry> entries = cacheManager.snapshotEntries().stream()
+                .filter(entry -> !isExcluded(entry.getKey()))
+                .collect(Collectors.toList());
+            int written = CacheSnapshot.write(file, entries);
+            log.info("Cache snapshot: wrote {} entries to {} in {}ms", written, file, System.currentTimeMillis() - start);
+            return written;
+        } catch (IOException e) {
+            log.warn("Cache snapshot to {} failed", file, e);
+            return -1;
+        }
+    }
+
+    /**
+     * Reload the last snapshot, if any; returns how many entries were restored
+     */
+    public int restore() {
+        Path file = Path.of(properties.getSnapshot().getPath());
+        if (!Files.exists(file)) {
+            log.info("No cache snapshot at {}, starting cold", file);
+            return 0;
+        }
+        long start = System.currentTimeMillis();
+        List<CacheSnapshot.Record> records;
+        try {
+            records = CacheSnapshot.read(file, start);
+        } catch (IOException e) {
+            log.warn("Could not read cache snapshot {}, starting cold", file, e);
+            return 0;
+        }
+
+        // Written before they were excluded
+        records.removeIf(record -> isExcluded(record.getKey()));
+
+        AtomicInteger failed = new AtomicInteger();
+        int restored = records.parallelStream().mapToInt(record -> {
+            try {
+                return cacheManager.restore(record.deserialize()) ? 1 : 0;
+            } catch (IOException | ClassNotFoundException | RuntimeException e) {
+                // A class changed incompatibly since the snapshot, or is not allowed
+                failed.incrementAndGet();
+                log.debug("Skipped cache snapshot entry {}", record.getKey(), e);
+                return 0;
+            }
+        }).sum();
+
+        log.info("Cache snapshot: restored {} of {} live entries from {} in {}ms ({} unreadable)",
+            restored, records.size(), file, System.currentTimeMillis() - start, failed.get());
+        return restored;
+    }
+
+    private static boolean isExcluded(String key) {
+        return EXCLUDED_NAMESPACES.stream().anyMatch(key::startsWith);
+    }
+}
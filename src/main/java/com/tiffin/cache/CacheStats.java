@@ -12,15 +12,29 @@ public class CacheStats {
     private int l1Size;
     private int l2Size;
     private int l3Size;
+    private long l1WeightedSize; // Estimated bytes, see CacheWeigher
+    private long l2WeightedSize;
+    private long l3WeightedSize; // Bytes of the off-heap log in use
     private long hitCount;
     private long missCount;
     private long evictionCount;
     private double hitRatio;
+    private double bloomSaturation;
+    private double bloomFalsePositiveRate;
+    private long loadCount;
+    private long loadFailureCount;
+    private long coalescedLoadCount;
+    private long refreshCount; // Background reloads started by refresh-ahead
+    private long absentHitCount; // Lookups answered by a cached Absent marker
     
     public int getTotalSize() {
         return l1Size + l2Size + l3Size;
     }
     
+    public long getTotalWeightedSize() {
+        return l1WeightedSize + l2WeightedSize + l3WeightedSize;
+    }
+    
     public long getTotalRequests() {
         return hitCount + missCount;
     }
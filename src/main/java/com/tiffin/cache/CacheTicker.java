@@ -0,0 +1,45 @@
+package com.tiffin.cache;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coarse wall clock shared by every cache, for the per-access paths
+ *
+ * A daemon thread publishes {@link System#currentTimeMillis()} every RESOLUTION_MILLIS,
+ * so an expiry check or access stamp costs a volatile read instead of a clock call.
+ * Readings trail the wall clock by up to the resolution (more if the ticker thread is
+ * starved), which TTLs of seconds and up and the 1s timer wheel tick do not notice.
+ */
+final class CacheTicker {
+
+    static final long RESOLUTION_MILLIS = 10;
+
+    // Access stamps are stored relative to this, see CacheEntry
+    static final long EPOCH;
+
+    private static volatile long now;
+
+    static {
+        EPOCH = System.currentTimeMillis();
+        now = EPOCH;
+        ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cache-ticker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(() -> now = System.currentTimeMillis(),
+            RESOLUTION_MILLIS, RESOLUTION_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private CacheTicker() {
+    }
+
+    /**
+     * Milliseconds since the Unix epoch, to within RESOLUTION_MILLIS
+     */
+    static long now() {
+        return now;
+    }
+}
@@ -0,0 +1,37 @@
+package com.tiffin.cache;
+
+/**
+ * Estimates how many bytes a cached value costs, for the byte budgets of the cache levels
+ *
+ * Called once per write, outside the cache locks. Define a bean of this type to replace
+ * the default {@link #retainedSize()} estimate.
+ */
+@FunctionalInterface
+public interface CacheWeigher {
+
+    /**
+     * Weight in bytes; must be positive
+     */
+    int weigh(String key, Object value);
+
+    /**
+     * Approximate heap retained by the key and the value graph, see {@link SizeEstimator}
+     */
+    static CacheWeigher retainedSize() {
+        return (key, value) -> SizeEstimator.toWeight(SizeEstimator.retainedSize(key) + SizeEstimator.retainedSize(value));
+    }
+
+    /**
+     * Java-serialized size of the value, which is what it costs in L3, plus the key
+     * Serializes on every write; values that cannot be serialized fall back to the retained size.
+     */
+    static CacheWeigher serializedSize() {
+        return (key, value) -> {
+            long size = SizeEstimator.serializedSize(value);
+            if (size < 0) {
+                size = SizeEstimator.retainedSize(value);
+            }
+            return SizeEstimator.toWeight(SizeEstimator.retainedSize(key) + size);
+        };
+    }
+}
@@ -0,0 +1,144 @@
+package com.tiffin.cache;
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Hibernate post-insert, post-update and post-delete listener invalidating the cache
+ * entries an entity change makes stale, as mapped by {@link EntityInvalidation}
+ *
+ * The events fire at flush, but until the commit other transactions still read the old
+ * rows and may cache them again, so the keys are only collected then. Each transaction
+ * gathers its keys and namespaces in one batch, invalidated with one bulk call (and one
+ * broadcast per key) once it completes. A rollback invalidates too: write-through cache
+ * annotations in the transaction may have stored values that never got committed.
+ * Without a Spring transaction the change is invalidated right away.
+ *
+ * Bulk HQL and native updates bypass these events; they must not change cached properties.
+ */
+@Slf4j
+public class EntityChangeInvalidator
+        implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    private final transient AdvancedCacheManager cacheManager;
+    private final transient Map<Class<?>, EntityInvalidation> invalidations;
+
+    public EntityChangeInvalidator(AdvancedCacheManager cacheManager, Collection<EntityInvalidation> invalidations) {
+        this.cacheManager = cacheManager;
+        this.invalidations = invalidations.stream()
+            .collect(Collectors.toUnmodifiableMap(EntityInvalidation::getEntityType, Function.identity()));
+        // Namespaces dropped on every change are versioned rather than swept
+        invalidations.forEach(invalidation -> invalidation.getNamespaces().forEach(cacheManager::registerNamespace));
+    }
+
+    /**
+     * Append this listener to the session factory behind the JPA entity manager factory
+     */
+    public void register(EntityManagerFactory entityManagerFactory) {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+            .getServiceRegistry()
+            .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+        log.info("Invalidating cache entries on changes to {} entity types", invalidations.size());
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        changed(event.getPersister(), event.getId(), null, event.getState());
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        changed(event.getPersister(), event.getId(), event.getOldState(), event.getState());
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        changed(event.getPersister(), event.getId(), event.getDeletedState(), null);
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false; // Deferred to the Spring transaction instead, see Batch
+    }
+
+    private void changed(EntityPersister persister, Object id, Object[] previousState, Object[] state) {
+        EntityInvalidation invalidation = invalidations.get(persister.getMappedClass());
+        if (invalidation == null) {
+            return;
+        }
+        Batch batch = currentBatch();
+        invalidation.collectKeys(id, persister.getPropertyNames(), previousState, state, batch.keys);
+        batch.namespaces.addAll(invalidation.getNamespaces());
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            batch.invalidate();
+        }
+    }
+
+    private Batch currentBatch() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return new Batch();
+        }
+        Batch batch = (Batch) TransactionSynchronizationManager.getResource(this);
+        if (batch == null) {
+            batch = new Batch();
+            TransactionSynchronizationManager.bindResource(this, batch);
+            TransactionSynchronizationManager.registerSynchronization(batch);
+        }
+        return batch;
+    }
+
+    /**
+     * Keys and namespaces made stale by one transaction
+     */
+    private final class Batch implements TransactionSynchronization {
+        private final Set<String> keys = new LinkedHashSet<>();
+        private final Set<String> namespaces = new LinkedHashSet<>();
+
+        @Override
+        public void suspend() {
+            // An inner REQUIRES_NEW transaction starts its own batch
+            TransactionSynchronizationManager.unbindResourceIfPossible(EntityChangeInvalidator.this);
+        }
+
+        @Override
+        public void resume() {
+            TransactionSynchronizationManager.bindResource(EntityChangeInvalidator.this, this);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(EntityChangeInvalidator.this);
+            invalidate();
+        }
+
+        void invalidate() {
+            if (!keys.isEmpty()) {
+                cacheManager.invalidateAll(List.copyOf(keys));
+            }
+            namespaces.forEach(cacheManager::invalidateNamespace);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.tiffin.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Which cache keys and namespaces a change to one entity type makes stale, see {@link EntityChangeInvalidator}
+ *
+ * Keys are a prefix followed by the entity id or by a property value, matching how the
+ * caches in front of the repositories key their entries ("dish:" + id for the "dish"
+ * cache). For updates both the old and the new property values are used, so changing a
+ * user's email drops the entries cached under either address. Namespaces are dropped
+ * whole, for cached lists and queries any change may affect; they are versioned (see
+ * {@link AdvancedCacheManager#registerNamespace}), so dropping one costs no scan.
+ */
+public final class EntityInvalidation {
+
+    private final Class<?> entityType;
+    private final List<String> idKeyPrefixes = new ArrayList<>();
+    private final Map<String, List<String>> propertyKeyPrefixes = new LinkedHashMap<>();
+    private final List<String> namespaces = new ArrayList<>();
+
+    private EntityInvalidation(Class<?> entityType) {
+        this.entityType = entityType;
+    }
+
+    public static EntityInvalidation of(Class<?> entityType) {
+        return new EntityInvalidation(entityType);
+    }
+
+    /**
+     * Keys of the entity id under each prefix
+     */
+    public EntityInvalidation byId(String... keyPrefixes) {
+        idKeyPrefixes.addAll(List.of(keyPrefixes));
+        return this;
+    }
+
+    /**
+     * Keys of a property's old and new values under each prefix; null values have no key
+     */
+    public EntityInvalidation byProperty(String property, String... keyPrefixes) {
+        propertyKeyPrefixes.computeIfAbsent(property, name -> new ArrayList<>()).addAll(List.of(keyPrefixes));
+        return this;
+    }
+
+    /**
+     * Every key starting with the prefix
+     */
+    public EntityInvalidation namespace(String prefix) {
+        namespaces.add(prefix);
+        return this;
+    }
+
+    public Class<?> getEntityType() {
+        return entityType;
+    }
+
+    public List<String> getNamespaces() {
+        return namespaces;
+    }
+
+    /**
+     * Add the stale keys of one change
+     *
+     * @param propertyNames the persister's property names, which index both states
+     * @param previousState state before the change, null for inserts or when Hibernate did not load it
+     * @param state state after the change, null for deletes
+     */
+    void collectKeys(Object id, String[] propertyNames, Object[] previousState, Object[] state,
+                     Collection<String> keys) {
+        if (id != null) {
+            idKeyPrefixes.forEach(prefix -> keys.add(prefix + id));
+        }
+        if (propertyKeyPrefixes.isEmpty()) {
+            return;
+        }
+        for (int i = 0; i < propertyNames.length; i++) {
+            List<String> prefixes = propertyKeyPrefixes.get(propertyNames[i]);
+            if (prefixes != null) {
+                addPropertyKeys(prefixes, previousState, i, keys);
+                addPropertyKeys(prefixes, state, i, keys);
+            }
+        }
+    }
+
+    private static void addPropertyKeys(List<String> prefixes, Object[] state, int index, Collection<String> keys) {
+        Object value = state != null ? state[index] : null;
+        if (value != null) {
+            prefixes.forEach(prefix -> keys.add(prefix + value));
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.tiffin.cache;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Placement by measured, decayed access frequency
+ *
+ * Per key: the L1 TinyLFU sketch, which also counts reads served by L2 and L3 and misses,
+ * so it estimates every key's recent popularity (0-15, halved periodically). A key read
+ * often enough is promoted or stored straight into L1, a lukewarm one into L2; an entry
+ * evicted from a level is only kept in the next one if it is still being read.
+ *
+ * Per namespace (key prefix before ':'): sampled hits and writes, halved as they grow so
+ * the ratio follows recent traffic. It places keys the sketch knows nothing about yet:
+ * namespaces whose values are read many times per write start new keys in L1, ones that
+ * are rarely read back start them in L3.
+ */
+public class FrequencyPlacement implements CachePlacement {
+
+    private static final int HOT_FREQUENCY = 4;   // promote to or start in L1
+    private static final int WARM_FREQUENCY = 2;  // promote to or start in L2, keep when evicted from L1
+    private static final double HOT_NAMESPACE_HITS_PER_WRITE = 4.0;
+    private static final double COLD_NAMESPACE_HITS_PER_WRITE = 0.5;
+    private static final int SAMPLE_RATE = 8;     // record one operation in 8 per namespace
+    private static final int MIN_SAMPLES = 16;    // before a namespace's ratio is trusted
+    private static final int DECAY_SAMPLES = 4096;
+    private static final int MAX_NAMESPACES = 64;
+    private static final String DEFAULT_NAMESPACE = "default";
+    private static final String OTHER_NAMESPACE = "other";
+
+    private final WindowTinyLfuCache sketchOwner;
+    private final ConcurrentHashMap<String, NamespaceUsage> namespaces = new ConcurrentHashMap<>();
+
+    public FrequencyPlacement(WindowTinyLfuCache sketchOwner) {
+        this.sketchOwner = sketchOwner;
+    }
+
+    @Override
+    public void recordRead(String key, CacheLevel level) {
+        if (level != CacheLevel.L1) {
+            sketchOwner.recordAccess(key); // L1 records its own hits
+        }
+        if (level != null && sampled()) {
+            usage(key).hit();
+        }
+    }
+
+    @Override
+    public void recordWrite(String key) {
+        if (sampled()) {
+            usage(key).write();
+        }
+    }
+
+    @Override
+    public CacheLevel initialLevel(String key) {
+        int frequency = sketchOwner.frequency(key);
+        if (frequency >= HOT_FREQUENCY) {
+            return CacheLevel.L1;
+        }
+        CacheLevel namespaceLevel = usage(key).level();
+        if (frequency >= WARM_FREQUENCY && namespaceLevel == CacheLevel.L3) {
+            return CacheLevel.L2;
+        }
+        return namespaceLevel;
+    }
+
+    @Override
+    public boolean shouldPromote(String key, CacheLevel to) {
+        return sketchOwner.frequency(key) >= (to == CacheLevel.L1 ? HOT_FREQUENCY : WARM_FREQUENCY);
+    }
+
+    @Override
+    public boolean shouldDemote(String key, CacheEntry entry, CacheLevel to) {
+        return sketchOwner.frequency(key) >= (to == CacheLevel.L2 ? WARM_FREQUENCY : 1);
+    }
+
+    @Override
+    public int frequency(String key) {
+        return sketchOwner.frequency(key);
+    }
+
+    private static boolean sampled() {
+        return ThreadLocalRandom.current().nextInt(SAMPLE_RATE) == 0;
+    }
+
+    private NamespaceUsage usage(String key) {
+        int separator = key.indexOf(':');
+        String name = separator > 0 ? key.substring(0, separator) : DEFAULT_NAMESPACE;
+        NamespaceUsage usage = namespaces.get(name);
+        if (usage != null) {
+            return usage;
+        }
+        if (namespaces.size() >= MAX_NAMESPACES) {
+            name = OTHER_NAMESPACE;
+        }
+        return namespaces.computeIfAbsent(name, ignored -> new NamespaceUsage());
+    }
+
+    /**
+     * Sampled hits and writes of one namespace, both halved once they add up to DECAY_SAMPLES
+     */
+    private static final class NamespaceUsage {
+        private int hits;
+        private int writes;
+
+        synchronized void hit() {
+            hits++;
+            decay();
+        }
+
+        synchronized void write() {
+            writes++;
+            decay();
+        }
+
+        synchronized CacheLevel level() {
+            if (hits + writes < MIN_SAMPLES) {
+                return CacheLevel.L2; // Not enough evidence either way
+            }
+            double hitsPerWrite = (double) hits / Math.max(1, writes);
+            if (hitsPerWrite >= HOT_NAMESPACE_HITS_PER_WRITE) {
+                return CacheLevel.L1;
+            }
+            return hitsPerWrite >= COLD_NAMESPACE_HITS_PER_WRITE ? CacheLevel.L2 : CacheLevel.L3;
+        }
+
+        private void decay() {
+            if (hits + writes >= DECAY_SAMPLES) {
+                hits /= 2;
+                writes /= 2;
+            }
+        }
+    }
+}
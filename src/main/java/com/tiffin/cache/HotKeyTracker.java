@@ -0,0 +1,101 @@
+package com.tiffin.cache;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Approximate top-k of the most read cache keys (Space-Saving)
+ *
+ * Keeps at most {@code capacity} counters; an untracked key takes over the smallest
+ * counter and inherits its count, which is then the most it can be overestimated by.
+ * Any key read more than total/capacity times is guaranteed to be tracked. Only one
+ * read in {@code sampleRate} is recorded, so the reader path rarely takes the lock.
+ */
+public class HotKeyTracker {
+
+    private final int capacity;
+    private final int sampleRate;
+
+    // Guarded by this
+    private final Map<String, HotKey> counters;
+    private final PriorityQueue<HotKey> byCount = new PriorityQueue<>(Comparator.comparingLong(HotKey::getCount));
+
+    public HotKeyTracker(int capacity, int sampleRate) {
+        this.capacity = capacity;
+        this.sampleRate = sampleRate;
+        this.counters = new HashMap<>(capacity * 2);
+    }
+
+    public void record(String key) {
+        if (ThreadLocalRandom.current().nextInt(sampleRate) != 0) {
+            return;
+        }
+        synchronized (this) {
+            HotKey counter = counters.get(key);
+            if (counter != null) {
+                byCount.remove(counter);
+                counter.count++;
+                byCount.add(counter);
+                return;
+            }
+            if (counters.size() < capacity) {
+                counter = new HotKey(key, 1, 0);
+            } else {
+                HotKey smallest = byCount.poll();
+                counters.remove(smallest.key);
+                counter = new HotKey(key, smallest.count + 1, smallest.count);
+            }
+            counters.put(key, counter);
+            byCount.add(counter);
+        }
+    }
+
+    /**
+     * The most read keys, hottest first, with counts scaled back up by the sample rate
+     */
+    public synchronized List<HotKey> top(int limit) {
+        List<HotKey> top = new ArrayList<>(counters.size());
+        for (HotKey counter : counters.values()) {
+            top.add(new HotKey(counter.key, counter.count * sampleRate, counter.error * sampleRate));
+        }
+        top.sort(Comparator.comparingLong(HotKey::getCount).reversed());
+        return top.size() > limit ? top.subList(0, limit) : top;
+    }
+
+    public synchronized void clear() {
+        counters.clear();
+        byCount.clear();
+    }
+
+    /**
+     * Estimated read count of a key; the true count is at least {@code count - error}
+     */
+    public static final class HotKey {
+        private final String key;
+        private long count;
+        private final long error;
+
+        private HotKey(String key, long count, long error) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getError() {
+            return error;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.tiffin.cache;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.function.Consumer;
+
+/**
+ * Transport between caches in the same JVM that joined the same group, for tests
+ *
+ * Messages are handed to the other members synchronously on the sending thread.
+ */
+public class InJvmInvalidationTransport implements InvalidationTransport {
+
+    private static final ConcurrentHashMap<String, Set<InJvmInvalidationTransport>> GROUPS = new ConcurrentHashMap<>();
+
+    private final String group;
+    private volatile Consumer<byte[]> receiver;
+
+    public InJvmInvalidationTransport(String group) {
+        this.group = group;
+    }
+
+    @Override
+    public void start(Consumer<byte[]> receiver) {
+        this.receiver = receiver;
+        GROUPS.computeIfAbsent(group, name -> new CopyOnWriteArraySet<>()).add(this);
+    }
+
+    @Override
+    public void send(byte[] message) {
+        for (InJvmInvalidationTransport member : GROUPS.getOrDefault(group, Set.of())) {
+            if (member != this) {
+                member.receiver.accept(message.clone());
+            }
+        }
+    }
+
+    @Override
+    public int maxMessageSize() {
+        return 65536;
+    }
+
+    @Override
+    public void close() {
+        Set<InJvmInvalidationTransport> members = GROUPS.get(group);
+        if (members != null) {
+            members.remove(this);
+        }
+    }
+}
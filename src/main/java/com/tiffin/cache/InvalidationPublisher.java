@@ -0,0 +1,30 @@
+package com.tiffin.cache;
+
+/**
+ * Receives the keys {@link AdvancedCacheManager} wrote or invalidated locally, so other nodes can drop them
+ */
+public interface InvalidationPublisher {
+
+    InvalidationPublisher NONE = new InvalidationPublisher() {
+        @Override
+        public void keyInvalidated(String key) {
+        }
+
+        @Override
+        public void prefixInvalidated(String prefix) {
+        }
+
+        @Override
+        public void namespaceInvalidated(String namespace) {
+        }
+    };
+
+    void keyInvalidated(String key);
+
+    void prefixInvalidated(String prefix);
+
+    /**
+     * A registered namespace moved to its next generation, see {@link AdvancedCacheManager#invalidateNamespace}
+     */
+    void namespaceInvalidated(String namespace);
+}
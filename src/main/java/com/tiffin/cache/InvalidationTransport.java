@@ -0,0 +1,27 @@
+package com.tiffin.cache;
+
+import java.util.function.Consumer;
+
+/**
+ * Carries encoded invalidation batches between the nodes of a cluster
+ *
+ * Delivery is best effort: messages may be lost, duplicated or reordered, which
+ * {@link CacheInvalidationBus} detects from their sequence numbers.
+ */
+public interface InvalidationTransport extends AutoCloseable {
+
+    /**
+     * Start delivering messages from other nodes to the receiver
+     */
+    void start(Consumer<byte[]> receiver);
+
+    void send(byte[] message);
+
+    /**
+     * Largest message the transport delivers in one piece
+     */
+    int maxMessageSize();
+
+    @Override
+    void close();
+}
@@ -0,0 +1,50 @@
+package com.tiffin.cache;
+
+/**
+ * The original placement rules: a fixed level per key prefix, promotion on every hit,
+ * and demotion of any entry read since it was stored
+ *
+ * Kept for comparison (see PlacementReplayBenchmark) and as a fallback; it ignores
+ * how keys are actually used.
+ */
+public class KeyPrefixPlacement implements CachePlacement {
+
+    @Override
+    public void recordRead(String key, CacheLevel level) {
+    }
+
+    @Override
+    public void recordWrite(String key) {
+    }
+
+    @Override
+    public CacheLevel initialLevel(String key) {
+        // User session data - hot cache
+        if (key.startsWith("session:") || key.startsWith("user:") || key.startsWith("auth:")) {
+            return CacheLevel.L1;
+        }
+
+        // Menu and dish data - warm cache
+        if (key.startsWith("dish:") || key.startsWith("menu:") || key.startsWith("category:")) {
+            return CacheLevel.L2;
+        }
+
+        // Everything else - cold cache
+        return CacheLevel.L3;
+    }
+
+    @Override
+    public boolean shouldPromote(String key, CacheLevel to) {
+        return true;
+    }
+
+    @Override
+    public boolean shouldDemote(String key, CacheEntry entry, CacheLevel to) {
+        return entry.getAccessCount() > (to == CacheLevel.L2 ? 1 : 0);
+    }
+
+    @Override
+    public int frequency(String key) {
+        return 0;
+    }
+}
@@ -0,0 +1,609 @@
+package com.tiffin.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Off-heap cache store backed by a memory-mapped file, used as the cold (L3) level
+ *
+ * Values are serialized into a ring-shaped log inside the mapped region; large values
+ * (menu lists) are gzipped when that makes them smaller. New records are appended at
+ * the head and the oldest records are reclaimed at the tail, so eviction is true FIFO
+ * in write order and expired or overwritten records simply age out of the log.
+ *
+ * The only on-heap state is an open-addressing index of two primitive arrays (64-bit
+ * key hash and record offset), which the GC never has to trace. Records carry the full
+ * key, so hash collisions are resolved against the log.
+ *
+ * Record layout: keyLength(4) valueLength(4) keyHash(8) expiresAt(8) flags(1) key value
+ */
+public class MappedCacheStore implements AutoCloseable {
+
+    private static final int HEADER_SIZE = 25;
+    private static final int WRAP_MARKER = -1;
+    private static final byte FLAG_COMPRESSED = 1;
+    private static final int COMPRESSION_THRESHOLD = 4096;
+    private static final long EMPTY = 0;
+    private static final int READ_PREFIX = 9; // expiresAt and flags, as copied out by read
+
+    private final MappedByteBuffer region;
+    private final int capacity;
+    private final int maxRecordSize;
+    private final int maxEntries;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicLong evictionCount = new AtomicLong();
+    private volatile Consumer<String> evictionListener = key -> { };
+    private volatile Path temporaryFile;
+
+    // Index and log state, guarded by lock
+    private final long[] hashes;
+    private final int[] offsets;
+    private final int mask;
+    private int size;
+    private int head;
+    private int tail;
+    private int used;
+
+    public MappedCacheStore(Path file, int capacityBytes, int maxEntries) {
+        this.capacity = capacityBytes;
+        this.maxRecordSize = capacityBytes / 4;
+        this.maxEntries = maxEntries;
+        int slots = Integer.highestOneBit(Math.max(2, maxEntries) * 2 - 1) << 1; // load factor <= 0.5
+        this.hashes = new long[slots];
+        this.offsets = new int[slots];
+        this.mask = slots - 1;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            // The mapping stays valid after the channel is closed
+            this.region = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacityBytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not map cache file " + file, e);
+        }
+    }
+
+    /**
+     * Create a store over a temporary file that is deleted when the JVM exits
+     */
+    public static MappedCacheStore createTemporary(int capacityBytes, int maxEntries) {
+        try {
+            Path file = Files.createTempFile("tiffin-l3-", ".cache");
+            file.toFile().deleteOnExit();
+            MappedCacheStore store = new MappedCacheStore(file, capacityBytes, maxEntries);
+            store.temporaryFile = file;
+            return store;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create cache file", e);
+        }
+    }
+
+    /**
+     * Delete the file of a store made by {@link #createTemporary} rather than wait for the JVM to exit
+     * The mapping outlives the file until it is garbage collected, so the store keeps working.
+     */
+    @Override
+    public void close() {
+        Path file = temporaryFile;
+        temporaryFile = null;
+        if (file != null) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not delete cache file " + file, e);
+            }
+        }
+    }
+
+    /**
+     * Serialize and store a value until {@code expiresAt}
+     * Returns false, storing nothing, if the value is not serializable or too large
+     */
+    public boolean put(String key, Object value, long expiresAt) {
+        Record record = encode(key, value);
+        if (record == null) {
+            return false;
+        }
+        lock.writeLock().lock();
+        try {
+            write(record, expiresAt);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Store several values until {@code expiresAt} under one lock acquisition
+     * Serialization happens before the lock is taken. Returns the keys that were not stored.
+     */
+    public Set<String> putAll(Map<String, ?> values, long expiresAt) {
+        List<Record> records = new ArrayList<>(values.size());
+        Set<String> rejected = new LinkedHashSet<>();
+        values.forEach((key, value) -> {
+            Record record = encode(key, value);
+            if (record != null) {
+                records.add(record);
+            } else {
+                rejected.add(key);
+            }
+        });
+        if (records.isEmpty()) {
+            return rejected;
+        }
+        lock.writeLock().lock();
+        try {
+            for (Record record : records) {
+                write(record, expiresAt);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return rejected;
+    }
+
+    /**
+     * Look up and deserialize a value; expired records are treated as absent
+     */
+    public Object get(String key) {
+        Stored stored = getStored(key);
+        return stored != null ? stored.value() : null;
+    }
+
+    /**
+     * Look up and deserialize a value with the time it expires at, so a copy moved to
+     * another level keeps it; expired records are treated as absent
+     * Only the raw bytes are copied under the lock, deserialization happens after.
+     */
+    public Stored getStored(String key) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        byte[] record;
+        lock.readLock().lock();
+        try {
+            record = read(hash(key), keyBytes);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return record != null ? decode(key, record) : null;
+    }
+
+    /**
+     * Values of several keys read under one lock acquisition; absent and expired keys are left out
+     */
+    public Map<String, Object> getAll(Collection<String> keys) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        getAllStored(keys).forEach((key, stored) -> values.put(key, stored.value()));
+        return values;
+    }
+
+    /**
+     * {@link #getStored} for several keys under one lock acquisition
+     */
+    public Map<String, Stored> getAllStored(Collection<String> keys) {
+        Map<String, byte[]> records = new LinkedHashMap<>();
+        lock.readLock().lock();
+        try {
+            for (String key : keys) {
+                byte[] record = read(hash(key), key.getBytes(StandardCharsets.UTF_8));
+                if (record != null) {
+                    records.put(key, record);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        Map<String, Stored> values = new LinkedHashMap<>(records.size());
+        records.forEach((key, record) -> values.put(key, decode(key, record)));
+        return values;
+    }
+
+    /**
+     * Whether a live, unexpired record exists for the key; nothing is deserialized
+     */
+    public boolean contains(String key) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        long hash = hash(key);
+        lock.readLock().lock();
+        try {
+            int slot = find(hash, keyBytes);
+            return slot >= 0 && region.getLong(offsets[slot] + 16) >= CacheTicker.now();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean remove(String key) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        long hash = hash(key);
+        lock.writeLock().lock();
+        try {
+            int slot = find(hash, keyBytes);
+            if (slot < 0) {
+                return false;
+            }
+            delete(slot);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove several keys under one lock acquisition; returns how many were present
+     */
+    public int removeAll(Collection<String> keys) {
+        int removed = 0;
+        lock.writeLock().lock();
+        try {
+            for (String key : keys) {
+                int slot = find(hash(key), key.getBytes(StandardCharsets.UTF_8));
+                if (slot >= 0) {
+                    delete(slot);
+                    removed++;
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return removed;
+    }
+
+    /**
+     * Remove every entry whose key matches; scans the whole index
+     */
+    public int removeIf(Predicate<String> keyFilter) {
+        lock.writeLock().lock();
+        try {
+            List<String> matching = new ArrayList<>();
+            for (int slot = 0; slot < hashes.length; slot++) {
+                if (hashes[slot] != EMPTY) {
+                    String key = readKey(offsets[slot]);
+                    if (keyFilter.test(key)) {
+                        matching.add(key);
+                    }
+                }
+            }
+            // Deleting shifts entries between slots, so remove by key once the scan is done
+            for (String key : matching) {
+                delete(find(hash(key), key.getBytes(StandardCharsets.UTF_8)));
+            }
+            return matching.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            Arrays.fill(hashes, EMPTY);
+            size = 0;
+            head = 0;
+            tail = 0;
+            used = 0;
+            evictionCount.set(0);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Bytes of the mapped region currently occupied by the log, including dead records
+     */
+    public long getUsedBytes() {
+        lock.readLock().lock();
+        try {
+            return used;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long getCapacityBytes() {
+        return capacity;
+    }
+
+    /**
+     * Live entries dropped to make room for new ones
+     */
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    /**
+     * Called with the key of every live entry dropped to make room, under the store lock
+     */
+    public void setEvictionListener(Consumer<String> evictionListener) {
+        this.evictionListener = evictionListener;
+    }
+
+    /**
+     * Serialized form of a value, or null if it cannot be stored
+     */
+    private Record encode(String key, Object value) {
+        if (!(value instanceof Serializable)) {
+            return null;
+        }
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        byte[] valueBytes;
+        boolean compressed;
+        try {
+            valueBytes = serialize(value);
+            compressed = false;
+            if (valueBytes.length > COMPRESSION_THRESHOLD) {
+                byte[] gzipped = compress(valueBytes);
+                if (gzipped.length < valueBytes.length) {
+                    valueBytes = gzipped;
+                    compressed = true;
+                }
+            }
+        } catch (NotSerializableException e) {
+            return null; // Something inside the object graph is not serializable
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not serialize cache value for " + key, e);
+        }
+        if (HEADER_SIZE + keyBytes.length + valueBytes.length > maxRecordSize) {
+            return null;
+        }
+        return new Record(hash(key), keyBytes, valueBytes, compressed);
+    }
+
+    /**
+     * Append a record and point the index at it; the caller holds the write lock
+     */
+    private void write(Record record, long expiresAt) {
+        byte[] keyBytes = record.keyBytes();
+        byte[] valueBytes = record.valueBytes();
+        int slot = find(record.hash(), keyBytes);
+        if (slot < 0) {
+            while (size >= maxEntries) {
+                reclaimOldest();
+            }
+        }
+        int offset = reserve(HEADER_SIZE + keyBytes.length + valueBytes.length);
+        region.putInt(offset, keyBytes.length);
+        region.putInt(offset + 4, valueBytes.length);
+        region.putLong(offset + 8, record.hash());
+        region.putLong(offset + 16, expiresAt);
+        region.put(offset + 24, record.compressed() ? FLAG_COMPRESSED : 0);
+        region.put(offset + HEADER_SIZE, keyBytes);
+        region.put(offset + HEADER_SIZE + keyBytes.length, valueBytes);
+
+        // Reserving may have reclaimed the record the old slot pointed to
+        slot = find(record.hash(), keyBytes);
+        if (slot >= 0) {
+            offsets[slot] = offset; // The old record is left to age out of the log
+        } else {
+            insert(record.hash(), offset);
+        }
+    }
+
+    /**
+     * Copy of the expiry time and flag byte followed by the value bytes, or null if absent or
+     * expired; the caller holds a lock
+     */
+    private byte[] read(long hash, byte[] keyBytes) {
+        int slot = find(hash, keyBytes);
+        if (slot < 0) {
+            return null;
+        }
+        int offset = offsets[slot];
+        if (region.getLong(offset + 16) < CacheTicker.now()) {
+            return null; // Reclaimed when the log wraps around to it
+        }
+        byte[] record = new byte[READ_PREFIX + region.getInt(offset + 4)];
+        region.get(offset + 16, record, 0, READ_PREFIX); // expiresAt and flags
+        region.get(offset + HEADER_SIZE + keyBytes.length, record, READ_PREFIX, record.length - READ_PREFIX);
+        return record;
+    }
+
+    private Stored decode(String key, byte[] record) {
+        long expiresAt = 0;
+        for (int i = 0; i < 8; i++) {
+            expiresAt = expiresAt << 8 | (record[i] & 0xff);
+        }
+        try {
+            return new Stored(deserialize(record, READ_PREFIX, record[8] == FLAG_COMPRESSED), expiresAt);
+        } catch (IOException | ClassNotFoundException e) {
+            throw new IllegalStateException("Could not deserialize cache value for " + key, e);
+        }
+    }
+
+    /**
+     * Find room for a record at the head of the log, reclaiming from the tail as needed
+     */
+    private int reserve(int recordSize) {
+        while (true) {
+            if (used == 0) {
+                head = 0;
+                tail = 0;
+            }
+            boolean wrapped = used > 0 && head <= tail; // Live data is [tail, end) + [0, head)
+            if (!wrapped) {
+                if (capacity - head >= recordSize) {
+                    break;
+                }
+                // Skip the unusable end of the region; the tail skips it too when it gets there
+                if (capacity - head >= 4) {
+                    region.putInt(head, WRAP_MARKER);
+                }
+                used += capacity - head;
+                head = 0;
+            } else if (tail - head >= recordSize) {
+                break;
+            } else {
+                reclaimOldest();
+            }
+        }
+        int offset = head;
+        head += recordSize;
+        used += recordSize;
+        return offset;
+    }
+
+    /**
+     * Drop the record at the tail of the log, evicting it from the index if it is still live
+     */
+    private void reclaimOldest() {
+        if (capacity - tail < 4 || region.getInt(tail) == WRAP_MARKER) {
+            used -= capacity - tail;
+            tail = 0;
+            return;
+        }
+        int recordSize = HEADER_SIZE + region.getInt(tail) + region.getInt(tail + 4);
+        long hash = region.getLong(tail + 8);
+        for (int slot = (int) hash & mask; hashes[slot] != EMPTY; slot = (slot + 1) & mask) {
+            if (offsets[slot] == tail && hashes[slot] == hash) {
+                delete(slot);
+                if (region.getLong(tail + 16) >= CacheTicker.now()) {
+                    evictionCount.incrementAndGet();
+                    evictionListener.accept(readKey(tail));
+                }
+                break;
+            }
+        }
+        used -= recordSize;
+        tail += recordSize;
+        if (tail == capacity) {
+            tail = 0;
+        }
+    }
+
+    private int find(long hash, byte[] keyBytes) {
+        for (int slot = (int) hash & mask; hashes[slot] != EMPTY; slot = (slot + 1) & mask) {
+            if (hashes[slot] == hash && keyMatches(offsets[slot], keyBytes)) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private boolean keyMatches(int offset, byte[] keyBytes) {
+        if (region.getInt(offset) != keyBytes.length) {
+            return false;
+        }
+        for (int i = 0; i < keyBytes.length; i++) {
+            if (region.get(offset + HEADER_SIZE + i) != keyBytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String readKey(int offset) {
+        byte[] keyBytes = new byte[region.getInt(offset)];
+        region.get(offset + HEADER_SIZE, keyBytes);
+        return new String(keyBytes, StandardCharsets.UTF_8);
+    }
+
+    private void insert(long hash, int offset) {
+        int slot = (int) hash & mask;
+        while (hashes[slot] != EMPTY) {
+            slot = (slot + 1) & mask;
+        }
+        hashes[slot] = hash;
+        offsets[slot] = offset;
+        size++;
+    }
+
+    /**
+     * Linear-probing delete with backward shift, so lookups never need tombstones
+     */
+    private void delete(int slot) {
+        int hole = slot;
+        for (int next = (hole + 1) & mask; hashes[next] != EMPTY; next = (next + 1) & mask) {
+            int home = (int) hashes[next] & mask;
+            // Move the entry back if its home slot is not between the hole and its position
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                hashes[hole] = hashes[next];
+                offsets[hole] = offsets[next];
+                hole = next;
+            }
+        }
+        hashes[hole] = EMPTY;
+        size--;
+    }
+
+    private static long hash(String key) {
+        long h = 0;
+        for (int i = 0; i < key.length(); i++) {
+            h = 31 * h + key.charAt(i);
+        }
+        // MurmurHash3 finalizer spreads the bits; zero marks an empty slot
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h == EMPTY ? 1 : h;
+    }
+
+    private static byte[] serialize(Object value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(value);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] compress(byte[] data) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(data.length / 4);
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(data);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Object deserialize(byte[] data, int offset, boolean compressed) throws IOException, ClassNotFoundException {
+        InputStream in = new ByteArrayInputStream(data, offset, data.length - offset);
+        if (compressed) {
+            in = new GZIPInputStream(in);
+        }
+        try (ObjectInputStream objects = new ObjectInputStream(in)) {
+            return objects.readObject();
+        }
+    }
+
+    private record Record(long hash, byte[] keyBytes, byte[] valueBytes, boolean compressed) { }
+
+    /**
+     * A value read back from the store, with the time (CacheTicker millis) it expires at
+     */
+    public record Stored(Object value, long expiresAt) { }
+}
@@ -0,0 +1,143 @@
+package com.tiffin.cache;
+
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+import org.springframework.cache.support.NullValue;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Spring {@link org.springframework.cache.Cache} view of one namespace of the multi-level cache
+ *
+ * Entries are stored in {@link AdvancedCacheManager} under "name:key", so the cache name
+ * doubles as the key namespace; in a registered namespace the key carries its generation
+ * ("name:#gen:key", see {@link AdvancedCacheManager#namespacedKey}). {@code @Cacheable(sync = true)} and {@link #retrieve} go
+ * through the single-flight loader, so a miss on a hot key runs the method only once.
+ * With refresh-ahead configured they also reload entries near the end of their TTL in the
+ * background, serving the cached value meanwhile.
+ */
+public class MultiLevelCache extends AbstractValueAdaptingCache {
+
+    private final String name;
+    private final String namespace;
+    private final AdvancedCacheManager cacheManager;
+    private final long ttlMillis;
+    private final CacheLevel level;
+    private final double refreshAhead;
+
+    public MultiLevelCache(String name, AdvancedCacheManager cacheManager, long ttlMillis,
+                           CacheLevel level, boolean allowNullValues) {
+        this(name, cacheManager, ttlMillis, level, allowNullValues, 0);
+    }
+
+    public MultiLevelCache(String name, AdvancedCacheManager cacheManager, long ttlMillis,
+                           CacheLevel level, boolean allowNullValues, double refreshAhead) {
+        super(allowNullValues);
+        this.name = name;
+        this.namespace = name + ":";
+        this.cacheManager = cacheManager;
+        this.ttlMillis = ttlMillis;
+        this.level = level;
+        this.refreshAhead = refreshAhead;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public AdvancedCacheManager getNativeCache() {
+        return cacheManager;
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        return cacheManager.get(storageKey(key), Object.class).orElse(null);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        try {
+            return (T) fromStoreValue(cacheManager.get(storageKey(key), Object.class,
+                () -> loadStoreValue(valueLoader), ttlMillis, level, refreshAhead));
+        } catch (CacheLoadException e) {
+            throw new ValueRetrievalException(key, valueLoader, e.getCause() != null ? e.getCause() : e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<?> retrieve(Object key) {
+        return cacheManager.get(storageKey(key), Object.class)
+            .map(value -> CompletableFuture.completedFuture(toValueWrapper(value)))
+            .orElse(null);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> retrieve(Object key, Supplier<CompletableFuture<T>> valueLoader) {
+        return cacheManager.getAsync(storageKey(key), Object.class,
+                () -> loadStoreValue(() -> valueLoader.get().join()), ttlMillis, level, refreshAhead)
+            .thenApply(value -> (T) fromStoreValue(value));
+    }
+
+    /**
+     * Values of several keys, loading every miss with one call of {@code bulkLoader}
+     * Keys the loader leaves out are cached as null when null values are allowed, and are
+     * absent from the result either way.
+     */
+    @SuppressWarnings("unchecked")
+    public <K, V> Map<K, V> getAll(Collection<K> keys, Function<Set<K>, Map<K, V>> bulkLoader) {
+        Map<K, Object> stored = cacheManager.getAll(keys, this::storageKey, Object.class, missing -> {
+            Map<K, Object> storeValues = new HashMap<>(bulkLoader.apply(missing));
+            if (isAllowNullValues()) {
+                missing.forEach(key -> storeValues.putIfAbsent(key, NullValue.INSTANCE));
+            }
+            return storeValues;
+        }, ttlMillis, level);
+        Map<K, V> values = new LinkedHashMap<>();
+        stored.forEach((key, value) -> {
+            Object userValue = fromStoreValue(value);
+            if (userValue != null) {
+                values.put(key, (V) userValue);
+            }
+        });
+        return values;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        cacheManager.put(storageKey(key), toStoreValue(value), ttlMillis, level);
+    }
+
+    @Override
+    public void evict(Object key) {
+        cacheManager.invalidate(storageKey(key));
+    }
+
+    @Override
+    public void clear() {
+        cacheManager.invalidateNamespace(namespace);
+    }
+
+    private Object loadStoreValue(Callable<?> valueLoader) throws Exception {
+        Object value = valueLoader.call();
+        if (value == null) {
+            // Without null caching a missing value is returned but not stored
+            return isAllowNullValues() ? NullValue.INSTANCE : null;
+        }
+        return value;
+    }
+
+    private String storageKey(Object key) {
+        return cacheManager.namespacedKey(namespace, String.valueOf(key));
+    }
+}
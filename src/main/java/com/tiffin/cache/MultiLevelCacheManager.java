@@ -0,0 +1,54 @@
+package com.tiffin.cache;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.AbstractCacheManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Spring {@link org.springframework.cache.CacheManager} mapping named caches onto the
+ * levels of {@link AdvancedCacheManager}
+ *
+ * Caches listed under app.cache.caches get their configured TTL and level; any other
+ * name used in a cache annotation is created on demand with the defaults. Entity changes
+ * only invalidate the local node unless cross-node invalidation is enabled, so a cache's
+ * longer clustered-ttl only applies then: without it, other nodes keep stale entries
+ * (a changed password, a disabled account) for as long as the TTL.
+ */
+public class MultiLevelCacheManager extends AbstractCacheManager {
+
+    private final AdvancedCacheManager cacheManager;
+    private final MultiLevelCacheProperties properties;
+
+    public MultiLevelCacheManager(AdvancedCacheManager cacheManager, MultiLevelCacheProperties properties) {
+        this.cacheManager = cacheManager;
+        this.properties = properties;
+    }
+
+    @Override
+    protected Collection<? extends Cache> loadCaches() {
+        List<Cache> caches = new ArrayList<>();
+        for (Map.Entry<String, MultiLevelCacheProperties.CacheSpec> entry : properties.getCaches().entrySet()) {
+            caches.add(createCache(entry.getKey(), entry.getValue()));
+        }
+        return caches;
+    }
+
+    @Override
+    protected Cache getMissingCache(String name) {
+        return createCache(name, new MultiLevelCacheProperties.CacheSpec());
+    }
+
+    private MultiLevelCache createCache(String name, MultiLevelCacheProperties.CacheSpec spec) {
+        Duration ttl = spec.getTtl() != null ? spec.getTtl() : properties.getDefaultTtl();
+        if (spec.getClusteredTtl() != null && properties.getInvalidation().isEnabled()) {
+            ttl = spec.getClusteredTtl();
+        }
+        return new MultiLevelCache(name, cacheManager, ttl.toMillis(), spec.getLevel(), spec.isAllowNullValues(),
+                spec.getRefreshAhead());
+    }
+}
@@ -0,0 +1,123 @@
+package com.tiffin.cache;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-cache settings for the Spring cache abstraction and Hibernate regions (app.cache.*)
+ *
+ * app:
+ *   cache:
+ *     default-ttl: 1h
+ *     l1-max-weight: 32MB
+ *     caches:
+ *       dishes:
+ *         ttl: 10m
+ *         level: L2
+ *         refresh-ahead: 0.8
+ */
+@Data
+@ConfigurationProperties(prefix = "app.cache")
+public class MultiLevelCacheProperties {
+
+    private Duration defaultTtl = Duration.ofHours(1);
+
+    // How long a lookup that found nothing is remembered, see Absent
+    private Duration absentTtl = Duration.ofSeconds(30);
+
+    // How values without a configured level are placed, promoted and demoted
+    private Placement placement = Placement.FREQUENCY;
+
+    // Byte budgets of the levels, as estimated by the CacheWeigher; L3 is the size of its mapped file
+    private DataSize l1MaxWeight = DataSize.ofMegabytes(32);
+    private DataSize l2MaxWeight = DataSize.ofMegabytes(128);
+    private DataSize l3MaxWeight = DataSize.ofMegabytes(256);
+
+    private Map<String, CacheSpec> caches = new LinkedHashMap<>();
+
+    // Reservations and caps of key namespaces inside L1 and L2, see NamespaceQuotas
+    private Map<String, NamespaceQuota> namespaces = new LinkedHashMap<>();
+
+    // Hibernate second-level cache regions, see MultiLevelRegionFactory
+    private Map<String, CacheSpec> regions = new LinkedHashMap<>();
+
+    private Snapshot snapshot = new Snapshot();
+
+    private Invalidation invalidation = new Invalidation();
+
+    private Prewarm prewarm = new Prewarm();
+
+    public enum Placement {
+        FREQUENCY,  // by measured access frequency, see FrequencyPlacement
+        KEY_PREFIX  // fixed levels per key prefix, see KeyPrefixPlacement
+    }
+
+    @Data
+    public static class CacheSpec {
+        private Duration ttl;                   // defaults to default-ttl
+        private Duration clusteredTtl;          // replaces ttl when invalidation is enabled, as other nodes then see writes
+        private CacheLevel level;               // defaults to the placement policy's choice
+        private boolean allowNullValues = true; // cache "not found" results as well
+        private double refreshAhead;            // reload in the background after this fraction of the TTL, 0 for never
+    }
+
+    /**
+     * Bytes of a level kept for a namespace (reserved) or that it may use at most (max); unset for neither
+     */
+    @Data
+    public static class NamespaceQuota {
+        private DataSize l1Reserved;
+        private DataSize l1Max;
+        private DataSize l2Reserved;
+        private DataSize l2Max;
+    }
+
+    /**
+     * Warm restart, see CacheSnapshotService
+     */
+    @Data
+    public static class Snapshot {
+        private boolean enabled = true;
+        // Not the shared temp directory: the file is created owner-only, in an owner-only directory
+        private String path = Path.of(System.getProperty("user.home"), ".tiffin", "tiffin-cache.snapshot").toString();
+        private Duration interval = Duration.ofMinutes(5); // ISO-8601 in config, it is also read by @Scheduled
+    }
+
+    /**
+     * Cross-node invalidation, see CacheInvalidationBus
+     */
+    @Data
+    public static class Invalidation {
+        private boolean enabled = false;
+        private Transport transport = Transport.MULTICAST;
+        private String group = "239.255.42.99";   // MULTICAST: site-local group and port
+        private int port = 45566;                  // MULTICAST and LOOPBACK: the port this node binds
+        private String networkInterface;           // MULTICAST: defaults to the system's
+        private List<Integer> peerPorts = new ArrayList<>(); // LOOPBACK: ports of all nodes on this host
+        private Duration batchWindow = Duration.ofMillis(10);
+        private String secret;                     // HMAC key shared by all nodes, at least 32 bytes; required when enabled
+
+        public enum Transport { IN_JVM, MULTICAST, LOOPBACK }
+    }
+
+    /**
+     * Loading and pinning keys ahead of their namespace's read peaks, see CachePrewarmer
+     */
+    @Data
+    public static class Prewarm {
+        private boolean enabled = true;
+        private ZoneId zone = ZoneId.systemDefault(); // of the time-of-day profile and the meals
+        private Duration lead = Duration.ofMinutes(10);
+        private double peakFactor = 2.0;             // a slot is a peak at this multiple of the namespace's mean reads
+        private Map<String, String> meals = new LinkedHashMap<>(); // meal name: "HH:mm-HH:mm" window
+    }
+}
@@ -0,0 +1,180 @@
+package com.tiffin.cache;
+
+import org.hibernate.boot.spi.SessionFactoryOptions;
+import org.hibernate.cache.cfg.spi.DomainDataRegionBuildingContext;
+import org.hibernate.cache.cfg.spi.DomainDataRegionConfig;
+import org.hibernate.cache.spi.access.AccessType;
+import org.hibernate.cache.spi.support.DomainDataStorageAccess;
+import org.hibernate.cache.spi.support.RegionFactoryTemplate;
+import org.hibernate.cache.spi.support.StorageAccess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+
+import java.io.Serializable;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hibernate second-level cache regions stored in {@link AdvancedCacheManager}
+ *
+ * Entity and query-result regions live in the multi-level cache under
+ * "hibernate:region:hash", with TTL and level taken from app.cache.regions (default TTL,
+ * L2 otherwise). The stored value keeps the original Hibernate key and a lookup only
+ * hits if it is equal, so two keys sharing a hash just replace each other.
+ *
+ * Entities are meant to use read-only or nonstrict-read-write, which only need get, put
+ * and evict; nonstrict-read-write is the default. Entity updates evict the entry after
+ * commit and bulk HQL updates evict the whole region.
+ *
+ * The update-timestamps region is kept in a plain map instead: Hibernate treats a missing
+ * timestamp as "table unchanged", so evicting one would serve stale query results.
+ */
+public class MultiLevelRegionFactory extends RegionFactoryTemplate {
+
+    static final String KEY_PREFIX = "hibernate:";
+
+    private final AdvancedCacheManager cacheManager;
+    private final MultiLevelCacheProperties properties;
+
+    public MultiLevelRegionFactory(AdvancedCacheManager cacheManager, MultiLevelCacheProperties properties) {
+        this.cacheManager = cacheManager;
+        this.properties = properties;
+    }
+
+    @Override
+    public AccessType getDefaultAccessType() {
+        return AccessType.NONSTRICT_READ_WRITE;
+    }
+
+    @Override
+    protected void prepareForUse(SessionFactoryOptions settings, Map<String, Object> configValues) {
+        // The cache is owned by Spring, nothing to start
+    }
+
+    @Override
+    protected void releaseFromUse() {
+        // The cache is owned by Spring, nothing to stop
+    }
+
+    @Override
+    protected DomainDataStorageAccess createDomainDataStorageAccess(DomainDataRegionConfig regionConfig,
+                                                                    DomainDataRegionBuildingContext buildingContext) {
+        return createRegionStorage(regionConfig.getRegionName());
+    }
+
+    @Override
+    protected StorageAccess createQueryResultsRegionStorageAccess(String regionName,
+                                                                  SessionFactoryImplementor sessionFactory) {
+        return createRegionStorage(regionName);
+    }
+
+    @Override
+    protected StorageAccess createTimestampsRegionStorageAccess(String regionName,
+                                                                SessionFactoryImplementor sessionFactory) {
+        return new TimestampsStorageAccess();
+    }
+
+    private RegionStorageAccess createRegionStorage(String regionName) {
+        MultiLevelCacheProperties.CacheSpec spec = properties.getRegions().get(regionName);
+        Duration ttl = spec != null && spec.getTtl() != null ? spec.getTtl() : properties.getDefaultTtl();
+        CacheLevel level = spec != null && spec.getLevel() != null ? spec.getLevel() : CacheLevel.L2;
+        return new RegionStorageAccess(KEY_PREFIX + regionName + ":", ttl.toMillis(), level);
+    }
+
+    private final class RegionStorageAccess implements DomainDataStorageAccess {
+        private final String keyPrefix;
+        private final long ttlMillis;
+        private final CacheLevel level;
+
+        RegionStorageAccess(String keyPrefix, long ttlMillis, CacheLevel level) {
+            this.keyPrefix = keyPrefix;
+            this.ttlMillis = ttlMillis;
+            this.level = level;
+        }
+
+        @Override
+        public Object getFromCache(Object key, SharedSessionContractImplementor session) {
+            return cacheManager.get(storageKey(key), KeyedValue.class)
+                .filter(stored -> stored.key.equals(key))
+                .map(stored -> stored.value)
+                .orElse(null);
+        }
+
+        @Override
+        public void putIntoCache(Object key, Object value, SharedSessionContractImplementor session) {
+            // Hibernate calls this after loading; updates and deletes come through evictData
+            cacheManager.putFromLoad(storageKey(key), new KeyedValue(key, value), ttlMillis, level);
+        }
+
+        @Override
+        public boolean contains(Object key) {
+            return getFromCache(key, null) != null;
+        }
+
+        @Override
+        public void evictData(Object key) {
+            cacheManager.invalidate(storageKey(key));
+        }
+
+        @Override
+        public void evictData() {
+            cacheManager.invalidatePrefix(keyPrefix);
+        }
+
+        @Override
+        public void release() {
+            evictData();
+        }
+
+        private String storageKey(Object key) {
+            return keyPrefix + key.hashCode();
+        }
+    }
+
+    private static final class KeyedValue implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final Object key;
+        private final Object value;
+
+        KeyedValue(Object key, Object value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    private static final class TimestampsStorageAccess implements StorageAccess {
+        private final ConcurrentHashMap<Object, Object> timestamps = new ConcurrentHashMap<>();
+
+        @Override
+        public Object getFromCache(Object key, SharedSessionContractImplementor session) {
+            return timestamps.get(key);
+        }
+
+        @Override
+        public void putIntoCache(Object key, Object value, SharedSessionContractImplementor session) {
+            timestamps.put(key, value);
+        }
+
+        @Override
+        public boolean contains(Object key) {
+            return timestamps.containsKey(key);
+        }
+
+        @Override
+        public void evictData(Object key) {
+            timestamps.remove(key);
+        }
+
+        @Override
+        public void evictData() {
+            timestamps.clear();
+        }
+
+        @Override
+        public void release() {
+            timestamps.clear();
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.tiffin.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Per-namespace weight reservations and caps inside the on-heap levels (app.cache.namespaces)
+ *
+ * Namespaces are key prefixes up to the first ':' as in {@link CacheMetrics}. Within a level:
+ * - a namespace holding no more than its reservation is skipped when another namespace
+ *   needs room, so a burst of OTP or login keys cannot flush the menu
+ * - a namespace over its cap evicts its own oldest entries, whatever else the level holds
+ * - a pinned key (see {@link PinnedKeys}) is skipped like a reserved namespace
+ * Reservations are best effort: when every entry of a level is reserved, the level's normal
+ * victim is evicted anyway. L3 is a FIFO log and keeps one shared budget.
+ *
+ * Each level tracks the weight of every namespace here, under the level's own lock, and
+ * reports it as:
+ * - tiffin.cache.namespace.weight{namespace, level}  estimated bytes held
+ * - tiffin.cache.namespace.share{namespace, level}   fraction of the level's budget
+ * - tiffin.cache.evictions.caused{namespace, level}  evictions its writes forced, of any namespace
+ */
+public class NamespaceQuotas {
+
+    private static final int MAX_NAMESPACES = 64;
+    private static final String DEFAULT_NAMESPACE = "default";
+    private static final String OTHER_NAMESPACE = "other";
+    private static final CacheLevel[] LEVELS = {CacheLevel.L1, CacheLevel.L2};
+
+    private final Map<String, MultiLevelCacheProperties.NamespaceQuota> quotas;
+    private final long[] levelMaxWeights = new long[CacheLevel.values().length];
+    private final MeterRegistry registry;
+    private final PinnedKeys pins = new PinnedKeys();
+    private final ConcurrentHashMap<String, Usage> usagesByName = new ConcurrentHashMap<>();
+    private volatile Usage[] usages = new Usage[0];
+
+    public NamespaceQuotas(Map<String, MultiLevelCacheProperties.NamespaceQuota> quotas,
+                           long l1MaxWeight, long l2MaxWeight, MeterRegistry registry) {
+        this.quotas = quotas;
+        this.levelMaxWeights[CacheLevel.L1.ordinal()] = l1MaxWeight;
+        this.levelMaxWeights[CacheLevel.L2.ordinal()] = l2MaxWeight;
+        this.registry = registry;
+    }
+
+    /**
+     * Usage of the namespace the key belongs to
+     */
+    public Usage usage(String key) {
+        for (Usage usage : usages) {
+            if (usage.matches(key)) {
+                return usage;
+            }
+        }
+        return register(key);
+    }
+
+    /**
+     * Whether the key's entry is off limits to make room for the writer's namespace
+     */
+    public boolean isKept(CacheLevel level, String key, Usage writer) {
+        return pins.isPinned(key) || usage(key).isReservedAgainst(level, writer);
+    }
+
+    public PinnedKeys pins() {
+        return pins;
+    }
+
+    /**
+     * Forget a level's contents, after it was cleared
+     */
+    public void clear(CacheLevel level) {
+        for (Usage usage : usagesByName.values()) {
+            usage.weights.set(level.ordinal(), 0);
+            LinkedHashSet<String> members = usage.members.get(level);
+            if (members != null) {
+                members.clear();
+            }
+        }
+    }
+
+    private Usage register(String key) {
+        int separator = key.indexOf(':');
+        String name = separator > 0 ? key.substring(0, separator) : DEFAULT_NAMESPACE;
+        Usage usage = usagesByName.get(name);
+        if (usage != null) {
+            return usage;
+        }
+        synchronized (this) {
+            usage = usagesByName.get(name);
+            if (usage != null) {
+                return usage;
+            }
+            if (usagesByName.size() >= MAX_NAMESPACES) {
+                return usagesByName.computeIfAbsent(OTHER_NAMESPACE, Usage::new);
+            }
+            usage = new Usage(name);
+            usagesByName.put(name, usage);
+            Usage[] grown = Arrays.copyOf(usages, usages.length + 1);
+            grown[grown.length - 1] = usage;
+            usages = grown;
+            return usage;
+        }
+    }
+
+    /**
+     * Quota and current weight of one namespace in each on-heap level
+     * The mutators are called with the level's lock held.
+     */
+    public final class Usage {
+        private final String prefix;
+        private final long[] reserved = new long[CacheLevel.values().length];
+        private final long[] max = new long[CacheLevel.values().length];
+        private final AtomicLongArray weights = new AtomicLongArray(CacheLevel.values().length);
+        // Keys in insertion order, only kept in the levels where the namespace has a cap
+        private final Map<CacheLevel, LinkedHashSet<String>> members = new EnumMap<>(CacheLevel.class);
+        private final Counter[] evictionsCaused = new Counter[CacheLevel.values().length];
+
+        private Usage(String name) {
+            this.prefix = DEFAULT_NAMESPACE.equals(name) || OTHER_NAMESPACE.equals(name) ? null : name + ":";
+            MultiLevelCacheProperties.NamespaceQuota quota = quotas.get(name);
+            if (quota != null) {
+                setQuota(CacheLevel.L1, quota.getL1Reserved() != null ? quota.getL1Reserved().toBytes() : 0,
+                    quota.getL1Max() != null ? quota.getL1Max().toBytes() : 0);
+                setQuota(CacheLevel.L2, quota.getL2Reserved() != null ? quota.getL2Reserved().toBytes() : 0,
+                    quota.getL2Max() != null ? quota.getL2Max().toBytes() : 0);
+            }
+            for (CacheLevel level : LEVELS) {
+                int index = level.ordinal();
+                evictionsCaused[index] = Counter.builder("tiffin.cache.evictions.caused")
+                    .tag("namespace", name).tag("level", level.name()).register(registry);
+                Gauge.builder("tiffin.cache.namespace.weight", weights, w -> w.get(index))
+                    .tag("namespace", name).tag("level", level.name()).register(registry);
+                Gauge.builder("tiffin.cache.namespace.share", weights,
+                        w -> (double) w.get(index) / Math.max(1, levelMaxWeights[index]))
+                    .tag("namespace", name).tag("level", level.name()).register(registry);
+            }
+        }
+
+        private void setQuota(CacheLevel level, long reservedBytes, long maxBytes) {
+            reserved[level.ordinal()] = reservedBytes;
+            max[level.ordinal()] = maxBytes;
+            if (maxBytes > 0) {
+                members.put(level, new LinkedHashSet<>());
+            }
+        }
+
+        private boolean matches(String key) {
+            return prefix != null ? key.startsWith(prefix) : key.indexOf(':') < 0;
+        }
+
+        public void added(CacheLevel level, String key, long weight) {
+            weights.addAndGet(level.ordinal(), weight);
+            LinkedHashSet<String> keys = members.get(level);
+            if (keys != null) {
+                keys.add(key);
+            }
+        }
+
+        /**
+         * An entry of the namespace was replaced by one of a different weight
+         */
+        public void resized(CacheLevel level, long delta) {
+            weights.addAndGet(level.ordinal(), delta);
+        }
+
+        public void removed(CacheLevel level, String key, long weight) {
+            weights.addAndGet(level.ordinal(), -weight);
+            LinkedHashSet<String> keys = members.get(level);
+            if (keys != null) {
+                keys.remove(key);
+            }
+        }
+
+        public long weight(CacheLevel level) {
+            return weights.get(level.ordinal());
+        }
+
+        public boolean isOverCap(CacheLevel level) {
+            long cap = max[level.ordinal()];
+            return cap > 0 && weights.get(level.ordinal()) > cap;
+        }
+
+        /**
+         * The namespace's oldest key in a level where it has a cap, or null
+         */
+        public String oldest(CacheLevel level) {
+            LinkedHashSet<String> keys = members.get(level);
+            if (keys == null || keys.isEmpty()) {
+                return null;
+            }
+            return keys.iterator().next();
+        }
+
+        /**
+         * Whether this namespace's entries are off limits to make room for the other's
+         */
+        public boolean isReservedAgainst(CacheLevel level, Usage other) {
+            long reservation = reserved[level.ordinal()];
+            return other != this && reservation > 0 && weights.get(level.ordinal()) <= reservation;
+        }
+
+        /**
+         * Charge one eviction, of any namespace, to this one's write
+         */
+        public void evictionCaused(CacheLevel level) {
+            evictionsCaused[level.ordinal()].increment();
+        }
+    }
+}
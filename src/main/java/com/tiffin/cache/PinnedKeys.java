@@ -0,0 +1,124 @@
+package com.tiffin.cache;
+
+import lombok.Getter;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keys kept in their on-heap level until a deadline, and how often they were read meanwhile
+ *
+ * The L1 and L2 eviction searches skip pinned keys like those of a namespace within its
+ * reservation (see {@link NamespaceQuotas#isKept}), with the same best-effort fallback when
+ * nothing else is left. Expiry and invalidation still remove them. Pins are taken in
+ * batches by {@link CachePrewarmer}; a key pinned again by a later batch moves to it.
+ */
+public class PinnedKeys {
+
+    private final ConcurrentHashMap<String, Pin> pins = new ConcurrentHashMap<>();
+
+    /**
+     * Pin the keys until the given time (epoch millis)
+     */
+    public Batch pin(Collection<String> keys, long until) {
+        Batch batch = new Batch(until);
+        for (String key : keys) {
+            Pin pin = new Pin(batch);
+            batch.keys.add(key);
+            pins.put(key, pin);
+        }
+        return batch;
+    }
+
+    public boolean isPinned(String key) {
+        if (pins.isEmpty()) {
+            return false;
+        }
+        Pin pin = pins.get(key);
+        return pin != null && pin.batch.until > CacheTicker.now();
+    }
+
+    /**
+     * Count a cache hit on the key, if it is pinned
+     */
+    public void recordHit(String key) {
+        if (pins.isEmpty()) {
+            return;
+        }
+        Pin pin = pins.get(key);
+        if (pin != null) {
+            pin.hit();
+        }
+    }
+
+    /**
+     * Unpin the keys of a batch that have not moved to a later one
+     */
+    public void release(Batch batch) {
+        for (String key : batch.keys) {
+            pins.computeIfPresent(key, (k, pin) -> pin.batch == batch ? null : pin);
+        }
+    }
+
+    /**
+     * Unpin every key; releasing an earlier batch afterwards is a no-op
+     */
+    public void clear() {
+        pins.clear();
+    }
+
+    public int size() {
+        return pins.size();
+    }
+
+    /**
+     * Keys pinned together, and the reads they served
+     */
+    public static final class Batch {
+        @Getter
+        private final long until;
+        private final Set<String> keys = new LinkedHashSet<>();
+        private final AtomicInteger hitKeys = new AtomicInteger();
+        private final LongAdder reads = new LongAdder();
+
+        private Batch(long until) {
+            this.until = until;
+        }
+
+        public int size() {
+            return keys.size();
+        }
+
+        /**
+         * Keys read at least once while pinned
+         */
+        public int hitKeys() {
+            return hitKeys.get();
+        }
+
+        public long reads() {
+            return reads.sum();
+        }
+    }
+
+    private static final class Pin {
+        private final Batch batch;
+        private final AtomicBoolean hit = new AtomicBoolean();
+
+        private Pin(Batch batch) {
+            this.batch = batch;
+        }
+
+        private void hit() {
+            if (!hit.get() && hit.compareAndSet(false, true)) {
+                batch.hitKeys.incrementAndGet();
+            }
+            batch.reads.increment();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.tiffin.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Striped, lossy ring buffer that records cache reads without taking a lock
+ * Readers pick a stripe by thread id and publish the key with a single CAS. When a
+ * stripe is full the read is simply dropped: the access history is a hint for the
+ * eviction policy, not a source of truth. A single drainer (holding the policy lock)
+ * replays the recorded keys in batches.
+ */
+public class ReadBuffer {
+
+    public enum OfferResult { SUCCESS, FAILED, FULL }
+
+    private static final int STRIPE_CAPACITY = 16;
+    private static final int STRIPE_MASK = STRIPE_CAPACITY - 1;
+    private static final int MAX_STRIPES =
+        Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()) * 4);
+
+    private final Stripe[] stripes;
+    private final int stripeMask;
+
+    public ReadBuffer() {
+        this.stripes = new Stripe[MAX_STRIPES];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+        this.stripeMask = stripes.length - 1;
+    }
+
+    /**
+     * Record a read of the key in the calling thread's stripe
+     */
+    public OfferResult offer(String key) {
+        return stripes[probe() & stripeMask].offer(key);
+    }
+
+    /**
+     * Replay every buffered read; must only be called by one thread at a time
+     */
+    public void drainTo(Consumer<String> consumer) {
+        for (Stripe stripe : stripes) {
+            stripe.drainTo(consumer);
+        }
+    }
+
+    private static int probe() {
+        long id = Thread.currentThread().threadId();
+        int h = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static final class Stripe {
+        private final AtomicLong readCounter = new AtomicLong();
+        private final AtomicLong writeCounter = new AtomicLong();
+        private final AtomicReferenceArray<String> buffer = new AtomicReferenceArray<>(STRIPE_CAPACITY);
+
+        OfferResult offer(String key) {
+            long head = readCounter.get();
+            long tail = writeCounter.get();
+            if (tail - head >= STRIPE_CAPACITY) {
+                return OfferResult.FULL;
+            }
+            if (writeCounter.compareAndSet(tail, tail + 1)) {
+                buffer.lazySet((int) (tail & STRIPE_MASK), key);
+                return OfferResult.SUCCESS;
+            }
+            return OfferResult.FAILED;
+        }
+
+        void drainTo(Consumer<String> consumer) {
+            long head = readCounter.get();
+            long tail = writeCounter.get();
+            for (; head != tail; head++) {
+                int index = (int) (head & STRIPE_MASK);
+                String key = buffer.get(index);
+                if (key == null) {
+                    // Slot claimed but not yet published; pick it up on the next drain
+                    break;
+                }
+                buffer.lazySet(index, null);
+                consumer.accept(key);
+            }
+            readCounter.lazySet(head);
+        }
+    }
+}
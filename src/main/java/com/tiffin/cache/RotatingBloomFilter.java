@@ -0,0 +1,186 @@
+package com.tiffin.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Time-segmented Bloom filter for a cache whose keys come and go
+ *
+ * A plain Bloom filter only ever gains bits, so under continuous churn it saturates
+ * and stops rejecting anything. Here keys are added to the current generation along
+ * with the expiration time of the entry they belong to. The current generation is
+ * sealed once it has taken its share of insertions or grown older than the rotation
+ * interval, and a sealed generation is cleared for reuse as soon as every entry added
+ * to it has expired. A live key therefore always stays in a live generation (no false
+ * negatives), while dead keys age out with their generation.
+ *
+ * Each generation is sized for a fraction of the overall false-positive rate so the
+ * union of all generations stays at the configured rate.
+ */
+public class RotatingBloomFilter {
+
+    private static final long ROTATION_RETRY_MILLIS = 1000;
+
+    private final Generation[] generations;
+    private final int insertionsPerGeneration;
+    private final long rotationIntervalMillis;
+    private final ReadWriteLock rotationLock = new ReentrantReadWriteLock();
+    private volatile int current;
+    private volatile long nextRotationAttempt;
+
+    public RotatingBloomFilter(int expectedElements, double falsePositiveRate,
+                               int generationCount, long rotationIntervalMillis) {
+        this.insertionsPerGeneration = Math.max(1, expectedElements / (generationCount - 1));
+        this.rotationIntervalMillis = rotationIntervalMillis;
+        this.generations = new Generation[generationCount];
+        for (int i = 0; i < generationCount; i++) {
+            generations[i] = new Generation(
+                new BloomFilter(insertionsPerGeneration, falsePositiveRate / generationCount));
+        }
+        generations[0].open(CacheTicker.now());
+    }
+
+    /**
+     * Add a key that will be live in the cache until {@code expiresAt}
+     */
+    public void add(String key, long expiresAt) {
+        long now = CacheTicker.now();
+        Generation generation = generations[current];
+        if ((generation.insertions.get() >= insertionsPerGeneration
+                || now - generation.openedAt >= rotationIntervalMillis) && now >= nextRotationAttempt) {
+            rotate(now);
+        }
+
+        rotationLock.readLock().lock();
+        try {
+            generation = generations[current];
+            generation.filter.add(key);
+            generation.insertions.incrementAndGet();
+            generation.maxExpiresAt.accumulateAndGet(expiresAt, Math::max);
+        } finally {
+            rotationLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Lock-free membership test across all live generations
+     */
+    public boolean mightContain(String key) {
+        int newest = current;
+        for (int i = 0; i < generations.length; i++) {
+            Generation generation = generations[(newest - i + generations.length) % generations.length];
+            if (generation.live && generation.filter.mightContain(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void clear() {
+        rotationLock.writeLock().lock();
+        try {
+            for (Generation generation : generations) {
+                generation.retire();
+            }
+            current = 0;
+            nextRotationAttempt = 0;
+            generations[0].open(CacheTicker.now());
+        } finally {
+            rotationLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Bit saturation of the generation currently taking insertions
+     */
+    public double getSaturation() {
+        return generations[current].filter.getSaturation();
+    }
+
+    /**
+     * Theoretical false-positive rate of the union of live generations
+     */
+    public double getExpectedFalsePositiveRate() {
+        double allNegative = 1.0;
+        for (Generation generation : generations) {
+            if (generation.live) {
+                allNegative *= 1.0 - generation.filter.getCurrentFalsePositiveRate();
+            }
+        }
+        return 1.0 - allNegative;
+    }
+
+    public int getLiveGenerations() {
+        int live = 0;
+        for (Generation generation : generations) {
+            if (generation.live) {
+                live++;
+            }
+        }
+        return live;
+    }
+
+    /**
+     * Retire every sealed generation whose keys have all expired, then open a fresh one
+     * If none can be retired the current generation keeps absorbing insertions: its
+     * saturation grows, but a key that is still cached is never dropped.
+     */
+    private void rotate(long now) {
+        rotationLock.writeLock().lock();
+        try {
+            Generation active = generations[current];
+            if (active.insertions.get() < insertionsPerGeneration
+                    && now - active.openedAt < rotationIntervalMillis) {
+                return; // Another thread already rotated
+            }
+
+            int next = -1;
+            for (int i = 1; i < generations.length; i++) {
+                int index = (current + i) % generations.length;
+                Generation generation = generations[index];
+                if (generation.live && generation.maxExpiresAt.get() < now) {
+                    generation.retire();
+                }
+                if (!generation.live && next < 0) {
+                    next = index;
+                }
+            }
+
+            if (next >= 0) {
+                generations[next].open(now);
+                current = next;
+                nextRotationAttempt = 0;
+            } else {
+                // Everything is still live; don't retry on every insertion
+                nextRotationAttempt = now + ROTATION_RETRY_MILLIS;
+            }
+        } finally {
+            rotationLock.writeLock().unlock();
+        }
+    }
+
+    private static final class Generation {
+        private final BloomFilter filter;
+        private final AtomicLong insertions = new AtomicLong();
+        private final AtomicLong maxExpiresAt = new AtomicLong(Long.MIN_VALUE);
+        private volatile boolean live;
+        private volatile long openedAt;
+
+        Generation(BloomFilter filter) {
+            this.filter = filter;
+        }
+
+        void open(long now) {
+            openedAt = now;
+            live = true;
+        }
+
+        void retire() {
+            live = false;
+            filter.clear();
+            insertions.set(0);
+            maxExpiresAt.set(Long.MIN_VALUE);
+        }
+    }
+}
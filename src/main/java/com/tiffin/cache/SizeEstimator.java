@@ -0,0 +1,225 @@
+package com.tiffin.cache;
+
+import org.hibernate.Hibernate;
+import org.hibernate.proxy.HibernateProxy;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.RandomAccess;
+
+/**
+ * Rough object-size arithmetic for {@link CacheWeigher}
+ *
+ * Assumes a 64-bit JVM with compressed oops (12-byte headers, 4-byte references, 8-byte
+ * alignment). Application classes are walked field by field; JDK classes cannot be
+ * opened reflectively, so strings, arrays, collections, maps and Optional are sized by
+ * formula and other JDK types (dates, BigDecimal) count their shallow size only.
+ * Lazy Hibernate proxies and collections are not initialized. The walk stops after
+ * MAX_OBJECTS objects, so an enormous graph is under- rather than over-estimated.
+ */
+final class SizeEstimator {
+
+    private static final int OBJECT_HEADER = 12;
+    private static final int ARRAY_HEADER = 16;
+    private static final int REFERENCE = 4;
+    private static final int MAX_OBJECTS = 10000;
+
+    private static final ClassValue<Layout> LAYOUTS = new ClassValue<>() {
+        @Override
+        protected Layout computeValue(Class<?> type) {
+            return Layout.of(type);
+        }
+    };
+
+    private SizeEstimator() {
+    }
+
+    static long retainedSize(Object root) {
+        if (root == null) {
+            return 0;
+        }
+        IdentityHashMap<Object, Boolean> visited = new IdentityHashMap<>();
+        ArrayDeque<Object> pending = new ArrayDeque<>();
+        pending.push(root);
+        long size = 0;
+        while (!pending.isEmpty() && visited.size() < MAX_OBJECTS) {
+            Object object = pending.pop();
+            if (visited.put(object, Boolean.TRUE) == null) {
+                size += shallowSize(object, pending);
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Length of the Java serialization of the value, or -1 if it cannot be serialized
+     */
+    static long serializedSize(Object value) {
+        if (!(value instanceof Serializable)) {
+            return -1;
+        }
+        CountingOutputStream counter = new CountingOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(counter)) {
+            out.writeObject(value);
+        } catch (IOException e) {
+            return -1;
+        }
+        return counter.count;
+    }
+
+    static int toWeight(long size) {
+        return (int) Math.max(1, Math.min(Integer.MAX_VALUE, size));
+    }
+
+    /**
+     * Size of the object itself, pushing the objects it references
+     */
+    private static long shallowSize(Object object, ArrayDeque<Object> pending) {
+        if (object instanceof String string) {
+            // Compact strings: one byte per char unless the string needs UTF-16
+            return align(OBJECT_HEADER + 12) + align(ARRAY_HEADER + string.length());
+        }
+        if (object instanceof Enum<?> || object instanceof Class<?>) {
+            return 0; // Shared constants
+        }
+        if (!Hibernate.isInitialized(object)) {
+            return align(OBJECT_HEADER + 4 * REFERENCE);
+        }
+        if (object instanceof HibernateProxy proxy) {
+            // Size the entity, not the proxy's session plumbing
+            pending.push(proxy.getHibernateLazyInitializer().getImplementation());
+            return align(OBJECT_HEADER + 2 * REFERENCE);
+        }
+
+        Class<?> type = object.getClass();
+        if (type.isArray()) {
+            int length = java.lang.reflect.Array.getLength(object);
+            if (type.getComponentType().isPrimitive()) {
+                return align(ARRAY_HEADER + (long) length * primitiveSize(type.getComponentType()));
+            }
+            for (Object element : (Object[]) object) {
+                pushIfPresent(pending, element);
+            }
+            return align(ARRAY_HEADER + (long) length * REFERENCE);
+        }
+        // Sized by formula for any implementation, which also keeps Hibernate's persistent
+        // collections from dragging their session into the estimate
+        if (object instanceof Collection<?> collection) {
+            collection.forEach(element -> pushIfPresent(pending, element));
+            // Array-backed lists carry ~50% spare capacity; linked and hashed ones a node per element
+            long perElement = object instanceof RandomAccess ? REFERENCE * 3 / 2 : 32;
+            return align(OBJECT_HEADER + 24) + align(ARRAY_HEADER + collection.size() * perElement);
+        }
+        if (object instanceof Map<?, ?> map) {
+            map.forEach((key, value) -> {
+                pushIfPresent(pending, key);
+                pushIfPresent(pending, value);
+            });
+            // A 32-byte node per entry and a table kept at most 75% full
+            return align(OBJECT_HEADER + 36) + map.size() * 32L + align(ARRAY_HEADER + map.size() * REFERENCE * 4L / 3);
+        }
+        if (object instanceof Optional<?> optional) {
+            optional.ifPresent(pending::push);
+            return align(OBJECT_HEADER + REFERENCE);
+        }
+
+        Layout layout = LAYOUTS.get(type);
+        for (Field field : layout.references) {
+            try {
+                pushIfPresent(pending, field.get(object));
+            } catch (IllegalAccessException e) {
+                // Counted in the shallow size already; the referenced graph is skipped
+            }
+        }
+        return layout.shallowSize;
+    }
+
+    private static void pushIfPresent(ArrayDeque<Object> pending, Object object) {
+        if (object != null) {
+            pending.push(object);
+        }
+    }
+
+    private static long align(long size) {
+        return (size + 7) & ~7L;
+    }
+
+    private static int primitiveSize(Class<?> type) {
+        if (type == long.class || type == double.class) {
+            return 8;
+        }
+        if (type == int.class || type == float.class) {
+            return 4;
+        }
+        if (type == short.class || type == char.class) {
+            return 2;
+        }
+        return 1;
+    }
+
+    /**
+     * Shallow size of a class and the reference fields that can be followed
+     */
+    private static final class Layout {
+        private final long shallowSize;
+        private final Field[] references;
+
+        private Layout(long shallowSize, Field[] references) {
+            this.shallowSize = shallowSize;
+            this.references = references;
+        }
+
+        static Layout of(Class<?> type) {
+            long size = OBJECT_HEADER;
+            List<Field> references = new ArrayList<>();
+            boolean followable = !isJdk(type);
+            for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    if (Modifier.isStatic(field.getModifiers())) {
+                        continue;
+                    }
+                    if (field.getType().isPrimitive()) {
+                        size += primitiveSize(field.getType());
+                    } else {
+                        size += REFERENCE;
+                        if (followable && field.trySetAccessible()) {
+                            references.add(field);
+                        }
+                    }
+                }
+            }
+            return new Layout(align(size), references.toArray(new Field[0]));
+        }
+
+        static boolean isJdk(Class<?> type) {
+            String name = type.getName();
+            return name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("jdk.")
+                || name.startsWith("sun.") || name.startsWith("com.sun.");
+        }
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
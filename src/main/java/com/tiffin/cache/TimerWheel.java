@@ -0,0 +1,244 @@
+package com.tiffin.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hierarchical timing wheel that drives per-entry expiration
+ *
+ * Each level is a ring of buckets covering a power-of-two time span; a timer lands in
+ * the finest level whose horizon covers its remaining lifetime. Advancing the wheel only
+ * visits the buckets whose tick has passed: due timers are returned to the caller and
+ * the rest cascade down to a finer level. Scheduling, descheduling and expiring are all
+ * O(1) amortized, so expiry never needs a scan of the whole cache.
+ *
+ * Level spans (milliseconds): 1.02s x 64, 65.5s x 64, 69.9m x 32, 18.6h x 4, then
+ * a single overflow bucket for anything longer.
+ */
+public class TimerWheel {
+
+    private static final int[] BUCKETS = {64, 64, 32, 4, 1};
+    private static final long[] SPANS = {
+        1L << 10,   // 1.02 seconds
+        1L << 16,   // 1.09 minutes
+        1L << 22,   // 1.17 hours
+        1L << 26,   // 18.6 hours
+        1L << 28,   // 3.1 days
+        1L << 28
+    };
+    private static final int[] SHIFT = new int[BUCKETS.length];
+
+    static {
+        for (int i = 0; i < SHIFT.length; i++) {
+            SHIFT[i] = Long.numberOfTrailingZeros(SPANS[i]);
+        }
+    }
+
+    /**
+     * A scheduled expiration for one cache entry in one cache level
+     */
+    public static final class Timer {
+        private final String key;
+        private final CacheEntry entry;
+        private final Object owner;
+        private Timer prev;
+        private Timer next;
+
+        private Timer(String key, CacheEntry entry, Object owner) {
+            this.key = key;
+            this.entry = entry;
+            this.owner = owner;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public CacheEntry getEntry() {
+            return entry;
+        }
+
+        public Object getOwner() {
+            return owner;
+        }
+
+        /**
+         * Read from the entry rather than copied, one long less per cached entry
+         */
+        public long getExpiresAt() {
+            return entry.getExpirationTime();
+        }
+    }
+
+    private final Timer[][] wheel;
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile long currentTime;
+
+    public TimerWheel(long now) {
+        this.currentTime = now;
+        this.wheel = new Timer[BUCKETS.length][];
+        for (int i = 0; i < BUCKETS.length; i++) {
+            wheel[i] = new Timer[BUCKETS[i]];
+            for (int j = 0; j < BUCKETS[i]; j++) {
+                wheel[i][j] = sentinel();
+            }
+        }
+    }
+
+    /**
+     * Schedule the entry to expire at its expiration time
+     * The owner tells the caller which structure to remove it from when it fires.
+     */
+    public Timer schedule(String key, CacheEntry entry, Object owner) {
+        Timer timer = new Timer(key, entry, owner);
+        lock.lock();
+        try {
+            link(findBucket(entry.getExpirationTime()), timer);
+        } finally {
+            lock.unlock();
+        }
+        return timer;
+    }
+
+    /**
+     * Cancel a timer; a no-op if it already fired or was cancelled
+     */
+    public void deschedule(Timer timer) {
+        if (timer == null) {
+            return;
+        }
+        lock.lock();
+        try {
+            unlink(timer);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Advance to {@code now} and return the timers that are due
+     */
+    public List<Timer> advance(long now) {
+        lock.lock();
+        try {
+            return expire(now);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Cheap variant for the read path: does nothing unless a tick has passed and the
+     * wheel is not already being advanced by another thread
+     */
+    public List<Timer> tryAdvance(long now) {
+        if ((now >>> SHIFT[0]) == (currentTime >>> SHIFT[0]) || !lock.tryLock()) {
+            return Collections.emptyList();
+        }
+        try {
+            return expire(now);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void clear() {
+        lock.lock();
+        try {
+            for (Timer[] level : wheel) {
+                for (int i = 0; i < level.length; i++) {
+                    level[i] = sentinel();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private List<Timer> expire(long now) {
+        long previousTime = currentTime;
+        if (now <= previousTime) {
+            return Collections.emptyList();
+        }
+        currentTime = now;
+
+        List<Timer> expired = new ArrayList<>();
+        for (int level = 0; level < SHIFT.length; level++) {
+            long previousTicks = previousTime >>> SHIFT[level];
+            long delta = (now >>> SHIFT[level]) - previousTicks;
+            if (delta <= 0) {
+                break;
+            }
+            expireLevel(level, previousTicks, delta, now, expired);
+        }
+        return expired;
+    }
+
+    /**
+     * Empty every bucket the clock moved across at this level, collecting due timers
+     * and re-scheduling the others into a finer level
+     */
+    private void expireLevel(int level, long previousTicks, long delta, long now, List<Timer> expired) {
+        Timer[] buckets = wheel[level];
+        int mask = buckets.length - 1;
+        int steps = (int) Math.min(1 + delta, buckets.length);
+        int start = (int) (previousTicks & mask);
+
+        for (int i = start; i < start + steps; i++) {
+            Timer sentinel = buckets[i & mask];
+            Timer timer = sentinel.next;
+            sentinel.prev = sentinel;
+            sentinel.next = sentinel;
+
+            while (timer != sentinel) {
+                Timer next = timer.next;
+                timer.prev = null;
+                timer.next = null;
+
+                long expiresAt = timer.getExpiresAt();
+                if (expiresAt <= now) {
+                    expired.add(timer);
+                } else {
+                    link(findBucket(expiresAt), timer);
+                }
+                timer = next;
+            }
+        }
+    }
+
+    private Timer findBucket(long time) {
+        long duration = time - currentTime;
+        for (int level = 0; level < BUCKETS.length - 1; level++) {
+            if (duration < SPANS[level + 1]) {
+                int index = (int) ((time >>> SHIFT[level]) & (BUCKETS[level] - 1));
+                return wheel[level][index];
+            }
+        }
+        return wheel[BUCKETS.length - 1][0];
+    }
+
+    private static void link(Timer sentinel, Timer timer) {
+        timer.prev = sentinel.prev;
+        timer.next = sentinel;
+        sentinel.prev.next = timer;
+        sentinel.prev = timer;
+    }
+
+    private static void unlink(Timer timer) {
+        if (timer.next != null) {
+            timer.prev.next = timer.next;
+            timer.next.prev = timer.prev;
+            timer.prev = null;
+            timer.next = null;
+        }
+    }
+
+    private static Timer sentinel() {
+        Timer sentinel = new Timer(null, null, null);
+        sentinel.prev = sentinel;
+        sentinel.next = sentinel;
+        return sentinel;
+    }
+}
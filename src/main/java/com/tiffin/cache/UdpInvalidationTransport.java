@@ -0,0 +1,132 @@
+package com.tiffin.cache;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MulticastSocket;
+import java.net.NetworkInterface;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * UDP transport, either multicast to a group or unicast to a fixed list of loopback ports
+ *
+ * Multicast suits a LAN cluster: every node joins the group and sends one datagram per
+ * batch. Loopback suits several instances on one machine (local runs, docker compose
+ * with host networking): each node binds its own port and sends to the others'.
+ * Messages are kept below a typical MTU so multicast datagrams are not fragmented.
+ */
+@Slf4j
+public class UdpInvalidationTransport implements InvalidationTransport {
+
+    private static final int MULTICAST_MESSAGE_SIZE = 1400;
+    private static final int LOOPBACK_MESSAGE_SIZE = 65000;
+
+    private final DatagramSocket socket;
+    private final List<SocketAddress> destinations;
+    private final int maxMessageSize;
+    private volatile boolean running;
+    private Thread receiverThread;
+
+    private UdpInvalidationTransport(DatagramSocket socket, List<SocketAddress> destinations, int maxMessageSize) {
+        this.socket = socket;
+        this.destinations = destinations;
+        this.maxMessageSize = maxMessageSize;
+    }
+
+    /**
+     * Join a multicast group; {@code networkInterface} may be null for the system default
+     */
+    public static UdpInvalidationTransport multicast(String group, int port, String networkInterface) {
+        try {
+            InetAddress groupAddress = InetAddress.getByName(group);
+            NetworkInterface nif = networkInterface != null ? NetworkInterface.getByName(networkInterface) : null;
+            MulticastSocket socket = new MulticastSocket(port);
+            socket.setOption(StandardSocketOptions.IP_MULTICAST_LOOP, true); // Nodes may share a host
+            if (nif != null) {
+                socket.setNetworkInterface(nif);
+            }
+            socket.joinGroup(new InetSocketAddress(groupAddress, port), nif);
+            return new UdpInvalidationTransport(socket, List.of(new InetSocketAddress(groupAddress, port)),
+                MULTICAST_MESSAGE_SIZE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not join cache invalidation group " + group + ":" + port, e);
+        }
+    }
+
+    /**
+     * Bind {@code port} on 127.0.0.1 and send to the other ports in {@code peerPorts}
+     */
+    public static UdpInvalidationTransport loopback(int port, int... peerPorts) {
+        try {
+            InetAddress loopback = InetAddress.getLoopbackAddress();
+            DatagramSocket socket = new DatagramSocket(new InetSocketAddress(loopback, port));
+            List<SocketAddress> peers = new ArrayList<>();
+            for (int peer : peerPorts) {
+                if (peer != port) {
+                    peers.add(new InetSocketAddress(loopback, peer));
+                }
+            }
+            return new UdpInvalidationTransport(socket, peers, LOOPBACK_MESSAGE_SIZE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not bind cache invalidation port " + port, e);
+        }
+    }
+
+    @Override
+    public void start(Consumer<byte[]> receiver) {
+        running = true;
+        receiverThread = Thread.ofVirtual().name("cache-invalidation-receiver").start(() -> {
+            byte[] buffer = new byte[LOOPBACK_MESSAGE_SIZE];
+            while (running) {
+                DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+                try {
+                    socket.receive(packet);
+                    receiver.accept(Arrays.copyOfRange(packet.getData(), packet.getOffset(),
+                        packet.getOffset() + packet.getLength()));
+                } catch (IOException e) {
+                    if (running) {
+                        log.warn("Receiving a cache invalidation failed", e);
+                    }
+                } catch (RuntimeException e) {
+                    log.warn("Applying a cache invalidation failed", e);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void send(byte[] message) {
+        for (SocketAddress destination : destinations) {
+            try {
+                socket.send(new DatagramPacket(message, message.length, destination));
+            } catch (IOException e) {
+                // Best effort: the receiver counts the gap, and TTLs bound the staleness
+                log.warn("Sending a cache invalidation to {} failed", destination, e);
+            }
+        }
+    }
+
+    @Override
+    public int maxMessageSize() {
+        return maxMessageSize;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        socket.close(); // Unblocks receive()
+        if (receiverThread != null) {
+            receiverThread.interrupt();
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.tiffin.cache;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * A cached value with the version it was written at, see {@link AdvancedCacheManager#putIfVersion}
+ *
+ * Stored as the value itself, so the version moves with it between levels and survives
+ * serialization into L3 and snapshots. Plain reads of the key return the bare value.
+ */
+@Getter
+@EqualsAndHashCode
+@RequiredArgsConstructor
+public final class Versioned<T> implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    // Expected version of a key that is absent, or holds a value written by a plain put
+    public static final long NO_VERSION = 0;
+
+    private final T value;
+    private final long version;
+}
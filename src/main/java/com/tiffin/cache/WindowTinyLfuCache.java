@@ -0,0 +1,599 @@
+package com.tiffin.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+
+/**
+ * Window TinyLFU cache used as the hot (L1) level of the multi-level cache
+ *
+ * Reads never block: entries live in a ConcurrentHashMap and a hit is only recorded
+ * in a striped {@link ReadBuffer}, which is replayed against the policy in batches.
+ * Writes and buffer drains run under a single eviction lock.
+ *
+ * The policy is a segmented LRU with an admission filter:
+ * - window (1%): new entries, plain LRU
+ * - probation: entries that left the window or were demoted from protected
+ * - protected (80% of main): entries read again while on probation
+ * An entry leaving the window only enters the main space if its {@link FrequencySketch}
+ * estimate beats the probation victim's, so a scan of one-hit keys cannot flush hot ones.
+ *
+ * The bound is a total weight (see {@link CacheEntry#getWeight()}), and the segment
+ * shares above are shares of that weight. A heavy candidate has to beat every victim it
+ * would displace, and an entry heavier than the main space is never admitted.
+ *
+ * {@link NamespaceQuotas} apply on top: victims of a namespace within its reservation are
+ * requeued behind the others instead of evicted, and a namespace over its cap evicts its
+ * own oldest entries. Every eviction is charged to the namespace whose write forced it.
+ */
+public class WindowTinyLfuCache {
+
+    private static final double WINDOW_PERCENTAGE = 0.01;
+    private static final double PROTECTED_PERCENTAGE = 0.80;
+    private static final int MAX_RESERVED_SKIPS = 64; // per victim search, before giving up on reservations
+
+    private final ConcurrentHashMap<String, CacheEntry> data;
+    private final ReadBuffer readBuffer = new ReadBuffer();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final FrequencySketch sketch;
+    private final EvictionListener evictionListener;
+    private final NamespaceQuotas quotas;
+
+    // Policy state, guarded by evictionLock
+    private final LinkedHashSet<String> window = new LinkedHashSet<>();
+    private final LinkedHashSet<String> probation = new LinkedHashSet<>();
+    private final LinkedHashSet<String> protectedSegment = new LinkedHashSet<>();
+    private final long maximumWeight;
+    private final long maxWindow;
+    private final long maxMain;
+    private final long maxProtected;
+    private long windowWeight;
+    private long probationWeight;
+    private long protectedWeight;
+
+    /**
+     * @param expectedEntries sizes the frequency sketch; the cache may hold more or fewer
+     */
+    public WindowTinyLfuCache(long maximumWeight, int expectedEntries, EvictionListener evictionListener,
+                              NamespaceQuotas quotas) {
+        this.maximumWeight = maximumWeight;
+        this.maxWindow = Math.max(1, (long) (maximumWeight * WINDOW_PERCENTAGE));
+        this.maxMain = Math.max(1, maximumWeight - maxWindow);
+        this.maxProtected = (long) (maxMain * PROTECTED_PERCENTAGE);
+        this.data = new ConcurrentHashMap<>(expectedEntries);
+        this.sketch = new FrequencySketch(expectedEntries);
+        this.evictionListener = evictionListener;
+        this.quotas = quotas;
+    }
+
+    /**
+     * Lock-free lookup; expired entries are treated as absent
+     */
+    public CacheEntry get(String key) {
+        CacheEntry entry = data.get(key);
+        if (entry == null || entry.isExpired()) {
+            return null;
+        }
+        afterRead(key);
+        return entry;
+    }
+
+    /**
+     * Like {@link #get} but not counted as a read by the policy
+     */
+    public CacheEntry peek(String key) {
+        CacheEntry entry = data.get(key);
+        return entry == null || entry.isExpired() ? null : entry;
+    }
+
+    /**
+     * Count a read of a key this cache does not hold, so the sketch sees the traffic of every level
+     */
+    public void recordAccess(String key) {
+        afterRead(key);
+    }
+
+    /**
+     * Estimated recent popularity of the key (0-15), read without the lock so approximate
+     */
+    public int frequency(String key) {
+        return sketch.frequency(key);
+    }
+
+    /**
+     * Insert or replace an entry, evicting by the TinyLFU policy if the cache is full
+     * Returns the replaced entry, if any
+     */
+    public CacheEntry put(String key, CacheEntry entry) {
+        List<Eviction> evicted = new ArrayList<>(2);
+        NamespaceQuotas.Usage usage = quotas.usage(key);
+        CacheEntry previous;
+        evictionLock.lock();
+        try {
+            drainReadBuffer();
+            previous = insert(key, entry, usage);
+            enforceCap(usage, evicted);
+            evictEntries(usage, evicted);
+        } finally {
+            evictionLock.unlock();
+        }
+        notifyEvicted(evicted);
+        return previous;
+    }
+
+    /**
+     * Insert or replace several entries under one lock acquisition
+     * Returns the replaced entries by key
+     */
+    public Map<String, CacheEntry> putAll(Map<String, CacheEntry> entries) {
+        List<Eviction> evicted = new ArrayList<>();
+        Map<String, CacheEntry> replaced = new HashMap<>();
+        evictionLock.lock();
+        try {
+            drainReadBuffer();
+            for (Map.Entry<String, CacheEntry> e : entries.entrySet()) {
+                NamespaceQuotas.Usage usage = quotas.usage(e.getKey());
+                CacheEntry previous = insert(e.getKey(), e.getValue(), usage);
+                if (previous != null) {
+                    replaced.put(e.getKey(), previous);
+                }
+                enforceCap(usage, evicted);
+                evictEntries(usage, evicted);
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+        notifyEvicted(evicted);
+        return replaced;
+    }
+
+    /**
+     * Insert the entry unless the key is already cached, in which case the cached entry is returned
+     */
+    public CacheEntry putIfAbsent(String key, CacheEntry entry) {
+        List<Eviction> evicted = new ArrayList<>(2);
+        NamespaceQuotas.Usage usage = quotas.usage(key);
+        evictionLock.lock();
+        try {
+            CacheEntry current = data.get(key);
+            if (current != null) {
+                return current;
+            }
+            drainReadBuffer();
+            insert(key, entry, usage);
+            enforceCap(usage, evicted);
+            evictEntries(usage, evicted);
+        } finally {
+            evictionLock.unlock();
+        }
+        notifyEvicted(evicted);
+        return null;
+    }
+
+    /**
+     * Batched {@link #putIfAbsent} under one lock acquisition; returns the keys that were already cached
+     */
+    public Set<String> putAllIfAbsent(Map<String, CacheEntry> entries) {
+        List<Eviction> evicted = new ArrayList<>();
+        Set<String> present = new HashSet<>();
+        evictionLock.lock();
+        try {
+            drainReadBuffer();
+            for (Map.Entry<String, CacheEntry> e : entries.entrySet()) {
+                if (data.containsKey(e.getKey())) {
+                    present.add(e.getKey());
+                    continue;
+                }
+                NamespaceQuotas.Usage usage = quotas.usage(e.getKey());
+                insert(e.getKey(), e.getValue(), usage);
+                enforceCap(usage, evicted);
+                evictEntries(usage, evicted);
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+        notifyEvicted(evicted);
+        return present;
+    }
+
+    public CacheEntry remove(String key) {
+        evictionLock.lock();
+        try {
+            CacheEntry removed = data.remove(key);
+            if (removed != null) {
+                unlink(key, removed);
+            }
+            return removed;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Remove the key only if it still maps to the given entry
+     */
+    public boolean remove(String key, CacheEntry entry) {
+        evictionLock.lock();
+        try {
+            if (data.remove(key, entry)) {
+                unlink(key, entry);
+                return true;
+            }
+            return false;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Remove several keys under one lock acquisition; returns the removed entries
+     */
+    public List<CacheEntry> removeAll(Collection<String> keys) {
+        List<CacheEntry> removed = new ArrayList<>();
+        evictionLock.lock();
+        try {
+            for (String key : keys) {
+                CacheEntry entry = data.remove(key);
+                if (entry != null) {
+                    unlink(key, entry);
+                    removed.add(entry);
+                }
+            }
+            return removed;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    public void clear() {
+        evictionLock.lock();
+        try {
+            readBuffer.drainTo(key -> { });
+            data.clear();
+            window.clear();
+            probation.clear();
+            protectedSegment.clear();
+            windowWeight = 0;
+            probationWeight = 0;
+            protectedWeight = 0;
+            quotas.clear(CacheLevel.L1);
+            sketch.clear();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    public boolean containsKey(String key) {
+        return data.containsKey(key);
+    }
+
+    public int size() {
+        return data.size();
+    }
+
+    /**
+     * Weakly consistent view of the cached keys
+     */
+    public Set<String> keySet() {
+        return data.keySet();
+    }
+
+    /**
+     * Weakly consistent iteration that does not count as reads
+     */
+    public void forEach(BiConsumer<String, CacheEntry> action) {
+        data.forEach(action);
+    }
+
+    /**
+     * Total weight of the cached entries
+     */
+    public long weightedSize() {
+        evictionLock.lock();
+        try {
+            return windowWeight + probationWeight + protectedWeight;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    public long maximumWeight() {
+        return maximumWeight;
+    }
+
+    /**
+     * Whether an entry of this weight could ever be admitted
+     */
+    public boolean canHold(long weight) {
+        return weight <= maxMain;
+    }
+
+    /**
+     * Add or replace the entry in the policy, returning the replaced one; the caller evicts
+     */
+    private CacheEntry insert(String key, CacheEntry entry, NamespaceQuotas.Usage usage) {
+        sketch.increment(key);
+        CacheEntry previous = data.put(key, entry);
+        if (previous == null) {
+            window.add(key);
+            windowWeight += entry.getWeight();
+            usage.added(CacheLevel.L1, key, entry.getWeight());
+        } else {
+            long delta = entry.getWeight() - previous.getWeight();
+            addWeight(key, delta);
+            usage.resized(CacheLevel.L1, delta);
+            onAccess(key);
+        }
+        return previous;
+    }
+
+    private void afterRead(String key) {
+        if (readBuffer.offer(key) == ReadBuffer.OfferResult.FULL) {
+            tryDrain();
+        }
+    }
+
+    private void tryDrain() {
+        if (evictionLock.tryLock()) {
+            try {
+                drainReadBuffer();
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    private void drainReadBuffer() {
+        readBuffer.drainTo(key -> {
+            sketch.increment(key);
+            onAccess(key);
+        });
+    }
+
+    /**
+     * Reorder the policy for a key that was read or overwritten
+     */
+    private void onAccess(String key) {
+        if (window.remove(key)) {
+            window.add(key);
+        } else if (probation.remove(key)) {
+            long weight = data.get(key).getWeight();
+            probationWeight -= weight;
+            protectedSegment.add(key);
+            protectedWeight += weight;
+            while (protectedWeight > maxProtected && protectedSegment.size() > 1) {
+                // Demote the protected LRU back to probation
+                String demoted = pollFirst(protectedSegment);
+                long demotedWeight = data.get(demoted).getWeight();
+                protectedWeight -= demotedWeight;
+                probation.add(demoted);
+                probationWeight += demotedWeight;
+            }
+        } else if (protectedSegment.remove(key)) {
+            protectedSegment.add(key);
+        }
+    }
+
+    /**
+     * Move window overflow into the main space, letting the sketch decide between
+     * the window candidate and the probation victim when the main space is full
+     */
+    private void evictEntries(NamespaceQuotas.Usage writer, List<Eviction> evicted) {
+        while (windowWeight > maxWindow) {
+            String candidate = pollFirst(window);
+            long weight = data.get(candidate).getWeight();
+            windowWeight -= weight;
+            NamespaceQuotas.Usage candidateUsage = quotas.usage(candidate);
+            if (admit(candidate, weight, candidateUsage, evicted)) {
+                probation.add(candidate);
+                probationWeight += weight;
+            } else {
+                evict(candidate, candidateUsage, evicted);
+            }
+        }
+        // An overwrite may have grown an entry already in the main space
+        while (probationWeight + protectedWeight > maxMain && !(probation.isEmpty() && protectedSegment.isEmpty())) {
+            evictVictim(writer, evicted);
+        }
+    }
+
+    /**
+     * Evict the namespace's oldest entries while it is over its cap
+     */
+    private void enforceCap(NamespaceQuotas.Usage usage, List<Eviction> evicted) {
+        while (usage.isOverCap(CacheLevel.L1)) {
+            String oldest = usage.oldest(CacheLevel.L1);
+            if (oldest == null) {
+                return;
+            }
+            long token = evictionListener.beforeEviction(oldest);
+            CacheEntry entry = data.remove(oldest);
+            unlink(oldest, entry);
+            evicted.add(new Eviction(oldest, entry, token));
+            usage.evictionCaused(CacheLevel.L1);
+        }
+    }
+
+    /**
+     * Make room in the main space for the candidate if it is more popular than each
+     * victim it displaces; victims are only evicted once the candidate is sure to fit
+     */
+    private boolean admit(String candidate, long weight, NamespaceQuotas.Usage candidateUsage,
+                          List<Eviction> evicted) {
+        if (weight > maxMain) {
+            return false;
+        }
+        long excess = probationWeight + protectedWeight + weight - maxMain;
+        if (excess <= 0) {
+            return true;
+        }
+        unreservedHead(probation, candidateUsage);
+        unreservedHead(protectedSegment, candidateUsage);
+        int candidateFrequency = sketch.frequency(candidate);
+        List<String> victims = new ArrayList<>(2);
+        int skipped = 0;
+        for (String victim : concat(probation, protectedSegment)) {
+            if (quotas.isKept(CacheLevel.L1, victim, candidateUsage)) {
+                if (++skipped > MAX_RESERVED_SKIPS) {
+                    return false;
+                }
+                continue;
+            }
+            if (candidateFrequency <= sketch.frequency(victim)) {
+                return false;
+            }
+            victims.add(victim);
+            excess -= data.get(victim).getWeight();
+            if (excess <= 0) {
+                break;
+            }
+        }
+        if (excess > 0) {
+            return false; // Only reserved entries left to displace
+        }
+        for (String victim : victims) {
+            evictFromMain(victim, candidateUsage, evicted);
+        }
+        return true;
+    }
+
+    private void evictVictim(NamespaceQuotas.Usage writer, List<Eviction> evicted) {
+        String victim = unreservedHead(probation, writer);
+        if (victim == null) {
+            victim = unreservedHead(protectedSegment, writer);
+        }
+        if (victim == null) {
+            // Everything left is reserved
+            victim = (!probation.isEmpty() ? probation : protectedSegment).iterator().next();
+        }
+        evictFromMain(victim, writer, evicted);
+    }
+
+    /**
+     * Requeue the segment's leading entries that are reserved against the namespace or pinned, so
+     * later searches do not scan them again, and return the first one that is not, if any
+     */
+    private String unreservedHead(LinkedHashSet<String> segment, NamespaceQuotas.Usage namespace) {
+        for (int i = Math.min(segment.size(), MAX_RESERVED_SKIPS); i > 0; i--) {
+            String head = segment.iterator().next();
+            if (!quotas.isKept(CacheLevel.L1, head, namespace)) {
+                return head;
+            }
+            segment.remove(head);
+            segment.add(head);
+        }
+        return null;
+    }
+
+    private void evictFromMain(String key, NamespaceQuotas.Usage cause, List<Eviction> evicted) {
+        long weight = data.get(key).getWeight();
+        if (probation.remove(key)) {
+            probationWeight -= weight;
+        } else if (protectedSegment.remove(key)) {
+            protectedWeight -= weight;
+        }
+        evict(key, cause, evicted);
+    }
+
+    /**
+     * Drop an entry already taken out of its segment, charging the eviction to {@code cause}
+     */
+    private void evict(String key, NamespaceQuotas.Usage cause, List<Eviction> evicted) {
+        long token = evictionListener.beforeEviction(key);
+        CacheEntry entry = data.remove(key);
+        if (entry != null) {
+            quotas.usage(key).removed(CacheLevel.L1, key, entry.getWeight());
+            cause.evictionCaused(CacheLevel.L1);
+            evicted.add(new Eviction(key, entry, token));
+        }
+    }
+
+    private void unlink(String key, CacheEntry entry) {
+        if (window.remove(key)) {
+            windowWeight -= entry.getWeight();
+        } else if (probation.remove(key)) {
+            probationWeight -= entry.getWeight();
+        } else if (protectedSegment.remove(key)) {
+            protectedWeight -= entry.getWeight();
+        }
+        quotas.usage(key).removed(CacheLevel.L1, key, entry.getWeight());
+    }
+
+    /**
+     * Account for an entry whose weight changed by {@code delta} when it was overwritten
+     */
+    private void addWeight(String key, long delta) {
+        if (window.contains(key)) {
+            windowWeight += delta;
+        } else if (probation.contains(key)) {
+            probationWeight += delta;
+        } else {
+            protectedWeight += delta;
+        }
+    }
+
+    private static Iterable<String> concat(Set<String> first, Set<String> second) {
+        return () -> new Iterator<>() {
+            private Iterator<String> current = first.iterator();
+            private boolean onSecond;
+
+            @Override
+            public boolean hasNext() {
+                if (!current.hasNext() && !onSecond) {
+                    current = second.iterator();
+                    onSecond = true;
+                }
+                return current.hasNext();
+            }
+
+            @Override
+            public String next() {
+                hasNext();
+                return current.next();
+            }
+        };
+    }
+
+    private void notifyEvicted(List<Eviction> evicted) {
+        for (Eviction eviction : evicted) {
+            evictionListener.onEviction(eviction.key(), eviction.entry(), eviction.token());
+        }
+    }
+
+    private static String pollFirst(LinkedHashSet<String> segment) {
+        Iterator<String> it = segment.iterator();
+        String first = it.next();
+        it.remove();
+        return first;
+    }
+
+    /**
+     * Told about every entry the policy rejects or evicts
+     */
+    public interface EvictionListener {
+
+        /**
+         * Called under the eviction lock just before the entry leaves the cache; the result is
+         * handed to {@link #onEviction}, so the listener can tell what happened in between
+         */
+        default long beforeEviction(String key) {
+            return 0;
+        }
+
+        /**
+         * Called once the eviction lock is released
+         */
+        void onEviction(String key, CacheEntry entry, long token);
+    }
+
+    private record Eviction(String key, CacheEntry entry, long token) { }
+}
@@ -0,0 +1,156 @@
+package com.tiffin.config;
+
+import com.tiffin.cache.AdvancedCacheManager;
+import com.tiffin.cache.CacheInvalidationBus;
+import com.tiffin.cache.CachePrewarm;
+import com.tiffin.cache.EntityChangeInvalidator;
+import com.tiffin.cache.EntityInvalidation;
+import com.tiffin.cache.InJvmInvalidationTransport;
+import com.tiffin.cache.InvalidationTransport;
+import com.tiffin.cache.MultiLevelCacheManager;
+import com.tiffin.cache.MultiLevelCacheProperties;
+import com.tiffin.cache.MultiLevelRegionFactory;
+import com.tiffin.cache.UdpInvalidationTransport;
+import com.tiffin.menu.model.Dish;
+import com.tiffin.menu.repository.DishRepository;
+import com.tiffin.subscription.model.Plan;
+import com.tiffin.subscription.model.Subscription;
+import com.tiffin.subscription.repository.SubscriptionRepository;
+import com.tiffin.user.model.Address;
+import com.tiffin.user.model.User;
+import com.tiffin.user.repository.UserLookupsImpl;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Cache configuration: @Cacheable and friends, and the Hibernate second-level cache
+ * (when enabled), are served by the multi-level cache.
+ * Entity changes invalidate the cached entries they make stale once their transaction completes.
+ * The menu and active subscriptions are loaded and pinned ahead of each meal peak.
+ * Scheduling is enabled for the cache's expiry backstop and the other maintenance jobs.
+ */
+@Configuration
+@EnableCaching
+@EnableScheduling
+@EnableConfigurationProperties(MultiLevelCacheProperties.class)
+public class CacheConfig {
+
+    @Bean
+    public CacheManager cacheManager(AdvancedCacheManager advancedCacheManager, MultiLevelCacheProperties properties) {
+        return new MultiLevelCacheManager(advancedCacheManager, properties);
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(AdvancedCacheManager advancedCacheManager,
+                                                                     MultiLevelCacheProperties properties) {
+        return hibernateProperties -> hibernateProperties.put(AvailableSettings.CACHE_REGION_FACTORY,
+                new MultiLevelRegionFactory(advancedCacheManager, properties));
+    }
+
+    /**
+     * Keys follow the cache names: "dish" and "dishes" in DishRepository, "userDetails" by
+     * email or phone in CustomUserDetailsService, the absent markers of UserLookupsImpl and
+     * "subscriptions" in SubscriptionRepository.
+     * Nothing caches plans and addresses yet; their keys are reserved for "plan"/"plans"
+     * and "address"/"addresses" caches.
+     */
+    @Bean
+    public EntityChangeInvalidator entityChangeInvalidator(AdvancedCacheManager advancedCacheManager,
+                                                           EntityManagerFactory entityManagerFactory) {
+        EntityChangeInvalidator invalidator = new EntityChangeInvalidator(advancedCacheManager, List.of(
+                EntityInvalidation.of(Dish.class)
+                        .byId("dish:")
+                        .namespace("dishes:"),
+                EntityInvalidation.of(User.class)
+                        .byProperty("email", "userDetails:", UserLookupsImpl.EMAIL_KEY_PREFIX)
+                        .byProperty("phoneNumber", "userDetails:", UserLookupsImpl.PHONE_KEY_PREFIX),
+                EntityInvalidation.of(Subscription.class)
+                        .namespace("subscriptions:"),
+                EntityInvalidation.of(Plan.class)
+                        .byId("plan:")
+                        .namespace("plans:"),
+                EntityInvalidation.of(Address.class)
+                        .byId("address:")
+                        .namespace("addresses:")));
+        invalidator.register(entityManagerFactory);
+        return invalidator;
+    }
+
+    /**
+     * The meal's menu before its peak, or every available dish for a peak outside the meal windows
+     */
+    @Bean
+    public CachePrewarm menuPrewarm(DishRepository dishRepository, AdvancedCacheManager advancedCacheManager) {
+        return CachePrewarm.of("dishes", meal -> mealOf(Dish.Category.class, meal)
+                .map(category -> {
+                    dishRepository.findByCategoryAndIsAvailableTrue(category);
+                    dishRepository.findByCategory(category);
+                    return List.of(advancedCacheManager.namespacedKey("dishes:", "available:" + category),
+                            advancedCacheManager.namespacedKey("dishes:", "category:" + category));
+                })
+                .orElseGet(() -> {
+                    dishRepository.findByIsAvailableTrue();
+                    return List.of(advancedCacheManager.namespacedKey("dishes:", "available"));
+                }));
+    }
+
+    /**
+     * The active subscriptions delivering the meal, for the lunch and dinner peaks; nothing
+     * while the subscription repositories are not enabled (see TiffinApiApplication)
+     */
+    @Bean
+    public CachePrewarm activeSubscriptionPrewarm(ObjectProvider<SubscriptionRepository> subscriptionRepository,
+                                                  AdvancedCacheManager advancedCacheManager) {
+        return CachePrewarm.of("subscriptions", meal -> mealOf(Subscription.MealTime.class, meal)
+                .filter(mealTime -> mealTime != Subscription.MealTime.BOTH)
+                .filter(mealTime -> subscriptionRepository.getIfAvailable() != null)
+                .map(mealTime -> {
+                    subscriptionRepository.getObject().findActiveByMealTime(mealTime);
+                    return List.of(advancedCacheManager.namespacedKey("subscriptions:", "active:" + mealTime));
+                })
+                .orElse(List.of()));
+    }
+
+    private static <E extends Enum<E>> Optional<E> mealOf(Class<E> type, String meal) {
+        return Arrays.stream(type.getEnumConstants())
+                .filter(constant -> constant.name().equalsIgnoreCase(meal))
+                .findFirst();
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "app.cache.invalidation", name = "enabled", havingValue = "true")
+    public CacheInvalidationBus cacheInvalidationBus(AdvancedCacheManager advancedCacheManager,
+                                                     MultiLevelCacheProperties properties,
+                                                     MeterRegistry meterRegistry) {
+        MultiLevelCacheProperties.Invalidation invalidation = properties.getInvalidation();
+        if (!StringUtils.hasText(invalidation.getSecret())) {
+            throw new IllegalStateException(
+                "app.cache.invalidation.secret (CACHE_INVALIDATION_SECRET) must be set when invalidation is enabled");
+        }
+        InvalidationTransport transport = switch (invalidation.getTransport()) {
+            case IN_JVM -> new InJvmInvalidationTransport(invalidation.getGroup());
+            case MULTICAST -> UdpInvalidationTransport.multicast(invalidation.getGroup(), invalidation.getPort(),
+                    invalidation.getNetworkInterface());
+            case LOOPBACK -> UdpInvalidationTransport.loopback(invalidation.getPort(),
+                    invalidation.getPeerPorts().stream().mapToInt(Integer::intValue).toArray());
+        };
+        return new CacheInvalidationBus(advancedCacheManager, transport, meterRegistry, invalidation.getBatchWindow(),
+                invalidation.getSecret().getBytes(StandardCharsets.UTF_8));
+    }
+}
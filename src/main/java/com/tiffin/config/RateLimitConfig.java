@@ -1,26 +1,13 @@
 package com.tiffin.config;
 
-import com.tiffin.security.ratelimit.RateLimitInterceptor;
-import org.springframework.beans.factory.annotation.Autowired;
+import com.tiffin.security.ratelimit.RateLimitProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.lang.NonNull;
-import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
-import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 /**
- * Web MVC Configuration for rate limiting
+ * Rate limiting configuration, see RateLimitingFilter
  */
 @Configuration
-public class RateLimitConfig implements WebMvcConfigurer {
-    
-    @Autowired
-    private RateLimitInterceptor rateLimitInterceptor;
-    
-    @SuppressWarnings("null")
-    @Override
-    public void addInterceptors(@NonNull InterceptorRegistry registry) {
-        registry.addInterceptor(rateLimitInterceptor)
-                .addPathPatterns("/api/**", "/auth/**")
-                .excludePathPatterns("/api/health", "/api/version");
-    }
-}
\ No newline at end of file
+@EnableConfigurationProperties(RateLimitProperties.class)
+public class RateLimitConfig {
+}
@@ -109,6 +109,9 @@ public class SecurityConfig {
                 // Actuator endpoints for health checks
                 .requestMatchers("/actuator/health", "/actuator/info").permitAll()
                 
+                // Cache internals (hot keys), only for admins when exposed
+                .requestMatchers("/actuator/cachehotkeys/**").hasAnyRole("ADMIN", "SUPER_ADMIN")
+                
                 // User-specific endpoints - require USER role or higher
                 .requestMatchers("/api/users/**", "/api/orders/**", "/api/cart/**").hasAnyRole("USER", "PREMIUM_USER", "ADMIN")
                 
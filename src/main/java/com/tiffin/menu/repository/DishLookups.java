@@ -0,0 +1,21 @@
+package com.tiffin.menu.repository;
+
+import com.tiffin.menu.model.Dish;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Bulk dish lookups through the "dish" cache, implemented by {@link DishLookupsImpl}
+ *
+ * An order summary or subscription view needs dozens of dishes at once: they are looked
+ * up across all cache levels in one pass, and only the misses go to the database, in a
+ * single query. Entries are shared with {@link DishRepository#findById}.
+ */
+public interface DishLookups {
+
+    /**
+     * Dishes in the order of {@code ids}; unknown ids are left out
+     */
+    List<Dish> findAllByIdCached(Collection<Long> ids);
+}
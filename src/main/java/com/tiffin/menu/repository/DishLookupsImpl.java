@@ -0,0 +1,55 @@
+package com.tiffin.menu.repository;
+
+import com.tiffin.cache.MultiLevelCache;
+import com.tiffin.menu.model.Dish;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Repository fragment resolving {@link DishLookups} with one cache pass and at most one query
+ */
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class DishLookupsImpl implements DishLookups {
+
+    private static final String CACHE_NAME = "dish";
+
+    private final EntityManager entityManager;
+    private final CacheManager cacheManager;
+
+    @Override
+    public List<Dish> findAllByIdCached(Collection<Long> ids) {
+        Cache cache = cacheManager.getCache(CACHE_NAME);
+        Map<Long, Dish> dishes = cache instanceof MultiLevelCache multiLevelCache
+                ? multiLevelCache.getAll(ids, this::findAllById)
+                : findAllById(new LinkedHashSet<>(ids));
+
+        List<Dish> ordered = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Dish dish = dishes.get(id);
+            if (dish != null) {
+                ordered.add(dish);
+            }
+        }
+        return ordered;
+    }
+
+    private Map<Long, Dish> findAllById(Set<Long> ids) {
+        return entityManager.createQuery("SELECT d FROM Dish d WHERE d.id IN :ids", Dish.class)
+                .setParameter("ids", ids)
+                .getResultStream()
+                .collect(Collectors.toMap(Dish::getId, Function.identity()));
+    }
+}
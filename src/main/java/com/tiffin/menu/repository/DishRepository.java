@@ -1,19 +1,45 @@
 package com.tiffin.menu.repository;
 
 import com.tiffin.menu.model.Dish;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 import java.util.List;
+import java.util.Optional;
 
+/**
+ * Dish lookups are cached: lists in "dishes", single dishes by id in "dish".
+ * Writes drop the dish and every cached list once committed, see EntityChangeInvalidator.
+ * Category queries are also marked cacheable for the Hibernate query cache.
+ * Bulk lookups by id share the "dish" entries, see {@link DishLookups}.
+ */
 @Repository
-public interface DishRepository extends JpaRepository<Dish, Long> {
+public interface DishRepository extends JpaRepository<Dish, Long>, DishLookups {
+    @Cacheable(cacheNames = "dishes", key = "'available'", sync = true)
     List<Dish> findByIsAvailableTrue();
     
+    @Cacheable(cacheNames = "dishes", key = "'category:' + #p0", sync = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     List<Dish> findByCategory(Dish.Category category);
     
+    @Cacheable(cacheNames = "dishes", key = "'available:' + #p0", sync = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     List<Dish> findByCategoryAndIsAvailableTrue(Dish.Category category);
     
+    @Cacheable(cacheNames = "dishes", key = "'vegetarian'", sync = true)
     List<Dish> findByIsVegetarianTrue();
     
+    @Cacheable(cacheNames = "dishes", key = "'bestsellers'", sync = true)
     List<Dish> findByIsBestsellerTrue();
+    
+    @Override
+    @Cacheable(cacheNames = "dishes", key = "'all'", sync = true)
+    List<Dish> findAll();
+    
+    @Override
+    @Cacheable(cacheNames = "dish", key = "#p0", sync = true)
+    Optional<Dish> findById(Long id);
 }
@@ -2,35 +2,74 @@ package com.tiffin.security;
 
 import com.tiffin.user.model.User;
 import com.tiffin.user.repository.UserRepository;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
 
 @Service
 public class CustomUserDetailsService implements UserDetailsService {
 
+    private static final String CACHE_NAME = "userDetails";
+
     private final UserRepository userRepository;
+    private final Cache userDetailsCache;
 
-    public CustomUserDetailsService(UserRepository userRepository) {
+    public CustomUserDetailsService(UserRepository userRepository, CacheManager cacheManager) {
         this.userRepository = userRepository;
+        this.userDetailsCache = cacheManager.getCache(CACHE_NAME);
     }
 
+    /**
+     * Called for every JWT-authenticated request, so the lookup is cached.
+     * The cache holds a credentials snapshot rather than the UserDetails itself: Spring
+     * Security erases the password on the returned object after authentication, which
+     * would corrupt a shared cached instance.
+     */
     @Override
-    @Transactional
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        // We can treat username as email or phone
-        User user = userRepository.findByEmail(username)
-                .or(() -> userRepository.findByPhoneNumber(username))
-                .orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + username));
+        CachedCredentials credentials = userDetailsCache.get(username, () -> findCredentials(username));
+        if (credentials == null) {
+            throw new UsernameNotFoundException("User not found with username: " + username);
+        }
 
         return new org.springframework.security.core.userdetails.User(
-                user.getEmail() != null ? user.getEmail() : user.getPhoneNumber(),
-                user.getPassword() != null ? user.getPassword() : "", // Empty password for OTP users
+                credentials.username,
+                credentials.password,
                 new ArrayList<>() // Authorities can be added here based on Role
         );
     }
+
+    private CachedCredentials findCredentials(String username) {
+        // We can treat username as email or phone
+        return userRepository.findByEmail(username)
+                .or(() -> userRepository.findByPhoneNumber(username))
+                .map(CachedCredentials::of)
+                .orElse(null);
+    }
+
+    /**
+     * Not Serializable on purpose: the password hash must stay on the heap, and the L3 store
+     * (a memory-mapped temp file) refuses values it cannot serialize
+     */
+    private static final class CachedCredentials {
+        private final String username;
+        private final String password;
+
+        private CachedCredentials(String username, String password) {
+            this.username = username;
+            this.password = password;
+        }
+
+        static CachedCredentials of(User user) {
+            return new CachedCredentials(
+                    user.getEmail() != null ? user.getEmail() : user.getPhoneNumber(),
+                    user.getPassword() != null ? user.getPassword() : "" // Empty password for OTP users
+            );
+        }
+    }
 }
@@ -1,205 +1,448 @@
 package com.tiffin.security.ratelimit;
 
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import lombok.extern.slf4j.Slf4j;
 
 import java.time.Duration;
-import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
 
 /**
  * In-memory rate limiting service
- * Implements sliding window rate limiting algorithm
+ * Counts requests in fixed windows per client IP and per authenticated user, in one store
+ *
+ * Each client has one entry holding a window per policy, packed as window number << 32 | count
+ * (windows are numbered from 1 since the service started; 0 is none yet) and advanced by
+ * compare-and-set, so a request is checked against every policy that applies
+ * to it with a single map lookup and no locking. The user policy lives in the entry of the
+ * key "user:" + id.
+ *
+ * The store holds at most max-clients entries: the request whose entry goes over it sweeps the
+ * store, first removing idle entries and then the least recently seen ones (blocked IPs last),
+ * down to 90% of it. Only one thread sweeps at a time; others keep inserting unless the store
+ * reaches the cap plus that 10% headroom, where they wait for the sweep. The periodic cleanup
+ * removes idle entries in between.
+ *
+ * - tiffin.ratelimit.clients  entries in the store
+ * - tiffin.ratelimit.evictions{reason=idle|capacity}
  */
 @Component
 @Slf4j
 public class InMemoryRateLimitingService {
-    
-    // In-memory storage for rate limiting
-    private final ConcurrentHashMap<String, RateLimitEntry> rateLimitStore = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<String, LocalDateTime> blockedIps = new ConcurrentHashMap<>();
-    
-    // Rate limiting configurations
-    private static final int LOGIN_ATTEMPTS_LIMIT = 5;
-    private static final int API_REQUESTS_LIMIT = 100;
-    private static final int WINDOW_SIZE_MINUTES = 15;
-    
+
     /**
-     * Rate limit entry to store count and window start time
+     * Permits left after a request was admitted are returned as is, rejections as these
      */
-    private static class RateLimitEntry {
-        private final AtomicInteger count = new AtomicInteger(0);
-        private volatile LocalDateTime windowStart;
-        private final Duration windowDuration;
-        
-        public RateLimitEntry(Duration windowDuration) {
-            this.windowDuration = windowDuration;
-            this.windowStart = LocalDateTime.now();
-        }
-        
-        public boolean isExpired() {
-            return LocalDateTime.now().isAfter(windowStart.plus(windowDuration));
-        }
-        
-        public void reset() {
-            count.set(0);
-            windowStart = LocalDateTime.now();
-        }
-        
-        public int incrementAndGet() {
-            return count.incrementAndGet();
-        }
-        
-        public int get() {
-            return count.get();
-        }
-    }
-    
+    public static final int REJECTED = -1;
+    public static final int BLOCKED = -2;
+
+    private static final String USER_PREFIX = "user:";
+    private static final int EVICTION_SAMPLE = 1024;  // entries whose last-seen times pick the eviction cutoff
+
+    // Policies, indexes into the limits and the windows of each entry
+    private static final int IP = 0;
+    private static final int AUTH = 1;
+    private static final int LOGIN = 2;
+    private static final int USER = 3;
+    private static final int POLICIES = 4;
+
+    private final ConcurrentHashMap<String, ClientState> clients = new ConcurrentHashMap<>();
+    private final int[] limits = new int[POLICIES];
+    private final long[] windowMillis = new long[POLICIES];
+    private final long loginBlockMillis;
+    private final long startMillis = System.currentTimeMillis();
+    private final int maxClients;
+    private final int lowWaterMark;
+    private final AtomicInteger clientCount = new AtomicInteger();
+    private final LongAdder idleEvictions = new LongAdder();
+    private final LongAdder capacityEvictions = new LongAdder();
+    private final ReentrantLock sweepLock = new ReentrantLock();
+
+    public InMemoryRateLimitingService(RateLimitProperties properties) {
+        this(properties, Metrics.globalRegistry);
+    }
+
+    @Autowired
+    public InMemoryRateLimitingService(RateLimitProperties properties, MeterRegistry meterRegistry) {
+        limits[IP] = properties.getIpRequests();
+        limits[AUTH] = properties.getAuthRequests();
+        limits[LOGIN] = properties.getLoginAttempts();
+        limits[USER] = properties.getUserRequests();
+        windowMillis[IP] = properties.getWindow().toMillis();
+        windowMillis[AUTH] = properties.getWindow().toMillis();
+        windowMillis[LOGIN] = properties.getLoginWindow().toMillis();
+        windowMillis[USER] = properties.getWindow().toMillis();
+        this.loginBlockMillis = properties.getLoginBlock().toMillis();
+        this.maxClients = Math.max(1, properties.getMaxClients());
+        this.lowWaterMark = maxClients - maxClients / 10;
+        Gauge.builder("tiffin.ratelimit.clients", clientCount, AtomicInteger::get).register(meterRegistry);
+        FunctionCounter.builder("tiffin.ratelimit.evictions", idleEvictions, LongAdder::sum)
+                .tag("reason", "idle").register(meterRegistry);
+        FunctionCounter.builder("tiffin.ratelimit.evictions", capacityEvictions, LongAdder::sum)
+                .tag("reason", "capacity").register(meterRegistry);
+    }
+
     /**
-     * Check if the request is within rate limit
+     * Which limits an endpoint is subject to, besides the per-user one
      */
-    public boolean isAllowed(String key, int limit, Duration window) {
-        try {
-            RateLimitEntry entry = rateLimitStore.computeIfAbsent(key, k -> new RateLimitEntry(window));
-            
-            // Check if window has expired
-            if (entry.isExpired()) {
-                entry.reset();
+    public enum EndpointClass {
+        GENERAL, // ip
+        AUTH,    // auth
+        LOGIN;   // auth and login, going over blocks the IP
+
+        public static EndpointClass of(String uri) {
+            if (uri.contains("/login")) {
+                return LOGIN;
             }
-            
-            // Check if current count exceeds limit
-            if (entry.get() >= limit) {
-                log.warn("Rate limit exceeded for key: {}, count: {}, limit: {}", key, entry.get(), limit);
-                return false;
+            if (uri.contains("/auth/") || uri.contains("/register") || uri.contains("/otp")) {
+                return AUTH;
             }
-            
-            // Increment counter
-            entry.incrementAndGet();
-            return true;
-            
-        } catch (Exception e) {
-            log.error("Error checking rate limit for key: {}", key, e);
-            return true; // Allow request on error
+            return GENERAL;
         }
     }
-    
+
     /**
-     * Check login rate limit
+     * A client's windows; phase guards them against being counted in while a sweep removes the entry
+     * lastSeen is in seconds since the service started, written at most once a second.
      */
-    public boolean isLoginAllowed(String ipAddress) {
-        return isAllowed("login:" + ipAddress, LOGIN_ATTEMPTS_LIMIT, Duration.ofMinutes(WINDOW_SIZE_MINUTES));
+    private static final class ClientState {
+        private static final int LIVE = 0;
+        private static final int RETIRING = 1;
+        private static final int REMOVED = 2;
+
+        private final AtomicLongArray windows = new AtomicLongArray(POLICIES);
+        private volatile long blockedUntil;
+        private volatile int phase = LIVE;
+        private volatile int lastSeen;
+
+        ClientState(int lastSeen) {
+            this.lastSeen = lastSeen;
+        }
+
+        void seen(int second) {
+            if (lastSeen != second) {
+                lastSeen = second;
+            }
+        }
+
+        /**
+         * Whether the entry stayed in the store, so what was just counted in it holds
+         */
+        boolean settled() {
+            int current;
+            while ((current = phase) == RETIRING) {
+                Thread.onSpinWait();
+            }
+            return current == LIVE;
+        }
     }
-    
+
     /**
-     * Check API rate limit
+     * Count a request from the client IP, and from the user if authenticated, against every
+     * policy of the endpoint class, stopping at the first one over its limit
+     * Returns the permits left under the tightest policy, or REJECTED or BLOCKED.
      */
-    public boolean isApiCallAllowed(String userId) {
-        return isAllowed("api:" + userId, API_REQUESTS_LIMIT, Duration.ofMinutes(1));
+    public int acquire(String ipAddress, String userId, EndpointClass endpoint) {
+        int remaining;
+        ClientState client;
+        do {
+            // The clock is read once the entry is found, so a new entry is never counted in a window before its creation
+            client = state(ipAddress);
+            long now = System.currentTimeMillis();
+            client.seen(second(now));
+            remaining = acquireClient(client, endpoint, now);
+        } while (!client.settled());
+        if (remaining < 0 || userId == null) {
+            return remaining;
+        }
+        int userRemaining;
+        String userKey = USER_PREFIX + userId;
+        do {
+            client = state(userKey);
+            long now = System.currentTimeMillis();
+            client.seen(second(now));
+            userRemaining = tryAcquire(client, USER, now);
+        } while (!client.settled());
+        return userRemaining < 0 ? REJECTED : Math.min(remaining, userRemaining);
+    }
+
+    private int acquireClient(ClientState client, EndpointClass endpoint, long now) {
+        if (client.blockedUntil > now) {
+            return BLOCKED;
+        }
+        int remaining = tryAcquire(client, endpoint == EndpointClass.GENERAL ? IP : AUTH, now);
+        if (remaining < 0 || endpoint != EndpointClass.LOGIN) {
+            return remaining;
+        }
+        int attempts = tryAcquire(client, LOGIN, now);
+        if (attempts < 0) {
+            client.blockedUntil = now + loginBlockMillis;
+            log.warn("Too many login attempts, IP blocked for {} ms", loginBlockMillis);
+            return BLOCKED;
+        }
+        return Math.min(remaining, attempts);
     }
-    
+
     /**
-     * Check general IP rate limit
+     * Count a request in the policy's current window unless it already holds the limit
+     * A thread that read the clock before being descheduled counts in the latest window
+     * instead of moving it back.
      */
-    public boolean isIpAllowed(String ipAddress) {
-        return isAllowed("ip:" + ipAddress, API_REQUESTS_LIMIT * 2, Duration.ofMinutes(1));
+    private int tryAcquire(ClientState client, int policy, long now) {
+        int limit = limits[policy];
+        while (true) {
+            long current = client.windows.get(policy);
+            int stored = (int) (current >>> 32);
+            int window = Math.max(stored, window(policy, now));
+            int count = stored == window ? (int) current : 0;
+            if (count >= limit) {
+                return REJECTED;
+            }
+            if (client.windows.compareAndSet(policy, current, (long) window << 32 | (count + 1))) {
+                return limit - count - 1;
+            }
+        }
+    }
+
+    private int window(int policy, long now) {
+        return (int) ((now - startMillis) / windowMillis[policy]) + 1;
     }
-    
+
+    private int second(long now) {
+        return (int) ((now - startMillis) / 1000);
+    }
+
     /**
-     * Get remaining attempts
+     * The client's entry, created if missing; creating one past max-clients sweeps the store
      */
-    public int getRemainingAttempts(String key, int limit) {
+    private ClientState state(String key) {
+        ClientState client = clients.get(key);
+        if (client != null) {
+            return client;
+        }
+        client = clients.computeIfAbsent(key, k -> {
+            clientCount.incrementAndGet();
+            return new ClientState(second(System.currentTimeMillis()));
+        });
+        if (clientCount.get() > maxClients) {
+            evictOverCapacity();
+        }
+        return client;
+    }
+
+    private void evictOverCapacity() {
+        if (!sweepLock.tryLock()) {
+            if (clientCount.get() <= 2 * maxClients - lowWaterMark) {
+                return;
+            }
+            sweepLock.lock();
+        }
         try {
-            RateLimitEntry entry = rateLimitStore.get(key);
-            if (entry == null || entry.isExpired()) {
-                return limit;
+            if (clientCount.get() <= maxClients) {
+                return;
             }
-            return Math.max(0, limit - entry.get());
-        } catch (Exception e) {
-            log.error("Error getting remaining attempts for key: {}", key, e);
-            return limit;
+            long now = System.currentTimeMillis();
+            long idle = removeWhile(client -> isIdle(client, now), lowWaterMark, idleEvictions);
+            long evicted = 0;
+            if (clientCount.get() > lowWaterMark) {
+                int cutoff = lastSeenCutoff(clientCount.get() - lowWaterMark, now);
+                evicted = removeWhile(client -> client.blockedUntil <= now && client.lastSeen <= cutoff,
+                        lowWaterMark, capacityEvictions);
+            }
+            if (clientCount.get() > maxClients) {
+                // Blocked IPs filled the store
+                evicted += removeWhile(client -> true, lowWaterMark, capacityEvictions);
+            }
+            log.warn("Rate limit store over {} clients: removed {} idle and evicted {} least recently seen",
+                    maxClients, idle, evicted);
+        } finally {
+            sweepLock.unlock();
         }
     }
-    
+
+    /**
+     * The last-seen second at or before which about {@code excess} of the unblocked entries fall,
+     * estimated from a sample of them
+     */
+    private int lastSeenCutoff(int excess, long now) {
+        int[] sample = new int[EVICTION_SAMPLE];
+        int sampled = 0;
+        for (Iterator<ClientState> it = clients.values().iterator(); it.hasNext() && sampled < sample.length; ) {
+            ClientState client = it.next();
+            if (client.blockedUntil <= now) {
+                sample[sampled++] = client.lastSeen;
+            }
+        }
+        if (sampled == 0) {
+            return Integer.MIN_VALUE;
+        }
+        Arrays.sort(sample, 0, sampled);
+        long rank = (long) excess * sampled / Math.max(1, clientCount.get());
+        return sample[(int) Math.min(sampled - 1, rank)];
+    }
+
+    /**
+     * Remove entries that pass the test until the store is down to {@code floor} entries; the
+     * caller holds the sweep lock
+     * Each entry is marked retiring before it is tested, so a request counted in it meanwhile
+     * either is seen by the test or waits and counts again in a new entry.
+     */
+    private long removeWhile(Predicate<ClientState> removable, int floor, LongAdder removals) {
+        long removed = 0;
+        for (Map.Entry<String, ClientState> entry : clients.entrySet()) {
+            if (clientCount.get() <= floor) {
+                break;
+            }
+            ClientState client = entry.getValue();
+            client.phase = ClientState.RETIRING;
+            try {
+                if (removable.test(client) && clients.remove(entry.getKey(), client)) {
+                    client.phase = ClientState.REMOVED;
+                    clientCount.decrementAndGet();
+                    removed++;
+                }
+            } finally {
+                if (client.phase == ClientState.RETIRING) {
+                    client.phase = ClientState.LIVE;
+                }
+            }
+        }
+        removals.add(removed);
+        return removed;
+    }
+
+    /**
+     * Whether nothing is counted in the client's current windows and it is not blocked
+     */
+    private boolean isIdle(ClientState client, long now) {
+        if (client.blockedUntil > now) {
+            return false;
+        }
+        for (int policy = 0; policy < POLICIES; policy++) {
+            long current = client.windows.get(policy);
+            if ((int) (current >>> 32) >= window(policy, now)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
-     * Reset rate limit for a key (admin function)
+     * Get remaining login attempts of an IP address
      */
-    public void resetRateLimit(String key) {
+    public int getRemainingLoginAttempts(String ipAddress) {
+        ClientState client = clients.get(ipAddress);
+        if (client == null) {
+            return limits[LOGIN];
+        }
+        long current = client.windows.get(LOGIN);
+        long now = System.currentTimeMillis();
+        boolean counting = (int) (current >>> 32) >= window(LOGIN, now);
+        return counting ? Math.max(0, limits[LOGIN] - (int) current) : limits[LOGIN];
+    }
+
+    /**
+     * Reset rate limits of an IP address or user ID (admin function)
+     */
+    public void resetRateLimit(String ipAddressOrUserId) {
+        sweepLock.lock();
         try {
-            rateLimitStore.remove(key);
-            log.info("Rate limit reset for key: {}", key);
+            remove(ipAddressOrUserId);
+            remove(USER_PREFIX + ipAddressOrUserId);
+            log.info("Rate limit reset for: {}", ipAddressOrUserId);
         } catch (Exception e) {
-            log.error("Error resetting rate limit for key: {}", key, e);
+            log.error("Error resetting rate limit for: {}", ipAddressOrUserId, e);
+        } finally {
+            sweepLock.unlock();
+        }
+    }
+
+    private void remove(String key) {
+        ClientState client = clients.remove(key);
+        if (client != null) {
+            client.phase = ClientState.REMOVED;
+            clientCount.decrementAndGet();
         }
     }
-    
+
     /**
      * Block IP address temporarily
      */
     public void blockIp(String ipAddress, Duration duration) {
         try {
-            LocalDateTime unblockTime = LocalDateTime.now().plus(duration);
-            blockedIps.put(ipAddress, unblockTime);
-            log.warn("IP address blocked: {} until: {}", ipAddress, unblockTime);
+            long unblockTime = System.currentTimeMillis() + duration.toMillis();
+            ClientState client;
+            do {
+                client = state(ipAddress);
+                client.blockedUntil = Math.max(client.blockedUntil, unblockTime);
+            } while (!client.settled());
+            log.warn("IP address blocked: {} for: {}", ipAddress, duration);
         } catch (Exception e) {
             log.error("Error blocking IP address: {}", ipAddress, e);
         }
     }
-    
+
     /**
      * Check if IP is blocked
      */
     public boolean isIpBlocked(String ipAddress) {
-        try {
-            LocalDateTime unblockTime = blockedIps.get(ipAddress);
-            if (unblockTime == null) {
-                return false;
-            }
-            
-            // Check if block has expired
-            if (LocalDateTime.now().isAfter(unblockTime)) {
-                blockedIps.remove(ipAddress);
-                return false;
-            }
-            
-            return true;
-        } catch (Exception e) {
-            log.error("Error checking if IP is blocked: {}", ipAddress, e);
-            return false;
-        }
+        ClientState client = clients.get(ipAddress);
+        return client != null && client.blockedUntil > System.currentTimeMillis();
     }
-    
+
     /**
-     * Cleanup expired entries (should be called periodically)
+     * Cleanup idle entries (should be called periodically)
      */
     public void cleanup() {
+        sweepLock.lock();
         try {
-            rateLimitStore.entrySet().removeIf(entry -> entry.getValue().isExpired());
-            
-            LocalDateTime now = LocalDateTime.now();
-            blockedIps.entrySet().removeIf(entry -> now.isAfter(entry.getValue()));
-            
-            log.debug("Rate limit cleanup completed. Active entries: {}, Blocked IPs: {}", 
-                    rateLimitStore.size(), blockedIps.size());
+            long now = System.currentTimeMillis();
+            long removed = removeWhile(client -> isIdle(client, now), 0, idleEvictions);
+            log.debug("Rate limit cleanup completed. Removed: {}, active entries: {}", removed, clientCount.get());
         } catch (Exception e) {
             log.error("Error during rate limit cleanup", e);
+        } finally {
+            sweepLock.unlock();
         }
     }
-    
+
     /**
      * Get rate limiting statistics
      */
     public RateLimitStats getStats() {
+        long now = System.currentTimeMillis();
+        int blocked = 0;
+        for (ClientState client : clients.values()) {
+            if (client.blockedUntil > now) {
+                blocked++;
+            }
+        }
         return RateLimitStats.builder()
-                .activeEntries(rateLimitStore.size())
-                .blockedIps(blockedIps.size())
+                .activeEntries(clientCount.get())
+                .blockedIps(blocked)
+                .idleEvictions(idleEvictions.sum())
+                .capacityEvictions(capacityEvictions.sum())
                 .build();
     }
-    
+
     @lombok.Data
     @lombok.Builder
     public static class RateLimitStats {
         private int activeEntries;
         private int blockedIps;
+        private long idleEvictions;
+        private long capacityEvictions;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,38 @@
+package com.tiffin.security.ratelimit;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Limits applied by {@link RateLimitingFilter} (app.rate-limit.*)
+ *
+ * app:
+ *   rate-limit:
+ *     window: 1m
+ *     ip-requests: 60
+ *     auth-requests: 10
+ *     login-attempts: 5
+ *     login-block: 30m
+ *     max-clients: 100000
+ */
+@Data
+@ConfigurationProperties(prefix = "app.rate-limit")
+public class RateLimitProperties {
+
+    // Fixed windows of the ip, auth and user limits
+    private Duration window = Duration.ofMinutes(1);
+
+    private int ipRequests = 60;    // per client IP and window, on endpoints other than auth ones
+    private int authRequests = 10;  // per client IP and window, on auth, login, register and OTP endpoints
+    private int userRequests = 100; // per authenticated user and window, on every endpoint
+
+    // Login attempts per client IP; going over blocks the IP
+    private int loginAttempts = 5;
+    private Duration loginWindow = Duration.ofMinutes(15);
+    private Duration loginBlock = Duration.ofMinutes(30);
+
+    // Clients (IPs and users) tracked at once, about 250 bytes each; past it the least recently seen are evicted
+    private int maxClients = 100_000;
+}
@@ -16,9 +16,9 @@ public class RateLimitScheduler {
     private InMemoryRateLimitingService rateLimitService;
     
     /**
-     * Cleanup expired rate limit entries every 10 minutes
+     * Cleanup idle rate limit entries every minute, so they do not wait for the store to fill up
      */
-    @Scheduled(fixedRate = 600000) // 10 minutes in milliseconds
+    @Scheduled(fixedRate = 60000) // 1 minute in milliseconds
     public void cleanupExpiredEntries() {
         try {
             log.debug("Starting rate limit cleanup...");
@@ -36,8 +36,9 @@ public class RateLimitScheduler {
     public void logStatistics() {
         try {
             InMemoryRateLimitingService.RateLimitStats stats = rateLimitService.getStats();
-            log.info("Rate limiting statistics - Active entries: {}, Blocked IPs: {}", 
-                    stats.getActiveEntries(), stats.getBlockedIps());
+            log.info("Rate limiting statistics - Active entries: {}, Blocked IPs: {}, Evictions: {} idle, {} capacity",
+                    stats.getActiveEntries(), stats.getBlockedIps(), stats.getIdleEvictions(),
+                    stats.getCapacityEvictions());
         } catch (Exception e) {
             log.error("Error logging rate limit statistics", e);
         }
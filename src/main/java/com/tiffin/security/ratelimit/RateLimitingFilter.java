@@ -0,0 +1,134 @@
+package com.tiffin.security.ratelimit;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.NonNull;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+/**
+ * Rate Limiting Filter, the only rate-limiting stage of the request pipeline
+ *
+ * Identifies the client once (IP address, and the user if the security chain, which runs
+ * before this filter, authenticated one) and has {@link InMemoryRateLimitingService} count
+ * the request against every applicable limit in one pass. Rejections are written from
+ * response bodies built at startup.
+ */
+@Component
+@Slf4j
+public class RateLimitingFilter extends OncePerRequestFilter {
+
+    private static final int TOO_MANY_REQUESTS = 429;
+    private static final String CONTENT_TYPE = "application/json;charset=UTF-8";
+
+    private final InMemoryRateLimitingService rateLimitService;
+    private final Rejection rateLimited;
+    private final Rejection blocked;
+    private final long resetSeconds;
+
+    public RateLimitingFilter(InMemoryRateLimitingService rateLimitService, RateLimitProperties properties) {
+        this.rateLimitService = rateLimitService;
+        this.rateLimited = new Rejection("RATE_LIMIT_EXCEEDED", "Too many requests. Please try again later.",
+                properties.getWindow());
+        this.blocked = new Rejection("IP_BLOCKED", "Too many login attempts. IP blocked temporarily.",
+                properties.getLoginBlock());
+        this.resetSeconds = properties.getWindow().toSeconds();
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+                                  @NonNull FilterChain filterChain) throws ServletException, IOException {
+        String clientIp = getClientIpAddress(request);
+        InMemoryRateLimitingService.EndpointClass endpoint =
+                InMemoryRateLimitingService.EndpointClass.of(request.getRequestURI());
+
+        int remaining = rateLimitService.acquire(clientIp, getUserId(), endpoint);
+
+        if (remaining >= 0) {
+            response.setHeader("X-Rate-Limit-Remaining", Integer.toString(remaining));
+            response.setHeader("X-Rate-Limit-Reset", Long.toString(System.currentTimeMillis() / 1000 + resetSeconds));
+            filterChain.doFilter(request, response);
+        } else {
+            // Debug only: under a flood a line per rejected request would cost more than serving it
+            log.debug("Rate limit exceeded for client: {} on endpoint: {}", clientIp, request.getRequestURI());
+            (remaining == InMemoryRateLimitingService.BLOCKED ? blocked : rateLimited).write(response);
+        }
+    }
+
+    /**
+     * Get the client IP address: the first X-Forwarded-For hop, X-Real-IP, or the peer address
+     */
+    private String getClientIpAddress(HttpServletRequest request) {
+        String xForwardedFor = request.getHeader("X-Forwarded-For");
+        if (xForwardedFor != null && !xForwardedFor.isEmpty()) {
+            int comma = xForwardedFor.indexOf(',');
+            return (comma < 0 ? xForwardedFor : xForwardedFor.substring(0, comma)).trim();
+        }
+
+        String xRealIp = request.getHeader("X-Real-IP");
+        if (xRealIp != null && !xRealIp.isEmpty()) {
+            return xRealIp;
+        }
+
+        return request.getRemoteAddr();
+    }
+
+    /**
+     * Get the authenticated user's name, or null for anonymous requests
+     */
+    private String getUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()
+                || authentication instanceof AnonymousAuthenticationToken) {
+            return null;
+        }
+        return authentication.getName();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) throws ServletException {
+        String path = request.getRequestURI();
+
+        // Skip rate limiting for health checks and documentation
+        return path.contains("/actuator/health") ||
+               path.equals("/api/health") ||
+               path.equals("/api/version") ||
+               path.contains("/swagger-ui") ||
+               path.contains("/api-docs") ||
+               path.contains("/webjars");
+    }
+
+    /**
+     * A 429 response, its body encoded once
+     */
+    private static final class Rejection {
+        private final byte[] body;
+        private final String retryAfter;
+
+        Rejection(String errorCode, String message, Duration retryAfter) {
+            this.retryAfter = Long.toString(retryAfter.toSeconds());
+            this.body = """
+                {"success":false,"errorCode":"%s","message":"%s","retryAfter":%s}"""
+                .formatted(errorCode, message, this.retryAfter)
+                .getBytes(StandardCharsets.UTF_8);
+        }
+
+        void write(HttpServletResponse response) throws IOException {
+            response.setStatus(TOO_MANY_REQUESTS);
+            response.setContentType(CONTENT_TYPE);
+            response.setHeader("Retry-After", retryAfter);
+            response.setContentLength(body.length);
+            response.getOutputStream().write(body);
+        }
+    }
+}
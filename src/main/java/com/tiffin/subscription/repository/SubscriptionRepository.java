@@ -1,14 +1,29 @@
 package com.tiffin.subscription.repository;
 
 import com.tiffin.subscription.model.Subscription;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.util.List;
 import java.util.Optional;
 
+/**
+ * Active subscriptions per meal are cached in "subscriptions", dropped on any subscription
+ * change once committed (see EntityChangeInvalidator) and prewarmed before each meal peak.
+ */
 @Repository
 public interface SubscriptionRepository extends JpaRepository<Subscription, Long> {
     List<Subscription> findByUserId(Long userId);
 
     Optional<Subscription> findByUserIdAndStatus(Long userId, Subscription.Status status);
+
+    /**
+     * Active subscriptions delivering the meal: those for it and those for BOTH
+     */
+    @Cacheable(cacheNames = "subscriptions", key = "'active:' + #p0", sync = true)
+    @Query("select s from Subscription s where s.status = com.tiffin.subscription.model.Subscription.Status.ACTIVE"
+            + " and s.mealTime in (:mealTime, com.tiffin.subscription.model.Subscription.MealTime.BOTH)")
+    List<Subscription> findActiveByMealTime(@Param("mealTime") Subscription.MealTime mealTime);
 }
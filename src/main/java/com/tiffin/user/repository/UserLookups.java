@@ -0,0 +1,23 @@
+package com.tiffin.user.repository;
+
+import com.tiffin.user.model.User;
+
+import java.util.Optional;
+
+/**
+ * Lookups by login identifier, implemented by {@link UserLookupsImpl} with negative caching
+ *
+ * Login, signup and JWT authentication keep probing emails and phone numbers that belong
+ * to nobody (phone logins even try the phone as an email first), so misses are cached for
+ * app.cache.absent-ttl and dropped when a user with that email or phone is saved.
+ */
+public interface UserLookups {
+
+    Optional<User> findByEmail(String email);
+
+    Optional<User> findByPhoneNumber(String phoneNumber);
+
+    boolean existsByEmail(String email);
+
+    boolean existsByPhoneNumber(String phoneNumber);
+}
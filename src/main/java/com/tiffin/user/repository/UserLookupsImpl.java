@@ -0,0 +1,75 @@
+package com.tiffin.user.repository;
+
+import com.tiffin.cache.AdvancedCacheManager;
+import com.tiffin.cache.MultiLevelCacheProperties;
+import com.tiffin.user.model.User;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Repository fragment answering {@link UserLookups} from the cache when the identifier is known to be unused
+ *
+ * Find and exists share one {@link com.tiffin.cache.Absent} marker per identifier. Found
+ * users are not cached here: they are managed entities of the caller's persistence context
+ * (the Hibernate second-level cache already holds their state).
+ */
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class UserLookupsImpl implements UserLookups {
+
+    // Also dropped by EntityChangeInvalidator when a user with that email or phone is saved
+    public static final String EMAIL_KEY_PREFIX = "users:email:";
+    public static final String PHONE_KEY_PREFIX = "users:phone:";
+
+    private final EntityManager entityManager;
+    private final AdvancedCacheManager cacheManager;
+    private final MultiLevelCacheProperties properties;
+
+    @Override
+    public Optional<User> findByEmail(String email) {
+        return lookup(EMAIL_KEY_PREFIX, email, () -> findBy("email", email));
+    }
+
+    @Override
+    public Optional<User> findByPhoneNumber(String phoneNumber) {
+        return lookup(PHONE_KEY_PREFIX, phoneNumber, () -> findBy("phoneNumber", phoneNumber));
+    }
+
+    @Override
+    public boolean existsByEmail(String email) {
+        return lookup(EMAIL_KEY_PREFIX, email, () -> existsBy("email", email)).isPresent();
+    }
+
+    @Override
+    public boolean existsByPhoneNumber(String phoneNumber) {
+        return lookup(PHONE_KEY_PREFIX, phoneNumber, () -> existsBy("phoneNumber", phoneNumber)).isPresent();
+    }
+
+    private <T> Optional<T> lookup(String keyPrefix, String identifier, Supplier<Optional<T>> query) {
+        if (identifier == null) {
+            return query.get();
+        }
+        return cacheManager.lookupCachingAbsence(keyPrefix + identifier, User.class, query,
+                properties.getAbsentTtl().toMillis());
+    }
+
+    private Optional<User> findBy(String attribute, String value) {
+        return entityManager.createQuery("SELECT u FROM User u WHERE u." + attribute + " = :value", User.class)
+                .setParameter("value", value)
+                .getResultStream()
+                .findFirst();
+    }
+
+    private Optional<Boolean> existsBy(String attribute, String value) {
+        List<Long> ids = entityManager.createQuery("SELECT u.id FROM User u WHERE u." + attribute + " = :value", Long.class)
+                .setParameter("value", value)
+                .setMaxResults(1)
+                .getResultList();
+        return ids.isEmpty() ? Optional.empty() : Optional.of(Boolean.TRUE);
+    }
+}
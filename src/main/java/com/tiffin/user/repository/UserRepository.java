@@ -15,16 +15,9 @@ import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface UserRepository extends JpaRepository<User, Long> {
+public interface UserRepository extends JpaRepository<User, Long>, UserLookups {
     
-    // Basic queries
-    Optional<User> findByEmail(String email);
-    
-    Optional<User> findByPhoneNumber(String phoneNumber);
-    
-    boolean existsByEmail(String email);
-    
-    boolean existsByPhoneNumber(String phoneNumber);
+    // Basic queries (findByEmail, findByPhoneNumber, existsBy...) are in UserLookups, with misses cached
     
     // Validation queries for updates
     @Query("SELECT u FROM User u WHERE u.email = :email AND u.id != :id")
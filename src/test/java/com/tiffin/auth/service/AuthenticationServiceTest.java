@@ -41,6 +41,32 @@ class AuthenticationServiceTest {
         assertThat(response.getMessage()).isEqualTo("OTP sent successfully");
     }
 
+    @Test
+    void verifyOtp_SameCodeTwice_SecondRejected() {
+        String phoneNumber = "+919876543211";
+        // Outside production every code is the development bypass 123456, which is never consumed
+        String profile = System.setProperty("spring.profiles.active", "production");
+        String otp;
+        try {
+            do {
+                otp = authenticationService.sendOtp(phoneNumber).getOtpId();
+            } while ("123456".equals(otp));
+        } finally {
+            if (profile != null) {
+                System.setProperty("spring.profiles.active", profile);
+            } else {
+                System.clearProperty("spring.profiles.active");
+            }
+        }
+
+        var first = authenticationService.verifyOtp(phoneNumber, otp);
+        var second = authenticationService.verifyOtp(phoneNumber, otp);
+
+        assertThat(first.isSuccess()).isTrue();
+        assertThat(second.isSuccess()).isFalse();
+        assertThat(second.getMessage()).isEqualTo("OTP expired or invalid");
+    }
+
     @Test
     void completeSignup_ValidDetails_Success() {
         CompleteSignupRequest request = new CompleteSignupRequest();
@@ -0,0 +1,54 @@
+package com.tiffin.auth.service;
+
+import com.tiffin.stress.Stress;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrency scenarios for {@link OtpStore}, see {@link com.tiffin.stress.StressSuite}
+ */
+public final class OtpStress {
+
+    private static final int PHONES = 64;
+
+    private OtpStress() {
+    }
+
+    public static void run(Stress stress) {
+        stress.scenario("an OTP verifies at most once", () -> consumedOnce(stress));
+    }
+
+    /**
+     * Thread 0 keeps sending new codes while the others verify whatever code is pending, the
+     * way AuthenticationService.verifyOtp does: no code is accepted twice
+     */
+    private static void consumedOnce(Stress stress) {
+        OtpStore store = new OtpStore();
+        Map<String, AtomicInteger> verified = new ConcurrentHashMap<>();
+        AtomicInteger sent = new AtomicInteger();
+        LocalDateTime expiresAt = LocalDateTime.now().plusMinutes(5);
+
+        stress.race(thread -> {
+            Random random = stress.random(thread);
+            for (int i = 0; i < 5_000; i++) {
+                String key = "otp:" + random.nextInt(PHONES);
+                if (thread == 0) {
+                    store.put(key, String.valueOf(sent.incrementAndGet()), expiresAt);
+                    continue;
+                }
+                OtpStore.Pending pending = store.get(key);
+                if (pending != null && !pending.isExpired(LocalDateTime.now()) && store.consume(key, pending)) {
+                    verified.computeIfAbsent(pending.code(), code -> new AtomicInteger()).incrementAndGet();
+                }
+            }
+        });
+
+        verified.forEach((code, count) -> stress.check(count.get() == 1, "code %s verified %d times", code, count.get()));
+        stress.check(verified.size() + store.size() <= sent.get(), "%d codes sent but %d verified and %d pending",
+            sent.get(), verified.size(), store.size());
+    }
+}
@@ -0,0 +1,230 @@
+package com.tiffin.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
+
+/**
+ * Unit test for AdvancedCacheManager
+ */
+class AdvancedCacheManagerTest {
+
+    private static final long TTL = 200;
+    // Past the TTL by more than the CacheTicker can lag, but well before the 1s wheel tick
+    private static final long PAST_TTL = TTL + 3 * CacheTicker.RESOLUTION_MILLIS + 20;
+
+    private AdvancedCacheManager cacheManager;
+
+    @BeforeEach
+    void setUp() {
+        cacheManager = new AdvancedCacheManager(new SimpleMeterRegistry(), new MultiLevelCacheProperties(),
+            CacheWeigher.retainedSize());
+    }
+
+    @AfterEach
+    void tearDown() {
+        cacheManager.close();
+    }
+
+    @ParameterizedTest
+    @EnumSource(CacheLevel.class)
+    void get_PastTtl_IsNotServedBeforeTheWheelFires(CacheLevel level) throws InterruptedException {
+        cacheManager.put("dish:1", "Paneer Tikka", TTL, level);
+        assertThat(cacheManager.get("dish:1", String.class)).contains("Paneer Tikka");
+        assertThat(cacheManager.levelOf("dish:1")).contains(level);
+
+        Thread.sleep(PAST_TTL);
+
+        assertThat(cacheManager.get("dish:1", String.class)).isEmpty();
+    }
+
+    @Test
+    void put_BeforeTtl_RestartsTheEntrysLifetime() throws InterruptedException {
+        // Seconds, so each check is a second away from both expiries whatever the scheduling
+        long ttl = 3000;
+        cacheManager.put("dish:1", "Paneer Tikka", ttl, CacheLevel.L1);
+        Thread.sleep(2000);
+        cacheManager.put("dish:1", "Dal Makhani", ttl, CacheLevel.L1);
+        Thread.sleep(2000);
+
+        // Past the first write's TTL, but the timer it scheduled must not drop the rewrite
+        cacheManager.cleanupExpiredEntries();
+        assertThat(cacheManager.get("dish:1", String.class)).contains("Dal Makhani");
+
+        Thread.sleep(2000);
+        assertThat(cacheManager.get("dish:1", String.class)).isEmpty();
+    }
+
+    @Test
+    void getAsync_ConcurrentMisses_ShareOneLoad() throws InterruptedException {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        List<CompletableFuture<String>> callers = new ArrayList<>();
+
+        // The loader blocks until every caller has missed, so all but the first must coalesce
+        for (int i = 0; i < 8; i++) {
+            callers.add(cacheManager.getAsync("dishes:available", String.class, () -> {
+                loads.incrementAndGet();
+                release.await();
+                return "menu";
+            }));
+        }
+        release.countDown();
+
+        assertThat(callers).allSatisfy(caller -> assertThat(caller.join()).isEqualTo("menu"));
+        assertThat(loads).hasValue(1);
+        assertThat(cacheManager.getStats().getLoadCount()).isEqualTo(1);
+        assertThat(cacheManager.getStats().getCoalescedLoadCount()).isEqualTo(7);
+        assertThat(cacheManager.get("dishes:available", String.class, () -> "reloaded")).isEqualTo("menu");
+    }
+
+    @Test
+    void get_AfterLoaderFailed_BacksOffWithoutCallingItAgain() throws InterruptedException {
+        AtomicInteger loads = new AtomicInteger();
+
+        assertThatThrownBy(() -> cacheManager.get("dish:1", String.class, () -> {
+            loads.incrementAndGet();
+            throw new IllegalStateException("database down");
+        })).isInstanceOf(CacheLoadException.class).hasRootCauseMessage("database down");
+        // The backoff is recorded just after the caller is woken
+        awaitUntil(() -> cacheManager.getStats().getLoadFailureCount() == 1);
+        assertThatThrownBy(() -> cacheManager.get("dish:1", String.class, () -> {
+            loads.incrementAndGet();
+            return "Paneer Tikka";
+        })).isInstanceOf(CacheLoadException.class).hasMessageContaining("backing off");
+
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void getAll_HitsInEveryLevel_ReturnsThemAndTheMissingIds() {
+        cacheManager.put("dish:1", "Paneer Tikka", 60_000, CacheLevel.L1);
+        cacheManager.put("dish:2", "Dal Makhani", 60_000, CacheLevel.L2);
+        cacheManager.put("dish:3", "Veg Biryani", 60_000, CacheLevel.L3);
+
+        BulkLookup<Long, String> lookup = cacheManager.getAll(List.of(1L, 2L, 3L, 4L, 5L), id -> "dish:" + id,
+            String.class);
+
+        assertThat(lookup.getFound()).containsExactly(
+            entry(1L, "Paneer Tikka"), entry(2L, "Dal Makhani"), entry(3L, "Veg Biryani"));
+        assertThat(lookup.getMissing()).containsExactly(4L, 5L);
+        assertThat(lookup.isComplete()).isFalse();
+    }
+
+    @Test
+    void getAll_WithBulkLoader_LoadsOnlyTheMissesAndCachesWhatItFound() {
+        cacheManager.put("dish:1", "Paneer Tikka", 60_000, CacheLevel.L2);
+        List<Set<Long>> loaderCalls = new ArrayList<>();
+        Function<Set<Long>, Map<Long, String>> loader = ids -> {
+            loaderCalls.add(Set.copyOf(ids));
+            return ids.contains(2L) ? Map.of(2L, "Dal Makhani") : Map.of(); // 3 is not in the database
+        };
+
+        Map<Long, String> first = cacheManager.getAll(List.of(1L, 2L, 3L), id -> "dish:" + id, String.class,
+            loader, 60_000, null);
+        Map<Long, String> second = cacheManager.getAll(List.of(1L, 2L, 3L), id -> "dish:" + id, String.class,
+            loader, 60_000, null);
+
+        assertThat(first).containsOnly(entry(1L, "Paneer Tikka"), entry(2L, "Dal Makhani"));
+        assertThat(second).isEqualTo(first);
+        assertThat(loaderCalls).containsExactly(Set.of(2L, 3L), Set.of(3L));
+    }
+
+    @Test
+    void invalidateAll_RemovesTheKeysFromEveryLevel() {
+        cacheManager.put("dish:1", "Paneer Tikka", 60_000, CacheLevel.L1);
+        cacheManager.put("dish:2", "Dal Makhani", 60_000, CacheLevel.L2);
+        cacheManager.put("dish:3", "Veg Biryani", 60_000, CacheLevel.L3);
+
+        cacheManager.invalidateAll(List.of("dish:1", "dish:2", "dish:3"));
+
+        assertThat(cacheManager.getAll(List.of("dish:1", "dish:2", "dish:3"), String.class).getMissing())
+            .containsExactly("dish:1", "dish:2", "dish:3");
+    }
+
+    @ParameterizedTest
+    @EnumSource(CacheLevel.class)
+    void putIfVersion_StaleVersion_Conflicts(CacheLevel level) {
+        Versioned<String> first = cacheManager.putIfVersion("cart:7", "1 thali", Versioned.NO_VERSION, 60_000, level)
+            .orElseThrow();
+
+        // A second writer that also read the key as absent loses
+        assertThat(cacheManager.putIfVersion("cart:7", "2 thalis", Versioned.NO_VERSION, 60_000, level)).isEmpty();
+
+        Versioned<String> second = cacheManager.putIfVersion("cart:7", "2 thalis", first.getVersion(), 60_000, level)
+            .orElseThrow();
+        assertThat(second.getVersion()).isNotEqualTo(first.getVersion());
+        assertThat(cacheManager.putIfVersion("cart:7", "3 thalis", first.getVersion(), 60_000, level)).isEmpty();
+        assertThat(cacheManager.getVersioned("cart:7", String.class)).contains(second);
+        assertThat(cacheManager.get("cart:7", String.class)).contains("2 thalis");
+    }
+
+    @Test
+    void putIfVersion_AfterPlainPut_Conflicts() {
+        Versioned<String> written = cacheManager.putIfVersion("cart:7", "1 thali", Versioned.NO_VERSION, 60_000, null)
+            .orElseThrow();
+        cacheManager.put("cart:7", "empty", 60_000);
+
+        assertThat(cacheManager.putIfVersion("cart:7", "2 thalis", written.getVersion(), 60_000, null)).isEmpty();
+        assertThat(cacheManager.get("cart:7", String.class)).contains("empty");
+    }
+
+    @Test
+    void compute_ConcurrentIncrements_LoseNoUpdate() throws InterruptedException {
+        List<Thread> writers = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            writers.add(Thread.ofVirtual().start(() -> {
+                for (int n = 0; n < 100; n++) {
+                    cacheManager.compute("cart:7:items", Integer.class, count -> count == null ? 1 : count + 1,
+                        60_000, CacheLevel.L2);
+                }
+            }));
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+
+        assertThat(cacheManager.get("cart:7:items", Integer.class)).contains(800);
+    }
+
+    @Test
+    void clearAll_DuringLoad_DoesNotCacheItsResult() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> caller = cacheManager.getAsync("dishes:available", String.class, () -> {
+            release.await();
+            return "menu from before the clear";
+        });
+
+        cacheManager.clearAll();
+        release.countDown();
+
+        // The waiting caller still gets its value, but the cache must not keep it
+        assertThat(caller.join()).isEqualTo("menu from before the clear");
+        assertThat(cacheManager.get("dishes:available", String.class)).isEmpty();
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 1000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+}
@@ -0,0 +1,64 @@
+package com.tiffin.cache;
+
+import com.tiffin.stress.Stress;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Concurrency scenarios for {@link BloomFilter}, see {@link com.tiffin.stress.StressSuite}
+ */
+public final class BloomFilterStress {
+
+    private static final int KEYS_PER_THREAD = 20_000;
+
+    private BloomFilterStress() {
+    }
+
+    public static void run(Stress stress) {
+        stress.scenario("bloom filter has no false negatives", () -> noFalseNegatives(stress));
+    }
+
+    /**
+     * Half the threads add keys, publishing how far they got, while the other half probe keys
+     * already published: an added key is found from the moment add returns, and the atomic
+     * ORs of adds sharing a word lose no bits
+     */
+    private static void noFalseNegatives(Stress stress) {
+        int writers = Math.max(1, stress.threads() / 2);
+        BloomFilter filter = new BloomFilter(writers * KEYS_PER_THREAD, 0.01);
+        AtomicIntegerArray added = new AtomicIntegerArray(writers);
+
+        stress.race(thread -> {
+            if (thread < writers) {
+                for (int i = 0; i < KEYS_PER_THREAD; i++) {
+                    filter.add(key(thread, i));
+                    added.set(thread, i + 1);
+                }
+                return;
+            }
+            Random random = stress.random(thread);
+            for (int i = 0; i < KEYS_PER_THREAD; i++) {
+                int writer = random.nextInt(writers);
+                int published = added.get(writer);
+                if (published > 0) {
+                    String key = key(writer, random.nextInt(published));
+                    stress.check(filter.mightContain(key), "%s added but not found", key);
+                }
+            }
+        });
+
+        for (int writer = 0; writer < writers; writer++) {
+            for (int i = 0; i < KEYS_PER_THREAD; i++) {
+                if (!filter.mightContain(key(writer, i))) {
+                    stress.check(false, "%s added but not found", key(writer, i));
+                }
+            }
+        }
+        stress.check(filter.getSaturation() <= 1, "saturation %.3f", filter.getSaturation());
+    }
+
+    private static String key(int thread, int i) {
+        return "bloom:" + thread + ":" + i;
+    }
+}
@@ -0,0 +1,62 @@
+package com.tiffin.cache;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Prints the heap bytes allocated per cached entry (the CacheEntry plus its timer wheel
+ * Timer) and the cost of the per-read expiry check, over a million entries
+ *
+ *   java -cp ... com.tiffin.cache.CacheEntryFootprint [entries]
+ *
+ * Allocation is read from the thread's allocation counter, so it is exact and includes
+ * padding, but not the key and value, which the caller owns. Not a unit test (no *Test
+ * suffix), so the build does not run it.
+ */
+public class CacheEntryFootprint {
+
+    private static final int DEFAULT_ENTRIES = 1_000_000;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        int entries = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ENTRIES;
+        com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().threadId();
+        Object value = new Object();
+        String key = "dish:1";
+        long expiresAt = System.currentTimeMillis() + 3_600_000;
+
+        for (int round = 0; round < ROUNDS; round++) {
+            CacheEntry[] held = new CacheEntry[entries];
+            TimerWheel wheel = new TimerWheel(System.currentTimeMillis());
+
+            long before = threads.getThreadAllocatedBytes(thread);
+            for (int i = 0; i < entries; i++) {
+                held[i] = new CacheEntry(value, expiresAt);
+            }
+            long entryBytes = threads.getThreadAllocatedBytes(thread) - before;
+
+            before = threads.getThreadAllocatedBytes(thread);
+            for (int i = 0; i < entries; i++) {
+                wheel.schedule(key, held[i], wheel);
+            }
+            long timerBytes = threads.getThreadAllocatedBytes(thread) - before;
+
+            long started = System.nanoTime();
+            int expired = 0;
+            for (int pass = 0; pass < 10; pass++) {
+                for (CacheEntry entry : held) {
+                    if (entry.isExpired()) {
+                        expired++;
+                    }
+                }
+            }
+            long checkNanos = System.nanoTime() - started;
+
+            System.out.printf("round %d: entry %.1f B, timer %.1f B, total %.1f B/entry, isExpired %.2f ns%s%n",
+                round, (double) entryBytes / entries, (double) timerBytes / entries,
+                (double) (entryBytes + timerBytes) / entries, (double) checkNanos / (10L * entries),
+                expired > 0 ? " (" + expired + " expired)" : "");
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.tiffin.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit test for CacheInvalidationBus over InJvmInvalidationTransport
+ *
+ * The sender's messages are captured by a third member of its group and handed to the
+ * receiver's bus in whatever order, and as often, as each test needs.
+ */
+class CacheInvalidationBusTest {
+
+    private static final byte[] SECRET = "0123456789abcdef0123456789abcdef".getBytes(StandardCharsets.UTF_8);
+    // Only explicit flushes send
+    private static final Duration BATCH_WINDOW = Duration.ofHours(1);
+
+    private final List<AutoCloseable> closing = new ArrayList<>();
+    private final List<byte[]> sent = new ArrayList<>();
+    private AdvancedCacheManager senderCache;
+    private CacheInvalidationBus sender;
+    private AdvancedCacheManager receiverCache;
+    private SimpleMeterRegistry receiverMetrics;
+    private CacheInvalidationBus receiver;
+
+    @BeforeEach
+    void setUp() {
+        String group = UUID.randomUUID().toString();
+        senderCache = cache();
+        sender = bus(senderCache, new InJvmInvalidationTransport(group), new SimpleMeterRegistry());
+        InJvmInvalidationTransport capture = new InJvmInvalidationTransport(group);
+        capture.start(sent::add);
+        closing.add(capture);
+
+        receiverCache = cache();
+        receiverMetrics = new SimpleMeterRegistry();
+        receiver = bus(receiverCache, new InJvmInvalidationTransport(UUID.randomUUID().toString()), receiverMetrics);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (AutoCloseable closeable : closing.reversed()) {
+            closeable.close();
+        }
+    }
+
+    @Test
+    void receive_Message_InvalidatesItsKeys() {
+        receiverCache.put("dish:1", "Paneer Tikka", 60_000);
+        receiverCache.put("dish:2", "Dal Makhani", 60_000);
+
+        byte[] message = send("dish:1");
+        receiver.receive(message);
+
+        assertThat(receiverCache.get("dish:1", String.class)).isEmpty();
+        assertThat(receiverCache.get("dish:2", String.class)).contains("Dal Makhani");
+        assertThat(receiverMetrics.counter("tiffin.cache.invalidation.messages", "direction", "received").count())
+            .isEqualTo(1);
+    }
+
+    @Test
+    void receive_TamperedOrShortMessage_IsRejected() {
+        receiverCache.put("dish:1", "Paneer Tikka", 60_000);
+        byte[] message = send("dish:1");
+
+        byte[] tampered = message.clone();
+        tampered[tampered.length - 40] ^= 1; // in the key, before the MAC
+        receiver.receive(tampered);
+        receiver.receive(new byte[16]);
+        receiver.receive(new byte[0]);
+
+        assertThat(receiverCache.get("dish:1", String.class)).contains("Paneer Tikka");
+        assertThat(receiverMetrics.counter("tiffin.cache.invalidation.rejected").count()).isEqualTo(3);
+
+        // Tampering did not burn the sequence number
+        receiver.receive(message);
+        assertThat(receiverCache.get("dish:1", String.class)).isEmpty();
+    }
+
+    @Test
+    void receive_MessageSignedWithAnotherSecret_IsRejected() {
+        receiverCache.put("dish:1", "Paneer Tikka", 60_000);
+        String group = UUID.randomUUID().toString();
+        byte[] otherSecret = "fedcba9876543210fedcba9876543210".getBytes(StandardCharsets.UTF_8);
+        AdvancedCacheManager outsiderCache = cache();
+        CacheInvalidationBus outsider = new CacheInvalidationBus(outsiderCache, new InJvmInvalidationTransport(group),
+            new SimpleMeterRegistry(), BATCH_WINDOW, otherSecret);
+        closing.add(outsider);
+        List<byte[]> forged = new ArrayList<>();
+        InJvmInvalidationTransport capture = new InJvmInvalidationTransport(group);
+        capture.start(forged::add);
+        closing.add(capture);
+
+        outsiderCache.invalidate("dish:1");
+        outsider.flush();
+        receiver.receive(forged.get(0));
+
+        assertThat(receiverCache.get("dish:1", String.class)).contains("Paneer Tikka");
+        assertThat(receiverMetrics.counter("tiffin.cache.invalidation.rejected").count()).isEqualTo(1);
+    }
+
+    @Test
+    void receive_ReplayedMessage_IsIgnored() {
+        byte[] message = send("dish:1");
+        receiver.receive(message);
+        receiverCache.put("dish:1", "Paneer Tikka", 60_000);
+
+        receiver.receive(message);
+
+        assertThat(receiverCache.get("dish:1", String.class)).contains("Paneer Tikka");
+        assertThat(receiverMetrics.counter("tiffin.cache.invalidation.duplicates").count()).isEqualTo(1);
+    }
+
+    @Test
+    void receive_OutOfOrderInsideTheWindow_IsApplied() {
+        byte[] first = send("dish:1");
+        byte[] second = send("dish:2");
+        byte[] third = send("dish:3");
+        receiverCache.put("dish:2", "Dal Makhani", 60_000);
+
+        receiver.receive(first);
+        receiver.receive(third);
+        receiver.receive(second);
+
+        assertThat(receiverCache.get("dish:2", String.class)).isEmpty();
+        assertThat(receiverMetrics.counter("tiffin.cache.invalidation.lost").count()).isZero();
+        assertThat(receiverMetrics.counter("tiffin.cache.invalidation.duplicates").count()).isZero();
+    }
+
+    @Test
+    void receive_AfterAGap_CountsTheSequencesThatLeftTheWindowAsLost() {
+        List<byte[]> messages = new ArrayList<>();
+        for (int i = 1; i <= 70; i++) {
+            messages.add(send("dish:" + i));
+        }
+        receiverCache.put("dish:7", "Veg Biryani", 60_000);
+        receiverCache.put("dish:6", "Chole", 60_000);
+
+        receiver.receive(messages.get(0));
+        // Sequence 70 moves the 64-message window to 7..70, so 2..6 can no longer arrive
+        receiver.receive(messages.get(69));
+        assertThat(receiverMetrics.counter("tiffin.cache.invalidation.lost").count()).isEqualTo(5);
+
+        // 7 is still inside the window; 6 is too late to tell and applied again harmlessly
+        receiver.receive(messages.get(6));
+        receiver.receive(messages.get(5));
+        receiver.receive(messages.get(69));
+
+        assertThat(receiverCache.get("dish:7", String.class)).isEmpty();
+        assertThat(receiverCache.get("dish:6", String.class)).isEmpty();
+        assertThat(receiverMetrics.counter("tiffin.cache.invalidation.lost").count()).isEqualTo(5);
+        assertThat(receiverMetrics.counter("tiffin.cache.invalidation.duplicates").count()).isEqualTo(1);
+    }
+
+    @Test
+    void flush_KeysUnderAPendingPrefix_AreNotSentAgain() {
+        SimpleMeterRegistry senderMetrics = new SimpleMeterRegistry();
+        String group = UUID.randomUUID().toString();
+        AdvancedCacheManager cache = cache();
+        CacheInvalidationBus bus = bus(cache, new InJvmInvalidationTransport(group), senderMetrics);
+        List<byte[]> messages = new ArrayList<>();
+        InJvmInvalidationTransport capture = new InJvmInvalidationTransport(group);
+        capture.start(messages::add);
+        closing.add(capture);
+        receiverCache.put("dish:1", "Paneer Tikka", 60_000);
+        receiverCache.put("dish:9", "Kheer", 60_000);
+        receiverCache.put("user:1", "Asha", 60_000);
+
+        cache.invalidate("dish:1");
+        cache.invalidate("user:1");
+        cache.invalidatePrefix("dish:");
+        cache.invalidate("dish:2");
+        bus.flush();
+
+        assertThat(messages).hasSize(1);
+        assertThat(senderMetrics.counter("tiffin.cache.invalidation.entries", "direction", "sent").count())
+            .isEqualTo(2);
+        receiver.receive(messages.get(0));
+        assertThat(receiverCache.get("dish:1", String.class)).isEmpty();
+        assertThat(receiverCache.get("dish:9", String.class)).isEmpty();
+        assertThat(receiverCache.get("user:1", String.class)).isEmpty();
+    }
+
+    @Test
+    void flush_KeyTooLongForAMessage_IsSentAsAPrefixOfItself() {
+        // The cut falls just after a high surrogate, which must not be split from its low one
+        int cut = (65536 - 32 - 32 - 3) / 3;
+        String key = "dish:" + "a".repeat(cut - 6) + "🍛".repeat(20_000);
+        assertThat(Character.isHighSurrogate(key.charAt(cut - 1))).isTrue();
+        receiverCache.put(key, "Curry", 60_000);
+        receiverCache.put("dish:1", "Paneer Tikka", 60_000);
+
+        receiver.receive(send(key));
+
+        assertThat(receiverCache.get(key, String.class)).isEmpty();
+        assertThat(receiverCache.get("dish:1", String.class)).contains("Paneer Tikka");
+    }
+
+    /**
+     * Invalidate the key on the sending node and return the message that carried it
+     */
+    private byte[] send(String key) {
+        senderCache.invalidate(key);
+        sender.flush();
+        return sent.get(sent.size() - 1);
+    }
+
+    private AdvancedCacheManager cache() {
+        AdvancedCacheManager cache = new AdvancedCacheManager(new SimpleMeterRegistry(), new MultiLevelCacheProperties(),
+            CacheWeigher.retainedSize());
+        closing.add(cache);
+        return cache;
+    }
+
+    private CacheInvalidationBus bus(AdvancedCacheManager cache, InvalidationTransport transport,
+                                     SimpleMeterRegistry metrics) {
+        CacheInvalidationBus bus = new CacheInvalidationBus(cache, transport, metrics, BATCH_WINDOW, SECRET);
+        closing.add(bus);
+        return bus;
+    }
+}
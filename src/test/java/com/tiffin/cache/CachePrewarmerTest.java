@@ -0,0 +1,256 @@
+package com.tiffin.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit test for CachePrewarmer: meal windows, learned peaks and the runs they start
+ *
+ * Times are on DAY in Asia/Kolkata, a zone without DST; a time written +1d or -1d is on the
+ * day after or before.
+ */
+class CachePrewarmerTest {
+
+    private static final ZoneId ZONE = ZoneId.of("Asia/Kolkata");
+    private static final LocalDate DAY = LocalDate.of(2026, 10, 16);
+
+    private final Map<String, Object> prewarms = new LinkedHashMap<>(); // beans, read on every call
+    private final List<String> loadedMeals = new ArrayList<>();
+    private MultiLevelCacheProperties properties;
+    private SimpleMeterRegistry registry;
+    private AdvancedCacheManager cacheManager;
+    private CachePrewarmer prewarmer;
+
+    @BeforeEach
+    void setUp() {
+        properties = new MultiLevelCacheProperties();
+        properties.getPrewarm().setZone(ZONE);
+        properties.getPrewarm().setLead(Duration.ofMinutes(10));
+        properties.getPrewarm().getMeals().put("LUNCH", "12:00-14:30");
+        properties.getPrewarm().getMeals().put("LATE_NIGHT", "23:30-00:30");
+        registry = new SimpleMeterRegistry();
+        cacheManager = new AdvancedCacheManager(registry, properties, CacheWeigher.retainedSize());
+        prewarmer = new CachePrewarmer(cacheManager, properties,
+            new StaticListableBeanFactory(prewarms).getBeanProvider(CachePrewarm.class), registry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        cacheManager.close();
+    }
+
+    @ParameterizedTest(name = "{0} at {1}: {2} to {3}")
+    @CsvSource({
+        // Window within the day
+        "12:00-14:30, 11:59,    12:00,    14:30",
+        "12:00-14:30, 12:00,    12:00,    14:30",
+        "12:00-14:30, 14:29,    12:00,    14:30",
+        "12:00-14:30, 14:30,    12:00+1d, 14:30+1d",
+        "12:00-14:30, 23:59,    12:00+1d, 14:30+1d",
+        "12:00-14:30, 00:00,    12:00,    14:30",
+        // Window running past midnight
+        "23:30-00:30, 23:29,    23:30,    00:30+1d",
+        "23:30-00:30, 23:30,    23:30,    00:30+1d",
+        "23:30-00:30, 23:59,    23:30,    00:30+1d",
+        "23:30-00:30, 00:00,    23:30-1d, 00:30",
+        "23:30-00:30, 00:29,    23:30-1d, 00:30",
+        "23:30-00:30, 00:30,    23:30,    00:30+1d",
+        // Window starting at midnight
+        "00:00-02:00, 23:59,    00:00+1d, 02:00+1d",
+        "00:00-02:00, 00:00,    00:00,    02:00",
+        "00:00-02:00, 02:00,    00:00+1d, 02:00+1d",
+    })
+    void next_AroundMidnight_IsTheWindowUnderWayOrElseTheNextOne(String window, String now, String start, String end) {
+        CachePrewarmer.Meal meal = CachePrewarmer.Meal.parse("LUNCH", window);
+
+        CachePrewarmer.Peak peak = meal.next(at(now));
+
+        assertThat(peak.start()).isEqualTo(at(start));
+        assertThat(peak.end()).isEqualTo(at(end));
+        assertThat(peak.meal()).isEqualTo("LUNCH");
+    }
+
+    @ParameterizedTest(name = "at {0}: {1}")
+    @CsvSource({
+        // Lead of 10 minutes: a meal is picked once its start is at most that far ahead
+        "11:49, ",
+        "11:50, LUNCH 12:00-14:30",
+        "14:29, LUNCH 12:00-14:30",
+        "14:30, ",
+        "23:19, ",
+        "23:20, LATE_NIGHT 23:30-00:30+1d",
+        "23:59, LATE_NIGHT 23:30-00:30+1d",
+        "00:00, LATE_NIGHT 23:30-1d-00:30",
+        "00:30, ",
+    })
+    void upcomingPeak_WithoutHistory_IsTheMealWithinTheLead(String now, String expected) {
+        assertThat(describe(prewarmer.upcomingPeak("subscriptions", at(now)))).isEqualTo(expected);
+    }
+
+    @ParameterizedTest(name = "at {0}: {1}")
+    @CsvSource({
+        // Learned peak over 23:30-00:30, across midnight
+        "23:19, ",
+        "23:20, LATE_NIGHT 23:30-00:30+1d",
+        "23:45, LATE_NIGHT 23:30-00:30+1d",
+        "23:59, LATE_NIGHT 23:30-00:30+1d",
+        "00:00, LATE_NIGHT 23:30-1d-00:30",
+        "00:29, LATE_NIGHT 23:30-1d-00:30",
+        "00:30, ",
+        // Learned peak over 03:00-03:15, outside every meal
+        "02:49, ",
+        "02:50, 03:00-03:15",
+        "03:14, 03:00-03:15",
+        "03:15, ",
+        // Learned peak over 12:15-13:00, during lunch
+        "12:04, ",
+        "12:05, LUNCH 12:15-13:00",
+        "12:59, LUNCH 12:15-13:00",
+        "13:00, ",
+    })
+    void upcomingPeak_WithHistory_IsTheLearnedPeakWithinTheLead(String now, String expected) {
+        learn("dishes", 2, "23:30", "23:45", "00:00", "00:15", "03:00", "12:15", "12:30", "12:45");
+
+        assertThat(cacheManager.getAccessProfile().hasHistory("dishes")).isTrue();
+        assertThat(describe(prewarmer.upcomingPeak("dishes", at(now)))).isEqualTo(expected);
+    }
+
+    @Test
+    void prewarmUpcomingPeaks_Run_PinsLoadedKeysAndReportsTheirHitsWhenThePeakEnds() {
+        prewarms.put("subscriptions", CachePrewarm.of("subscriptions", meal -> {
+            loadedMeals.add(meal);
+            cacheManager.put("subscriptions:1", "Asha", 86_400_000);
+            cacheManager.put("subscriptions:2", "Kabir", 86_400_000);
+            cacheManager.put("subscriptions:3", "Meera", 86_400_000);
+            return List.of("subscriptions:1", "subscriptions:2", "subscriptions:3", "subscriptions:uncached");
+        }));
+
+        prewarmer.prewarmUpcomingPeaks(at("11:49"));
+        assertThat(loadedMeals).isEmpty();
+        prewarmer.prewarmUpcomingPeaks(at("11:50"));
+        prewarmer.prewarmUpcomingPeaks(at("12:30"));
+        assertThat(loadedMeals).containsExactly("LUNCH");
+
+        cacheManager.get("subscriptions:1", String.class);
+        cacheManager.get("subscriptions:1", String.class);
+        cacheManager.get("subscriptions:2", String.class);
+        prewarmer.prewarmUpcomingPeaks(at("14:29"));
+        assertThat(registry.find("tiffin.cache.prewarm.reads").counter()).isNull();
+
+        prewarmer.prewarmUpcomingPeaks(at("14:30"));
+        // The uncached key was left out of the batch
+        assertThat(counter("tiffin.cache.prewarm.entries", "result", "hit")).isEqualTo(2);
+        assertThat(counter("tiffin.cache.prewarm.entries", "result", "unused")).isEqualTo(1);
+        assertThat(counter("tiffin.cache.prewarm.reads")).isEqualTo(3);
+
+        // Reads after the peak are no longer counted
+        cacheManager.get("subscriptions:3", String.class);
+        prewarmer.prewarmUpcomingPeaks(at("23:20"));
+        assertThat(loadedMeals).containsExactly("LUNCH", "LATE_NIGHT");
+        prewarmer.prewarmUpcomingPeaks(at("00:30+1d"));
+        assertThat(counter("tiffin.cache.prewarm.entries", "result", "hit")).isEqualTo(2);
+        assertThat(counter("tiffin.cache.prewarm.entries", "result", "unused")).isEqualTo(4);
+    }
+
+    @Test
+    void prewarmUpcomingPeaks_LoaderFails_IsNotRetriedBeforeTheNextPeak() {
+        prewarms.put("subscriptions", CachePrewarm.of("subscriptions", meal -> {
+            loadedMeals.add(meal);
+            throw new IllegalStateException("database down");
+        }));
+
+        prewarmer.prewarmUpcomingPeaks(at("11:55"));
+        prewarmer.prewarmUpcomingPeaks(at("11:56"));
+        prewarmer.prewarmUpcomingPeaks(at("13:00"));
+
+        assertThat(loadedMeals).containsExactly("LUNCH");
+        assertThat(counter("tiffin.cache.prewarm.failures")).isEqualTo(1);
+        // Nothing was pinned, so nothing is reported
+        prewarmer.prewarmUpcomingPeaks(at("14:30"));
+        assertThat(registry.find("tiffin.cache.prewarm.entries").counters()).isEmpty();
+    }
+
+    @Test
+    void prewarmUpcomingPeaks_Disabled_StillReleasesTheRunUnderWay() {
+        prewarms.put("subscriptions", CachePrewarm.of("subscriptions", meal -> {
+            loadedMeals.add(meal);
+            cacheManager.put("subscriptions:1", "Asha", 86_400_000);
+            return List.of("subscriptions:1");
+        }));
+        prewarmer.prewarmUpcomingPeaks(at("12:00"));
+
+        properties.getPrewarm().setEnabled(false);
+        prewarmer.prewarmUpcomingPeaks(at("14:30"));
+        prewarmer.prewarmUpcomingPeaks(at("23:30"));
+
+        assertThat(loadedMeals).containsExactly("LUNCH");
+        assertThat(counter("tiffin.cache.prewarm.entries", "result", "unused")).isEqualTo(1);
+    }
+
+    /**
+     * Feed the namespace's access profile two days of reads: 100 per slot in the peak slots
+     * given by their start, 10 in the others, too few to be a peak of their own
+     */
+    private void learn(String namespace, int days, String... peakSlots) {
+        List<Integer> peaks = new ArrayList<>();
+        for (String slot : peakSlots) {
+            peaks.add(AccessProfile.slotOf(LocalTime.parse(slot)));
+        }
+        String key = namespace + ":1";
+        cacheManager.put(key, "Paneer Tikka", 86_400_000);
+        AccessProfile profile = cacheManager.getAccessProfile();
+        profile.update(LocalTime.MIN);
+        for (int slot = 0; slot < days * AccessProfile.SLOTS; slot++) {
+            int reads = peaks.contains(slot % AccessProfile.SLOTS) ? 100 : 10;
+            for (int i = 0; i < reads; i++) {
+                cacheManager.get(key, String.class);
+            }
+            profile.update(LocalTime.MIN.plus(AccessProfile.SLOT.multipliedBy(slot + 1)));
+        }
+    }
+
+    private double counter(String name, String... tags) {
+        return registry.get(name).tags("namespace", "subscriptions").tags(tags).counter().count();
+    }
+
+    private static String describe(CachePrewarmer.Peak peak) {
+        if (peak == null) {
+            return null;
+        }
+        return (peak.meal() != null ? peak.meal() + " " : "") + format(peak.start()) + "-" + format(peak.end());
+    }
+
+    private static String format(ZonedDateTime time) {
+        long days = time.toLocalDate().toEpochDay() - DAY.toEpochDay();
+        return time.toLocalTime() + (days == 0 ? "" : String.format("%+dd", days));
+    }
+
+    /**
+     * HH:mm on DAY, or on a day before or after with a -1d or +1d suffix
+     */
+    private static ZonedDateTime at(String time) {
+        int days = 0;
+        if (time.endsWith("d")) {
+            days = Integer.parseInt(time.substring(5, time.length() - 1));
+            time = time.substring(0, 5);
+        }
+        return ZonedDateTime.of(DAY.plusDays(days), LocalTime.parse(time), ZONE);
+    }
+}
@@ -0,0 +1,168 @@
+package com.tiffin.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+import static org.assertj.core.api.Assumptions.assumeThat;
+
+/**
+ * Unit test for CacheSnapshotService and the CacheSnapshot file it writes
+ */
+class CacheSnapshotServiceTest {
+
+    @TempDir
+    Path directory;
+
+    private final List<AdvancedCacheManager> managers = new ArrayList<>();
+    private MultiLevelCacheProperties properties;
+    private Path file;
+
+    @BeforeEach
+    void setUp() {
+        properties = new MultiLevelCacheProperties();
+        file = directory.resolve("cache").resolve("tiffin-cache.snapshot");
+        properties.getSnapshot().setPath(file.toString());
+    }
+
+    @AfterEach
+    void tearDown() {
+        managers.forEach(AdvancedCacheManager::close);
+    }
+
+    @Test
+    void restore_AfterSnapshot_KeepsValuesLevelsAndRemainingTtls() {
+        AdvancedCacheManager before = manager();
+        before.put("dish:1", "Paneer Tikka", 60_000, CacheLevel.L1);
+        before.put("dishes:available", new ArrayList<>(List.of("Paneer Tikka", "Dal Makhani")), 120_000, CacheLevel.L2);
+
+        assertThat(new CacheSnapshotService(before, properties).snapshot()).isEqualTo(2);
+        AdvancedCacheManager after = manager();
+        assertThat(new CacheSnapshotService(after, properties).restore()).isEqualTo(2);
+
+        assertThat(after.levelOf("dish:1")).contains(CacheLevel.L1);
+        assertThat(after.levelOf("dishes:available")).contains(CacheLevel.L2);
+        // Restored entries expire when the originals would have, not a full TTL later
+        Map<String, Long> expiries = expiries(before);
+        assertThat(expiries(after)).hasSameSizeAs(expiries).allSatisfy((key, expiresAt) ->
+            assertThat(expiresAt).isCloseTo(expiries.get(key), within(2 * CacheTicker.RESOLUTION_MILLIS)));
+        assertThat(after.get("dish:1", String.class)).contains("Paneer Tikka");
+        assertThat(after.get("dishes:available", List.class)).contains(List.of("Paneer Tikka", "Dal Makhani"));
+    }
+
+    @Test
+    void snapshot_CredentialsAndHibernateEntries_AreLeftOut() throws IOException {
+        AdvancedCacheManager before = manager();
+        before.put("dish:1", "Paneer Tikka", 60_000, CacheLevel.L1);
+        before.put(MultiLevelRegionFactory.KEY_PREFIX + "com.tiffin.menu.model.Dish#1", "entity state", 60_000,
+            CacheLevel.L1);
+        before.put("userDetails:asha@example.com", "credentials", 60_000, CacheLevel.L1);
+
+        assertThat(new CacheSnapshotService(before, properties).snapshot()).isEqualTo(1);
+
+        assertThat(CacheSnapshot.read(file, System.currentTimeMillis()))
+            .extracting(CacheSnapshot.Record::getKey).containsExactly("dish:1");
+    }
+
+    @Test
+    void restore_CredentialsWrittenBeforeTheyWereExcluded_AreSkipped() throws IOException {
+        long expiresAt = System.currentTimeMillis() + 60_000;
+        CacheSnapshot.write(file, List.of(
+            new CacheSnapshot.Entry("userDetails:asha@example.com", CacheLevel.L1, expiresAt, 1, "credentials"),
+            new CacheSnapshot.Entry(MultiLevelRegionFactory.KEY_PREFIX + "Dish#1", CacheLevel.L1, expiresAt, 1, "state"),
+            new CacheSnapshot.Entry("dish:1", CacheLevel.L1, expiresAt, 1, "Paneer Tikka")));
+        AdvancedCacheManager after = manager();
+
+        assertThat(new CacheSnapshotService(after, properties).restore()).isEqualTo(1);
+
+        assertThat(after.get("userDetails:asha@example.com", String.class)).isEmpty();
+        assertThat(after.get("dish:1", String.class)).contains("Paneer Tikka");
+    }
+
+    @Test
+    void restore_ClassOutsideTheFilter_IsRejectedAndTheRestRestored() throws IOException {
+        long expiresAt = System.currentTimeMillis() + 60_000;
+        CacheSnapshot.write(file, List.of(
+            new CacheSnapshot.Entry("link:1", CacheLevel.L1, expiresAt, 1, URI.create("https://example.com")),
+            new CacheSnapshot.Entry("dish:1", CacheLevel.L1, expiresAt, 1, "Paneer Tikka")));
+
+        CacheSnapshot.Record rejected = CacheSnapshot.read(file, System.currentTimeMillis()).get(0);
+        assertThatThrownBy(rejected::deserialize).isInstanceOf(InvalidClassException.class);
+
+        AdvancedCacheManager after = manager();
+        assertThat(new CacheSnapshotService(after, properties).restore()).isEqualTo(1);
+        assertThat(after.levelOf("link:1")).isEmpty();
+        assertThat(after.get("dish:1", String.class)).contains("Paneer Tikka");
+    }
+
+    @Test
+    void read_ExpiredRecords_AreSkipped() throws IOException {
+        long now = System.currentTimeMillis();
+        CacheSnapshot.write(file, List.of(
+            new CacheSnapshot.Entry("dish:1", CacheLevel.L1, now - 1, 1, "Paneer Tikka"),
+            new CacheSnapshot.Entry("dish:2", CacheLevel.L2, now + 60_000, 1, "Dal Makhani")));
+
+        assertThat(CacheSnapshot.read(file, now)).extracting(CacheSnapshot.Record::getKey).containsExactly("dish:2");
+    }
+
+    @Test
+    void write_CreatesAnOwnerOnlyFileInAnOwnerOnlyDirectory() throws IOException {
+        assumePosix();
+
+        CacheSnapshot.write(file, List.of());
+
+        assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(file))).isEqualTo("rw-------");
+        assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(file.getParent())))
+            .isEqualTo("rwx------");
+    }
+
+    @Test
+    void restore_FileWritableByGroupOrOthers_IsRefused() throws IOException {
+        assumePosix();
+        long expiresAt = System.currentTimeMillis() + 60_000;
+        CacheSnapshot.write(file, List.of(new CacheSnapshot.Entry("dish:1", CacheLevel.L1, expiresAt, 1, "Paneer Tikka")));
+
+        for (String permissions : List.of("rw--w----", "rw-----w-")) {
+            Files.setPosixFilePermissions(file, PosixFilePermissions.fromString(permissions));
+
+            assertThatThrownBy(() -> CacheSnapshot.read(file, System.currentTimeMillis()))
+                .isInstanceOf(IOException.class).hasMessageContaining("writable by others");
+            AdvancedCacheManager after = manager();
+            assertThat(new CacheSnapshotService(after, properties).restore()).isZero();
+            assertThat(after.get("dish:1", String.class)).isEmpty();
+        }
+    }
+
+    private AdvancedCacheManager manager() {
+        AdvancedCacheManager manager = new AdvancedCacheManager(new SimpleMeterRegistry(), properties,
+            CacheWeigher.retainedSize());
+        managers.add(manager);
+        return manager;
+    }
+
+    private static Map<String, Long> expiries(AdvancedCacheManager manager) {
+        return manager.snapshotEntries().stream()
+            .collect(Collectors.toMap(CacheSnapshot.Entry::getKey, CacheSnapshot.Entry::getExpiresAt));
+    }
+
+    private void assumePosix() throws IOException {
+        assumeThat(Files.getFileStore(directory).supportsFileAttributeView(PosixFileAttributeView.class)).isTrue();
+    }
+}
@@ -0,0 +1,251 @@
+package com.tiffin.cache;
+
+import com.tiffin.stress.Stress;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrency scenarios for the multi-level cache and its L1 policy, see {@link com.tiffin.stress.StressSuite}
+ *
+ * The levels are kept small so that every round evicts, demotes and promotes constantly.
+ */
+public final class CacheStress {
+
+    private static final long TTL = 3_600_000;
+    private static final long L1_BYTES = DataSize.ofKilobytes(16).toBytes();
+    private static final long L2_BYTES = DataSize.ofKilobytes(64).toBytes();
+    private static final long L3_BYTES = DataSize.ofKilobytes(256).toBytes();
+
+    private CacheStress() {
+    }
+
+    public static void run(Stress stress) {
+        stress.scenario("L1 accounts for every entry and eviction", () -> l1Accounting(stress));
+        stress.scenario("levels stay within their budgets", () -> levelBudgets(stress));
+        stress.scenario("no stale value survives a later write", () -> latestWriteWins(stress));
+        stress.scenario("concurrent misses share one load", () -> singleFlight(stress));
+        stress.scenario("compute and putIfVersion lose no updates", () -> noLostUpdates(stress));
+    }
+
+    /**
+     * Unique keys are put and some removed while others read: afterwards each key put is either
+     * still cached, removed by a thread, or was handed to the eviction listener, exactly once
+     */
+    private static void l1Accounting(Stress stress) {
+        int perThread = 2_000;
+        NamespaceQuotas quotas = new NamespaceQuotas(Map.of(), L1_BYTES, L2_BYTES, new SimpleMeterRegistry());
+        Map<String, AtomicInteger> evicted = new ConcurrentHashMap<>();
+        WindowTinyLfuCache cache = new WindowTinyLfuCache(L1_BYTES, 1_024,
+            (key, entry, token) -> evicted.computeIfAbsent(key, k -> new AtomicInteger()).incrementAndGet(), quotas);
+        LongAdder removed = new LongAdder();
+
+        stress.race(thread -> {
+            Random random = stress.random(thread);
+            for (int i = 0; i < perThread; i++) {
+                CacheEntry entry = new CacheEntry(i, Long.MAX_VALUE);
+                entry.setWeight(64 + random.nextInt(1_024));
+                cache.put(key(thread, i), entry);
+                int earlier = random.nextInt(i + 1);
+                if (random.nextInt(8) == 0) {
+                    if (cache.remove(key(thread, earlier)) != null) {
+                        removed.increment();
+                    }
+                } else {
+                    cache.get(key(random.nextInt(stress.threads()), earlier));
+                }
+            }
+        });
+
+        long put = (long) perThread * stress.threads();
+        long evictions = evicted.values().stream().mapToInt(AtomicInteger::get).sum();
+        stress.check(put == cache.size() + evictions + removed.sum(),
+            "%d keys put but %d cached, %d evicted and %d removed", put, cache.size(), evictions, removed.sum());
+        evicted.forEach((key, count) -> {
+            stress.check(count.get() == 1, "%s evicted %d times", key, count.get());
+            stress.check(!cache.containsKey(key), "%s evicted but still cached", key);
+        });
+        long weight = 0;
+        for (String key : cache.keySet()) {
+            weight += cache.peek(key).getWeight();
+        }
+        stress.check(weight == cache.weightedSize(), "entries weigh %d but the policy counts %d",
+            weight, cache.weightedSize());
+        stress.check(cache.weightedSize() <= L1_BYTES, "L1 holds %d bytes of %d", cache.weightedSize(), L1_BYTES);
+    }
+
+    /**
+     * Puts, reads and invalidations of overlapping keys through every level
+     */
+    private static void levelBudgets(Stress stress) {
+        AdvancedCacheManager cache = manager(MultiLevelCacheProperties.Placement.FREQUENCY);
+        CacheLevel[] levels = {null, CacheLevel.L1, CacheLevel.L2, CacheLevel.L3};
+
+        stress.race(thread -> {
+            Random random = stress.random(thread);
+            for (int i = 0; i < 4_000; i++) {
+                String key = "budget:" + random.nextInt(400);
+                int dice = random.nextInt(10);
+                if (dice < 3) {
+                    cache.put(key, value(key, i, 64 + random.nextInt(2_048)), TTL, levels[random.nextInt(levels.length)]);
+                } else if (dice < 9) {
+                    cache.get(key, byte[].class).ifPresent(value -> stress.check(keyOf(value) == key.hashCode(),
+                        "%s read the value of another key", key));
+                } else {
+                    cache.invalidate(key);
+                }
+            }
+        });
+
+        CacheStats stats = cache.getStats();
+        stress.check(stats.getL1WeightedSize() <= L1_BYTES, "L1 holds %d bytes of %d", stats.getL1WeightedSize(), L1_BYTES);
+        stress.check(stats.getL2WeightedSize() <= L2_BYTES, "L2 holds %d bytes of %d", stats.getL2WeightedSize(), L2_BYTES);
+        stress.check(stats.getL3WeightedSize() <= L3_BYTES, "L3 holds %d bytes of %d", stats.getL3WeightedSize(), L3_BYTES);
+        stress.check(stats.getL1WeightedSize() >= 0 && stats.getL2WeightedSize() >= 0,
+            "negative weight: L1 %d, L2 %d", stats.getL1WeightedSize(), stats.getL2WeightedSize());
+        cache.clearAll();
+    }
+
+    /**
+     * Each key has one writer putting increasing versions into random levels, while readers
+     * promote it on every hit and a filler thread evicts it: once all are done, a key is
+     * either gone or holds its last version, never an older copy moved over the newer one
+     */
+    private static void latestWriteWins(Stress stress) {
+        int keysPerWriter = 16;
+        int writers = Math.max(1, stress.threads() / 2);
+        AdvancedCacheManager cache = manager(MultiLevelCacheProperties.Placement.KEY_PREFIX);
+        CacheLevel[] levels = {CacheLevel.L1, CacheLevel.L2, CacheLevel.L3};
+        AtomicLongArray last = new AtomicLongArray(writers * keysPerWriter);
+
+        stress.race(thread -> {
+            Random random = stress.random(thread);
+            if (thread < writers) {
+                for (long version = 1; version <= 1_500; version++) {
+                    int index = thread * keysPerWriter + random.nextInt(keysPerWriter);
+                    String key = "latest:" + index;
+                    cache.put(key, value(key, version, 64 + random.nextInt(1_024)), TTL, levels[random.nextInt(levels.length)]);
+                    last.set(index, version);
+                }
+            } else {
+                for (int i = 0; i < 6_000; i++) {
+                    if (random.nextInt(4) == 0) {
+                        cache.put("filler:" + thread + ":" + i, new byte[512], TTL, CacheLevel.L1);
+                    } else {
+                        cache.get("latest:" + random.nextInt(last.length()), byte[].class);
+                    }
+                }
+            }
+        });
+
+        for (int index = 0; index < last.length(); index++) {
+            String key = "latest:" + index;
+            Optional<byte[]> value = cache.get(key, byte[].class);
+            if (value.isPresent()) {
+                stress.check(versionOf(value.get()) == last.get(index), "%s holds version %d, last written %d",
+                    key, versionOf(value.get()), last.get(index));
+            }
+        }
+        cache.clearAll();
+    }
+
+    /**
+     * Every thread asks for the same few missing keys at once: each loader runs once
+     */
+    private static void singleFlight(Stress stress) {
+        int keys = 8;
+        AdvancedCacheManager cache = manager(MultiLevelCacheProperties.Placement.FREQUENCY);
+        AtomicLongArray loads = new AtomicLongArray(keys);
+        String prefix = "flight:" + stress.round() + ":";
+
+        stress.race(thread -> {
+            for (int i = 0; i < keys; i++) {
+                int index = (i + thread) % keys;
+                Long value = cache.get(prefix + index, Long.class, () -> {
+                    loads.incrementAndGet(index);
+                    Thread.sleep(2);
+                    return (long) index;
+                });
+                stress.check(value != null && value == index, "%s%d loaded as %s", prefix, index, value);
+            }
+        });
+
+        for (int i = 0; i < keys; i++) {
+            stress.check(loads.get(i) == 1, "%s%d loaded %d times", prefix, i, loads.get(i));
+        }
+        cache.clearAll();
+    }
+
+    /**
+     * Threads increment a few counters, by compute or by a putIfVersion retry loop: the final
+     * value of each counter is the number of increments that reported success
+     */
+    private static void noLostUpdates(Stress stress) {
+        int counters = 4;
+        AdvancedCacheManager cache = manager(MultiLevelCacheProperties.Placement.FREQUENCY);
+        AtomicLongArray increments = new AtomicLongArray(counters);
+
+        stress.race(thread -> {
+            Random random = stress.random(thread);
+            for (int i = 0; i < 500; i++) {
+                int index = random.nextInt(counters);
+                String key = "counter:" + index;
+                if (random.nextBoolean()) {
+                    cache.compute(key, Long.class, count -> count == null ? 1 : count + 1, TTL, CacheLevel.L2);
+                } else {
+                    while (true) {
+                        Optional<Versioned<Long>> current = cache.getVersioned(key, Long.class);
+                        long count = current.map(Versioned::getValue).orElse(0L);
+                        long version = current.map(Versioned::getVersion).orElse(Versioned.NO_VERSION);
+                        if (cache.putIfVersion(key, count + 1, version, TTL, CacheLevel.L2).isPresent()) {
+                            break;
+                        }
+                    }
+                }
+                increments.incrementAndGet(index);
+            }
+        });
+
+        for (int i = 0; i < counters; i++) {
+            long count = cache.get("counter:" + i, Long.class).orElse(0L);
+            stress.check(count == increments.get(i), "counter:%d is %d after %d increments", i, count, increments.get(i));
+        }
+        cache.clearAll();
+    }
+
+    private static AdvancedCacheManager manager(MultiLevelCacheProperties.Placement placement) {
+        MultiLevelCacheProperties properties = new MultiLevelCacheProperties();
+        properties.setPlacement(placement);
+        properties.setL1MaxWeight(DataSize.ofBytes(L1_BYTES));
+        properties.setL2MaxWeight(DataSize.ofBytes(L2_BYTES));
+        properties.setL3MaxWeight(DataSize.ofBytes(L3_BYTES));
+        return new AdvancedCacheManager(new SimpleMeterRegistry(), properties, CacheWeigher.retainedSize());
+    }
+
+    private static String key(int thread, int i) {
+        return "l1:" + thread + ":" + i;
+    }
+
+    /**
+     * A value recording the key it was written for and its version
+     */
+    private static byte[] value(String key, long version, int size) {
+        return ByteBuffer.allocate(Math.max(12, size)).putInt(key.hashCode()).putLong(version).array();
+    }
+
+    private static int keyOf(byte[] value) {
+        return ByteBuffer.wrap(value).getInt(0);
+    }
+
+    private static long versionOf(byte[] value) {
+        return ByteBuffer.wrap(value).getLong(4);
+    }
+}
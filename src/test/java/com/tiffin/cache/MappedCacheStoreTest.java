@@ -0,0 +1,149 @@
+package com.tiffin.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit test for MappedCacheStore's ring log and index
+ */
+class MappedCacheStoreTest {
+
+    private static final long LIVE = System.currentTimeMillis() + 3_600_000;
+
+    @Test
+    void put_PastEndOfRegion_WrapsAndKeepsNewestRecords() {
+        MappedCacheStore store = MappedCacheStore.createTemporary(4096, 1000);
+        List<String> evicted = new ArrayList<>();
+        store.setEvictionListener(evicted::add);
+
+        // About 240 bytes a record, so 100 of them go around the 4KB ring several times
+        for (int i = 0; i < 100; i++) {
+            assertThat(store.put("dish:" + i, value(i), LIVE)).isTrue();
+        }
+
+        int size = store.size();
+        assertThat(size).isBetween(10, 17);
+        assertThat(store.getUsedBytes()).isLessThanOrEqualTo(store.getCapacityBytes());
+        for (int i = 0; i < 100; i++) {
+            // FIFO in write order: exactly the last `size` keys survive, intact across the wrap
+            assertThat(store.get("dish:" + i)).isEqualTo(i >= 100 - size ? value(i) : null);
+        }
+        assertThat(store.getEvictionCount()).isEqualTo(100 - size);
+        assertThat(evicted).containsExactlyElementsOf(
+            IntStream.range(0, 100 - size).mapToObj(i -> "dish:" + i).toList());
+    }
+
+    @Test
+    void put_SameKeyPastEndOfRegion_KeepsLatestValueOnly() {
+        MappedCacheStore store = MappedCacheStore.createTemporary(4096, 1000);
+
+        for (int i = 0; i < 100; i++) {
+            store.put("dish:1", value(i), LIVE);
+        }
+
+        // The overwritten records aged out of the log without counting as evictions
+        assertThat(store.size()).isEqualTo(1);
+        assertThat(store.get("dish:1")).isEqualTo(value(99));
+        assertThat(store.getEvictionCount()).isZero();
+    }
+
+    @Test
+    void put_AtMaxEntries_ReclaimsOldestRecord() {
+        MappedCacheStore store = MappedCacheStore.createTemporary(1 << 20, 4);
+        List<String> evicted = new ArrayList<>();
+        store.setEvictionListener(evicted::add);
+
+        for (int i = 0; i < 5; i++) {
+            store.put("dish:" + i, value(i), LIVE);
+        }
+
+        assertThat(store.size()).isEqualTo(4);
+        assertThat(store.get("dish:0")).isNull();
+        assertThat(store.getAll(List.of("dish:1", "dish:2", "dish:3", "dish:4"))).hasSize(4);
+        assertThat(evicted).containsExactly("dish:0");
+
+        // Overwriting a present key needs no new index slot
+        store.put("dish:4", value(40), LIVE);
+        assertThat(store.size()).isEqualTo(4);
+        assertThat(store.get("dish:4")).isEqualTo(value(40));
+        assertThat(store.getEvictionCount()).isEqualTo(1);
+    }
+
+    @Test
+    void put_Expired_IsAbsentAndNotCountedWhenReclaimed() {
+        MappedCacheStore store = MappedCacheStore.createTemporary(1 << 20, 1);
+
+        store.put("dish:1", value(1), CacheTicker.now() - 1);
+        assertThat(store.get("dish:1")).isNull();
+        assertThat(store.contains("dish:1")).isFalse();
+
+        store.put("dish:2", value(2), LIVE);
+        assertThat(store.getStored("dish:2")).isEqualTo(new MappedCacheStore.Stored(value(2), LIVE));
+        assertThat(store.getEvictionCount()).isZero();
+    }
+
+    @Test
+    void remove_PresentAndAbsentKeys() {
+        MappedCacheStore store = MappedCacheStore.createTemporary(1 << 20, 16);
+        store.put("dish:1", value(1), LIVE);
+
+        assertThat(store.remove("dish:1")).isTrue();
+        assertThat(store.remove("dish:1")).isFalse();
+        assertThat(store.get("dish:1")).isNull();
+        assertThat(store.size()).isZero();
+    }
+
+    @Test
+    void removeAll_CountsOnlyPresentKeys() {
+        MappedCacheStore store = MappedCacheStore.createTemporary(1 << 20, 16);
+        store.put("dish:1", value(1), LIVE);
+        store.put("dish:2", value(2), LIVE);
+        store.put("dish:3", value(3), LIVE);
+
+        assertThat(store.removeAll(List.of("dish:1", "dish:3", "dish:9"))).isEqualTo(2);
+        assertThat(store.getAll(List.of("dish:1", "dish:2", "dish:3")).keySet()).containsExactly("dish:2");
+    }
+
+    @Test
+    void removeIf_EveryOtherKey_KeepsProbeChainsOfTheRest() {
+        // A full-ish index, so backward-shift deletes move entries between slots
+        MappedCacheStore store = MappedCacheStore.createTemporary(1 << 20, 256);
+        for (int i = 0; i < 256; i++) {
+            store.put("dish:" + i, value(i), LIVE);
+        }
+
+        int removed = store.removeIf(key -> Integer.parseInt(key.substring(5)) % 2 == 0);
+
+        assertThat(removed).isEqualTo(128);
+        assertThat(store.size()).isEqualTo(128);
+        for (int i = 0; i < 256; i++) {
+            assertThat(store.get("dish:" + i)).isEqualTo(i % 2 == 0 ? null : value(i));
+        }
+    }
+
+    @Test
+    void remove_ThenWrap_DoesNotReportRemovedKeyAsEvicted() {
+        MappedCacheStore store = MappedCacheStore.createTemporary(4096, 1000);
+        Set<String> evicted = new HashSet<>();
+        store.setEvictionListener(evicted::add);
+
+        store.put("dish:removed", value(0), LIVE);
+        store.remove("dish:removed");
+        for (int i = 1; i < 100; i++) {
+            store.put("dish:" + i, value(i), LIVE);
+        }
+
+        assertThat(evicted).doesNotContain("dish:removed").contains("dish:1");
+    }
+
+    private static String value(int i) {
+        return i + ":" + "x".repeat(200);
+    }
+}
@@ -0,0 +1,103 @@
+package com.tiffin.cache;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Prints the heap retained by, and the GC work caused by, holding the same entries in
+ * MappedCacheStore versus an on-heap map of the deserialized values
+ *
+ *   java -Xmx2g -cp ... com.tiffin.cache.MappedStoreHeapFootprint [entries]
+ *
+ * Retained heap is the used heap after a full GC with the store filled, minus the used
+ * heap before it was created (so the mapped store's index arrays count). The churn phase then reads a random entry and overwrites
+ * another, and reports the collections and collection time it caused. Not a unit test
+ * (no *Test suffix), so the build does not run it.
+ */
+public class MappedStoreHeapFootprint {
+
+    private static final int DEFAULT_ENTRIES = 200_000;
+    private static final int CHURN_OPERATIONS = 2_000_000;
+    private static final int DISHES_PER_VALUE = 8;
+
+    public static void main(String[] args) {
+        int entries = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ENTRIES;
+        long expiresAt = System.currentTimeMillis() + 3_600_000;
+
+        long before = usedHeapAfterGc();
+        Map<String, Object> heap = new ConcurrentHashMap<>(entries * 2);
+        report("on-heap map", entries, before, heap::get, heap::put);
+        heap.clear();
+
+        before = usedHeapAfterGc();
+        // Twice the room the entries need; overwrites still push the least recently written out of the ring
+        MappedCacheStore store = MappedCacheStore.createTemporary(entries * 1024, entries);
+        report("mapped store", entries, before, store::get, (key, value) -> store.put(key, value, expiresAt));
+        System.out.printf("  mapped bytes used %.1f MB off-heap%n", store.getUsedBytes() / 1048576.0);
+    }
+
+    private static void report(String name, int entries, long before, Function<String, Object> read,
+                               BiConsumer<String, Object> write) {
+        for (int i = 0; i < entries; i++) {
+            write.accept(key(i), value(i));
+        }
+        long retained = usedHeapAfterGc() - before;
+
+        long collections = collections();
+        long collectionMillis = collectionMillis();
+        long started = System.nanoTime();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int found = 0;
+        for (int i = 0; i < CHURN_OPERATIONS; i++) {
+            if (read.apply(key(random.nextInt(entries))) != null) {
+                found++;
+            }
+            int overwritten = random.nextInt(entries);
+            write.accept(key(overwritten), value(overwritten));
+        }
+        long churnMillis = (System.nanoTime() - started) / 1_000_000;
+
+        System.out.printf("%s: retained heap %.1f MB (%.0f B/entry); churn %d ms, %d GCs, %d ms in GC%s%n",
+            name, retained / 1048576.0, (double) retained / entries, churnMillis,
+            collections() - collections, collectionMillis() - collectionMillis,
+            found < CHURN_OPERATIONS ? " (" + (CHURN_OPERATIONS - found) + " misses)" : "");
+    }
+
+    private static String key(int i) {
+        return "dishes:" + i;
+    }
+
+    // Shaped like a cached menu list: a few short names
+    private static Object value(int i) {
+        List<String> dishes = new ArrayList<>(DISHES_PER_VALUE);
+        for (int d = 0; d < DISHES_PER_VALUE; d++) {
+            dishes.add("Dish " + i + "-" + d + " paneer butter masala");
+        }
+        return dishes;
+    }
+
+    private static long usedHeapAfterGc() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static long collections() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+            .mapToLong(GarbageCollectorMXBean::getCollectionCount).sum();
+    }
+
+    private static long collectionMillis() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+            .mapToLong(GarbageCollectorMXBean::getCollectionTime).sum();
+    }
+}
@@ -0,0 +1,95 @@
+package com.tiffin.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hibernate.cache.spi.support.StorageAccess;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit test for the region storage of MultiLevelRegionFactory
+ */
+class MultiLevelRegionFactoryTest {
+
+    // Distinct keys with the same String.hashCode, so the same storage key
+    private static final String KEY = "Aa";
+    private static final String COLLIDING_KEY = "BB";
+
+    private AdvancedCacheManager cacheManager;
+    private MultiLevelRegionFactory regionFactory;
+
+    @BeforeEach
+    void setUp() {
+        MultiLevelCacheProperties properties = new MultiLevelCacheProperties();
+        cacheManager = new AdvancedCacheManager(new SimpleMeterRegistry(), properties, CacheWeigher.retainedSize());
+        regionFactory = new MultiLevelRegionFactory(cacheManager, properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        cacheManager.close();
+    }
+
+    @Test
+    void getFromCache_KeyWithTheSameHash_DoesNotHitTheOthersEntry() {
+        assertThat(KEY.hashCode()).isEqualTo(COLLIDING_KEY.hashCode());
+        StorageAccess dishes = region("com.tiffin.menu.model.Dish");
+
+        dishes.putIntoCache(KEY, "Paneer Tikka", null);
+
+        assertThat(dishes.getFromCache(KEY, null)).isEqualTo("Paneer Tikka");
+        assertThat(dishes.getFromCache(COLLIDING_KEY, null)).isNull();
+        assertThat(dishes.contains(COLLIDING_KEY)).isFalse();
+        assertThat(cacheManager.levelOf("hibernate:com.tiffin.menu.model.Dish:" + KEY.hashCode()))
+            .contains(CacheLevel.L2);
+
+        // They share a storage key, so the later one replaces the earlier
+        dishes.putIntoCache(COLLIDING_KEY, "Dal Makhani", null);
+        assertThat(dishes.getFromCache(COLLIDING_KEY, null)).isEqualTo("Dal Makhani");
+        assertThat(dishes.getFromCache(KEY, null)).isNull();
+    }
+
+    @Test
+    void evictData_Key_RemovesOnlyThatKey() {
+        StorageAccess dishes = region("com.tiffin.menu.model.Dish");
+        dishes.putIntoCache(1L, "Paneer Tikka", null);
+        dishes.putIntoCache(2L, "Dal Makhani", null);
+
+        dishes.evictData(1L);
+
+        assertThat(dishes.contains(1L)).isFalse();
+        assertThat(dishes.getFromCache(2L, null)).isEqualTo("Dal Makhani");
+    }
+
+    @Test
+    void evictData_ClearsTheRegionOnly() {
+        StorageAccess dishes = region("com.tiffin.menu.model.Dish");
+        StorageAccess plans = region("com.tiffin.subscription.model.Plan");
+        dishes.putIntoCache(1L, "Paneer Tikka", null);
+        dishes.putIntoCache(2L, "Dal Makhani", null);
+        plans.putIntoCache(1L, "Monthly veg", null);
+
+        dishes.evictData();
+
+        assertThat(dishes.contains(1L)).isFalse();
+        assertThat(dishes.contains(2L)).isFalse();
+        assertThat(plans.getFromCache(1L, null)).isEqualTo("Monthly veg");
+    }
+
+    @Test
+    void release_ClearsTheRegion() {
+        StorageAccess dishes = region("com.tiffin.menu.model.Dish");
+        dishes.putIntoCache(1L, "Paneer Tikka", null);
+
+        dishes.release();
+
+        assertThat(dishes.getFromCache(1L, null)).isNull();
+        assertThat(cacheManager.levelOf("hibernate:com.tiffin.menu.model.Dish:" + Long.hashCode(1L))).isEmpty();
+    }
+
+    private StorageAccess region(String name) {
+        return regionFactory.createQueryResultsRegionStorageAccess(name, null);
+    }
+}
@@ -0,0 +1,222 @@
+package com.tiffin.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit test for NamespaceQuotas and PinnedKeys, as applied by WindowTinyLfuCache
+ *
+ * The level holds 10 000 bytes, a 100-byte window included. It is filled with 100 dishes:
+ * entries of 10 bytes, the oldest, then 79 sessions: entries of 100 bytes, leaving room for
+ * eight more. Bursts of users: or orders: keys follow, each read often enough to beat any
+ * dishes: or sessions: entry for admission.
+ */
+class NamespaceQuotasTest {
+
+    private static final long MAX_WEIGHT = 10_000;
+    private static final int DISHES = 100;
+    private static final int SESSIONS = 79;
+
+    private final Map<String, MultiLevelCacheProperties.NamespaceQuota> quotas = new LinkedHashMap<>();
+    private final List<String> evicted = new ArrayList<>();
+    private SimpleMeterRegistry registry;
+    private NamespaceQuotas namespaces;
+    private WindowTinyLfuCache cache;
+
+    @BeforeEach
+    void setUp() {
+        create(true);
+    }
+
+    private void create(boolean reserveDishes) {
+        quotas.clear();
+        if (reserveDishes) {
+            quotas.put("dishes", quota(DataSize.ofBytes(DISHES * 10), null));
+        }
+        quotas.put("users", quota(null, DataSize.ofBytes(3_000)));
+        registry = new SimpleMeterRegistry();
+        namespaces = new NamespaceQuotas(quotas, MAX_WEIGHT, MAX_WEIGHT, registry);
+        cache = new WindowTinyLfuCache(MAX_WEIGHT, 1_000, (key, entry, token) -> evicted.add(key), namespaces);
+    }
+
+    @Test
+    void put_BurstInACappedNamespace_CannotEvictAReservedOneBelowItsReservation() {
+        fill();
+
+        burst("users:", 0, 200, 5);
+
+        assertThat(dishesLeft()).isEqualTo(DISHES);
+        assertThat(weight("dishes:")).isEqualTo(DISHES * 10);
+        assertThat(weight("users:")).isLessThanOrEqualTo(3_000);
+        // More than 64 reserved entries led probation: they were requeued, not a dead end
+        assertThat(weight("sessions:")).isLessThan(SESSIONS * 100);
+        assertThat(evicted).noneMatch(key -> key.startsWith("dishes:"));
+    }
+
+    @Test
+    void put_BurstWithoutAReservation_EvictsTheOldestEntriesFirst() {
+        create(false);
+        fill();
+
+        burst("users:", 0, 200, 5);
+
+        assertThat(dishesLeft()).isLessThan(DISHES);
+        assertThat(evicted).anyMatch(key -> key.startsWith("dishes:"));
+    }
+
+    @Test
+    void put_OverTheCap_EvictsTheNamespacesOwnOldestEntries() {
+        for (int i = 0; i < 40; i++) {
+            cache.put("users:" + i, entry(100));
+        }
+
+        assertThat(weight("users:")).isEqualTo(3_000);
+        assertThat(evicted).containsExactlyElementsOf(IntStream.range(0, 10).mapToObj(i -> "users:" + i).toList());
+        assertThat(cache.containsKey("users:39")).isTrue();
+    }
+
+    @Test
+    void put_Evictions_AreChargedToTheNamespaceWhoseWriteForcedThem() {
+        fill();
+
+        burst("users:", 0, 200, 5);
+
+        assertThat(evicted).isNotEmpty();
+        assertThat(evictionsCaused("users")).isEqualTo(evicted.size());
+        assertThat(evictionsCaused("dishes")).isZero();
+        assertThat(evictionsCaused("sessions")).isZero();
+        assertThat(registry.get("tiffin.cache.namespace.weight").tags("namespace", "dishes", "level", "L1")
+            .gauge().value()).isEqualTo(DISHES * 10);
+    }
+
+    @Test
+    void isKept_ReservationExceeded_ProtectsNoMore() {
+        NamespaceQuotas.Usage dishes = namespaces.usage("dishes:1");
+        NamespaceQuotas.Usage users = namespaces.usage("users:1");
+
+        dishes.added(CacheLevel.L1, "dishes:1", DISHES * 10);
+        assertThat(namespaces.isKept(CacheLevel.L1, "dishes:1", users)).isTrue();
+        // Not against its own writes, nor in a level where it has no reservation
+        assertThat(namespaces.isKept(CacheLevel.L1, "dishes:1", dishes)).isFalse();
+        assertThat(namespaces.isKept(CacheLevel.L2, "dishes:1", users)).isFalse();
+
+        dishes.added(CacheLevel.L1, "dishes:2", 1);
+        assertThat(namespaces.isKept(CacheLevel.L1, "dishes:1", users)).isFalse();
+    }
+
+    @Test
+    void put_PinnedKeys_AreKeptUntilReleased() {
+        create(false);
+        PinnedKeys.Batch batch = namespaces.pins().pin(
+            IntStream.range(0, DISHES).mapToObj(i -> "dishes:" + i).toList(), System.currentTimeMillis() + 60_000);
+        fill();
+
+        burst("orders:", 0, 50, 5);
+        assertThat(dishesLeft()).isEqualTo(DISHES);
+
+        namespaces.pins().release(batch);
+        // Hotter than the first orders, which now lead probation ahead of the requeued dishes
+        burst("orders:", 50, 150, 10);
+        assertThat(dishesLeft()).isLessThan(DISHES);
+        assertThat(namespaces.pins().size()).isZero();
+    }
+
+    @Test
+    void isPinned_PastTheDeadline_IsFalse() {
+        PinnedKeys pins = namespaces.pins();
+
+        pins.pin(List.of("sessions:1"), System.currentTimeMillis() - 1_000); // the cache clock trails by up to 10 ms
+
+        assertThat(pins.isPinned("sessions:1")).isFalse();
+        assertThat(namespaces.isKept(CacheLevel.L1, "sessions:1", namespaces.usage("users:1"))).isFalse();
+    }
+
+    @Test
+    void release_KeyPinnedAgainByALaterBatch_StaysPinned() {
+        PinnedKeys pins = namespaces.pins();
+        long until = System.currentTimeMillis() + 60_000;
+        PinnedKeys.Batch lunch = pins.pin(List.of("dishes:1", "dishes:2"), until);
+        PinnedKeys.Batch dinner = pins.pin(List.of("dishes:2"), until);
+
+        pins.release(lunch);
+
+        assertThat(pins.isPinned("dishes:1")).isFalse();
+        assertThat(pins.isPinned("dishes:2")).isTrue();
+        pins.release(dinner);
+        assertThat(pins.size()).isZero();
+    }
+
+    @Test
+    void recordHit_CountsReadsAndKeysReadAtLeastOnce() {
+        PinnedKeys pins = namespaces.pins();
+        PinnedKeys.Batch batch = pins.pin(List.of("dishes:1", "dishes:2", "dishes:3"), System.currentTimeMillis() + 60_000);
+
+        pins.recordHit("dishes:1");
+        pins.recordHit("dishes:1");
+        pins.recordHit("dishes:2");
+        pins.recordHit("dishes:9");
+
+        assertThat(batch.size()).isEqualTo(3);
+        assertThat(batch.hitKeys()).isEqualTo(2);
+        assertThat(batch.reads()).isEqualTo(3);
+    }
+
+    private void fill() {
+        for (int i = 0; i < DISHES; i++) {
+            cache.put("dishes:" + i, entry(10));
+        }
+        for (int i = 0; i < SESSIONS; i++) {
+            cache.put("sessions:" + i, entry(100));
+        }
+        assertThat(evicted).isEmpty();
+    }
+
+    /**
+     * Write the namespace's keys numbered from..to, each read beforehand so it wins admission
+     */
+    private void burst(String namespace, int from, int to, int reads) {
+        for (int i = from; i < to; i++) {
+            String key = namespace + i;
+            for (int read = 0; read < reads; read++) {
+                cache.recordAccess(key);
+            }
+            cache.put(key, entry(100));
+        }
+    }
+
+    private long dishesLeft() {
+        return IntStream.range(0, DISHES).filter(i -> cache.containsKey("dishes:" + i)).count();
+    }
+
+    private long weight(String key) {
+        return namespaces.usage(key).weight(CacheLevel.L1);
+    }
+
+    private double evictionsCaused(String namespace) {
+        return registry.get("tiffin.cache.evictions.caused").tags("namespace", namespace, "level", "L1")
+            .counter().count();
+    }
+
+    private static CacheEntry entry(int weight) {
+        CacheEntry entry = new CacheEntry("value", Long.MAX_VALUE);
+        entry.setWeight(weight);
+        return entry;
+    }
+
+    private static MultiLevelCacheProperties.NamespaceQuota quota(DataSize l1Reserved, DataSize l1Max) {
+        MultiLevelCacheProperties.NamespaceQuota quota = new MultiLevelCacheProperties.NamespaceQuota();
+        quota.setL1Reserved(l1Reserved);
+        quota.setL1Max(l1Max);
+        return quota;
+    }
+}
@@ -0,0 +1,172 @@
+package com.tiffin.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Replays an access trace against the cache once per {@link MultiLevelCacheProperties.Placement}
+ * and prints the hit ratio of each level
+ *
+ * Run with a trace file, or without arguments to replay a synthetic trace:
+ *   java -cp ... com.tiffin.cache.PlacementReplayBenchmark [trace]
+ *
+ * Trace lines are "R key bytes" (a read, loaded and stored with no configured level on a
+ * miss) or "W key" (an update, which invalidates the key like the @CacheEvict paths do).
+ * The synthetic trace mimics the application's namespaces: a few heavy menu lists, dishes
+ * and user details by Zipf popularity, one-off unknown-email probes, scans of old orders,
+ * and dish popularity reshuffled halfway through.
+ *
+ * Not a unit test (no *Test suffix), so the build does not run it.
+ */
+public class PlacementReplayBenchmark {
+
+    private static final long TTL = 3_600_000;
+    private static final int SYNTHETIC_OPERATIONS = 1_000_000;
+
+    public static void main(String[] args) throws IOException {
+        List<Op> trace = args.length > 0 ? readTrace(Path.of(args[0])) : syntheticTrace(SYNTHETIC_OPERATIONS, 42);
+        System.out.printf("%d operations%n", trace.size());
+        for (MultiLevelCacheProperties.Placement placement : MultiLevelCacheProperties.Placement.values()) {
+            replay(trace, placement);
+        }
+    }
+
+    private static void replay(List<Op> trace, MultiLevelCacheProperties.Placement placement) {
+        MultiLevelCacheProperties properties = new MultiLevelCacheProperties();
+        properties.setPlacement(placement);
+        properties.setL1MaxWeight(DataSize.ofKilobytes(512));
+        properties.setL2MaxWeight(DataSize.ofMegabytes(2));
+        properties.setL3MaxWeight(DataSize.ofMegabytes(4));
+        MeterRegistry registry = new SimpleMeterRegistry();
+        AdvancedCacheManager cache = new AdvancedCacheManager(registry, properties, CacheWeigher.retainedSize());
+
+        long reads = 0;
+        long started = System.nanoTime();
+        for (Op op : trace) {
+            if (op.write) {
+                cache.invalidate(op.key);
+                continue;
+            }
+            reads++;
+            if (cache.get(op.key, byte[].class).isEmpty()) {
+                cache.put(op.key, new byte[op.bytes], TTL, null);
+            }
+        }
+        long elapsed = System.nanoTime() - started;
+
+        double l1 = count(registry, "L1");
+        double l2 = count(registry, "L2");
+        double l3 = count(registry, "L3");
+        System.out.printf("%-10s hit ratio %.3f (L1 %.3f, L2 %.3f, L3 %.3f)  %.0f ns/op%n",
+            placement, (l1 + l2 + l3) / reads, l1 / reads, l2 / reads, l3 / reads,
+            (double) elapsed / trace.size());
+        cache.clearAll();
+    }
+
+    private static double count(MeterRegistry registry, String level) {
+        return registry.find("tiffin.cache.gets").tag("level", level).tag("result", "hit").counters().stream()
+            .mapToDouble(Counter::count)
+            .sum();
+    }
+
+    private static List<Op> readTrace(Path path) throws IOException {
+        List<Op> trace = new ArrayList<>();
+        for (String line : Files.readAllLines(path)) {
+            String[] fields = line.trim().split("\\s+");
+            if (fields.length < 2 || fields[0].startsWith("#")) {
+                continue;
+            }
+            boolean write = fields[0].equals("W");
+            trace.add(new Op(write, fields[1], write ? 0 : Integer.parseInt(fields[2])));
+        }
+        return trace;
+    }
+
+    private static List<Op> syntheticTrace(int operations, long seed) {
+        Random random = new Random(seed);
+        Zipf dishes = new Zipf(5_000, 0.9, random);
+        Zipf users = new Zipf(20_000, 0.8, random);
+        int[] dishRank = identity(5_000);
+        List<Op> trace = new ArrayList<>(operations);
+        long nextProbe = 0;
+        long nextOrder = 0;
+
+        while (trace.size() < operations) {
+            if (trace.size() == operations / 2) {
+                shuffle(dishRank, random); // Yesterday's popular dishes are not today's
+            }
+            int dice = random.nextInt(1000);
+            if (dice < 1) {
+                // A report scanning a run of old orders, each read once
+                for (int i = 0; i < 200; i++) {
+                    trace.add(new Op(false, "orders:" + nextOrder++, 2_000));
+                }
+            } else if (dice < 200) {
+                trace.add(new Op(false, "dishes:category:" + random.nextInt(40), 20_000));
+            } else if (dice < 500) {
+                String key = "dish:" + dishRank[dishes.next()];
+                trace.add(new Op(random.nextInt(100) == 0, key, 1_000));
+            } else if (dice < 750) {
+                trace.add(new Op(false, "userDetails:" + users.next(), 300));
+            } else if (dice < 900) {
+                trace.add(new Op(false, "users:email:probe" + nextProbe++ + "@example.com", 200));
+            } else {
+                trace.add(new Op(false, "plans:" + random.nextInt(30), 4_000));
+            }
+        }
+        return trace.subList(0, operations);
+    }
+
+    private static int[] identity(int size) {
+        int[] values = new int[size];
+        Arrays.setAll(values, i -> i);
+        return values;
+    }
+
+    private static void shuffle(int[] values, Random random) {
+        for (int i = values.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = values[i];
+            values[i] = values[j];
+            values[j] = swap;
+        }
+    }
+
+    private record Op(boolean write, String key, int bytes) { }
+
+    /**
+     * Ranks 0..n-1 with probability proportional to 1 / (rank + 1)^exponent
+     */
+    private static final class Zipf {
+        private final double[] cumulative;
+        private final Random random;
+
+        Zipf(int n, double exponent, Random random) {
+            this.cumulative = new double[n];
+            this.random = random;
+            double sum = 0;
+            for (int i = 0; i < n; i++) {
+                sum += 1 / Math.pow(i + 1, exponent);
+                cumulative[i] = sum;
+            }
+            for (int i = 0; i < n; i++) {
+                cumulative[i] /= sum;
+            }
+        }
+
+        int next() {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble());
+            return Math.min(cumulative.length - 1, index >= 0 ? index : -index - 1);
+        }
+    }
+}
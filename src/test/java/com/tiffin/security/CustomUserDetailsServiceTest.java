@@ -0,0 +1,116 @@
+package com.tiffin.security;
+
+import com.tiffin.cache.AdvancedCacheManager;
+import com.tiffin.cache.MappedCacheStore;
+import com.tiffin.user.model.User;
+import com.tiffin.user.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.core.CredentialsContainer;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Integration test for CustomUserDetailsService's credential cache and its invalidation by
+ * EntityChangeInvalidator
+ * Not @Transactional: the cache entries are only invalidated once a save commits.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class CustomUserDetailsServiceTest {
+
+    @Autowired
+    private CustomUserDetailsService userDetailsService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private AdvancedCacheManager cacheManager;
+
+    private final List<User> saved = new ArrayList<>();
+
+    @AfterEach
+    void deleteUsers() {
+        userRepository.deleteAll(saved);
+    }
+
+    @Test
+    void loadUserByUsername_CachesCredentialsThatNeverReachL3() {
+        save("meera@example.com", "+919800000001");
+
+        assertThat(userDetailsService.loadUserByUsername("meera@example.com").getPassword()).isEqualTo("hash-1");
+
+        // Spring Security erases the password of what it returned; the cached snapshot keeps it
+        ((CredentialsContainer) userDetailsService.loadUserByUsername("meera@example.com")).eraseCredentials();
+        assertThat(userDetailsService.loadUserByUsername("meera@example.com").getPassword()).isEqualTo("hash-1");
+
+        Object cached = cacheManager.get("userDetails:meera@example.com", Object.class).orElseThrow();
+        try (MappedCacheStore l3 = MappedCacheStore.createTemporary(1 << 16, 16)) {
+            assertThat(l3.put("userDetails:meera@example.com", cached, System.currentTimeMillis() + 60_000)).isFalse();
+            assertThat(l3.size()).isZero();
+        }
+    }
+
+    @Test
+    void loadUserByUsername_AfterPasswordUpdate_SeesTheNewPassword() {
+        User user = save("meera@example.com", "+919800000001");
+        userDetailsService.loadUserByUsername("meera@example.com");
+
+        user.setPassword("hash-2");
+        userRepository.save(user);
+
+        assertThat(cacheManager.get("userDetails:meera@example.com", Object.class)).isEmpty();
+        assertThat(userDetailsService.loadUserByUsername("meera@example.com").getPassword()).isEqualTo("hash-2");
+    }
+
+    @Test
+    void loadUserByUsername_AfterEmailUpdate_NoLongerFindsTheOldEmail() {
+        User user = save("meera@example.com", "+919800000001");
+        userDetailsService.loadUserByUsername("meera@example.com");
+
+        user.setEmail("meera.k@example.com");
+        userRepository.save(user);
+
+        assertThat(cacheManager.get("userDetails:meera@example.com", Object.class)).isEmpty();
+        assertThatThrownBy(() -> userDetailsService.loadUserByUsername("meera@example.com"))
+            .isInstanceOf(UsernameNotFoundException.class);
+        assertThat(userDetailsService.loadUserByUsername("meera.k@example.com").getUsername())
+            .isEqualTo("meera.k@example.com");
+    }
+
+    @Test
+    void loadUserByUsername_AfterPhoneUpdate_EvictsTheOldAndNewPhone() {
+        User user = save("meera@example.com", "+919800000001");
+        userDetailsService.loadUserByUsername("+919800000001");
+        assertThatThrownBy(() -> userDetailsService.loadUserByUsername("+919800000002"))
+            .isInstanceOf(UsernameNotFoundException.class);
+
+        user.setPhoneNumber("+919800000002");
+        userRepository.save(user);
+
+        assertThat(cacheManager.get("userDetails:+919800000001", Object.class)).isEmpty();
+        assertThat(userDetailsService.loadUserByUsername("+919800000002").getUsername())
+            .isEqualTo("meera@example.com");
+        assertThatThrownBy(() -> userDetailsService.loadUserByUsername("+919800000001"))
+            .isInstanceOf(UsernameNotFoundException.class);
+    }
+
+    private User save(String email, String phoneNumber) {
+        User user = userRepository.save(User.builder()
+            .email(email)
+            .phoneNumber(phoneNumber)
+            .password("hash-1")
+            .build());
+        saved.add(user);
+        return user;
+    }
+}
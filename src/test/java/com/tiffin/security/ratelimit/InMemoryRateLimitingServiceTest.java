@@ -0,0 +1,133 @@
+package com.tiffin.security.ratelimit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static com.tiffin.security.ratelimit.InMemoryRateLimitingService.BLOCKED;
+import static com.tiffin.security.ratelimit.InMemoryRateLimitingService.EndpointClass.AUTH;
+import static com.tiffin.security.ratelimit.InMemoryRateLimitingService.EndpointClass.GENERAL;
+import static com.tiffin.security.ratelimit.InMemoryRateLimitingService.EndpointClass.LOGIN;
+import static com.tiffin.security.ratelimit.InMemoryRateLimitingService.REJECTED;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit test for InMemoryRateLimitingService.acquire
+ */
+class InMemoryRateLimitingServiceTest {
+
+    private RateLimitProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        properties = new RateLimitProperties();
+        properties.setIpRequests(3);
+        properties.setAuthRequests(4);
+        properties.setUserRequests(2);
+        properties.setLoginAttempts(2);
+    }
+
+    @Test
+    void acquire_EachPolicy_ReturnsThePermitsLeftUnderTheTightest() {
+        InMemoryRateLimitingService service = service();
+
+        assertThat(service.acquire("10.0.0.1", null, GENERAL)).isEqualTo(2);
+        assertThat(service.acquire("10.0.0.1", null, AUTH)).isEqualTo(3);
+        // Login counts against the auth limit too
+        assertThat(service.acquire("10.0.0.1", null, LOGIN)).isEqualTo(1);
+        assertThat(service.acquire("10.0.0.1", null, AUTH)).isEqualTo(1);
+        assertThat(service.acquire("10.0.0.2", "asha@example.com", GENERAL)).isEqualTo(1);
+        assertThat(service.acquire("10.0.0.2", "asha@example.com", GENERAL)).isEqualTo(0);
+    }
+
+    @Test
+    void acquire_OverTheLimit_IsRejectedWithoutBlocking() {
+        InMemoryRateLimitingService service = service();
+
+        for (int i = 0; i < 3; i++) {
+            service.acquire("10.0.0.1", null, GENERAL);
+        }
+
+        assertThat(service.acquire("10.0.0.1", null, GENERAL)).isEqualTo(REJECTED);
+        assertThat(service.isIpBlocked("10.0.0.1")).isFalse();
+        assertThat(service.acquire("10.0.0.1", null, AUTH)).isEqualTo(3);
+    }
+
+    @Test
+    void acquire_UserOverItsLimit_IsRejectedFromAnyIp() {
+        InMemoryRateLimitingService service = service();
+
+        service.acquire("10.0.0.1", "asha@example.com", GENERAL);
+        service.acquire("10.0.0.2", "asha@example.com", GENERAL);
+
+        assertThat(service.acquire("10.0.0.3", "asha@example.com", GENERAL)).isEqualTo(REJECTED);
+        assertThat(service.acquire("10.0.0.3", null, GENERAL)).isEqualTo(1);
+    }
+
+    @Test
+    void acquire_TooManyLogins_BlocksTheIp() {
+        InMemoryRateLimitingService service = service();
+
+        assertThat(service.acquire("10.0.0.1", null, LOGIN)).isEqualTo(1);
+        assertThat(service.acquire("10.0.0.1", null, LOGIN)).isEqualTo(0);
+        assertThat(service.getRemainingLoginAttempts("10.0.0.1")).isZero();
+
+        assertThat(service.acquire("10.0.0.1", null, LOGIN)).isEqualTo(BLOCKED);
+        assertThat(service.isIpBlocked("10.0.0.1")).isTrue();
+        assertThat(service.acquire("10.0.0.1", "asha@example.com", GENERAL)).isEqualTo(BLOCKED);
+        assertThat(service.getStats().getBlockedIps()).isEqualTo(1);
+        assertThat(service.getRemainingLoginAttempts("10.0.0.2")).isEqualTo(2);
+    }
+
+    @Test
+    void acquire_NextWindow_StartsCountingAgain() throws InterruptedException {
+        properties.setWindow(Duration.ofMillis(100));
+        InMemoryRateLimitingService service = service();
+        for (int i = 0; i < 3; i++) {
+            service.acquire("10.0.0.1", null, GENERAL);
+        }
+        assertThat(service.acquire("10.0.0.1", null, GENERAL)).isEqualTo(REJECTED);
+
+        Thread.sleep(250);
+
+        assertThat(service.acquire("10.0.0.1", null, GENERAL)).isEqualTo(2);
+    }
+
+    @Test
+    void cleanup_RemovesOnlyIdleEntries() throws InterruptedException {
+        properties.setWindow(Duration.ofMillis(100));
+        InMemoryRateLimitingService service = service();
+        service.acquire("10.0.0.1", null, GENERAL);
+        service.acquire("10.0.0.2", null, LOGIN);
+
+        Thread.sleep(250);
+        service.cleanup();
+
+        // The login window is still counting
+        assertThat(service.getStats().getActiveEntries()).isEqualTo(1);
+        assertThat(service.getStats().getIdleEvictions()).isEqualTo(1);
+        assertThat(service.getRemainingLoginAttempts("10.0.0.2")).isEqualTo(1);
+    }
+
+    @Test
+    void acquire_PastMaxClients_EvictsDownToTheLowWaterMark() {
+        properties.setMaxClients(100);
+        InMemoryRateLimitingService service = service();
+
+        for (int i = 0; i <= 100; i++) {
+            service.acquire("10.0.1." + i, null, GENERAL);
+        }
+
+        // The entry that triggered the sweep holds no count yet, so it may go as idle; its
+        // request then counts in a new one, leaving 91
+        InMemoryRateLimitingService.RateLimitStats stats = service.getStats();
+        assertThat(stats.getIdleEvictions() + stats.getCapacityEvictions()).isEqualTo(11);
+        assertThat(stats.getActiveEntries()).isBetween(90, 91);
+    }
+
+    private InMemoryRateLimitingService service() {
+        return new InMemoryRateLimitingService(properties, new SimpleMeterRegistry());
+    }
+}
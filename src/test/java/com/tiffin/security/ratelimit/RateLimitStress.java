@@ -0,0 +1,165 @@
+package com.tiffin.security.ratelimit;
+
+import com.tiffin.stress.Stress;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrency scenarios for {@link InMemoryRateLimitingService}, see {@link com.tiffin.stress.StressSuite}
+ */
+public final class RateLimitStress {
+
+    private static final int LIMIT = 50;
+    private static final int MAX_CLIENTS = 10_000;
+    private static final int SWEPT_IPS = 1 << 20;
+
+    private RateLimitStress() {
+    }
+
+    public static void run(Stress stress) {
+        stress.scenario("rate limiter admits at most its limit", () -> noOverAdmission(stress));
+        stress.scenario("rate limiter windows reset without over-admission", () -> windowResets(stress));
+        stress.scenario("login attempts past the limit block the IP", () -> loginBlocks(stress));
+        stress.scenario("rate limiter store stays bounded under an IP sweep", () -> ipSweep(stress));
+    }
+
+    /**
+     * Every thread tries the same IP well past its limit within one window
+     */
+    private static void noOverAdmission(Stress stress) {
+        InMemoryRateLimitingService service = service(Duration.ofHours(1));
+        String ip = "10.0.0." + stress.round();
+        LongAdder admitted = new LongAdder();
+
+        stress.race(thread -> {
+            for (int i = 0; i < LIMIT; i++) {
+                if (service.acquire(ip, null, InMemoryRateLimitingService.EndpointClass.GENERAL) >= 0) {
+                    admitted.increment();
+                }
+            }
+        });
+
+        // Windows count from the service's start, so this all falls in the first
+        stress.check(admitted.sum() == LIMIT, "%d admitted with a limit of %d", admitted.sum(), LIMIT);
+    }
+
+    /**
+     * Threads hammer an IP with a short window while the last one runs cleanup in a loop: in
+     * the elapsed time there can be at most as many windows of LIMIT as it overlaps
+     */
+    private static void windowResets(Stress stress) {
+        Duration window = Duration.ofMillis(5);
+        InMemoryRateLimitingService service = service(window);
+        String ip = "10.0.1." + stress.round();
+        LongAdder admitted = new LongAdder();
+        int cleaner = stress.threads() - 1;
+        AtomicInteger hammering = new AtomicInteger(cleaner); // the cleaner runs until the last one is done
+
+        long started = System.currentTimeMillis();
+        stress.race(thread -> {
+            if (thread == cleaner) {
+                while (hammering.get() > 0) {
+                    service.cleanup();
+                }
+                return;
+            }
+            try {
+                for (int i = 0; i < 5_000; i++) {
+                    if (service.acquire(ip, null, InMemoryRateLimitingService.EndpointClass.GENERAL) >= 0) {
+                        admitted.increment();
+                    }
+                }
+            } finally {
+                hammering.decrementAndGet();
+            }
+        });
+        long windows = windows(started, window);
+
+        stress.check(admitted.sum() <= windows * LIMIT, "%d admitted in at most %d windows of %d",
+            admitted.sum(), windows, LIMIT);
+    }
+
+    /**
+     * Every thread tries to log in from the same IP: at most the allowed attempts get through,
+     * and then the IP is blocked on every endpoint
+     */
+    private static void loginBlocks(Stress stress) {
+        InMemoryRateLimitingService service = service(Duration.ofHours(1));
+        String ip = "10.0.2." + stress.round();
+        LongAdder admitted = new LongAdder();
+
+        stress.race(thread -> {
+            for (int i = 0; i < 4; i++) {
+                if (service.acquire(ip, null, InMemoryRateLimitingService.EndpointClass.LOGIN) >= 0) {
+                    admitted.increment();
+                }
+            }
+        });
+
+        int attempts = new RateLimitProperties().getLoginAttempts();
+        stress.check(admitted.sum() <= attempts, "%d login attempts admitted of %d", admitted.sum(), attempts);
+        stress.check(service.getRemainingLoginAttempts(ip) == 0, "%d login attempts left",
+            service.getRemainingLoginAttempts(ip));
+        stress.check(service.isIpBlocked(ip), "%s not blocked", ip);
+        int general = service.acquire(ip, null, InMemoryRateLimitingService.EndpointClass.GENERAL);
+        stress.check(general == InMemoryRateLimitingService.BLOCKED, "blocked IP got %d", general);
+    }
+
+    /**
+     * Threads send a request from each of a million IPv6 addresses while the last one watches
+     * the store: it never holds more than the cap plus its 10% headroom, and a request in
+     * flight per thread
+     */
+    private static void ipSweep(Stress stress) {
+        InMemoryRateLimitingService service = service(Duration.ofHours(1));
+        int watcher = stress.threads() - 1;
+        int senders = stress.threads() - 1;
+        AtomicInteger sending = new AtomicInteger(senders); // the watcher runs until the last sender is done
+        int[] largest = new int[1];
+
+        stress.race(thread -> {
+            if (thread == watcher) {
+                while (sending.get() > 0) {
+                    largest[0] = Math.max(largest[0], service.getStats().getActiveEntries());
+                }
+                return;
+            }
+            try {
+                String prefix = "2001:db8:" + Integer.toHexString(stress.round()) + "::";
+                for (int i = thread; i < SWEPT_IPS; i += senders) {
+                    service.acquire(prefix + Integer.toHexString(i), null,
+                        InMemoryRateLimitingService.EndpointClass.GENERAL);
+                }
+            } finally {
+                sending.decrementAndGet();
+            }
+        });
+
+        InMemoryRateLimitingService.RateLimitStats stats = service.getStats();
+        int bound = MAX_CLIENTS + MAX_CLIENTS / 10 + stress.threads();
+        stress.check(largest[0] <= bound && stats.getActiveEntries() <= bound, "%d clients at most, %d at the end, cap %d",
+            largest[0], stats.getActiveEntries(), MAX_CLIENTS);
+        // An IP evicted while its request was counted gets a second entry
+        stress.check(stats.getActiveEntries() + stats.getCapacityEvictions() + stats.getIdleEvictions() >= SWEPT_IPS,
+            "%d clients and %d evicted of %d IPs", stats.getActiveEntries(),
+            stats.getCapacityEvictions() + stats.getIdleEvictions(), SWEPT_IPS);
+    }
+
+    private static InMemoryRateLimitingService service(Duration window) {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setMaxClients(MAX_CLIENTS);
+        properties.setIpRequests(LIMIT);
+        properties.setAuthRequests(LIMIT);
+        properties.setWindow(window);
+        return new InMemoryRateLimitingService(properties);
+    }
+
+    /**
+     * The most fixed windows the time from started until now can overlap
+     */
+    private static long windows(long started, Duration window) {
+        return (System.currentTimeMillis() - started) / window.toMillis() + 2;
+    }
+}
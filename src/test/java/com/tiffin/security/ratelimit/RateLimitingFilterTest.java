@@ -0,0 +1,174 @@
+package com.tiffin.security.ratelimit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.ServletException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit test for RateLimitingFilter over InMemoryRateLimitingService
+ */
+class RateLimitingFilterTest {
+
+    private static final String RATE_LIMITED = """
+        {"success":false,"errorCode":"RATE_LIMIT_EXCEEDED","message":"Too many requests. Please try again later.","retryAfter":60}""";
+    private static final String BLOCKED = """
+        {"success":false,"errorCode":"IP_BLOCKED","message":"Too many login attempts. IP blocked temporarily.","retryAfter":1800}""";
+
+    private RateLimitProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        properties = new RateLimitProperties();
+        properties.setIpRequests(3);
+        properties.setAuthRequests(2);
+        properties.setUserRequests(2);
+    }
+
+    @AfterEach
+    void clearAuthentication() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void doFilter_GeneralEndpoint_AdmitsUpToTheIpLimitWithHeaders() throws Exception {
+        RateLimitingFilter filter = filter();
+        long now = System.currentTimeMillis() / 1000;
+
+        for (int remaining = 2; remaining >= 0; remaining--) {
+            Exchange exchange = send(filter, "/api/dishes", "10.0.0.1");
+            assertThat(exchange.passed()).isTrue();
+            assertThat(exchange.response.getHeader("X-Rate-Limit-Remaining")).isEqualTo(Integer.toString(remaining));
+            assertThat(Long.parseLong(exchange.response.getHeader("X-Rate-Limit-Reset"))).isBetween(now + 60, now + 62);
+        }
+
+        assertRejected(send(filter, "/api/dishes", "10.0.0.1"), RATE_LIMITED, "60");
+        assertThat(send(filter, "/api/dishes", "10.0.0.2").passed()).isTrue();
+    }
+
+    @Test
+    void doFilter_ForwardedRequests_CountTheFirstHop() throws Exception {
+        RateLimitingFilter filter = filter();
+
+        for (int i = 0; i < 3; i++) {
+            send(filter, forwarded("/api/dishes", "203.0.113.7, 172.16.0.1"));
+        }
+
+        assertRejected(send(filter, forwarded("/api/dishes", "203.0.113.7")), RATE_LIMITED, "60");
+        assertThat(send(filter, forwarded("/api/dishes", "203.0.113.8, 172.16.0.1")).passed()).isTrue();
+    }
+
+    @Test
+    void doFilter_AuthEndpoint_UsesTheAuthLimit() throws Exception {
+        RateLimitingFilter filter = filter();
+
+        assertThat(send(filter, "/api/auth/register", "10.0.0.1").response.getHeader("X-Rate-Limit-Remaining"))
+            .isEqualTo("1");
+        assertThat(send(filter, "/api/otp/send", "10.0.0.1").passed()).isTrue();
+
+        assertRejected(send(filter, "/api/auth/register", "10.0.0.1"), RATE_LIMITED, "60");
+        // The IP limit of other endpoints is separate
+        assertThat(send(filter, "/api/dishes", "10.0.0.1").passed()).isTrue();
+    }
+
+    @Test
+    void doFilter_TooManyLogins_BlocksTheIpOnEveryEndpoint() throws Exception {
+        properties.setAuthRequests(100);
+        RateLimitingFilter filter = filter();
+        int attempts = properties.getLoginAttempts();
+
+        for (int i = 0; i < attempts; i++) {
+            Exchange exchange = send(filter, "/api/auth/login", "10.0.0.1");
+            assertThat(exchange.passed()).isTrue();
+            assertThat(exchange.response.getHeader("X-Rate-Limit-Remaining"))
+                .isEqualTo(Integer.toString(attempts - i - 1));
+        }
+
+        assertRejected(send(filter, "/api/auth/login", "10.0.0.1"), BLOCKED, "1800");
+        assertRejected(send(filter, "/api/dishes", "10.0.0.1"), BLOCKED, "1800");
+        assertThat(send(filter, "/api/auth/login", "10.0.0.2").passed()).isTrue();
+    }
+
+    @Test
+    void doFilter_AuthenticatedUser_IsLimitedAcrossIps() throws Exception {
+        RateLimitingFilter filter = filter();
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+            "asha@example.com", null, AuthorityUtils.createAuthorityList("ROLE_CUSTOMER")));
+
+        assertThat(send(filter, "/api/orders", "10.0.0.1").passed()).isTrue();
+        assertThat(send(filter, "/api/orders", "10.0.0.2").passed()).isTrue();
+
+        assertRejected(send(filter, "/api/orders", "10.0.0.3"), RATE_LIMITED, "60");
+        SecurityContextHolder.clearContext();
+        assertThat(send(filter, "/api/orders", "10.0.0.3").passed()).isTrue();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"/actuator/health", "/actuator/health/liveness", "/api/health", "/api/version",
+        "/swagger-ui/index.html", "/v3/api-docs", "/webjars/swagger-ui/bundle.js"})
+    void doFilter_ExcludedPath_IsNeverLimited(String path) throws Exception {
+        properties.setIpRequests(0);
+        RateLimitingFilter filter = filter();
+
+        Exchange exchange = send(filter, path, "10.0.0.1");
+
+        assertThat(exchange.passed()).isTrue();
+        assertThat(exchange.response.getHeader("X-Rate-Limit-Remaining")).isNull();
+        assertRejected(send(filter, "/api/dishes", "10.0.0.1"), RATE_LIMITED, "60");
+    }
+
+    private RateLimitingFilter filter() {
+        return new RateLimitingFilter(new InMemoryRateLimitingService(properties, new SimpleMeterRegistry()),
+            properties);
+    }
+
+    private static MockHttpServletRequest forwarded(String uri, String forwardedFor) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        request.addHeader("X-Forwarded-For", forwardedFor);
+        return request;
+    }
+
+    private static Exchange send(RateLimitingFilter filter, String uri, String ip)
+            throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        request.setRemoteAddr(ip);
+        return send(filter, request);
+    }
+
+    private static Exchange send(RateLimitingFilter filter, MockHttpServletRequest request)
+            throws ServletException, IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(request, response, chain);
+        return new Exchange(response, chain);
+    }
+
+    private static void assertRejected(Exchange exchange, String body, String retryAfter) throws IOException {
+        assertThat(exchange.passed()).isFalse();
+        assertThat(exchange.response.getStatus()).isEqualTo(429);
+        assertThat(exchange.response.getContentType()).isEqualTo("application/json;charset=UTF-8");
+        assertThat(exchange.response.getHeader("Retry-After")).isEqualTo(retryAfter);
+        assertThat(exchange.response.getContentAsString()).isEqualTo(body);
+        assertThat(exchange.response.getContentLength()).isEqualTo(body.length());
+    }
+
+    private record Exchange(MockHttpServletResponse response, MockFilterChain chain) {
+        boolean passed() {
+            return chain.getRequest() != null;
+        }
+    }
+}
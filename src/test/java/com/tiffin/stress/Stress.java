@@ -0,0 +1,110 @@
+package com.tiffin.stress;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CyclicBarrier;
+import java.util.function.IntConsumer;
+
+/**
+ * Runs concurrency scenarios and collects the invariant violations they report
+ *
+ * A scenario runs a number of rounds; each round races a fixed number of threads released
+ * together by a barrier and then checks its invariants once they are done. Inputs come from
+ * {@link #random}, seeded from the suite seed, the round and the thread, so a failing round
+ * can be rerun with the same operations (not the same interleaving).
+ */
+public final class Stress {
+
+    private final long seed;
+    private final int rounds;
+    private final int threads;
+    private final List<String> violations = Collections.synchronizedList(new ArrayList<>());
+    private String scenario;
+    private int round;
+
+    public Stress(long seed, int rounds, int threads) {
+        this.seed = seed;
+        this.rounds = rounds;
+        this.threads = threads;
+    }
+
+    public int threads() {
+        return threads;
+    }
+
+    /**
+     * Run {@code round} once per round and print how the scenario went
+     */
+    public void scenario(String name, Runnable round) {
+        scenario = name;
+        int before = violations.size();
+        long started = System.nanoTime();
+        for (this.round = 0; this.round < rounds; this.round++) {
+            round.run();
+        }
+        int failed = violations.size() - before;
+        System.out.printf("%-48s %s (%d rounds, %d ms)%n", name, failed == 0 ? "ok" : failed + " violations",
+            rounds, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    /**
+     * Run {@code worker} on {@link #threads} threads started together, with the thread index
+     * An exception thrown by a worker is reported as a violation.
+     */
+    public void race(IntConsumer worker) {
+        CyclicBarrier start = new CyclicBarrier(threads);
+        List<Thread> started = new ArrayList<>(threads);
+        for (int t = 0; t < threads; t++) {
+            int index = t;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                    worker.accept(index);
+                } catch (Throwable e) {
+                    check(false, "thread %d failed: %s", index, e);
+                }
+            }, scenario + "-" + t);
+            thread.start();
+            started.add(thread);
+        }
+        for (Thread thread : started) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for " + thread.getName(), e);
+            }
+        }
+    }
+
+    /**
+     * Inputs of one thread in the current round; use -1 outside the race
+     */
+    public Random random(int thread) {
+        return new Random(seed * 1_000_003 + round * 1_009L + thread);
+    }
+
+    public int round() {
+        return round;
+    }
+
+    /**
+     * Record a violation unless the invariant holds; only the first 20 are printed
+     */
+    public void check(boolean invariant, String format, Object... args) {
+        if (invariant) {
+            return;
+        }
+        String violation = scenario + " round " + round + ": " + String.format(format, args);
+        violations.add(violation);
+        if (violations.size() <= 20) {
+            System.out.println("  " + violation);
+        }
+    }
+
+    public List<String> violations() {
+        return violations;
+    }
+}
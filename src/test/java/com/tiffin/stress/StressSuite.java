@@ -0,0 +1,46 @@
+package com.tiffin.stress;
+
+import com.tiffin.auth.service.OtpStress;
+import com.tiffin.cache.BloomFilterStress;
+import com.tiffin.cache.CacheStress;
+import com.tiffin.security.ratelimit.RateLimitStress;
+
+/**
+ * Races threads against the shared in-memory structures and checks their invariants
+ *
+ * Run with the stress profile, or directly:
+ *   mvn -P stress test-compile exec:exec [-Dstress.rounds=20 -Dstress.threads=8 -Dstress.seed=42]
+ *   java -cp ... com.tiffin.stress.StressSuite [rounds [threads [seed]]]
+ *
+ * Covered:
+ * - AdvancedCacheManager and its L1: size bounds, no lost or repeated evictions, no stale
+ *   copy moved over a later write, single-flight loads, no lost compute/putIfVersion updates
+ * - BloomFilter: no false negatives under concurrent adds
+ * - InMemoryRateLimitingService: no over-admission, also across window resets and cleanup;
+ *   login attempts past the limit block the IP; the store stays bounded under an IP sweep
+ * - The OTP store behind AuthenticationService: a code verifies at most once
+ * Exits with status 1 if any invariant was violated.
+ *
+ * Not a unit test (no *Test suffix), so the build does not run it.
+ */
+public final class StressSuite {
+
+    private StressSuite() {
+    }
+
+    public static void main(String[] args) {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 42;
+        System.out.printf("%d rounds, %d threads, seed %d%n", rounds, threads, seed);
+
+        Stress stress = new Stress(seed, rounds, threads);
+        CacheStress.run(stress);
+        BloomFilterStress.run(stress);
+        RateLimitStress.run(stress);
+        OtpStress.run(stress);
+
+        System.out.printf("%d violations%n", stress.violations().size());
+        System.exit(stress.violations().isEmpty() ? 0 : 1);
+    }
+}
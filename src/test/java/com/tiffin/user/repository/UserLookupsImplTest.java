@@ -0,0 +1,96 @@
+package com.tiffin.user.repository;
+
+import com.tiffin.cache.Absent;
+import com.tiffin.cache.AdvancedCacheManager;
+import com.tiffin.user.model.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Integration test for the cached negative lookups of UserLookupsImpl
+ * Not @Transactional: the absent markers are only invalidated once a save commits.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class UserLookupsImplTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private AdvancedCacheManager cacheManager;
+
+    private final List<User> saved = new ArrayList<>();
+
+    @AfterEach
+    void deleteUsers() {
+        userRepository.deleteAll(saved);
+    }
+
+    @Test
+    void findByEmail_Unused_CachesOneMarkerSharedWithExists() {
+        long absentHits = cacheManager.getStats().getAbsentHitCount();
+
+        assertThat(userRepository.findByEmail("nobody@example.com")).isEmpty();
+        assertThat(cacheManager.get(UserLookupsImpl.EMAIL_KEY_PREFIX + "nobody@example.com", Object.class))
+            .contains(Absent.of(User.class));
+        assertThat(userRepository.existsByEmail("nobody@example.com")).isFalse();
+        assertThat(userRepository.findByEmail("nobody@example.com")).isEmpty();
+
+        assertThat(cacheManager.getStats().getAbsentHitCount()).isEqualTo(absentHits + 2);
+    }
+
+    @Test
+    void findByEmail_AfterTheEmailIsTaken_FindsTheUser() {
+        assertThat(userRepository.existsByEmail("kabir@example.com")).isFalse();
+        assertThat(userRepository.existsByPhoneNumber("+919800000011")).isFalse();
+
+        save("kabir@example.com", "+919800000011");
+
+        assertThat(cacheManager.get(UserLookupsImpl.EMAIL_KEY_PREFIX + "kabir@example.com", Object.class)).isEmpty();
+        assertThat(cacheManager.get(UserLookupsImpl.PHONE_KEY_PREFIX + "+919800000011", Object.class)).isEmpty();
+        assertThat(userRepository.existsByEmail("kabir@example.com")).isTrue();
+        assertThat(userRepository.findByPhoneNumber("+919800000011")).map(User::getEmail)
+            .contains("kabir@example.com");
+    }
+
+    @Test
+    void findByPhoneNumber_AfterAUserMovesToIt_FindsTheUser() {
+        User user = save("kabir@example.com", "+919800000011");
+        assertThat(userRepository.findByPhoneNumber("+919800000012")).isEmpty();
+
+        user.setPhoneNumber("+919800000012");
+        userRepository.save(user);
+
+        assertThat(userRepository.findByPhoneNumber("+919800000012")).map(User::getEmail)
+            .contains("kabir@example.com");
+        assertThat(userRepository.existsByPhoneNumber("+919800000011")).isFalse();
+    }
+
+    @Test
+    void findByEmail_Found_IsNotCached() {
+        save("kabir@example.com", "+919800000011");
+
+        assertThat(userRepository.findByEmail("kabir@example.com")).isPresent();
+
+        assertThat(cacheManager.get(UserLookupsImpl.EMAIL_KEY_PREFIX + "kabir@example.com", Object.class)).isEmpty();
+    }
+
+    private User save(String email, String phoneNumber) {
+        User user = userRepository.save(User.builder()
+            .email(email)
+            .phoneNumber(phoneNumber)
+            .password("hash")
+            .build());
+        saved.add(user);
+        return user;
+    }
+}